@@ -7,6 +7,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.SimpleCommandLinePropertySource;
 import org.telosystools.saas.config.Constants;
+import org.telosystools.saas.config.StartupTimingListener;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -44,7 +45,7 @@ public class Application {
   public static void main(String[] args) {
     SpringApplication app = new SpringApplication(Application.class);
     app.setShowBanner(true);
-
+    app.addListeners(new StartupTimingListener());
 
     SimpleCommandLinePropertySource source = new SimpleCommandLinePropertySource(args);
 
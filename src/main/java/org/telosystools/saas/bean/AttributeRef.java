@@ -0,0 +1,59 @@
+package org.telosystools.saas.bean;
+
+import java.io.Serializable;
+
+/**
+ * An attribute of an entity of the model.
+ */
+public class AttributeRef implements Serializable {
+
+    /**
+     * Name of the entity holding the attribute
+     */
+    private String entity;
+    /**
+     * Absolute path of the entity file
+     */
+    private String path;
+    private String attribute;
+    /**
+     * Type of the attribute : a neutral type or the name of the linked entity
+     */
+    private String type;
+    private boolean collection;
+
+    AttributeRef() {}
+
+    public AttributeRef(String entity, String path, String attribute, String type, boolean collection) {
+        this.entity = entity;
+        this.path = path;
+        this.attribute = attribute;
+        this.type = type;
+        this.collection = collection;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public boolean isCollection() {
+        return collection;
+    }
+
+    @Override
+    public String toString() {
+        return entity + "." + attribute + " : " + type + (collection ? "[]" : "");
+    }
+}
@@ -0,0 +1,88 @@
+package org.telosystools.saas.bean;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Result of a run of the GridFS garbage collector.
+ */
+public class CollectReport implements Serializable {
+
+    private final Date startDate = new Date();
+    /**
+     * Number of databases swept
+     */
+    private int databases;
+    /**
+     * Number of contents older than the grace period
+     */
+    private long scannedContents;
+    /**
+     * Number of unreferenced contents removed
+     */
+    private long removedContents;
+    /**
+     * Size of the removed contents
+     */
+    private long reclaimedBytes;
+    /**
+     * Databases of deleted workspaces dropped once their contents were released
+     */
+    private int droppedDatabases;
+    private long durationMillis;
+
+    public void addDatabase() {
+        this.databases++;
+    }
+
+    public void addScanned(int count) {
+        this.scannedContents += count;
+    }
+
+    public void addRemoved(long size) {
+        this.removedContents++;
+        this.reclaimedBytes += size;
+    }
+
+    public void addDroppedDatabase() {
+        this.droppedDatabases++;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public int getDatabases() {
+        return databases;
+    }
+
+    public long getScannedContents() {
+        return scannedContents;
+    }
+
+    public long getRemovedContents() {
+        return removedContents;
+    }
+
+    public long getReclaimedBytes() {
+        return reclaimedBytes;
+    }
+
+    public int getDroppedDatabases() {
+        return droppedDatabases;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CollectReport[databases=%d, scanned=%d, removed=%d, reclaimedBytes=%d, dropped=%d, duration=%dms]",
+                databases, scannedContents, removedContents, reclaimedBytes, droppedDatabases, durationMillis);
+    }
+}
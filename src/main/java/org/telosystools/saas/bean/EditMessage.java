@@ -0,0 +1,145 @@
+package org.telosystools.saas.bean;
+
+import java.util.List;
+
+/**
+ * Message of a collaborative editing session, sent by a client to /app/projects/{id}/edit
+ * and broadcast to the participants on /topic/projects/{id}/edit.
+ */
+public class EditMessage {
+
+    public enum Type {
+        /**
+         * An edit : sent by a client with the revision it is based on,
+         * broadcast transformed with the revision it creates
+         */
+        OPERATION,
+        /**
+         * The document has been replaced by a write outside the session : content and revision restart the clients
+         */
+        RESET,
+        /**
+         * The document has been renamed, or moved with its folder, to newPath
+         */
+        MOVED,
+        /**
+         * The session is over : the document has been removed, or the session has expired
+         */
+        CLOSED,
+        /**
+         * The operation of the client has been rejected : the client must join the session again
+         */
+        RESYNC
+    }
+
+    private Type type;
+
+    /**
+     * Absolute path of the edited file
+     */
+    private String path;
+
+    /**
+     * New absolute path of a moved file
+     */
+    private String newPath;
+
+    /**
+     * Identifier chosen by the client which sent the operation, so that it recognizes its acknowledgement
+     */
+    private String clientId;
+
+    /**
+     * Login of the author of the operation
+     */
+    private String login;
+
+    private long revision;
+
+    /**
+     * Components of the operation, see {@link TextOperation}
+     */
+    private List<Object> operation;
+
+    /**
+     * Content of a reset document
+     */
+    private String content;
+
+    public EditMessage() {
+    }
+
+    public EditMessage(Type type, String path) {
+        this.type = type;
+        this.path = path;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getNewPath() {
+        return newPath;
+    }
+
+    public void setNewPath(String newPath) {
+        this.newPath = newPath;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public void setLogin(String login) {
+        this.login = login;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    public List<Object> getOperation() {
+        return operation;
+    }
+
+    public void setOperation(List<Object> operation) {
+        this.operation = operation;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EditMessage[type=%s, path=%s, clientId=%s, revision=%d]", type, path, clientId, revision);
+    }
+}
@@ -0,0 +1,32 @@
+package org.telosystools.saas.bean;
+
+/**
+ * Live document of a collaborative editing session, returned to a client joining it :
+ * its next operations are based on this revision.
+ */
+public class EditSnapshot {
+
+    private final String path;
+
+    private final String content;
+
+    private final long revision;
+
+    public EditSnapshot(String path, String content, long revision) {
+        this.path = path;
+        this.content = content;
+        this.revision = revision;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+}
@@ -0,0 +1,135 @@
+package org.telosystools.saas.bean;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * A code generation run in background, with its progress.
+ */
+public class GenerationJob implements Serializable {
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED, CANCELLED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String projectId;
+    private final String bundle;
+    private final boolean force;
+    private final String submittedBy;
+    private final Date submittedDate = new Date();
+    private volatile Date startDate;
+    private volatile Date endDate;
+    private volatile Status status = Status.QUEUED;
+    private volatile int renderedFiles;
+    private volatile int totalFiles;
+    private volatile boolean cancelRequested;
+    private volatile GenerationReport report;
+    private volatile String error;
+
+    public GenerationJob(String projectId, String bundle, boolean force, String submittedBy) {
+        this.projectId = projectId;
+        this.bundle = bundle;
+        this.force = force;
+        this.submittedBy = submittedBy;
+    }
+
+    public void start() {
+        this.startDate = new Date();
+        this.status = Status.RUNNING;
+    }
+
+    public void progress(int renderedFiles, int totalFiles) {
+        this.renderedFiles = renderedFiles;
+        this.totalFiles = totalFiles;
+    }
+
+    public void done(GenerationReport report) {
+        this.report = report;
+        end(Status.DONE);
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        end(Status.FAILED);
+    }
+
+    public void cancelled() {
+        end(Status.CANCELLED);
+    }
+
+    private void end(Status status) {
+        this.endDate = new Date();
+        this.status = status;
+    }
+
+    public void requestCancel() {
+        this.cancelRequested = true;
+    }
+
+    public boolean isFinished() {
+        return status == Status.DONE || status == Status.FAILED || status == Status.CANCELLED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public String getBundle() {
+        return bundle;
+    }
+
+    public boolean isForce() {
+        return force;
+    }
+
+    public String getSubmittedBy() {
+        return submittedBy;
+    }
+
+    public Date getSubmittedDate() {
+        return submittedDate;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getRenderedFiles() {
+        return renderedFiles;
+    }
+
+    public int getTotalFiles() {
+        return totalFiles;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public GenerationReport getReport() {
+        return report;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GenerationJob[%s, project=%s, status=%s, %d/%d]", id, projectId, status, renderedFiles, totalFiles);
+    }
+}
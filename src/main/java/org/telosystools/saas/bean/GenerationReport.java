@@ -0,0 +1,121 @@
+package org.telosystools.saas.bean;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a code generation.
+ */
+public class GenerationReport implements Serializable {
+
+    /**
+     * Number of entities of the model
+     */
+    private int entities;
+    /**
+     * Number of target definitions of the bundles
+     */
+    private int targets;
+    /**
+     * Number of files rendered
+     */
+    private int renderedFiles;
+    /**
+     * Number of files not rendered : their inputs are unchanged since their last generation
+     */
+    private int skippedFiles;
+    /**
+     * Number of files rendered but not written : their content is unchanged
+     */
+    private int unchangedFiles;
+    /**
+     * Files written in the generated folder
+     */
+    private ImportReport write;
+    /**
+     * Invalid entities, templates or outputs : the other files are generated
+     */
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    private long renderMillis;
+    private long durationMillis;
+
+    public int getEntities() {
+        return entities;
+    }
+
+    public void setEntities(int entities) {
+        this.entities = entities;
+    }
+
+    public int getTargets() {
+        return targets;
+    }
+
+    public void setTargets(int targets) {
+        this.targets = targets;
+    }
+
+    public int getRenderedFiles() {
+        return renderedFiles;
+    }
+
+    public void setRenderedFiles(int renderedFiles) {
+        this.renderedFiles = renderedFiles;
+    }
+
+    public int getSkippedFiles() {
+        return skippedFiles;
+    }
+
+    public void setSkippedFiles(int skippedFiles) {
+        this.skippedFiles = skippedFiles;
+    }
+
+    public int getUnchangedFiles() {
+        return unchangedFiles;
+    }
+
+    public void setUnchangedFiles(int unchangedFiles) {
+        this.unchangedFiles = unchangedFiles;
+    }
+
+    public ImportReport getWrite() {
+        return write;
+    }
+
+    public void setWrite(ImportReport write) {
+        this.write = write;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void addError(String error) {
+        errors.add(error);
+    }
+
+    public long getRenderMillis() {
+        return renderMillis;
+    }
+
+    public void setRenderMillis(long renderMillis) {
+        this.renderMillis = renderMillis;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GenerationReport[entities=%d, targets=%d, rendered=%d, skipped=%d, unchanged=%d, errors=%d, render=%dms, duration=%dms]",
+                entities, targets, renderedFiles, skippedFiles, unchangedFiles, errors.size(), renderMillis, durationMillis);
+    }
+}
@@ -0,0 +1,100 @@
+package org.telosystools.saas.bean;
+
+import java.io.Serializable;
+
+/**
+ * Result of an archive import into a workspace.
+ */
+public class ImportReport implements Serializable {
+
+    /**
+     * Number of files written (created or replaced)
+     */
+    private int files;
+    /**
+     * Number of existing files whose content has been replaced
+     */
+    private int replacedFiles;
+    /**
+     * Number of existing files whose content was identical : they have not been written
+     */
+    private int unchangedFiles;
+    /**
+     * Number of folders created
+     */
+    private int folders;
+    /**
+     * Total size of the imported contents
+     */
+    private long bytes;
+    /**
+     * Import duration
+     */
+    private long durationMillis;
+
+    public void addFile(long size, boolean replaced) {
+        this.files++;
+        this.bytes += size;
+        if (replaced) {
+            this.replacedFiles++;
+        }
+    }
+
+    public void addFolder() {
+        this.folders++;
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    public int getReplacedFiles() {
+        return replacedFiles;
+    }
+
+    public int getUnchangedFiles() {
+        return unchangedFiles;
+    }
+
+    public void setUnchangedFiles(int unchangedFiles) {
+        this.unchangedFiles = unchangedFiles;
+    }
+
+    public int getFolders() {
+        return folders;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * Return the number of files imported per second
+     * @return files per second
+     */
+    public double getFilesPerSecond() {
+        return durationMillis == 0 ? files : files * 1000d / durationMillis;
+    }
+
+    /**
+     * Return the number of bytes imported per second
+     * @return bytes per second
+     */
+    public double getBytesPerSecond() {
+        return durationMillis == 0 ? bytes : bytes * 1000d / durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportReport[files=%d, replaced=%d, unchanged=%d, folders=%d, bytes=%d, duration=%dms]",
+                files, replacedFiles, unchangedFiles, folders, bytes, durationMillis);
+    }
+}
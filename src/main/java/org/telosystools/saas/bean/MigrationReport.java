@@ -0,0 +1,114 @@
+package org.telosystools.saas.bean;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Result of a migration of the workspaces to a storage layout.
+ */
+public class MigrationReport implements Serializable {
+
+    private final Date startDate = new Date();
+    /**
+     * Target layout
+     */
+    private final String layout;
+    /**
+     * Number of workspaces copied to the target layout
+     */
+    private int migratedProjects;
+    /**
+     * Number of workspaces already in the target layout
+     */
+    private int skippedProjects;
+    /**
+     * Workspaces left in their layout after an error
+     */
+    private final List<String> failedProjects = new ArrayList<>();
+    /**
+     * Number of documents copied : folder trees, generation inputs and search index entries
+     */
+    private long documents;
+    /**
+     * Number of GridFS contents copied
+     */
+    private long contents;
+    /**
+     * Size of the copied contents
+     */
+    private long bytes;
+    private long durationMillis;
+
+    public MigrationReport(String layout) {
+        this.layout = layout;
+    }
+
+    public void addMigrated() {
+        this.migratedProjects++;
+    }
+
+    public void addSkipped() {
+        this.skippedProjects++;
+    }
+
+    public void addFailed(String projectId) {
+        this.failedProjects.add(projectId);
+    }
+
+    public void addDocument() {
+        this.documents++;
+    }
+
+    public void addContent(long size) {
+        this.contents++;
+        this.bytes += size;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public String getLayout() {
+        return layout;
+    }
+
+    public int getMigratedProjects() {
+        return migratedProjects;
+    }
+
+    public int getSkippedProjects() {
+        return skippedProjects;
+    }
+
+    public List<String> getFailedProjects() {
+        return failedProjects;
+    }
+
+    public long getDocuments() {
+        return documents;
+    }
+
+    public long getContents() {
+        return contents;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MigrationReport[layout=%s, migrated=%d, skipped=%d, failed=%d, documents=%d, contents=%d, bytes=%d, duration=%dms]",
+                layout, migratedProjects, skippedProjects, failedProjects.size(), documents, contents, bytes, durationMillis);
+    }
+}
@@ -0,0 +1,56 @@
+package org.telosystools.saas.bean;
+
+import java.io.Serializable;
+
+/**
+ * A file or a folder whose path matches a quick-open query.
+ */
+public class PathMatch implements Serializable {
+
+    /**
+     * Absolute path of the file or folder
+     */
+    private String path;
+    /**
+     * Name of the file or folder
+     */
+    private String name;
+    /**
+     * Indicates if the match is a folder
+     */
+    private boolean folder;
+    /**
+     * Relevance of the match, higher is better
+     */
+    private int score;
+
+    PathMatch() {}
+
+    public PathMatch(String path, String name, boolean folder, int score) {
+        this.path = path;
+        this.name = name;
+        this.folder = folder;
+        this.score = score;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isFolder() {
+        return folder;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PathMatch[path=%s, score=%d]", path, score);
+    }
+}
@@ -0,0 +1,45 @@
+package org.telosystools.saas.bean;
+
+import java.io.Serializable;
+
+/**
+ * A line of a workspace file matching a search.
+ */
+public class SearchResult implements Serializable {
+
+    /**
+     * Absolute path of the file
+     */
+    private final String path;
+    /**
+     * Line number, starting at 1
+     */
+    private final int line;
+    /**
+     * Content of the line
+     */
+    private final String snippet;
+
+    public SearchResult(String path, int line, String snippet) {
+        this.path = path;
+        this.line = line;
+        this.snippet = snippet;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SearchResult[path=%s, line=%d]", path, line);
+    }
+}
@@ -0,0 +1,221 @@
+package org.telosystools.saas.bean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Change of a text document, for the operational transformation of concurrent edits.
+ *
+ * The document is walked from its start by a list of components : a positive integer retains
+ * that number of characters, a negative integer deletes them, a string inserts it.
+ * The components cover the whole document, so an operation only applies to a document of its base length.
+ * Lengths are counted in UTF-16 chars, as in the browser.
+ */
+public class TextOperation {
+
+    private final List<Object> components = new ArrayList<>();
+
+    /**
+     * Length of the document the operation applies to
+     */
+    private int baseLength;
+
+    /**
+     * Length of the document once the operation is applied
+     */
+    private int targetLength;
+
+    /**
+     * Build an operation from its components, as sent by a client.
+     *
+     * @param components retains (positive integers), deletes (negative integers) and inserts (strings)
+     * @return the operation
+     * @throws IllegalArgumentException if a component is neither an integer nor a string
+     */
+    public static TextOperation valueOf(List<?> components) {
+        final TextOperation operation = new TextOperation();
+        for (Object component : components) {
+            if (component instanceof String) {
+                operation.insert((String) component);
+            } else if (component instanceof Number && ((Number) component).intValue() > 0) {
+                operation.retain(((Number) component).intValue());
+            } else if (component instanceof Number && ((Number) component).intValue() < 0) {
+                operation.delete(-((Number) component).intValue());
+            } else {
+                throw new IllegalArgumentException("Invalid operation component : " + component);
+            }
+        }
+        return operation;
+    }
+
+    public TextOperation retain(int count) {
+        if (count <= 0) return this;
+        baseLength += count;
+        targetLength += count;
+        final Object last = getLast();
+        if (isRetain(last)) {
+            components.set(components.size() - 1, (Integer) last + count);
+        } else {
+            components.add(count);
+        }
+        return this;
+    }
+
+    public TextOperation insert(String text) {
+        if (text.isEmpty()) return this;
+        targetLength += text.length();
+        final Object last = getLast();
+        if (isInsert(last)) {
+            components.set(components.size() - 1, last + text);
+        } else if (isDelete(last)) {
+            // L'insertion est placée avant la suppression : les opérations équivalentes ont une seule forme
+            final Object beforeDelete = components.size() > 1 ? components.get(components.size() - 2) : null;
+            if (isInsert(beforeDelete)) {
+                components.set(components.size() - 2, beforeDelete + text);
+            } else {
+                components.add(components.size() - 1, text);
+            }
+        } else {
+            components.add(text);
+        }
+        return this;
+    }
+
+    public TextOperation delete(int count) {
+        if (count <= 0) return this;
+        baseLength += count;
+        final Object last = getLast();
+        if (isDelete(last)) {
+            components.set(components.size() - 1, (Integer) last - count);
+        } else {
+            components.add(-count);
+        }
+        return this;
+    }
+
+    public List<Object> getComponents() {
+        return Collections.unmodifiableList(components);
+    }
+
+    public int getBaseLength() {
+        return baseLength;
+    }
+
+    public int getTargetLength() {
+        return targetLength;
+    }
+
+    /**
+     * Indicates if the operation leaves the document unchanged.
+     */
+    public boolean isNoop() {
+        return components.isEmpty() || (components.size() == 1 && isRetain(components.get(0)));
+    }
+
+    /**
+     * Apply the operation to a document.
+     *
+     * @param document the document
+     * @return the changed document
+     * @throws IllegalArgumentException if the document length is not the base length of the operation
+     */
+    public String apply(String document) {
+        if (document.length() != baseLength) {
+            throw new IllegalArgumentException("The operation applies to a document of " + baseLength
+                    + " chars, not " + document.length());
+        }
+        final StringBuilder result = new StringBuilder(targetLength);
+        int index = 0;
+        for (Object component : components) {
+            if (isInsert(component)) {
+                result.append((String) component);
+            } else if (isRetain(component)) {
+                result.append(document, index, index + (Integer) component);
+                index += (Integer) component;
+            } else {
+                index -= (Integer) component;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Transform two concurrent operations on the same document : applying a then b',
+     * or b then a', gives the same document. When both insert at the same position,
+     * the text of a is placed first.
+     *
+     * @param a the operation applied first
+     * @param b the concurrent operation
+     * @return a' and b'
+     * @throws IllegalArgumentException if the operations do not apply to the same document
+     */
+    public static TextOperation[] transform(TextOperation a, TextOperation b) {
+        if (a.baseLength != b.baseLength) {
+            throw new IllegalArgumentException("Concurrent operations must apply to the same document");
+        }
+        final TextOperation aPrime = new TextOperation();
+        final TextOperation bPrime = new TextOperation();
+        int i1 = 0;
+        int i2 = 0;
+        Object op1 = a.get(i1++);
+        Object op2 = b.get(i2++);
+        while (op1 != null || op2 != null) {
+            if (isInsert(op1)) {
+                aPrime.insert((String) op1);
+                bPrime.retain(((String) op1).length());
+                op1 = a.get(i1++);
+                continue;
+            }
+            if (isInsert(op2)) {
+                aPrime.retain(((String) op2).length());
+                bPrime.insert((String) op2);
+                op2 = b.get(i2++);
+                continue;
+            }
+            if (op1 == null || op2 == null) {
+                throw new IllegalArgumentException("Concurrent operations must apply to the same document");
+            }
+            final int n1 = (Integer) op1;
+            final int n2 = (Integer) op2;
+            final int length = Math.min(Math.abs(n1), Math.abs(n2));
+            if (n1 > 0 && n2 > 0) {
+                aPrime.retain(length);
+                bPrime.retain(length);
+            } else if (n1 < 0 && n2 > 0) {
+                aPrime.delete(length);
+            } else if (n1 > 0) {
+                bPrime.delete(length);
+            }
+            // Les deux opérations suppriment les mêmes caractères : rien à rejouer
+            op1 = Math.abs(n1) == length ? a.get(i1++) : (Integer) (n1 > 0 ? n1 - length : n1 + length);
+            op2 = Math.abs(n2) == length ? b.get(i2++) : (Integer) (n2 > 0 ? n2 - length : n2 + length);
+        }
+        return new TextOperation[]{aPrime, bPrime};
+    }
+
+    private Object get(int index) {
+        return index < components.size() ? components.get(index) : null;
+    }
+
+    private Object getLast() {
+        return components.isEmpty() ? null : components.get(components.size() - 1);
+    }
+
+    private static boolean isRetain(Object component) {
+        return component instanceof Integer && (Integer) component > 0;
+    }
+
+    private static boolean isDelete(Object component) {
+        return component instanceof Integer && (Integer) component < 0;
+    }
+
+    private static boolean isInsert(Object component) {
+        return component instanceof String;
+    }
+
+    @Override
+    public String toString() {
+        return "TextOperation" + components;
+    }
+}
@@ -0,0 +1,30 @@
+package org.telosystools.saas.bean;
+
+import org.telosystools.saas.domain.filesystem.FolderStats;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Size of a workspace : counters of each root folder and their total.
+ */
+public class WorkspaceStats implements Serializable {
+
+    private final Map<String, FolderStats> rootFolders = new TreeMap<>();
+
+    private final FolderStats total = new FolderStats();
+
+    public void addRootFolder(String name, FolderStats stats) {
+        rootFolders.put(name, stats);
+        total.add(stats);
+    }
+
+    public Map<String, FolderStats> getRootFolders() {
+        return rootFolders;
+    }
+
+    public FolderStats getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,44 @@
+package org.telosystools.saas.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the hits and misses of a cache.
+ *
+ * @param <V> type of the cached values
+ */
+public abstract class AbstractDataCache<V> implements DataCache<V> {
+
+    private final String name;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    protected AbstractDataCache(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public V get(String key) {
+        final V value = doGet(key);
+        (value != null ? hits : misses).incrementAndGet();
+        return value;
+    }
+
+    protected abstract V doGet(String key);
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,42 @@
+package org.telosystools.saas.cache;
+
+/**
+ * Cache of data read from the database, shared by the nodes of the application or local to one node.
+ *
+ * The readers fill the cache with putIfAbsent, the writers with put or evict : a value read before
+ * a write never replaces the value of the write.
+ * The values returned are copies, they can be changed by the caller.
+ *
+ * @param <V> type of the cached values
+ */
+public interface DataCache<V> {
+
+    /**
+     * Return a cached value.
+     *
+     * @param key the key
+     * @return a copy of the value, null if not cached
+     */
+    V get(String key);
+
+    /**
+     * Cache the value of a write.
+     */
+    void put(String key, V value);
+
+    /**
+     * Cache a value read from the database, unless a value has been cached meanwhile.
+     */
+    void putIfAbsent(String key, V value);
+
+    /**
+     * Remove a value, on all the nodes.
+     */
+    void evict(String key);
+
+    String getName();
+
+    long getHits();
+
+    long getMisses();
+}
@@ -0,0 +1,33 @@
+package org.telosystools.saas.cache;
+
+import java.util.Collection;
+
+/**
+ * Provides the data caches, configured by cache.type : none, hazelcast or local.
+ */
+public interface DataCacheManager {
+
+    /**
+     * Root folders of the workspaces, by database and folder id
+     */
+    String FOLDERS = "folders";
+
+    /**
+     * Authentication details of the users, by login
+     */
+    String USERS = "users";
+
+    /**
+     * Small GridFS contents, by database and GridFS id : a content is never changed, a write creates a new one
+     */
+    String FILE_CONTENTS = "fileContents";
+
+    /**
+     * Storage layouts of the workspaces, by project id
+     */
+    String WORKSPACE_STORAGE = "workspaceStorage";
+
+    <V> DataCache<V> getCache(String name);
+
+    Collection<DataCache<?>> getCaches();
+}
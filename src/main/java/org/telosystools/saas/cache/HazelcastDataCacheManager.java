@@ -0,0 +1,88 @@
+package org.telosystools.saas.cache;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches shared by the nodes of the cluster, in Hazelcast distributed maps.
+ *
+ * The maps keep their values serialized : each read returns a new copy. The near cache of each node
+ * keeps the values read recently, and is invalidated when another node changes them.
+ * An evicted key keeps a tombstone for a while, as in the local caches : a value read from the database
+ * before the eviction is not cached by a putIfAbsent after it.
+ */
+public class HazelcastDataCacheManager implements DataCacheManager {
+
+    /**
+     * Value of an evicted key
+     */
+    private enum Tombstone {
+        INSTANCE
+    }
+
+    private class HazelcastDataCache<V> extends AbstractDataCache<V> {
+
+        private final IMap<String, Object> map;
+
+        HazelcastDataCache(String name, IMap<String, Object> map) {
+            super(name);
+            this.map = map;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected V doGet(String key) {
+            final Object value = map.get(key);
+            return value instanceof Tombstone ? null : (V) value;
+        }
+
+        @Override
+        public void put(String key, V value) {
+            map.set(key, value);
+        }
+
+        @Override
+        public void putIfAbsent(String key, V value) {
+            map.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(String key) {
+            // La pierre tombale remplace la valeur de façon atomique : un putIfAbsent ultérieur échoue tant qu'elle existe
+            map.set(key, Tombstone.INSTANCE, tombstoneMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private final HazelcastInstance hazelcastInstance;
+
+    private final long tombstoneMillis;
+
+    private final Map<String, DataCache<?>> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param hazelcastInstance the Hazelcast member
+     * @param tombstoneMillis   time during which an evicted key is not cached by putIfAbsent
+     */
+    public HazelcastDataCacheManager(HazelcastInstance hazelcastInstance, long tombstoneMillis) {
+        this.hazelcastInstance = hazelcastInstance;
+        this.tombstoneMillis = tombstoneMillis;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> DataCache<V> getCache(String name) {
+        return (DataCache<V>) caches.computeIfAbsent(name,
+                key -> new HazelcastDataCache<V>(key, hazelcastInstance.<String, Object>getMap(key)));
+    }
+
+    @Override
+    public Collection<DataCache<?>> getCaches() {
+        return new ArrayList<>(caches.values());
+    }
+}
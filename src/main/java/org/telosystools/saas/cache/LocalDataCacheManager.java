@@ -0,0 +1,182 @@
+package org.telosystools.saas.cache;
+
+import org.springframework.util.SerializationUtils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches local to each node, kept coherent by the invalidation bus : every put or evict is published
+ * to the other nodes, which evict the key.
+ *
+ * The values are kept serialized : each read returns a new copy. The least recently used values are
+ * evicted beyond the maximum number of entries.
+ * An evicted key keeps a tombstone for a while : a value read from the database before the invalidation
+ * is not cached by a putIfAbsent after it.
+ */
+public class LocalDataCacheManager implements DataCacheManager, MongoInvalidationBus.Listener {
+
+    private static class Entry {
+
+        /**
+         * Serialized value, null for a tombstone
+         */
+        private final byte[] value;
+        private final long expires;
+
+        Entry(byte[] value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expires;
+        }
+    }
+
+    private class LocalDataCache<V> extends AbstractDataCache<V> {
+
+        private final Map<String, Entry> entries;
+
+        LocalDataCache(String name, int maxEntries) {
+            super(name);
+            this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected V doGet(String key) {
+            final byte[] value;
+            synchronized (entries) {
+                final Entry entry = entries.get(key);
+                if (entry == null || entry.value == null) {
+                    return null;
+                }
+                if (entry.isExpired(System.currentTimeMillis())) {
+                    entries.remove(key);
+                    return null;
+                }
+                value = entry.value;
+            }
+            return (V) SerializationUtils.deserialize(value);
+        }
+
+        @Override
+        public void put(String key, V value) {
+            final Entry entry = new Entry(serialize(value), System.currentTimeMillis() + timeToLiveMillis);
+            synchronized (entries) {
+                entries.put(key, entry);
+            }
+            invalidationBus.publish(getName(), key);
+        }
+
+        @Override
+        public void putIfAbsent(String key, V value) {
+            final long now = System.currentTimeMillis();
+            final Entry entry = new Entry(serialize(value), now + timeToLiveMillis);
+            synchronized (entries) {
+                final Entry current = entries.get(key);
+                if (current == null || current.isExpired(now)) {
+                    entries.put(key, entry);
+                }
+            }
+        }
+
+        @Override
+        public void evict(String key) {
+            invalidate(key);
+            invalidationBus.publish(getName(), key);
+        }
+
+        void invalidate(String key) {
+            final Entry tombstone = new Entry(null, System.currentTimeMillis() + tombstoneMillis);
+            synchronized (entries) {
+                entries.put(key, tombstone);
+            }
+        }
+
+        void clear() {
+            synchronized (entries) {
+                entries.clear();
+            }
+        }
+
+        private byte[] serialize(V value) {
+            if (!(value instanceof Serializable)) {
+                throw new IllegalArgumentException("Value not serializable in cache " + getName() + " : " + value);
+            }
+            return SerializationUtils.serialize(value);
+        }
+    }
+
+    private final MongoInvalidationBus invalidationBus;
+
+    private final int defaultMaxEntries;
+
+    private final long timeToLiveMillis;
+
+    private final long tombstoneMillis;
+
+    private final Map<String, Integer> maxEntries = new ConcurrentHashMap<>();
+
+    private final Map<String, LocalDataCache<?>> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param invalidationBus   bus propagating the changes
+     * @param defaultMaxEntries maximum number of values by cache
+     * @param timeToLiveMillis  time to live of a value
+     * @param tombstoneMillis   time during which an evicted key is not cached by putIfAbsent
+     */
+    public LocalDataCacheManager(MongoInvalidationBus invalidationBus, int defaultMaxEntries,
+                                 long timeToLiveMillis, long tombstoneMillis) {
+        this.invalidationBus = invalidationBus;
+        this.defaultMaxEntries = defaultMaxEntries;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.tombstoneMillis = tombstoneMillis;
+    }
+
+    /**
+     * Set the maximum number of values of a cache, before its first use.
+     */
+    public void setMaxEntries(String name, int maxEntries) {
+        this.maxEntries.put(name, maxEntries);
+    }
+
+    public MongoInvalidationBus getInvalidationBus() {
+        return invalidationBus;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> DataCache<V> getCache(String name) {
+        return (DataCache<V>) caches.computeIfAbsent(name,
+                key -> new LocalDataCache<>(key, maxEntries.getOrDefault(key, defaultMaxEntries)));
+    }
+
+    @Override
+    public Collection<DataCache<?>> getCaches() {
+        return new ArrayList<>(caches.values());
+    }
+
+    @Override
+    public void invalidate(String cacheName, String key) {
+        final LocalDataCache<?> cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.invalidate(key);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        caches.values().forEach(LocalDataCache::clear);
+    }
+}
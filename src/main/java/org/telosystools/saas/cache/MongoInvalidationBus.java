@@ -0,0 +1,241 @@
+package org.telosystools.saas.cache;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.Bytes;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Propagates the invalidations of the local caches to the other nodes, through a capped collection
+ * of the general database.
+ *
+ * Every change of a cached value appends a record { node, cache, key, time } ; each node follows the collection
+ * with a tailable cursor and evicts the keys changed by the other nodes.
+ * When the cursor is lost (restart of the database, records overwritten before being read) the node clears
+ * its caches, then reads the collection again from its first record : an invalidation read twice is harmless.
+ *
+ * The lag is the delay between the write of a record and its reading, measured with the clocks of two nodes.
+ */
+public class MongoInvalidationBus {
+
+    /**
+     * Receives the invalidations of the other nodes.
+     */
+    public interface Listener {
+
+        void invalidate(String cacheName, String key);
+
+        /**
+         * Invalidations may have been missed : all the cached values must be removed.
+         */
+        void invalidateAll();
+    }
+
+    public static final String COLLECTION_INVALIDATIONS = "cache_invalidations";
+
+    private static final long RETRY_MILLIS = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(MongoInvalidationBus.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    private final long maxRecords;
+
+    private final String node = UUID.randomUUID().toString();
+
+    private volatile boolean running;
+
+    private volatile DBCursor cursor;
+
+    private volatile boolean tailing;
+
+    private Thread tailer;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+    private final AtomicLong lastLag = new AtomicLong();
+    private final AtomicLong maxLag = new AtomicLong();
+    private final AtomicLong totalLag = new AtomicLong();
+    private final AtomicLong measuredRecords = new AtomicLong();
+
+    /**
+     * @param mongoTemplate template of the general database
+     * @param maxRecords    number of records kept by the capped collection
+     */
+    public MongoInvalidationBus(MongoTemplate mongoTemplate, long maxRecords) {
+        this.mongoTemplate = mongoTemplate;
+        this.maxRecords = maxRecords;
+    }
+
+    /**
+     * Create the capped collection if needed and start following it.
+     *
+     * @param listener receives the invalidations of the other nodes
+     */
+    public synchronized void start(Listener listener) {
+        if (running) return;
+
+        createCollection();
+        running = true;
+        tailer = new Thread(() -> tail(listener), "cache-invalidation-tailer");
+        tailer.setDaemon(true);
+        tailer.start();
+    }
+
+    public synchronized void stop() {
+        if (!running) return;
+
+        running = false;
+        final DBCursor current = cursor;
+        if (current != null) {
+            current.close();
+        }
+        try {
+            tailer.join(RETRY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Notify the other nodes that a cached value has changed.
+     *
+     * @param cacheName cache name
+     * @param key       key of the changed value
+     */
+    public void publish(String cacheName, String key) {
+        try {
+            collection().insert(new BasicDBObject("node", node)
+                    .append("cache", cacheName)
+                    .append("key", key)
+                    .append("time", System.currentTimeMillis()));
+            published.incrementAndGet();
+        } catch (RuntimeException e) {
+            // La valeur des autres noeuds expirera avec la durée de vie du cache
+            errors.incrementAndGet();
+            log.warn("Unable to publish the invalidation of {} in cache {} : {}", key, cacheName, e.getMessage());
+        }
+    }
+
+    private void createCollection() {
+        if (mongoTemplate.collectionExists(COLLECTION_INVALIDATIONS)) return;
+        try {
+            // Un enregistrement de taille moyenne fait moins de 200 octets
+            mongoTemplate.createCollection(COLLECTION_INVALIDATIONS,
+                    new CollectionOptions((int) Math.min(Integer.MAX_VALUE, maxRecords * 256), (int) maxRecords, true));
+            // Un curseur tailable sur une collection vide est fermé immédiatement
+            collection().insert(new BasicDBObject("node", node).append("time", System.currentTimeMillis()));
+        } catch (RuntimeException e) {
+            // Collection créée par un autre noeud
+            log.debug("Invalidation collection not created : {}", e.getMessage());
+        }
+    }
+
+    private void tail(Listener listener) {
+        while (running) {
+            // Des invalidations ont pu être perdues depuis le dernier curseur
+            listener.invalidateAll();
+            final long startTime = System.currentTimeMillis();
+            try {
+                cursor = collection().find()
+                        .addOption(Bytes.QUERYOPTION_TAILABLE)
+                        .addOption(Bytes.QUERYOPTION_AWAITDATA);
+                tailing = true;
+                while (running && cursor.hasNext()) {
+                    receive(cursor.next(), startTime, listener);
+                }
+            } catch (RuntimeException e) {
+                if (running) {
+                    log.warn("Invalidation cursor lost : {}", e.getMessage());
+                }
+            } finally {
+                tailing = false;
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+            if (running) {
+                restarts.incrementAndGet();
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void receive(DBObject record, long startTime, Listener listener) {
+        final String cacheName = (String) record.get("cache");
+        if (cacheName == null || node.equals(record.get("node"))) {
+            return;
+        }
+        listener.invalidate(cacheName, (String) record.get("key"));
+        received.incrementAndGet();
+
+        // Les enregistrements antérieurs au curseur sont relus : ils ne mesurent pas le délai de propagation
+        final long time = ((Number) record.get("time")).longValue();
+        if (time >= startTime) {
+            final long lag = Math.max(0, System.currentTimeMillis() - time);
+            lastLag.set(lag);
+            maxLag.accumulateAndGet(lag, Math::max);
+            totalLag.addAndGet(lag);
+            measuredRecords.incrementAndGet();
+        }
+    }
+
+    private DBCollection collection() {
+        return mongoTemplate.getCollection(COLLECTION_INVALIDATIONS);
+    }
+
+    /**
+     * Indicates if the invalidations of the other nodes are currently received.
+     */
+    public boolean isTailing() {
+        return tailing;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getRestarts() {
+        return restarts.get();
+    }
+
+    public long getLastLagMillis() {
+        return lastLag.get();
+    }
+
+    public long getMaxLagMillis() {
+        return maxLag.get();
+    }
+
+    public double getMeanLagMillis() {
+        final long count = measuredRecords.get();
+        return count == 0 ? 0.0 : (double) totalLag.get() / count;
+    }
+}
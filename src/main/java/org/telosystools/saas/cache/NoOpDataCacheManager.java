@@ -0,0 +1,44 @@
+package org.telosystools.saas.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Caches nothing : every read goes to the database.
+ */
+public class NoOpDataCacheManager implements DataCacheManager {
+
+    private static class NoOpDataCache<V> extends AbstractDataCache<V> {
+
+        NoOpDataCache(String name) {
+            super(name);
+        }
+
+        @Override
+        protected V doGet(String key) {
+            return null;
+        }
+
+        @Override
+        public void put(String key, V value) {
+        }
+
+        @Override
+        public void putIfAbsent(String key, V value) {
+        }
+
+        @Override
+        public void evict(String key) {
+        }
+    }
+
+    @Override
+    public <V> DataCache<V> getCache(String name) {
+        return new NoOpDataCache<>(name);
+    }
+
+    @Override
+    public Collection<DataCache<?>> getCaches() {
+        return Collections.emptyList();
+    }
+}
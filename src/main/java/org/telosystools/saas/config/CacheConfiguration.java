@@ -0,0 +1,148 @@
+package org.telosystools.saas.config;
+
+import com.hazelcast.config.*;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.util.StringUtils;
+import org.telosystools.saas.cache.DataCacheManager;
+import org.telosystools.saas.cache.HazelcastDataCacheManager;
+import org.telosystools.saas.cache.LocalDataCacheManager;
+import org.telosystools.saas.cache.MongoInvalidationBus;
+import org.telosystools.saas.cache.NoOpDataCacheManager;
+
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Configures the data caches of the workspaces, users and file contents.
+ *
+ * cache.type is none (no cache, the default), hazelcast : an embedded member joins the other
+ * nodes, found by multicast or in cache.hazelcast.members, and shares the caches with them,
+ * or local : each node has its own caches, and publishes their invalidations to the other nodes
+ * through a capped collection of the general database.
+ */
+@Configuration
+public class CacheConfiguration implements EnvironmentAware {
+
+    public static final String TYPE_NONE = "none";
+    public static final String TYPE_HAZELCAST = "hazelcast";
+    public static final String TYPE_LOCAL = "local";
+
+    private final Logger log = LoggerFactory.getLogger(CacheConfiguration.class);
+
+    private RelaxedPropertyResolver propertyResolver;
+
+    private HazelcastInstance hazelcastInstance;
+
+    private MongoInvalidationBus invalidationBus;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.propertyResolver = new RelaxedPropertyResolver(environment, "cache.");
+    }
+
+    @Bean
+    public DataCacheManager dataCacheManager() {
+        final String type = propertyResolver.getProperty("type", TYPE_NONE);
+        if (TYPE_HAZELCAST.equals(type)) {
+            log.info("Starting the Hazelcast cache member");
+            hazelcastInstance = Hazelcast.newHazelcastInstance(hazelcastConfig());
+            return new HazelcastDataCacheManager(hazelcastInstance,
+                    propertyResolver.getProperty("hazelcast.tombstoneMillis", Long.class, 5000L));
+        }
+        if (TYPE_LOCAL.equals(type)) {
+            log.info("Starting the local caches and their invalidation bus");
+            invalidationBus = new MongoInvalidationBus(mongoTemplate,
+                    propertyResolver.getProperty("local.bus.maxRecords", Long.class, 10000L));
+            final LocalDataCacheManager cacheManager = new LocalDataCacheManager(invalidationBus,
+                    propertyResolver.getProperty("local.maxEntries", Integer.class, 10000),
+                    propertyResolver.getProperty("timeToLiveSeconds", Long.class, 3600L) * 1000,
+                    propertyResolver.getProperty("local.tombstoneMillis", Long.class, 5000L));
+            cacheManager.setMaxEntries(DataCacheManager.FILE_CONTENTS,
+                    propertyResolver.getProperty("fileContents.maxEntries", Integer.class, 10000));
+            invalidationBus.start(cacheManager);
+            return cacheManager;
+        }
+        log.info("No data cache");
+        return new NoOpDataCacheManager();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (invalidationBus != null) {
+            log.info("Stopping the cache invalidation bus");
+            invalidationBus.stop();
+        }
+        if (hazelcastInstance != null) {
+            log.info("Stopping the Hazelcast cache member");
+            hazelcastInstance.shutdown();
+        }
+    }
+
+    /**
+     * Build the configuration of the Hazelcast member.
+     *
+     * @return member configuration
+     */
+    public Config hazelcastConfig() {
+        final Config config = new Config(propertyResolver.getProperty("hazelcast.instanceName", "telosys-saas"));
+        config.setProperty("hazelcast.logging.type", "slf4j");
+        config.setProperty("hazelcast.phone.home.enabled", "false");
+        config.getGroupConfig().setName(propertyResolver.getProperty("hazelcast.group", "telosys-saas"));
+
+        final NetworkConfig network = config.getNetworkConfig();
+        network.setPort(propertyResolver.getProperty("hazelcast.port", Integer.class, 5701));
+        network.setPortAutoIncrement(true);
+        final List<String> members = getMembers();
+        final JoinConfig join = network.getJoin();
+        join.getMulticastConfig().setEnabled(members.isEmpty());
+        join.getTcpIpConfig().setEnabled(!members.isEmpty()).setMembers(members);
+
+        final int timeToLive = propertyResolver.getProperty("timeToLiveSeconds", Integer.class, 3600);
+        final int backupCount = propertyResolver.getProperty("hazelcast.backupCount", Integer.class, 1);
+        config.addMapConfig(mapConfig(DataCacheManager.FOLDERS, timeToLive, backupCount));
+        config.addMapConfig(mapConfig(DataCacheManager.USERS, timeToLive, backupCount));
+        config.addMapConfig(mapConfig(DataCacheManager.WORKSPACE_STORAGE, timeToLive, backupCount));
+        // Les contenus sont nombreux : les moins utilisés sont évincés sur chaque noeud
+        config.addMapConfig(mapConfig(DataCacheManager.FILE_CONTENTS, timeToLive, backupCount)
+                .setEvictionPolicy(EvictionPolicy.LRU)
+                .setMaxSizeConfig(new MaxSizeConfig(propertyResolver.getProperty("fileContents.maxEntries", Integer.class, 10000),
+                        MaxSizeConfig.MaxSizePolicy.PER_NODE)));
+        return config;
+    }
+
+    private MapConfig mapConfig(String name, int timeToLive, int backupCount) {
+        // Valeurs sérialisées dans le near cache : chaque lecture renvoie une copie
+        final NearCacheConfig nearCache = new NearCacheConfig()
+                .setInMemoryFormat(InMemoryFormat.BINARY)
+                .setInvalidateOnChange(true)
+                .setCacheLocalEntries(true)
+                .setTimeToLiveSeconds(timeToLive);
+        return new MapConfig(name)
+                .setInMemoryFormat(InMemoryFormat.BINARY)
+                .setBackupCount(backupCount)
+                .setTimeToLiveSeconds(timeToLive)
+                .setNearCacheConfig(nearCache);
+    }
+
+    private List<String> getMembers() {
+        final String members = propertyResolver.getProperty("hazelcast.members", "");
+        return StringUtils.hasText(members)
+                ? Arrays.asList(StringUtils.trimArrayElements(StringUtils.commaDelimitedListToStringArray(members)))
+                : Collections.emptyList();
+    }
+}
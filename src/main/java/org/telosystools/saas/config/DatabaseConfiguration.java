@@ -1,10 +1,14 @@
 package org.telosystools.saas.config;
 
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
 import com.mongodb.Mongo;
 import org.mongeez.Mongeez;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
 import org.springframework.boot.autoconfigure.mongo.MongoProperties;
 import org.springframework.context.annotation.Bean;
@@ -12,13 +16,24 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.data.mongodb.config.AbstractMongoConfiguration;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.mapping.event.ValidatingMongoEventListener;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 import javax.inject.Inject;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
 
 @Configuration
 @Profile("!cloud")
@@ -27,8 +42,16 @@ import javax.inject.Inject;
 @EnableMongoAuditing(auditorAwareRef = "springSecurityAuditorAware")
 public class DatabaseConfiguration extends AbstractMongoConfiguration {
 
+    private static final String MONGEEZ_MASTER = "/config/mongeez/master.xml";
+    private static final String MONGEEZ_FILES = "/config/mongeez/*.xml";
+    private static final String COLLECTION_MONGEEZ_CHECKSUM = "mongeez_checksum";
+    private static final String MONGEEZ_CHECKSUM_ID = "changesets";
+
     private final Logger log = LoggerFactory.getLogger(DatabaseConfiguration.class);
 
+    @Value("${mongeez.skipUnchanged:true}")
+    private boolean mongeezSkipUnchanged;
+
     @Inject
     private Mongo mongo;
 
@@ -60,15 +83,45 @@ public class DatabaseConfiguration extends AbstractMongoConfiguration {
         return new MongoTemplate(mongo(), getDatabaseName());
     }
 
+    /**
+     * Run the Mongeez changesets, unless the changeset files are the same as the ones of the last run.
+     */
     @Bean
     @Profile("!" + Constants.SPRING_PROFILE_FAST)
-    public Mongeez mongeez() {
+    public Mongeez mongeez() throws IOException {
         log.debug("Configuring Mongeez");
+        final long start = System.currentTimeMillis();
         Mongeez mongeez = new Mongeez();
-        mongeez.setFile(new ClassPathResource("/config/mongeez/master.xml"));
+        mongeez.setFile(new ClassPathResource(MONGEEZ_MASTER));
         mongeez.setMongo(mongo);
         mongeez.setDbName(mongoProperties.getDatabase());
-        mongeez.process();
+
+        final String checksum = mongeezChecksum();
+        final DBCollection checksums = mongo.getDB(mongoProperties.getDatabase()).getCollection(COLLECTION_MONGEEZ_CHECKSUM);
+        final DBObject last = checksums.findOne(new BasicDBObject("_id", MONGEEZ_CHECKSUM_ID));
+        if (mongeezSkipUnchanged && last != null && checksum.equals(last.get("checksum"))) {
+            log.info("Mongeez changesets unchanged since {}, migration skipped", last.get("date"));
+        } else {
+            mongeez.process();
+            checksums.save(new BasicDBObject("_id", MONGEEZ_CHECKSUM_ID).append("checksum", checksum).append("date", new Date()));
+        }
+        StartupTimingListener.recordStep("mongeez", System.currentTimeMillis() - start);
         return mongeez;
     }
+
+    /**
+     * Checksum of the master file and of the changeset files.
+     */
+    private String mongeezChecksum() throws IOException {
+        final ByteArrayOutputStream files = new ByteArrayOutputStream();
+        final Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath:" + MONGEEZ_FILES);
+        Arrays.sort(resources, Comparator.comparing(Resource::getFilename));
+        for (Resource resource : resources) {
+            try (InputStream in = resource.getInputStream()) {
+                files.write(resource.getFilename().getBytes(StandardCharsets.UTF_8));
+                StreamUtils.copy(in, files);
+            }
+        }
+        return DigestUtils.md5DigestAsHex(files.toByteArray());
+    }
 }
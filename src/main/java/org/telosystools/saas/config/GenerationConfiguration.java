@@ -0,0 +1,79 @@
+package org.telosystools.saas.config;
+
+import org.apache.velocity.runtime.RuntimeConstants;
+import org.apache.velocity.runtime.RuntimeInstance;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.log.NullLogChute;
+import org.apache.velocity.util.introspection.SecureUberspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Configures the code generation : template engine and rendering pool.
+ */
+@Configuration
+public class GenerationConfiguration implements EnvironmentAware {
+
+    public static final String GENERATION_POOL = "generationPool";
+    public static final String GENERATION_JOB_EXECUTOR = "generationJobExecutor";
+
+    private final Logger log = LoggerFactory.getLogger(GenerationConfiguration.class);
+
+    private RelaxedPropertyResolver propertyResolver;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.propertyResolver = new RelaxedPropertyResolver(environment, "generation.");
+    }
+
+    /**
+     * Pool rendering the entity x template combinations, shared by all the generations.
+     */
+    @Bean(name = GENERATION_POOL, destroyMethod = "shutdown")
+    public ForkJoinPool generationPool() {
+        int parallelism = propertyResolver.getProperty("parallelism", Integer.class, Runtime.getRuntime().availableProcessors());
+        log.debug("Creating generation pool, parallelism {}", parallelism);
+        return new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Executor of the generation jobs : the jobs wait in a bounded queue, beyond which they are rejected.
+     * Each job renders its files on the generation pool.
+     */
+    @Bean(name = GENERATION_JOB_EXECUTOR)
+    public ThreadPoolTaskExecutor generationJobExecutor() {
+        log.debug("Creating generation job executor");
+        int threads = propertyResolver.getProperty("jobs.threads", Integer.class, 2);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(propertyResolver.getProperty("jobs.queueCapacity", Integer.class, 50));
+        executor.setThreadNamePrefix("generation-job-");
+        return executor;
+    }
+
+    /**
+     * Velocity runtime : the templates are given as strings and parsed by the template renderer,
+     * no resource loader is used.
+     * The templates are uploaded by the users : the secure uberspector forbids the calls to the classes
+     * listed by runtime.introspector.restrict (Class, ClassLoader, Runtime, System, Thread, reflection...).
+     */
+    @Bean
+    public RuntimeServices velocityRuntime() {
+        log.debug("Configuring Velocity");
+        RuntimeInstance runtime = new RuntimeInstance();
+        runtime.setProperty(RuntimeConstants.RUNTIME_LOG_LOGSYSTEM_CLASS, NullLogChute.class.getName());
+        runtime.setProperty(RuntimeConstants.INPUT_ENCODING, "UTF-8");
+        runtime.setProperty(RuntimeConstants.UBERSPECT_CLASSNAME, SecureUberspector.class.getName());
+        runtime.init();
+        return runtime;
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.boot.bind.RelaxedPropertyResolver;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.env.Environment;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
@@ -37,7 +38,11 @@ public class MailConfiguration implements EnvironmentAware {
         this.propertyResolver = new RelaxedPropertyResolver(environment, ENV_SPRING_MAIL);
     }
 
+    /**
+     * Created when the first mail is sent, the mails being sent asynchronously after the startup.
+     */
     @Bean
+    @Lazy
     public JavaMailSenderImpl javaMailSender() {
         log.debug("Configuring mail server");
         String host = propertyResolver.getProperty(PROP_HOST, DEFAULT_PROP_HOST);
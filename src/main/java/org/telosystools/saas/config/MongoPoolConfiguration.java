@@ -0,0 +1,52 @@
+package org.telosystools.saas.config;
+
+import com.mongodb.MongoClientOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Configures the connection pool of the Mongo client created by Spring Boot.
+ *
+ * The options are read from mongo.pool, and default to the ones of the driver :
+ * 100 connections by host, 5 waiting threads by connection and a wait of 2 minutes for a connection.
+ */
+@Configuration
+public class MongoPoolConfiguration implements EnvironmentAware {
+
+    private static final String ENV_MONGO_POOL = "mongo.pool.";
+
+    private final Logger log = LoggerFactory.getLogger(MongoPoolConfiguration.class);
+
+    private RelaxedPropertyResolver propertyResolver;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.propertyResolver = new RelaxedPropertyResolver(environment, ENV_MONGO_POOL);
+    }
+
+    @Bean
+    public MongoClientOptions mongoClientOptions() {
+        final MongoClientOptions options = MongoClientOptions.builder()
+                .description("telosys-saas")
+                .connectionsPerHost(propertyResolver.getProperty("connectionsPerHost", Integer.class, 100))
+                .minConnectionsPerHost(propertyResolver.getProperty("minConnectionsPerHost", Integer.class, 0))
+                .threadsAllowedToBlockForConnectionMultiplier(propertyResolver.getProperty("waitQueueMultiplier", Integer.class, 5))
+                .maxWaitTime(propertyResolver.getProperty("maxWaitMillis", Integer.class, 120000))
+                .maxConnectionIdleTime(propertyResolver.getProperty("maxIdleMillis", Integer.class, 0))
+                .maxConnectionLifeTime(propertyResolver.getProperty("maxLifeMillis", Integer.class, 0))
+                .connectTimeout(propertyResolver.getProperty("connectTimeoutMillis", Integer.class, 10000))
+                .socketTimeout(propertyResolver.getProperty("socketTimeoutMillis", Integer.class, 0))
+                .socketKeepAlive(propertyResolver.getProperty("socketKeepAlive", Boolean.class, false))
+                .build();
+        log.debug("Configuring the Mongo connection pool : {} connections by host, {} waiting threads, {} ms wait",
+                options.getConnectionsPerHost(),
+                options.getConnectionsPerHost() * options.getThreadsAllowedToBlockForConnectionMultiplier(),
+                options.getMaxWaitTime());
+        return options;
+    }
+}
@@ -0,0 +1,51 @@
+package org.telosystools.saas.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.telosystools.saas.security.security.ratelimit.RateLimitFilter;
+import org.telosystools.saas.security.security.ratelimit.TokenBucketRateLimiter;
+
+/**
+ * Configures the rate limits of the API when ratelimit.enabled is true : disabled by default.
+ * A client over its budget gets a 429 response.
+ *
+ * Each budget allows a burst of ratelimit.[budget].capacity requests by client,
+ * then ratelimit.[budget].refillPerSecond requests by second.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "ratelimit", name = "enabled", matchIfMissing = false)
+public class RateLimitConfiguration implements EnvironmentAware {
+
+    private final Logger log = LoggerFactory.getLogger(RateLimitConfiguration.class);
+
+    private RelaxedPropertyResolver propertyResolver;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.propertyResolver = new RelaxedPropertyResolver(environment, "ratelimit.");
+    }
+
+    @Bean
+    public TokenBucketRateLimiter tokenBucketRateLimiter() {
+        log.debug("Configuring the rate limits of the API");
+        final TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(
+                propertyResolver.getProperty("maxClients", Integer.class, 100000));
+        addBudget(rateLimiter, RateLimitFilter.BUDGET_AUTHENTICATION, 10, 0.2);
+        addBudget(rateLimiter, RateLimitFilter.BUDGET_GENERATION, 10, 0.5);
+        addBudget(rateLimiter, RateLimitFilter.BUDGET_WRITE, 50, 10);
+        addBudget(rateLimiter, RateLimitFilter.BUDGET_READ, 200, 50);
+        return rateLimiter;
+    }
+
+    private void addBudget(TokenBucketRateLimiter rateLimiter, String budget, int capacity, double refillPerSecond) {
+        rateLimiter.addBudget(budget,
+                propertyResolver.getProperty(budget + ".capacity", Integer.class, capacity),
+                propertyResolver.getProperty(budget + ".refillPerSecond", Double.class, refillPerSecond));
+    }
+}
@@ -2,6 +2,7 @@ package org.telosystools.saas.config;
 
 import org.telosystools.saas.security.security.*;
 import org.telosystools.saas.security.security.xauth.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -24,6 +25,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.data.repository.query.SecurityEvaluationContextExtension;
 import org.telosystools.saas.security.security.AuthoritiesConstants;
 import org.telosystools.saas.security.security.Http401UnauthorizedEntryPoint;
+import org.telosystools.saas.security.security.ratelimit.TokenBucketRateLimiter;
 import org.telosystools.saas.security.security.xauth.TokenProvider;
 import org.telosystools.saas.security.security.xauth.XAuthTokenConfigurer;
 
@@ -44,6 +46,9 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     @Inject
     private TokenProvider tokenProvider;
 
+    @Autowired(required = false)
+    private TokenBucketRateLimiter rateLimiter;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
@@ -89,6 +94,7 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
             .antMatchers("/api/account/reset_password/init").permitAll()
             .antMatchers("/api/account/reset_password/finish").permitAll()
             .antMatchers("/api/logs/**").hasAuthority(AuthoritiesConstants.ADMIN)
+            .antMatchers("/api/admin/**").hasAuthority(AuthoritiesConstants.ADMIN)
             .antMatchers("/api/**").authenticated()
             .antMatchers("/websocket/tracker").hasAuthority(AuthoritiesConstants.ADMIN)
             .antMatchers("/websocket/**").permitAll()
@@ -111,7 +117,7 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     }
 
     private XAuthTokenConfigurer securityConfigurerAdapter() {
-      return new XAuthTokenConfigurer(userDetailsService, tokenProvider);
+      return new XAuthTokenConfigurer(userDetailsService, tokenProvider, rateLimiter);
     }
 
     @Bean
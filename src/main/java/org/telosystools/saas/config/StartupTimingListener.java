@@ -0,0 +1,102 @@
+package org.telosystools.saas.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerInitializedEvent;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the phases of the startup, from the start of the JVM to the start of the embedded server,
+ * and logs them with the version of the application so that the boot time can be followed from a release to the next.
+ *
+ * Each phase lasts from the end of the previous one. The steps measured inside a phase, like the Mongeez migration,
+ * are recorded by the beans running them.
+ */
+public class StartupTimingListener implements ApplicationListener<ApplicationEvent> {
+
+    public static final String PHASE_JVM = "jvm";
+    public static final String PHASE_ENVIRONMENT = "environment";
+    public static final String PHASE_CONTEXT = "context";
+    public static final String PHASE_BEANS = "beans";
+    public static final String PHASE_SERVER = "server";
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTimingListener.class);
+
+    private static final Map<String, Long> phases = new LinkedHashMap<>();
+
+    private static final Map<String, Long> steps = new LinkedHashMap<>();
+
+    private long last = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    private boolean started;
+
+    /**
+     * Record the duration of a step of the startup.
+     *
+     * @param step   step name
+     * @param millis duration
+     */
+    public static synchronized void recordStep(String step, long millis) {
+        steps.put(step, millis);
+    }
+
+    /**
+     * Return the duration of the phases of the startup, empty if the application has not been started by its main method.
+     */
+    public static synchronized Map<String, Long> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    public static synchronized Map<String, Long> getSteps() {
+        return new LinkedHashMap<>(steps);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (started) return;
+
+        if (event instanceof ApplicationStartedEvent) {
+            endPhase(PHASE_JVM);
+        } else if (event instanceof ApplicationEnvironmentPreparedEvent) {
+            endPhase(PHASE_ENVIRONMENT);
+        } else if (event instanceof ApplicationPreparedEvent) {
+            endPhase(PHASE_CONTEXT);
+        } else if (event instanceof ContextRefreshedEvent
+                && ((ContextRefreshedEvent) event).getApplicationContext().getParent() == null) {
+            endPhase(PHASE_BEANS);
+        } else if (event instanceof EmbeddedServletContainerInitializedEvent) {
+            endPhase(PHASE_SERVER);
+            started = true;
+            logTiming();
+        }
+    }
+
+    private synchronized void endPhase(String phase) {
+        final long now = System.currentTimeMillis();
+        phases.put(phase, now - last);
+        last = now;
+    }
+
+    private synchronized void logTiming() {
+        final long total = phases.values().stream().mapToLong(Long::longValue).sum();
+        log.info("Started version {} in {} ms : {} {}",
+                StartupTimingListener.class.getPackage().getImplementationVersion(), total,
+                format(phases), steps.isEmpty() ? "" : "- steps : " + format(steps));
+    }
+
+    private static String format(Map<String, Long> durations) {
+        return durations.entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue() + "ms")
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,82 @@
+package org.telosystools.saas.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Configures the workspace storage : layout of the new workspaces, GridFS writers used by bulk operations.
+ */
+@Configuration
+public class StorageConfiguration implements EnvironmentAware {
+
+    public static final String BLOB_WRITER_EXECUTOR = "blobWriterExecutor";
+
+    private final Logger log = LoggerFactory.getLogger(StorageConfiguration.class);
+
+    private RelaxedPropertyResolver propertyResolver;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.propertyResolver = new RelaxedPropertyResolver(environment, "storage.");
+    }
+
+    /**
+     * Maximum number of blobs written or queued at the same time by a batch writer.
+     */
+    public int getMaxInFlightWrites() {
+        return propertyResolver.getProperty("writer.maxInFlight", Integer.class, 16);
+    }
+
+    /**
+     * Layout of the new workspaces : database (one database by workspace) or shared (shared collections).
+     */
+    public String getLayout() {
+        return propertyResolver.getProperty("layout", "database");
+    }
+
+    /**
+     * Database of the shared collections, the general database if not set.
+     */
+    public String getSharedDatabase() {
+        return propertyResolver.getProperty("shared.database");
+    }
+
+    /**
+     * Delay left to the other nodes to see a migration starting and finish their writes.
+     */
+    public long getMigrationSettleMillis() {
+        return propertyResolver.getProperty("migration.settleMillis", Long.class, 2000L);
+    }
+
+    /**
+     * Maximum time a write waits for the end of the migration of its workspace.
+     */
+    public long getMigrationWriteTimeoutMillis() {
+        return propertyResolver.getProperty("migration.writeTimeoutMillis", Long.class, 60000L);
+    }
+
+    /**
+     * Executor shared by the batch writers. Each writer bounds its own writes in flight,
+     * so the queue is unbounded : the concurrent writers never see their writes rejected.
+     */
+    @Bean(name = BLOB_WRITER_EXECUTOR)
+    public ThreadPoolTaskExecutor blobWriterExecutor() {
+        log.debug("Creating GridFS writer executor");
+        int threads = propertyResolver.getProperty("writer.threads", Integer.class, 4);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        // Exécuté par l'appelant si l'exécuteur est arrêté
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("gridfs-writer-");
+        return executor;
+    }
+}
@@ -1,13 +1,26 @@
 package org.telosystools.saas.config;
 
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.security.config.annotation.web.messaging.MessageSecurityMetadataSourceRegistry;
 import org.springframework.security.config.annotation.web.socket.AbstractSecurityWebSocketMessageBrokerConfigurer;
+import org.telosystools.saas.dao.ProjectRepository;
+import org.telosystools.saas.security.repository.UserRepository;
+import org.telosystools.saas.security.security.ProjectMemberChannelInterceptor;
+
+import javax.inject.Inject;
 
 @Configuration
 public class WebsocketSecurityConfiguration extends AbstractSecurityWebSocketMessageBrokerConfigurer {
 
+    @Inject
+    private ProjectRepository projectRepository;
+
+    @Inject
+    private UserRepository userRepository;
+
     @Override
     protected void configureInbound(MessageSecurityMetadataSourceRegistry messages) {
         messages
@@ -15,6 +28,8 @@ public class WebsocketSecurityConfiguration extends AbstractSecurityWebSocketMes
             .nullDestMatcher().authenticated()
             // matches any destination that starts with /rooms/
             .simpDestMatchers("/topic/**").authenticated()
+            // messages handled by the application, such as the operations of the editing sessions
+            .simpDestMatchers("/app/**").authenticated()
             // (i.e. cannot send messages directly to /topic/, /queue/)
             // (i.e. cannot subscribe to /topic/messages/* to get messages sent to
             // /topic/messages-user<id>)
@@ -23,6 +38,20 @@ public class WebsocketSecurityConfiguration extends AbstractSecurityWebSocketMes
             .anyMessage().denyAll();
     }
 
+    /**
+     * The topics of a project are restricted to its members,
+     * once the security interceptors have authenticated the message.
+     */
+    @Override
+    protected void customizeClientInboundChannel(ChannelRegistration registration) {
+        registration.setInterceptors(projectMemberChannelInterceptor());
+    }
+
+    @Bean
+    public ProjectMemberChannelInterceptor projectMemberChannelInterceptor() {
+        return new ProjectMemberChannelInterceptor(projectRepository, userRepository);
+    }
+
     /**
      * Disables CSRF for Websockets.
      */
@@ -0,0 +1,61 @@
+package org.telosystools.saas.dao;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Maps the entities to the raw documents of a layout.
+ */
+abstract class AbstractStorageLayout implements StorageLayout {
+
+    private final MongoConverter converter;
+
+    protected AbstractStorageLayout(MongoConverter converter) {
+        this.converter = converter;
+    }
+
+    protected abstract DBObject findDocument(String database, String collection, String id);
+
+    /**
+     * Return the raw documents of a collection.
+     *
+     * @param idPrefix prefix of the ids, null for all the documents
+     */
+    protected abstract List<DBObject> findDocuments(String database, String collection, String idPrefix);
+
+    @Override
+    public <T> T findById(String database, String collection, String id, Class<T> type) {
+        final DBObject document = findDocument(database, collection, id);
+        return document != null ? converter.read(type, document) : null;
+    }
+
+    @Override
+    public <T> List<T> findAll(String database, String collection, Class<T> type) {
+        return read(findDocuments(database, collection, null), type);
+    }
+
+    @Override
+    public <T> List<T> findByIdPrefix(String database, String collection, String prefix, Class<T> type) {
+        return read(findDocuments(database, collection, prefix), type);
+    }
+
+    @Override
+    public List<DBObject> findDocuments(String database, String collection) {
+        return findDocuments(database, collection, null);
+    }
+
+    @Override
+    public void save(String database, String collection, Object entity) {
+        final DBObject document = new BasicDBObject();
+        converter.write(entity, document);
+        saveDocument(database, collection, document);
+    }
+
+    private <T> List<T> read(List<DBObject> documents, Class<T> type) {
+        return documents.stream().map(document -> converter.read(type, document)).collect(Collectors.toList());
+    }
+}
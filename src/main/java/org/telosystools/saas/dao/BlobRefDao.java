@@ -0,0 +1,103 @@
+package org.telosystools.saas.dao;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import org.telosystools.saas.domain.filesystem.BlobRef;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Reference counters of the GridFS contents shared between workspaces, in the general database.
+ */
+@Repository
+public class BlobRefDao {
+
+    private static final String COLLECTION_BLOB_REFS = "blob_refs";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Add one reference to each content, in a single bulk write.
+     *
+     * @param database  database holding the contents
+     * @param gridFSIds GridFS identifiers
+     */
+    public void share(String database, Collection<String> gridFSIds) {
+        if (gridFSIds.isEmpty()) return;
+
+        BulkWriteOperation bulk = mongoTemplate.getCollection(COLLECTION_BLOB_REFS).initializeUnorderedBulkOperation();
+        for (String gridFSId : gridFSIds) {
+            bulk.find(new BasicDBObject("_id", BlobRef.key(database, gridFSId)))
+                    .upsert()
+                    .updateOne(new BasicDBObject("$inc", new BasicDBObject("shares", 1))
+                            .append("$set", new BasicDBObject("database", database).append("gridFSId", gridFSId)));
+        }
+        bulk.execute();
+    }
+
+    /**
+     * Release one reference to a content : a content never shared costs a single request.
+     *
+     * @param database database holding the content
+     * @param gridFSId GridFS identifier
+     * @return true if other files still reference the content, false if the caller held the last reference
+     */
+    public boolean release(String database, String gridFSId) {
+        final String key = BlobRef.key(database, gridFSId);
+        final BlobRef blobRef = mongoTemplate.findAndModify(
+                Query.query(where("_id").is(key)), new Update().inc("shares", -1), BlobRef.class);
+        if (blobRef == null) {
+            return false;
+        }
+        if (blobRef.getShares() > 0) {
+            return true;
+        }
+        // Le dernier fichier référençant le contenu le libère
+        mongoTemplate.remove(Query.query(where("_id").is(key).and("shares").lt(0)), BlobRef.class);
+        return false;
+    }
+
+    /**
+     * Return the shared contents of a database.
+     *
+     * @param database a workspace database
+     * @return GridFS identifiers
+     */
+    public Set<String> findGridFSIds(String database) {
+        Set<String> gridFSIds = new HashSet<>();
+        for (BlobRef blobRef : mongoTemplate.find(Query.query(where("database").is(database)), BlobRef.class)) {
+            gridFSIds.add(blobRef.getGridFSId());
+        }
+        return gridFSIds;
+    }
+
+    /**
+     * Return the databases holding shared contents.
+     *
+     * @return database names
+     */
+    @SuppressWarnings("unchecked")
+    public Set<String> findDatabases() {
+        return new HashSet<>(mongoTemplate.getCollection(COLLECTION_BLOB_REFS).distinct("database"));
+    }
+
+    /**
+     * Indicates if other workspaces reference contents of the database.
+     *
+     * @param database a workspace database
+     * @return true if a content of the database is shared
+     */
+    public boolean isShared(String database) {
+        return mongoTemplate.exists(Query.query(where("database").is(database)), BlobRef.class);
+    }
+}
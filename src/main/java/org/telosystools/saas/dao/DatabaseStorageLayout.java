@@ -0,0 +1,126 @@
+package org.telosystools.saas.dao;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.Mongo;
+import com.mongodb.gridfs.GridFS;
+import com.mongodb.gridfs.GridFSDBFile;
+import com.mongodb.gridfs.GridFSFile;
+import com.mongodb.gridfs.GridFSInputFile;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * One Mongo database per workspace, named by the project id.
+ */
+class DatabaseStorageLayout extends AbstractStorageLayout {
+
+    private final Mongo mongo;
+
+    DatabaseStorageLayout(Mongo mongo, MongoConverter converter) {
+        super(converter);
+        this.mongo = mongo;
+    }
+
+    private DB db(String database) {
+        return mongo.getDB(database);
+    }
+
+    private GridFS gridFS(String database) {
+        return new GridFS(db(database));
+    }
+
+    @Override
+    public String getName() {
+        return DATABASE;
+    }
+
+    @Override
+    protected DBObject findDocument(String database, String collection, String id) {
+        return db(database).getCollection(collection).findOne(new BasicDBObject("_id", id));
+    }
+
+    @Override
+    protected List<DBObject> findDocuments(String database, String collection, String idPrefix) {
+        final DBObject query = idPrefix == null ? new BasicDBObject() : idPrefixQuery(idPrefix);
+        try (DBCursor cursor = db(database).getCollection(collection).find(query)) {
+            return cursor.toArray();
+        }
+    }
+
+    @Override
+    public void saveDocument(String database, String collection, DBObject document) {
+        db(database).getCollection(collection).save(document);
+    }
+
+    @Override
+    public void remove(String database, String collection, String id) {
+        db(database).getCollection(collection).remove(new BasicDBObject("_id", id));
+    }
+
+    @Override
+    public void removeByIdPrefix(String database, String collection, String prefix) {
+        db(database).getCollection(collection).remove(idPrefixQuery(prefix));
+    }
+
+    @Override
+    public void removeAll(String database, String collection) {
+        db(database).getCollection(collection).drop();
+    }
+
+    @Override
+    public boolean exists(String database, String collection) {
+        return mongo.getDatabaseNames().contains(database)
+                && db(database).collectionExists(collection);
+    }
+
+    @Override
+    public GridFSDBFile findContent(String database, String gridFSId) {
+        return gridFS(database).findOne(new ObjectId(gridFSId));
+    }
+
+    @Override
+    public GridFSFile createContent(String database, InputStream in, String filename, Object id) {
+        final GridFSInputFile file = gridFS(database).createFile(in, filename);
+        if (id != null) {
+            file.setId(id);
+        }
+        file.save();
+        return file;
+    }
+
+    @Override
+    public void removeContent(String database, String gridFSId) {
+        gridFS(database).remove(new ObjectId(gridFSId));
+    }
+
+    @Override
+    public DBCursor listContents(String database, DBObject query, DBObject sort) {
+        return gridFS(database).getFileList(query, sort);
+    }
+
+    @Override
+    public boolean hasContentStore(String database) {
+        return db(database).collectionExists(GridFS.DEFAULT_BUCKET + ".files");
+    }
+
+    @Override
+    public List<String> listDatabases() {
+        return mongo.getDatabaseNames();
+    }
+
+    @Override
+    public void drop(String database) {
+        db(database).dropDatabase();
+    }
+
+    private DBObject idPrefixQuery(String prefix) {
+        return new BasicDBObject("_id", Pattern.compile("^" + Pattern.quote(prefix)));
+    }
+}
@@ -0,0 +1,186 @@
+package org.telosystools.saas.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.telosystools.saas.domain.filesystem.File;
+import org.telosystools.saas.exception.FileNotFoundException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Writes many file contents to GridFS in parallel.
+ *
+ * The number of writes in flight is bounded : submit() blocks the caller
+ * until a slot is free, so that the memory held by pending contents stays bounded.
+ * The gridFSId of each File is set once await() has returned.
+ *
+ * Each content is written in a new GridFS content : once the files are saved, commit() removes
+ * the contents they replaced. If the files cannot be saved, rollback() removes the new contents,
+ * and the saved files still reference the previous ones.
+ */
+public class FileBatchWriter {
+
+    private final Logger log = LoggerFactory.getLogger(FileBatchWriter.class);
+
+    private final FileDao fileDao;
+    private final String database;
+    private final Executor executor;
+    private final Semaphore slots;
+    private final List<Future<Boolean>> pending = new ArrayList<>();
+    /**
+     * GridFS ids of the contents written by this writer
+     */
+    private final List<String> created = Collections.synchronizedList(new ArrayList<>());
+    /**
+     * Contents replaced by the written ones, released by commit()
+     */
+    private final List<File> replaced = Collections.synchronizedList(new ArrayList<>());
+    /**
+     * Absolute paths of the files whose content was written, the unchanged ones excluded
+     */
+    private final Set<String> written = Collections.synchronizedSet(new HashSet<>());
+
+    FileBatchWriter(FileDao fileDao, String database, Executor executor, int maxInFlight) {
+        this.fileDao = fileDao;
+        this.database = database;
+        this.executor = executor;
+        this.slots = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Schedules the write of the file content.
+     *
+     * @param file    the file, its gridFSId is updated by the write
+     * @param content file content
+     * @throws org.springframework.core.task.TaskRejectedException if the executor rejects the write : the writes already
+     *                                                            submitted must then be rolled back
+     */
+    public void submit(File file, byte[] content) {
+        final File previous = previousContent(file);
+        slots.acquireUninterruptibly();
+        FutureTask<Boolean> task = new FutureTask<>(() -> {
+            try {
+                final boolean saved = fileDao.saveAsNewContent(file, content, database);
+                if (saved) {
+                    written.add(file.getAbsolutePath());
+                    created.add(file.getGridFSId());
+                    if (previous != null) {
+                        replaced.add(previous);
+                    }
+                }
+                return saved;
+            } finally {
+                slots.release();
+            }
+        });
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            // Tâche jamais exécutée : son emplacement est rendu
+            slots.release();
+            throw e;
+        }
+        pending.add(task);
+    }
+
+    /**
+     * Waits for all the submitted writes, even if some of them fail.
+     *
+     * @return number of files written, the files whose content was unchanged excluded
+     * @throws FileNotFoundException if a file to update has no content in GridFS anymore
+     */
+    public int await() throws FileNotFoundException {
+        int written = 0;
+        Exception failure = null;
+        for (Future<Boolean> future : pending) {
+            try {
+                if (future.get()) {
+                    written++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for GridFS writes", e);
+            } catch (ExecutionException e) {
+                if (failure == null || e.getCause() instanceof RuntimeException) {
+                    failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : new IllegalStateException(e.getCause());
+                }
+            }
+        }
+        pending.clear();
+        if (failure instanceof FileNotFoundException) {
+            throw (FileNotFoundException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+        return written;
+    }
+
+    /**
+     * Indicates if the content of a file was written by await(), or left as is because it was unchanged.
+     *
+     * @param absolutePath absolute path of the file
+     */
+    public boolean isWritten(String absolutePath) {
+        return written.contains(absolutePath);
+    }
+
+    /**
+     * Release the contents replaced by the written ones, once the files referencing the new contents are saved.
+     */
+    public void commit() {
+        for (File previous : replaced) {
+            try {
+                fileDao.remove(previous, database);
+            } catch (RuntimeException e) {
+                // Contenu orphelin : supprimé par le ramasse-miettes des contenus
+                log.warn("Replaced content {} of {} not removed : {}", previous.getGridFSId(), previous.getAbsolutePath(), e.getMessage());
+            }
+        }
+        replaced.clear();
+        created.clear();
+    }
+
+    /**
+     * Remove the contents written by this writer, when the files referencing them could not be saved.
+     */
+    public void rollback() {
+        try {
+            await();
+        } catch (FileNotFoundException | RuntimeException e) {
+            // Déjà remontée à l'appelant
+        }
+        for (String gridFSId : created) {
+            try {
+                fileDao.removeContent(gridFSId, database);
+            } catch (RuntimeException e) {
+                log.warn("Content {} of an aborted write not removed : {}", gridFSId, e.getMessage());
+            }
+        }
+        replaced.clear();
+        created.clear();
+    }
+
+    private File previousContent(File file) {
+        if (file.getGridFSId() == null) {
+            return null;
+        }
+        final File previous = new File(file.getAbsolutePath());
+        previous.setGridFSId(file.getGridFSId());
+        previous.setBlobDatabase(file.getBlobDatabase());
+        previous.setShared(file.isShared());
+        return previous;
+    }
+}
@@ -1,16 +1,36 @@
 package org.telosystools.saas.dao;
 
+import com.mongodb.gridfs.GridFSFile;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.crypto.codec.Hex;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.DigestUtils;
+import org.telosystools.saas.config.StorageConfiguration;
 import org.telosystools.saas.domain.filesystem.File;
 import org.telosystools.saas.exception.FileNotFoundException;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by luchabou on 27/02/2015.
  *
- * Service delegate to GridFSDao
+ * Service delegate to GridFSDao.
+ * The content of a cloned file stays in the database of the source workspace
+ * until one of the files is written : it is then copied in the database of the writer.
  */
 @Repository
 public class FileDao {
@@ -18,6 +38,18 @@ public class FileDao {
     @Autowired
     private GridFSDao gridFSDao;
 
+    @Autowired
+    private BlobRefDao blobRefDao;
+
+    @Autowired
+    @Qualifier(StorageConfiguration.BLOB_WRITER_EXECUTOR)
+    private Executor blobWriterExecutor;
+
+    @Autowired
+    private StorageConfiguration storageConfiguration;
+
+    private final AtomicLong skippedWrites = new AtomicLong();
+
     public InputStream loadContent(String fileId, String database) throws FileNotFoundException {
         if(fileId == null) {
             return null;
@@ -25,18 +57,235 @@ public class FileDao {
         return gridFSDao.load(fileId, database);
     }
 
-    public void save(File file, InputStream in, String database) throws FileNotFoundException {
-        if(file.getGridFSId() == null) {
-            String gridFSId = gridFSDao.create(in, database);
-            file.setGridFSId(gridFSId);
-        } else {
-            file.setGridFSId(gridFSDao.update(file.getGridFSId(), in, database));
+    /**
+     * Load the content of a file, from the database holding it.
+     *
+     * @param file     the file
+     * @param database the workspace database
+     * @return content, null if the file has never been saved
+     */
+    public InputStream loadContent(File file, String database) throws FileNotFoundException {
+        return loadContent(file.getGridFSId(), getBlobDatabase(file, database));
+    }
+
+    /**
+     * Store the content of a file. An existing content is replaced only if the new one differs :
+     * the MD5 of the new content, computed while it is streamed to GridFS, is compared to the MD5 recorded on the file.
+     * An identical content is removed once written, the previous one is kept.
+     *
+     * @param file     the file, its gridFSId, size and MD5 are updated by the write
+     * @param in       the new content
+     * @param database the workspace database
+     * @return true if the content has been written, false if it was identical
+     */
+    public boolean save(File file, InputStream in, String database) throws FileNotFoundException {
+        // Le MD5 est calculé pendant l'écriture dans GridFS : le contenu n'est jamais lu en entier en mémoire
+        final MessageDigest digest = md5Digest();
+        final GridFSFile gridFSFile = gridFSDao.create(new DigestInputStream(in, digest), database);
+        final String md5 = new String(Hex.encode(digest.digest()));
+        if (file.getGridFSId() != null && md5.equals(file.getMd5())) {
+            // Contenu identique : le blob, éventuellement partagé, est conservé
+            gridFSDao.remove(gridFSFile.getId().toString(), database);
+            skippedWrites.incrementAndGet();
+            file.setSize(gridFSFile.getLength());
+            return false;
+        }
+        if (file.getGridFSId() != null) {
+            // Copie à l'écriture : un contenu partagé est conservé pour les autres workspaces
+            remove(file, database);
+            file.setBlobDatabase(null);
+            file.setShared(false);
+        }
+        file.setGridFSId(gridFSFile.getId().toString());
+        file.setSize(gridFSFile.getLength());
+        file.setMd5(md5);
+        return true;
+    }
+
+    /**
+     * Store the content of a file in a new GridFS content, keeping the previous one :
+     * the previous content must be released by remove() once the file is saved, or the new one removed if the save fails.
+     * An identical content is not written, as by save().
+     *
+     * @param file     the file, its gridFSId, size and MD5 are updated by the write
+     * @param content  the new content
+     * @param database the workspace database
+     * @return true if the content has been written, false if it was identical
+     */
+    public boolean saveAsNewContent(File file, byte[] content, String database) throws FileNotFoundException {
+        final String md5 = DigestUtils.md5DigestAsHex(content);
+        if (file.getGridFSId() != null && md5.equals(file.getMd5())) {
+            skippedWrites.incrementAndGet();
+            file.setSize((long) content.length);
+            return false;
+        }
+        final GridFSFile gridFSFile = gridFSDao.create(new ByteArrayInputStream(content), database);
+        file.setGridFSId(gridFSFile.getId().toString());
+        file.setSize(gridFSFile.getLength());
+        file.setMd5(md5);
+        file.setBlobDatabase(null);
+        file.setShared(false);
+        return true;
+    }
+
+    /**
+     * Return the number of writes skipped since the startup because the content was unchanged.
+     *
+     * @return skipped writes
+     */
+    public long getSkippedWrites() {
+        return skippedWrites.get();
+    }
+
+    /**
+     * Return the loads of the file contents, shared by the concurrent reads of a same content.
+     *
+     * @return content loads
+     */
+    public SingleFlight<?> getContentLoads() {
+        return gridFSDao.getContentLoads();
+    }
+
+    /**
+     * Return the size of the file content, reading it from GridFS if it has not been recorded.
+     *
+     * @param file     the file
+     * @param database the workspace database
+     * @return size in bytes
+     */
+    public long length(File file, String database) throws FileNotFoundException {
+        if (file.getSize() != null) {
+            return file.getSize();
+        }
+        if (file.getGridFSId() == null) {
+            return 0;
+        }
+        return gridFSDao.length(file.getGridFSId(), getBlobDatabase(file, database));
+    }
+
+    /**
+     * Creates a writer saving many files in parallel in the database.
+     *
+     * @param database the workspace database
+     * @return a new batch writer
+     */
+    public FileBatchWriter batchWriter(String database) {
+        return new FileBatchWriter(this, database, blobWriterExecutor, storageConfiguration.getMaxInFlightWrites());
+    }
+
+    /**
+     * Share the contents of the files with a clone of their workspace : no content is copied, and the files
+     * are not changed. Only the reference counters are updated : the next write or removal of a shared content,
+     * by the source or by the clone, releases its reference instead of removing the content.
+     *
+     * @param files    files of the source workspace
+     * @param database the source workspace database
+     */
+    public void share(Collection<File> files, String database) {
+        final Map<String, List<String>> gridFSIdsByDatabase = new HashMap<>();
+        for (File file : files) {
+            if (file.getGridFSId() == null) continue;
+            gridFSIdsByDatabase.computeIfAbsent(getBlobDatabase(file, database), key -> new ArrayList<>())
+                    .add(file.getGridFSId());
         }
+        gridFSIdsByDatabase.forEach(blobRefDao::share);
     }
 
+    /**
+     * Remove the content of a file, unless other workspaces still reference it.
+     *
+     * @param file     the file
+     * @param database the workspace database
+     */
     public void remove(File file, String database) {
         if(file.getGridFSId() != null) {
-            gridFSDao.remove(file.getGridFSId(), database);
+            // Le compteur de références indique si un clone partage le contenu
+            release(file, database);
+        }
+    }
+
+    /**
+     * Return a batch of the contents stored in the database, by id order.
+     *
+     * @param database       the workspace database
+     * @param afterId        id of the last content of the previous batch, null for the first batch
+     * @param uploadedBefore only the contents uploaded before this date are returned
+     * @param limit          batch size
+     * @return contents, without their data
+     */
+    public List<GridFSFile> listContents(String database, String afterId, Date uploadedBefore, int limit) {
+        return gridFSDao.list(database, afterId, uploadedBefore, limit);
+    }
+
+    /**
+     * Remove a content referenced by no file.
+     *
+     * @param gridFSId GridFS identifier
+     * @param database the database holding the content
+     */
+    public void removeContent(String gridFSId, String database) {
+        gridFSDao.remove(gridFSId, database);
+    }
+
+    /**
+     * Indicates if the database has ever stored contents.
+     *
+     * @param database a database
+     * @return true if the GridFS collections exist
+     */
+    public boolean hasContentStore(String database) {
+        return gridFSDao.exists(database);
+    }
+
+    /**
+     * Indicates if the database stores at least one content.
+     *
+     * @param database a database
+     * @return true if a content is stored
+     */
+    public boolean hasContents(String database) {
+        return gridFSDao.hasFiles(database);
+    }
+
+    /**
+     * Return the contents of the database referenced by other workspaces.
+     *
+     * @param database the workspace database
+     * @return GridFS identifiers
+     */
+    public Set<String> getSharedContents(String database) {
+        return blobRefDao.findGridFSIds(database);
+    }
+
+    /**
+     * Indicates if other workspaces reference contents stored in the database.
+     *
+     * @param database the workspace database
+     * @return true if the GridFS contents of the database must be kept
+     */
+    public boolean hasSharedContents(String database) {
+        return blobRefDao.isShared(database);
+    }
+
+    /**
+     * Release the reference of the file to a shared content, removing the content if it was the last one.
+     */
+    private void release(File file, String database) {
+        final String blobDatabase = getBlobDatabase(file, database);
+        if (!blobRefDao.release(blobDatabase, file.getGridFSId())) {
+            gridFSDao.remove(file.getGridFSId(), blobDatabase);
+        }
+    }
+
+    private String getBlobDatabase(File file, String database) {
+        return file.getBlobDatabase() != null ? file.getBlobDatabase() : database;
+    }
+
+    private static MessageDigest md5Digest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No MD5 algorithm available", e);
         }
     }
 }
@@ -0,0 +1,45 @@
+package org.telosystools.saas.dao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.telosystools.saas.domain.generation.GeneratedFile;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inputs of the generated files, in the workspace storage.
+ */
+@Repository
+public class GeneratedFileDao {
+
+    private static final String COLLECTION_GENERATION = StorageLayout.GENERATION;
+
+    @Autowired
+    private WorkspaceStorageDao workspaceStorageDao;
+
+    /**
+     * Return the inputs of all the generated files of the workspace.
+     *
+     * @param database the workspace database
+     * @return inputs by path
+     */
+    public Map<String, GeneratedFile> findAll(String database) {
+        final Map<String, GeneratedFile> generatedFiles = new HashMap<>();
+        for (GeneratedFile generatedFile : workspaceStorageDao.findAll(database, COLLECTION_GENERATION, GeneratedFile.class)) {
+            generatedFiles.put(generatedFile.getPath(), generatedFile);
+        }
+        return generatedFiles;
+    }
+
+    public void save(Collection<GeneratedFile> generatedFiles, String database) {
+        for (GeneratedFile generatedFile : generatedFiles) {
+            workspaceStorageDao.save(database, COLLECTION_GENERATION, generatedFile);
+        }
+    }
+
+    public void deleteAll(String database) {
+        workspaceStorageDao.removeAll(database, COLLECTION_GENERATION);
+    }
+}
@@ -1,65 +1,196 @@
 package org.telosystools.saas.dao;
 
-import com.mongodb.DB;
-import com.mongodb.Mongo;
-import com.mongodb.gridfs.GridFS;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
 import com.mongodb.gridfs.GridFSDBFile;
-import com.mongodb.gridfs.GridFSInputFile;
+import com.mongodb.gridfs.GridFSFile;
+import org.apache.commons.io.IOUtils;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.telosystools.saas.cache.DataCache;
+import org.telosystools.saas.cache.DataCacheManager;
 import org.telosystools.saas.exception.FileNotFoundException;
 
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 
 /**
  * Created by luchabou on 27/02/2015.
  *
- * File management with GridFS. One database is set per workspace.
+ * File management with GridFS, in the storage of the workspace.
  * See POC project Mongodb2 for details
+ *
+ * The small contents are kept in the data cache : a stored content never changes, an update creates a new one.
  */
 @Repository
 class GridFSDao {
 
     @Autowired
-    private Mongo mongo;
+    private WorkspaceStorageDao workspaceStorageDao;
+
+    @Autowired
+    private DataCacheManager dataCacheManager;
+
+    /**
+     * Maximum size of a content kept in the cache
+     */
+    @Value("${cache.fileContents.maxBytes:65536}")
+    private long maxCachedBytes;
+
+    private DataCache<byte[]> contentCache;
 
-    private GridFS gridFS(String database) {
-        DB db = mongo.getDB(database);
-        return new GridFS(db);
+    private final SingleFlight<StoredContent> contentLoads = new SingleFlight<>("contents");
+
+    @PostConstruct
+    public void init() {
+        contentCache = dataCacheManager.getCache(DataCacheManager.FILE_CONTENTS);
     }
 
     public InputStream load(String gridFSId, String database) throws FileNotFoundException {
-        GridFSDBFile gridFSDBFile =
-                gridFS(database).findOne(new ObjectId(gridFSId));
+        final String key = cacheKey(gridFSId, database);
+        final byte[] cached = contentCache.get(key);
+        if (cached != null) {
+            return new ByteArrayInputStream(cached);
+        }
+        // Les lectures simultanées du même contenu partagent une seule lecture dans GridFS
+        final StoredContent content = contentLoads.load(key, () -> read(gridFSId, database));
+        return content.bytes != null ? new ByteArrayInputStream(content.bytes) : content.file.getInputStream();
+    }
+
+    private StoredContent read(String gridFSId, String database) throws FileNotFoundException {
+        GridFSDBFile gridFSDBFile = workspaceStorageDao.findContent(database, gridFSId);
         if (gridFSDBFile == null) {
             throw new FileNotFoundException("File not found in GridFS : "+gridFSId);
         }
-        return gridFSDBFile.getInputStream();
+        if (gridFSDBFile.getLength() > maxCachedBytes) {
+            return new StoredContent(null, gridFSDBFile);
+        }
+        final byte[] content;
+        try (InputStream in = gridFSDBFile.getInputStream()) {
+            content = IOUtils.toByteArray(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        contentCache.putIfAbsent(cacheKey(gridFSId, database), content);
+        return new StoredContent(content, null);
     }
 
-    public String create(InputStream in, String database) {
-        GridFSInputFile gridFSInputFile = gridFS(database).createFile(in);
-        gridFSInputFile.save();
+    /**
+     * Return the loads of the contents missing from the cache.
+     */
+    public SingleFlight<StoredContent> getContentLoads() {
+        return contentLoads;
+    }
 
-        return gridFSInputFile.getId().toString();
+    public GridFSFile create(InputStream in, String database) {
+        return workspaceStorageDao.createContent(database, in, null, null);
     }
 
-    public String update(String gridFSId, InputStream in, String database) throws FileNotFoundException {
+    public GridFSFile update(String gridFSId, InputStream in, String database) throws FileNotFoundException {
         // Récupération de l'ancien fichier et suppression
-        final GridFSDBFile oldFile = gridFS(database).findOne(new ObjectId(gridFSId));
+        final GridFSDBFile oldFile = workspaceStorageDao.findContent(database, gridFSId);
         if (oldFile != null) {
-            GridFSInputFile updatedFile = gridFS(database).createFile(in, oldFile.getFilename());
-            updatedFile.save();
-            gridFS(database).remove(oldFile);
-            return updatedFile.getId().toString();
+            GridFSFile updatedFile = workspaceStorageDao.createContent(database, in, oldFile.getFilename(), null);
+            workspaceStorageDao.removeContent(database, gridFSId);
+            contentCache.evict(cacheKey(gridFSId, database));
+            contentLoads.forget(cacheKey(gridFSId, database));
+            return updatedFile;
         } else {
             throw new FileNotFoundException(gridFSId);
         }
     }
 
+    /**
+     * Return the size of a stored file, without reading its content.
+     *
+     * @param gridFSId GridFS identifier
+     * @param database the workspace database
+     * @return size in bytes
+     */
+    public long length(String gridFSId, String database) throws FileNotFoundException {
+        GridFSDBFile gridFSDBFile = workspaceStorageDao.findContent(database, gridFSId);
+        if (gridFSDBFile == null) {
+            throw new FileNotFoundException(gridFSId);
+        }
+        return gridFSDBFile.getLength();
+    }
+
     public void remove(String gridFSId, String database) {
-        gridFS(database).remove(new ObjectId(gridFSId));
+        workspaceStorageDao.removeContent(database, gridFSId);
+        contentCache.evict(cacheKey(gridFSId, database));
+        contentLoads.forget(cacheKey(gridFSId, database));
     }
 
+    private String cacheKey(String gridFSId, String database) {
+        return database + "/" + gridFSId;
+    }
+
+    /**
+     * Return a batch of stored files, by id order, without their content.
+     *
+     * @param database       the workspace database
+     * @param afterId        id of the last file of the previous batch, null for the first batch
+     * @param uploadedBefore only the files uploaded before this date are returned
+     * @param limit          maximum number of files
+     * @return stored files
+     */
+    public List<GridFSFile> list(String database, String afterId, Date uploadedBefore, int limit) {
+        DBObject query = new BasicDBObject("uploadDate", new BasicDBObject("$lt", uploadedBefore));
+        if (afterId != null) {
+            query.put("_id", new BasicDBObject("$gt", new ObjectId(afterId)));
+        }
+        List<GridFSFile> files = new ArrayList<>();
+        try (DBCursor cursor = workspaceStorageDao.listContents(database, query, new BasicDBObject("_id", 1)).limit(limit)) {
+            while (cursor.hasNext()) {
+                files.add((GridFSFile) cursor.next());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Indicates if the workspace has GridFS contents, or had some.
+     *
+     * @param database a database
+     * @return true if GridFS has been used by the workspace
+     */
+    public boolean exists(String database) {
+        return workspaceStorageDao.hasContentStore(database);
+    }
+
+    /**
+     * Indicates if the database stores at least one file.
+     *
+     * @param database a database
+     * @return true if a file is stored
+     */
+    public boolean hasFiles(String database) {
+        try (DBCursor cursor = workspaceStorageDao.listContents(database, new BasicDBObject(), new BasicDBObject()).limit(1)) {
+            return cursor.hasNext();
+        }
+    }
+
+    /**
+     * Content read from GridFS : its bytes if it can be cached, otherwise the file to stream.
+     */
+    static class StoredContent {
+
+        private final byte[] bytes;
+
+        private final GridFSDBFile file;
+
+        private StoredContent(byte[] bytes, GridFSDBFile file) {
+            this.bytes = bytes;
+            this.file = file;
+        }
+    }
 }
@@ -1,38 +1,122 @@
 package org.telosystools.saas.dao;
 
-import com.mongodb.Mongo;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.SerializationUtils;
+import org.telosystools.saas.cache.DataCache;
+import org.telosystools.saas.cache.DataCacheManager;
 import org.telosystools.saas.domain.filesystem.RootFolder;
+import org.telosystools.saas.domain.filesystem.Workspace;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
 
 /**
  * Created by luchabou on 27/02/2015.
+ *
+ * The root folders are kept in the data cache : every save replaces the cached folder.
+ * The concurrent loads of the root folders of a workspace share a single read, forgotten by the writes.
  */
 @Repository
 public class RootFolderDao {
 
-    private static final String COLLECTION_FOLDERS = "folders";
+    private static final String COLLECTION_FOLDERS = StorageLayout.FOLDERS;
+
+    @Autowired
+    private WorkspaceStorageDao workspaceStorageDao;
 
     @Autowired
-    private Mongo mongo;
+    private DataCacheManager dataCacheManager;
+
+    private DataCache<RootFolder> folderCache;
+
+    /**
+     * Loads of the root folders of a workspace : model, templates and generated.
+     * The callers waiting for a load get their own copy of the folders, that they may modify.
+     */
+    private final SingleFlight<RootFolder[]> workspaceLoads = new SingleFlight<>("workspaces",
+            folders -> (RootFolder[]) SerializationUtils.deserialize(SerializationUtils.serialize(folders)));
 
-    MongoTemplate mongoTemplateDatabase(String database) {
-        return new MongoTemplate(mongo, database);
+    @PostConstruct
+    public void init() {
+        folderCache = dataCacheManager.getCache(DataCacheManager.FOLDERS);
+    }
+
+    public List<String> listDatabases() {
+        return workspaceStorageDao.listDatabases();
     }
 
     public boolean workspaceExists(String database) {
-        return mongo.getDatabaseNames().contains(database);
+        // La base d'un workspace supprimé est conservée tant que d'autres workspaces partagent ses contenus
+        return workspaceStorageDao.exists(database, COLLECTION_FOLDERS);
     }
 
     public RootFolder findById(String folderId, String database) {
-        return mongoTemplateDatabase(database)
-                .findById(folderId, RootFolder.class, COLLECTION_FOLDERS);
+        final RootFolder cached = folderCache.get(cacheKey(folderId, database));
+        if (cached != null) {
+            return cached;
+        }
+        final RootFolder folder = findByIdInDatabase(folderId, database);
+        if (folder != null) {
+            folderCache.putIfAbsent(cacheKey(folderId, database), folder);
+        }
+        return folder;
+    }
+
+    /**
+     * Load the root folders of a workspace, sharing the load with the concurrent callers.
+     *
+     * @param database the workspace database
+     * @return model, templates and generated folders, null if missing
+     */
+    public RootFolder[] findRootFolders(String database) {
+        return workspaceLoads.load(database, () -> new RootFolder[]{
+                findById(RootFolder.ID_PREFIX + Workspace.MODEL, database),
+                findById(RootFolder.ID_PREFIX + Workspace.TEMPLATES, database),
+                findById(RootFolder.ID_PREFIX + Workspace.GENERATED, database)});
+    }
+
+    /**
+     * Read a root folder from the database, never from the cache.
+     */
+    public RootFolder findByIdInDatabase(String folderId, String database) {
+        return workspaceStorageDao.findById(database, COLLECTION_FOLDERS, folderId, RootFolder.class);
     }
 
     public void save(RootFolder folder, String database) {
-        mongoTemplateDatabase(database)
-                .save(folder, COLLECTION_FOLDERS);
+        workspaceStorageDao.save(database, COLLECTION_FOLDERS, folder);
+        folderCache.put(cacheKey(folder.getId(), database), folder);
+        workspaceLoads.forget(database);
+    }
+
+    public void deleteAll(String database) {
+        workspaceStorageDao.removeAll(database, COLLECTION_FOLDERS);
+        evictAll(database);
+    }
+
+    /**
+     * Remove the root folders of a workspace from the cache.
+     *
+     * @param database the workspace database
+     */
+    public void evictAll(String database) {
+        for (String name : new String[]{Workspace.MODEL, Workspace.TEMPLATES, Workspace.GENERATED}) {
+            folderCache.evict(cacheKey(RootFolder.ID_PREFIX + name, database));
+        }
+        workspaceLoads.forget(database);
+    }
+
+    /**
+     * Return the loads of the root folders of the workspaces.
+     *
+     * @return workspace loads
+     */
+    public SingleFlight<?> getWorkspaceLoads() {
+        return workspaceLoads;
+    }
+
+    private String cacheKey(String folderId, String database) {
+        return database + "/" + folderId;
     }
 
 }
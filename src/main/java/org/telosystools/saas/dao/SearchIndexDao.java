@@ -0,0 +1,56 @@
+package org.telosystools.saas.dao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.telosystools.saas.domain.search.IndexedFile;
+
+import java.util.List;
+
+/**
+ * Persistence of the full-text search index, stored in the workspace storage.
+ */
+@Repository
+public class SearchIndexDao {
+
+    private static final String COLLECTION_SEARCH_INDEX = StorageLayout.SEARCH_INDEX;
+
+    @Autowired
+    private WorkspaceStorageDao workspaceStorageDao;
+
+    public List<IndexedFile> findAll(String database) {
+        return workspaceStorageDao.findAll(database, COLLECTION_SEARCH_INDEX, IndexedFile.class);
+    }
+
+    public IndexedFile findOne(String path, String database) {
+        return workspaceStorageDao.findById(database, COLLECTION_SEARCH_INDEX, path, IndexedFile.class);
+    }
+
+    /**
+     * Return the entries of all the files below a folder.
+     *
+     * @param folderPath absolute path of the folder
+     * @param database   the workspace database
+     * @return index entries
+     */
+    public List<IndexedFile> findFolder(String folderPath, String database) {
+        return workspaceStorageDao.findByIdPrefix(database, COLLECTION_SEARCH_INDEX, folderPath + "/", IndexedFile.class);
+    }
+
+    public void save(IndexedFile indexedFile, String database) {
+        workspaceStorageDao.save(database, COLLECTION_SEARCH_INDEX, indexedFile);
+    }
+
+    public void remove(String path, String database) {
+        workspaceStorageDao.remove(database, COLLECTION_SEARCH_INDEX, path);
+    }
+
+    /**
+     * Remove the entries of all the files below a folder.
+     *
+     * @param folderPath absolute path of the folder
+     * @param database   the workspace database
+     */
+    public void removeFolder(String folderPath, String database) {
+        workspaceStorageDao.removeByIdPrefix(database, COLLECTION_SEARCH_INDEX, folderPath + "/");
+    }
+}
@@ -0,0 +1,184 @@
+package org.telosystools.saas.dao;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.gridfs.GridFS;
+import com.mongodb.gridfs.GridFSDBFile;
+import com.mongodb.gridfs.GridFSFile;
+import com.mongodb.gridfs.GridFSInputFile;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * All the workspaces in the collections of one database, whatever their number.
+ *
+ * A document of a workspace is stored with the project id and its own id in the fields projectId and key,
+ * under a unique compound index ; the GridFS files of the bucket "project_blobs" carry the project id,
+ * with compound indexes for the lookups and the sweeps of the garbage collector.
+ */
+class SharedStorageLayout extends AbstractStorageLayout {
+
+    static final String COLLECTION_PREFIX = "project_";
+    static final String BUCKET = "project_blobs";
+
+    private static final String PROJECT = "projectId";
+    private static final String KEY = "key";
+
+    private final DB db;
+
+    private final GridFS gridFS;
+
+    SharedStorageLayout(DB db, MongoConverter converter) {
+        super(converter);
+        this.db = db;
+        this.gridFS = new GridFS(db, BUCKET);
+        for (String collection : COLLECTIONS) {
+            collection(collection).createIndex(new BasicDBObject(PROJECT, 1).append(KEY, 1), new BasicDBObject("unique", true));
+        }
+        final DBCollection files = db.getCollection(BUCKET + ".files");
+        files.createIndex(new BasicDBObject(PROJECT, 1).append("_id", 1));
+        files.createIndex(new BasicDBObject(PROJECT, 1).append("uploadDate", 1));
+    }
+
+    /**
+     * Indicates if a database holds shared collections.
+     */
+    static boolean isUsed(DB db) {
+        return db.collectionExists(COLLECTION_PREFIX + FOLDERS) || db.collectionExists(BUCKET + ".files");
+    }
+
+    private DBCollection collection(String collection) {
+        return db.getCollection(COLLECTION_PREFIX + collection);
+    }
+
+    private DBObject key(String database, Object id) {
+        return new BasicDBObject(PROJECT, database).append(KEY, id);
+    }
+
+    /**
+     * Restore the document of the workspace from the stored document.
+     */
+    private DBObject toDocument(DBObject stored) {
+        if (stored == null) {
+            return null;
+        }
+        stored.removeField("_id");
+        stored.removeField(PROJECT);
+        stored.put("_id", stored.removeField(KEY));
+        return stored;
+    }
+
+    @Override
+    public String getName() {
+        return SHARED;
+    }
+
+    @Override
+    protected DBObject findDocument(String database, String collection, String id) {
+        return toDocument(collection(collection).findOne(key(database, id)));
+    }
+
+    @Override
+    protected List<DBObject> findDocuments(String database, String collection, String idPrefix) {
+        final DBObject query = idPrefix == null ? new BasicDBObject(PROJECT, database) : key(database, idPrefixPattern(idPrefix));
+        final List<DBObject> documents = new ArrayList<>();
+        try (DBCursor cursor = collection(collection).find(query)) {
+            while (cursor.hasNext()) {
+                documents.add(toDocument(cursor.next()));
+            }
+        }
+        return documents;
+    }
+
+    @Override
+    public void saveDocument(String database, String collection, DBObject document) {
+        final DBObject stored = new BasicDBObject(document.toMap());
+        final Object id = stored.removeField("_id");
+        stored.put(PROJECT, database);
+        stored.put(KEY, id);
+        collection(collection).update(key(database, id), stored, true, false);
+    }
+
+    @Override
+    public void remove(String database, String collection, String id) {
+        collection(collection).remove(key(database, id));
+    }
+
+    @Override
+    public void removeByIdPrefix(String database, String collection, String prefix) {
+        collection(collection).remove(key(database, idPrefixPattern(prefix)));
+    }
+
+    @Override
+    public void removeAll(String database, String collection) {
+        collection(collection).remove(new BasicDBObject(PROJECT, database));
+    }
+
+    @Override
+    public boolean exists(String database, String collection) {
+        return collection(collection).findOne(new BasicDBObject(PROJECT, database)) != null;
+    }
+
+    @Override
+    public GridFSDBFile findContent(String database, String gridFSId) {
+        return gridFS.findOne(new BasicDBObject("_id", new ObjectId(gridFSId)).append(PROJECT, database));
+    }
+
+    @Override
+    public GridFSFile createContent(String database, InputStream in, String filename, Object id) {
+        final GridFSInputFile file = gridFS.createFile(in, filename);
+        if (id != null) {
+            file.setId(id);
+        }
+        file.put(PROJECT, database);
+        file.save();
+        return file;
+    }
+
+    @Override
+    public void removeContent(String database, String gridFSId) {
+        gridFS.remove(new BasicDBObject("_id", new ObjectId(gridFSId)).append(PROJECT, database));
+    }
+
+    @Override
+    public DBCursor listContents(String database, DBObject query, DBObject sort) {
+        final DBObject projectQuery = new BasicDBObject(query.toMap());
+        projectQuery.put(PROJECT, database);
+        return gridFS.getFileList(projectQuery, sort);
+    }
+
+    @Override
+    public boolean hasContentStore(String database) {
+        return gridFS.findOne(new BasicDBObject(PROJECT, database)) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> listDatabases() {
+        final Set<String> databases = new TreeSet<>(collection(FOLDERS).distinct(PROJECT));
+        databases.addAll(db.getCollection(BUCKET + ".files").distinct(PROJECT));
+        return new ArrayList<>(databases);
+    }
+
+    @Override
+    public void drop(String database) {
+        for (String collection : COLLECTIONS) {
+            removeAll(database, collection);
+        }
+        gridFS.remove(new BasicDBObject(PROJECT, database));
+    }
+
+    private Pattern idPrefixPattern(String prefix) {
+        return Pattern.compile("^" + Pattern.quote(prefix));
+    }
+}
@@ -0,0 +1,131 @@
+package org.telosystools.saas.dao;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Coalesces the concurrent loads of a same key : the first caller runs the load,
+ * the callers arriving while it runs wait for its result instead of reading the database again.
+ *
+ * A load is only shared while it runs, nothing is kept once it ends. A write forgets the load running for its key,
+ * so that the reads started after the write do not get a value read before it.
+ *
+ * The first caller gets the loaded value and may modify it at once : the waiting callers get copies of a snapshot
+ * taken by the first caller before it returns, never of the value it modifies.
+ *
+ * @param <V> loaded values, copied for the waiting callers if they may be modified
+ */
+public class SingleFlight<V> {
+
+    /**
+     * Load run by the first caller.
+     */
+    public interface Loader<V, E extends Exception> {
+        V load() throws E;
+    }
+
+    private final String name;
+
+    private final UnaryOperator<V> copy;
+
+    private final ConcurrentMap<String, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    private final AtomicLong loads = new AtomicLong();
+
+    private final AtomicLong collapsed = new AtomicLong();
+
+    /**
+     * @param name name of the loaded values
+     */
+    public SingleFlight(String name) {
+        this(name, UnaryOperator.identity());
+    }
+
+    /**
+     * @param name name of the loaded values
+     * @param copy copy of a value, for the snapshot of a load and for each waiting caller
+     */
+    public SingleFlight(String name, UnaryOperator<V> copy) {
+        this.name = name;
+        this.copy = copy;
+    }
+
+    /**
+     * Load the value of a key, or wait for the load of the key already running.
+     *
+     * @param key    the key
+     * @param loader load run if no load of the key is running
+     * @return value, null if the loader returned null
+     * @throws E the exception thrown by the load
+     */
+    public <E extends Exception> V load(String key, Loader<V, E> loader) throws E {
+        final CompletableFuture<V> flight = new CompletableFuture<>();
+        final CompletableFuture<V> running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            collapsed.incrementAndGet();
+            return await(running);
+        }
+        loads.incrementAndGet();
+        try {
+            final V value = loader.load();
+            // Instantané figé avant que le premier appelant ne modifie sa valeur
+            flight.complete(value != null ? copy.apply(value) : null);
+            return value;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * Forget the load running for a key, after a write of the key.
+     *
+     * @param key the key
+     */
+    public void forget(String key) {
+        flights.remove(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends Exception> V await(CompletableFuture<V> flight) throws E {
+        try {
+            final V value = flight.get();
+            return value != null ? copy.apply(value) : null;
+        } catch (ExecutionException e) {
+            // Exception levée par le loader du premier appelant : de même type que celles de ce loader
+            final Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (E) cause;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the load of " + name);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return the number of loads run since the startup.
+     */
+    public long getLoads() {
+        return loads.get();
+    }
+
+    /**
+     * Return the number of calls that waited for the load of another caller instead of running their own.
+     */
+    public long getCollapsed() {
+        return collapsed.get();
+    }
+}
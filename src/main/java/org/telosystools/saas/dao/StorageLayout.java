@@ -0,0 +1,104 @@
+package org.telosystools.saas.dao;
+
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.gridfs.GridFSDBFile;
+import com.mongodb.gridfs.GridFSFile;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Physical storage of the workspaces : the trees, the generation inputs, the search index and the GridFS contents.
+ *
+ * The "database" parameter is the key of a workspace, its project id. The layout "database" stores each workspace
+ * in its own Mongo database, the layout "shared" stores all the workspaces in shared collections keyed by project id.
+ * The ids of the documents are strings.
+ */
+public interface StorageLayout {
+
+    String DATABASE = "database";
+    String SHARED = "shared";
+
+    String FOLDERS = "folders";
+    String GENERATION = "generation";
+    String SEARCH_INDEX = "search_index";
+
+    /**
+     * Collections of documents of a workspace
+     */
+    List<String> COLLECTIONS = Arrays.asList(FOLDERS, GENERATION, SEARCH_INDEX);
+
+    String getName();
+
+    <T> T findById(String database, String collection, String id, Class<T> type);
+
+    <T> List<T> findAll(String database, String collection, Class<T> type);
+
+    /**
+     * Return the documents whose id starts with a prefix.
+     */
+    <T> List<T> findByIdPrefix(String database, String collection, String prefix, Class<T> type);
+
+    void save(String database, String collection, Object entity);
+
+    void remove(String database, String collection, String id);
+
+    void removeByIdPrefix(String database, String collection, String prefix);
+
+    void removeAll(String database, String collection);
+
+    /**
+     * Indicates if the collection holds documents of the workspace.
+     */
+    boolean exists(String database, String collection);
+
+    /**
+     * Return the raw documents of a collection, as stored by the layout "database".
+     */
+    List<DBObject> findDocuments(String database, String collection);
+
+    /**
+     * Save a raw document, as stored by the layout "database".
+     */
+    void saveDocument(String database, String collection, DBObject document);
+
+    /**
+     * Return a GridFS content.
+     *
+     * @return the content, null if not found
+     */
+    GridFSDBFile findContent(String database, String gridFSId);
+
+    /**
+     * Store a GridFS content.
+     *
+     * @param filename file name, may be null
+     * @param id       id of the content, a new id if null
+     * @return the stored content
+     */
+    GridFSFile createContent(String database, InputStream in, String filename, Object id);
+
+    void removeContent(String database, String gridFSId);
+
+    /**
+     * Return the stored contents matching a query, without their data.
+     */
+    DBCursor listContents(String database, DBObject query, DBObject sort);
+
+    /**
+     * Indicates if the workspace has ever stored contents.
+     */
+    boolean hasContentStore(String database);
+
+    /**
+     * Return the keys of the stored workspaces. The layout "database" also returns the other databases of the server.
+     */
+    List<String> listDatabases();
+
+    /**
+     * Remove all the documents and contents of a workspace.
+     */
+    void drop(String database);
+}
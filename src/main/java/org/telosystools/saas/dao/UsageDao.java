@@ -0,0 +1,61 @@
+package org.telosystools.saas.dao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import org.telosystools.saas.domain.usage.UserUsage;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Storage counters of the users, in the general database.
+ */
+@Repository
+public class UsageDao {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public UserUsage findOne(String login) {
+        return mongoTemplate.findById(login, UserUsage.class);
+    }
+
+    /**
+     * Return the counters of all the users, biggest first.
+     *
+     * @return counters
+     */
+    public List<UserUsage> findAll() {
+        return mongoTemplate.find(new Query().with(new Sort(Sort.Direction.DESC, "bytes")), UserUsage.class);
+    }
+
+    /**
+     * Atomically add to the counters of a user, creating them if needed.
+     *
+     * @param login user login
+     * @param files number of files added (negative if removed)
+     * @param bytes number of bytes added (negative if removed)
+     */
+    public void inc(String login, long files, long bytes) {
+        mongoTemplate.upsert(Query.query(where("_id").is(login)),
+                new Update().inc("files", files).inc("bytes", bytes), UserUsage.class);
+    }
+
+    /**
+     * Replace the counters of all the users.
+     *
+     * @param usages new counters
+     */
+    public void replaceAll(Collection<UserUsage> usages) {
+        mongoTemplate.dropCollection(UserUsage.class);
+        for (UserUsage usage : usages) {
+            mongoTemplate.save(usage);
+        }
+    }
+}
@@ -5,6 +5,8 @@ import org.springframework.stereotype.Repository;
 import org.telosystools.saas.domain.filesystem.RootFolder;
 import org.telosystools.saas.domain.filesystem.Workspace;
 
+import java.util.List;
+
 /**
  * Created by luchabou on 27/02/2015.
  *
@@ -16,24 +18,52 @@ public class WorkspaceDao {
     @Autowired
     private RootFolderDao rootFolderDao;
 
+    @Autowired
+    private GeneratedFileDao generatedFileDao;
+
+    @Autowired
+    private WorkspaceStorageDao workspaceStorageDao;
+
+    /**
+     * Load a workspace, from the data cache if its root folders are cached.
+     *
+     * @param database the workspace database
+     * @return the workspace, null if it does not exist
+     */
     public Workspace load(String database) {
+        Workspace workspace = new Workspace();
+        refresh(workspace, database);
+        // Un workspace supprimé n'a plus de root folders, même si sa base est conservée
+        if (workspace.getModel() != null || workspace.getTemplates() != null || workspace.getGenerated() != null) {
+            return workspace;
+        }
+        return null;
+    }
+
+    /**
+     * Load a workspace from the database, never from the cache : for the checks that must see the stored trees.
+     *
+     * @param database the workspace database
+     * @return the workspace, null if it does not exist
+     */
+    public Workspace loadFromDatabase(String database) {
         if (rootFolderDao.workspaceExists(database)) {
             Workspace workspace = new Workspace();
-            refresh(workspace, database);
+            workspace.setModel(rootFolderDao.findByIdInDatabase(RootFolder.ID_PREFIX+Workspace.MODEL, database));
+            workspace.setTemplates(rootFolderDao.findByIdInDatabase(RootFolder.ID_PREFIX+Workspace.TEMPLATES, database));
+            workspace.setGenerated(rootFolderDao.findByIdInDatabase(RootFolder.ID_PREFIX+Workspace.GENERATED, database));
             return workspace;
         }
         return null;
     }
 
     public void refresh(Workspace workspace, String database) {
+        // Chargement partagé avec les lectures simultanées du même workspace
+        RootFolder[] rootFolders = rootFolderDao.findRootFolders(database);
 
-        RootFolder modelsFolder = rootFolderDao.findById(RootFolder.ID_PREFIX+Workspace.MODEL, database);
-        RootFolder templatesFolder = rootFolderDao.findById(RootFolder.ID_PREFIX+Workspace.TEMPLATES, database);
-        RootFolder generatedsFolder = rootFolderDao.findById(RootFolder.ID_PREFIX+Workspace.GENERATED, database);
-
-        workspace.setModel(modelsFolder);
-        workspace.setTemplates(templatesFolder);
-        workspace.setGenerated(generatedsFolder);
+        workspace.setModel(rootFolders[0]);
+        workspace.setTemplates(rootFolders[1]);
+        workspace.setGenerated(rootFolders[2]);
     }
 
     public void save(Workspace workspace, String database) {
@@ -42,8 +72,30 @@ public class WorkspaceDao {
         rootFolderDao.save(workspace.getGenerated(), database);
     }
 
+    /**
+     * Return the names of all the databases : workspace databases and others.
+     *
+     * @return database names
+     */
+    public List<String> listDatabases() {
+        return rootFolderDao.listDatabases();
+    }
+
     public void delete(String database) {
-        rootFolderDao.mongoTemplateDatabase(database).getDb().dropDatabase();
+        workspaceStorageDao.drop(database);
+        rootFolderDao.evictAll(database);
+    }
+
+    /**
+     * Delete the folder trees but keep the GridFS contents of the database.
+     *
+     * @param database the workspace database
+     */
+    public void deleteTree(String database) {
+        // La base reste connue comme workspace : le ramasse-miettes la supprimera une fois vidée
+        workspaceStorageDao.retain(database);
+        rootFolderDao.deleteAll(database);
+        generatedFileDao.deleteAll(database);
     }
 
 }
@@ -0,0 +1,50 @@
+package org.telosystools.saas.dao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import org.telosystools.saas.domain.filesystem.WorkspaceRevision;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Revision numbers of the workspaces, in the general database.
+ */
+@Repository
+public class WorkspaceRevisionDao {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Return the current revision of a workspace.
+     *
+     * @param projectId project id
+     * @return revision, 0 if the workspace has never been changed
+     */
+    public long get(String projectId) {
+        WorkspaceRevision revision = mongoTemplate.findById(projectId, WorkspaceRevision.class);
+        return revision != null ? revision.getRevision() : 0;
+    }
+
+    /**
+     * Atomically increment the revision of a workspace, creating it if needed.
+     *
+     * @param projectId project id
+     * @param count     number of changes
+     * @return the new revision : the revision of the last change
+     */
+    public long inc(String projectId, int count) {
+        WorkspaceRevision revision = mongoTemplate.findAndModify(Query.query(where("_id").is(projectId)),
+                new Update().inc("revision", count), FindAndModifyOptions.options().upsert(true).returnNew(true),
+                WorkspaceRevision.class);
+        return revision.getRevision();
+    }
+
+    public void delete(String projectId) {
+        mongoTemplate.remove(Query.query(where("_id").is(projectId)), WorkspaceRevision.class);
+    }
+}
@@ -0,0 +1,478 @@
+package org.telosystools.saas.dao;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.Mongo;
+import com.mongodb.gridfs.GridFSDBFile;
+import com.mongodb.gridfs.GridFSFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.StringUtils;
+import org.telosystools.saas.bean.MigrationReport;
+import org.telosystools.saas.cache.DataCache;
+import org.telosystools.saas.cache.DataCacheManager;
+import org.telosystools.saas.config.StorageConfiguration;
+import org.telosystools.saas.domain.filesystem.WorkspaceStorage;
+import org.telosystools.saas.exception.StorageMigrationException;
+
+import javax.annotation.PostConstruct;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Routes the operations on a workspace to its storage layout, recorded in the general database
+ * and kept in the data cache, and migrates the workspaces from a layout to the other.
+ *
+ * A migration is online : the workspace is still read from its current layout while its contents are copied,
+ * and its writes wait for the end of the copy. The ids of the GridFS contents are kept, so that the files,
+ * the shared contents and the cached contents still reference them.
+ *
+ * The storages read by this node are kept for less than the settle delay of the migrations, even when the data cache
+ * is disabled : the workspaces without recorded storage are not looked up in the general database on each operation,
+ * and a migration started by another node is still seen before its copy starts.
+ */
+@Repository
+public class WorkspaceStorageDao implements StorageLayout {
+
+    private static final long WAIT_MILLIS = 100;
+
+    private final Logger log = LoggerFactory.getLogger(WorkspaceStorageDao.class);
+
+    @Autowired
+    private Mongo mongo;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private StorageConfiguration storageConfiguration;
+
+    @Autowired
+    private DataCacheManager dataCacheManager;
+
+    private DataCache<WorkspaceStorage> storageCache;
+
+    private DatabaseStorageLayout databaseLayout;
+
+    private volatile SharedStorageLayout sharedLayout;
+
+    private static final int MAX_RECENT_STORAGES = 10000;
+
+    /**
+     * Locks fencing the writes of a workspace during its migration on this node, by project id :
+     * a lock is dropped once no thread uses it
+     */
+    private final ConcurrentMap<String, ReadWriteLock> migrationLocks =
+            new ConcurrentReferenceHashMap<>(16, ConcurrentReferenceHashMap.ReferenceType.WEAK);
+
+    /**
+     * Storages read recently by this node, recorded or not, in access order
+     */
+    private final Map<String, RecentStorage> recentStorages = new LinkedHashMap<String, RecentStorage>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RecentStorage> eldest) {
+            return size() > MAX_RECENT_STORAGES;
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        storageCache = dataCacheManager.getCache(DataCacheManager.WORKSPACE_STORAGE);
+        databaseLayout = new DatabaseStorageLayout(mongo, mongoTemplate.getConverter());
+        if (SHARED.equals(storageConfiguration.getLayout()) || SharedStorageLayout.isUsed(sharedDatabase())) {
+            getSharedLayout();
+        }
+    }
+
+    private DB sharedDatabase() {
+        final String name = storageConfiguration.getSharedDatabase();
+        return StringUtils.hasText(name) ? mongo.getDB(name) : mongoTemplate.getDb();
+    }
+
+    private StorageLayout getSharedLayout() {
+        if (sharedLayout == null) {
+            synchronized (this) {
+                if (sharedLayout == null) {
+                    sharedLayout = new SharedStorageLayout(sharedDatabase(), mongoTemplate.getConverter());
+                }
+            }
+        }
+        return sharedLayout;
+    }
+
+    private StorageLayout getLayout(String name) {
+        if (DATABASE.equals(name)) {
+            return databaseLayout;
+        }
+        if (SHARED.equals(name)) {
+            return getSharedLayout();
+        }
+        throw new IllegalArgumentException("Unknown storage layout : " + name);
+    }
+
+    /**
+     * Return the storage of a workspace. A workspace without recorded storage is stored in its own database
+     * if it has one, otherwise in the configured layout.
+     */
+    private WorkspaceStorage getStorage(String database) {
+        final WorkspaceStorage cached = storageCache.get(database);
+        if (cached != null) {
+            return cached;
+        }
+        final long now = System.currentTimeMillis();
+        synchronized (recentStorages) {
+            final RecentStorage recent = recentStorages.get(database);
+            if (recent != null && now - recent.readMillis < storageConfiguration.getMigrationSettleMillis() / 2) {
+                return recent.storage;
+            }
+        }
+        WorkspaceStorage storage = mongoTemplate.findById(database, WorkspaceStorage.class);
+        if (storage == null) {
+            storage = new WorkspaceStorage(database, DATABASE);
+            if (SHARED.equals(storageConfiguration.getLayout())) {
+                // Workspace créé avant le passage aux collections partagées
+                if (!databaseLayout.exists(database, FOLDERS) && !databaseLayout.hasContentStore(database)) {
+                    storage.setLayout(SHARED);
+                }
+                mongoTemplate.save(storage);
+            }
+        }
+        storageCache.putIfAbsent(database, storage);
+        remember(storage, now);
+        return storage;
+    }
+
+    private void saveStorage(WorkspaceStorage storage) {
+        mongoTemplate.save(storage);
+        storageCache.put(storage.getProjectId(), storage);
+        remember(storage, System.currentTimeMillis());
+    }
+
+    private void remember(WorkspaceStorage storage, long readMillis) {
+        synchronized (recentStorages) {
+            recentStorages.put(storage.getProjectId(), new RecentStorage(storage, readMillis));
+        }
+    }
+
+    private void forget(String database) {
+        storageCache.evict(database);
+        synchronized (recentStorages) {
+            recentStorages.remove(database);
+        }
+    }
+
+    private ReadWriteLock migrationLock(String database) {
+        return migrationLocks.computeIfAbsent(database, key -> new ReentrantReadWriteLock());
+    }
+
+    /**
+     * Return the name of the layout of a workspace.
+     *
+     * @param database the workspace key
+     * @return database or shared
+     */
+    public String getLayoutName(String database) {
+        return getStorage(database).getLayout();
+    }
+
+    private StorageLayout read(String database) {
+        return getLayout(getStorage(database).getLayout());
+    }
+
+    /**
+     * Run a write on the layout of a workspace, once its migration is finished.
+     */
+    private <T> T write(String database, Function<StorageLayout, T> operation) {
+        final long timeout = System.currentTimeMillis() + storageConfiguration.getMigrationWriteTimeoutMillis();
+        final ReadWriteLock lock = migrationLock(database);
+        while (true) {
+            lock.readLock().lock();
+            try {
+                final WorkspaceStorage storage = getStorage(database);
+                if (storage.getMigratingTo() == null) {
+                    return operation.apply(getLayout(storage.getLayout()));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (System.currentTimeMillis() > timeout) {
+                throw new StorageMigrationException(database);
+            }
+            sleep(WAIT_MILLIS);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return storageConfiguration.getLayout();
+    }
+
+    @Override
+    public <T> T findById(String database, String collection, String id, Class<T> type) {
+        return read(database).findById(database, collection, id, type);
+    }
+
+    @Override
+    public <T> List<T> findAll(String database, String collection, Class<T> type) {
+        return read(database).findAll(database, collection, type);
+    }
+
+    @Override
+    public <T> List<T> findByIdPrefix(String database, String collection, String prefix, Class<T> type) {
+        return read(database).findByIdPrefix(database, collection, prefix, type);
+    }
+
+    @Override
+    public void save(String database, String collection, Object entity) {
+        write(database, layout -> {
+            layout.save(database, collection, entity);
+            return null;
+        });
+    }
+
+    @Override
+    public void remove(String database, String collection, String id) {
+        write(database, layout -> {
+            layout.remove(database, collection, id);
+            return null;
+        });
+    }
+
+    @Override
+    public void removeByIdPrefix(String database, String collection, String prefix) {
+        write(database, layout -> {
+            layout.removeByIdPrefix(database, collection, prefix);
+            return null;
+        });
+    }
+
+    @Override
+    public void removeAll(String database, String collection) {
+        write(database, layout -> {
+            layout.removeAll(database, collection);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean exists(String database, String collection) {
+        return read(database).exists(database, collection);
+    }
+
+    @Override
+    public List<DBObject> findDocuments(String database, String collection) {
+        return read(database).findDocuments(database, collection);
+    }
+
+    @Override
+    public void saveDocument(String database, String collection, DBObject document) {
+        write(database, layout -> {
+            layout.saveDocument(database, collection, document);
+            return null;
+        });
+    }
+
+    @Override
+    public GridFSDBFile findContent(String database, String gridFSId) {
+        return read(database).findContent(database, gridFSId);
+    }
+
+    @Override
+    public GridFSFile createContent(String database, InputStream in, String filename, Object id) {
+        return write(database, layout -> layout.createContent(database, in, filename, id));
+    }
+
+    @Override
+    public void removeContent(String database, String gridFSId) {
+        write(database, layout -> {
+            layout.removeContent(database, gridFSId);
+            return null;
+        });
+    }
+
+    @Override
+    public DBCursor listContents(String database, DBObject query, DBObject sort) {
+        return read(database).listContents(database, query, sort);
+    }
+
+    @Override
+    public boolean hasContentStore(String database) {
+        return read(database).hasContentStore(database);
+    }
+
+    @Override
+    public List<String> listDatabases() {
+        final Set<String> databases = new LinkedHashSet<>(databaseLayout.listDatabases());
+        if (sharedLayout != null || SharedStorageLayout.isUsed(sharedDatabase())) {
+            databases.addAll(getSharedLayout().listDatabases());
+        }
+        return new ArrayList<>(databases);
+    }
+
+    @Override
+    public void drop(String database) {
+        write(database, layout -> {
+            layout.drop(database);
+            return null;
+        });
+        mongoTemplate.remove(query(where("_id").is(database)), WorkspaceStorage.class);
+        forget(database);
+    }
+
+    /**
+     * Indicates if the storage of a workspace is recorded, without recording it.
+     *
+     * @param database the workspace key
+     * @return true if the workspace has a recorded storage
+     */
+    public boolean isRecorded(String database) {
+        return mongoTemplate.exists(query(where("_id").is(database)), WorkspaceStorage.class);
+    }
+
+    /**
+     * Indicates if a database holds or held a workspace : its storage is recorded, or it holds a folder tree.
+     * Unlike the other operations, never records the storage of the database.
+     *
+     * @param database a database
+     * @return true if the database is a workspace
+     */
+    public boolean isWorkspace(String database) {
+        return isRecorded(database) || databaseLayout.exists(database, FOLDERS);
+    }
+
+    /**
+     * Record the storage of a workspace whose tree is deleted but whose contents are kept,
+     * so that the database is still known as a workspace until it is dropped.
+     *
+     * @param database the workspace key
+     */
+    public void retain(String database) {
+        if (!isRecorded(database)) {
+            saveStorage(getStorage(database));
+        }
+    }
+
+    /**
+     * Copy a workspace to a layout, then remove it from its current layout.
+     * A migration interrupted by a failure or a stop of the node is resumed by the next one.
+     *
+     * @param database the workspace key
+     * @param target   target layout : database or shared
+     * @param report   counters of the migration
+     * @return false if the workspace was already stored in the target layout
+     */
+    public boolean migrate(String database, String target, MigrationReport report) {
+        final StorageLayout destination = getLayout(target);
+        forget(database);
+        final WorkspaceStorage storage = getStorage(database);
+        if (target.equals(storage.getLayout())) {
+            if (storage.getMigratingTo() != null) {
+                // Abandon d'une migration interrompue vers l'autre layout
+                getLayout(storage.getMigratingTo()).drop(database);
+                storage.setMigratingTo(null);
+                saveStorage(storage);
+            }
+            return false;
+        }
+        final StorageLayout source = getLayout(storage.getLayout());
+
+        // Les écritures des autres noeuds attendent dès qu'ils voient la migration
+        storage.setMigratingTo(target);
+        saveStorage(storage);
+        sleep(storageConfiguration.getMigrationSettleMillis());
+
+        final ReadWriteLock lock = migrationLock(database);
+        lock.writeLock().lock();
+        try {
+            // Copie partielle d'une migration interrompue
+            destination.drop(database);
+            for (String collection : COLLECTIONS) {
+                for (DBObject document : source.findDocuments(database, collection)) {
+                    destination.saveDocument(database, collection, document);
+                    report.addDocument();
+                }
+            }
+            for (String gridFSId : listContentIds(source, database)) {
+                final GridFSDBFile content = source.findContent(database, gridFSId);
+                if (content == null) continue;
+                destination.createContent(database, content.getInputStream(), content.getFilename(), content.getId());
+                report.addContent(content.getLength());
+            }
+        } catch (RuntimeException e) {
+            destination.drop(database);
+            storage.setMigratingTo(null);
+            saveStorage(storage);
+            lock.writeLock().unlock();
+            throw e;
+        }
+
+        try {
+            storage.setLayout(target);
+            storage.setMigratingTo(null);
+            saveStorage(storage);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            source.drop(database);
+        } catch (RuntimeException e) {
+            // Le workspace est lu dans le nouveau layout : l'ancienne copie est seulement inutile
+            log.warn("Workspace {} migrated but not removed from the storage layout {} : {}", database, source.getName(), e.getMessage());
+        }
+        log.info("Workspace {} migrated to the storage layout {}", database, target);
+        return true;
+    }
+
+    private List<String> listContentIds(StorageLayout layout, String database) {
+        final List<String> ids = new ArrayList<>();
+        try (DBCursor cursor = layout.listContents(database, new BasicDBObject(), new BasicDBObject("_id", 1))) {
+            while (cursor.hasNext()) {
+                ids.add(cursor.next().get("_id").toString());
+            }
+        }
+        return ids;
+    }
+
+    private void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a storage migration", e);
+        }
+    }
+
+    /**
+     * Storage read by this node, with the time it was read
+     */
+    private static class RecentStorage {
+
+        private final WorkspaceStorage storage;
+
+        private final long readMillis;
+
+        private RecentStorage(WorkspaceStorage storage, long readMillis) {
+            this.storage = storage;
+            this.readMillis = readMillis;
+        }
+    }
+}
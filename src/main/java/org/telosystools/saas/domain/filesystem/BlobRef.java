@@ -0,0 +1,54 @@
+package org.telosystools.saas.domain.filesystem;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.io.Serializable;
+
+/**
+ * A GridFS content referenced by the files of several workspaces.
+ *
+ * The document exists as long as the content is shared : it is removed
+ * with the content, by the last file releasing it.
+ */
+@Document(collection = "blob_refs")
+public class BlobRef implements Serializable {
+
+    /**
+     * database:gridFSId
+     */
+    @Id
+    private String id;
+
+    /**
+     * Database holding the content
+     */
+    private String database;
+
+    private String gridFSId;
+
+    /**
+     * Number of references besides the first one
+     */
+    private long shares;
+
+    public static String key(String database, String gridFSId) {
+        return database + ":" + gridFSId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public String getGridFSId() {
+        return gridFSId;
+    }
+
+    public long getShares() {
+        return shares;
+    }
+}
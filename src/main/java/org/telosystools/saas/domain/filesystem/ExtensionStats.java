@@ -0,0 +1,48 @@
+package org.telosystools.saas.domain.filesystem;
+
+import java.io.Serializable;
+
+/**
+ * Number of files and bytes for one file extension.
+ */
+public class ExtensionStats implements Serializable {
+
+    private long files;
+
+    private long bytes;
+
+    public ExtensionStats() {}
+
+    public ExtensionStats(long files, long bytes) {
+        this.files = files;
+        this.bytes = bytes;
+    }
+
+    public long getFiles() {
+        return files;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    void add(long files, long bytes) {
+        this.files += files;
+        this.bytes += bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ExtensionStats)) return false;
+
+        ExtensionStats that = (ExtensionStats) o;
+
+        return files == that.files && bytes == that.bytes;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(files) + Long.hashCode(bytes);
+    }
+}
@@ -31,6 +31,23 @@ public class File implements Serializable {
      * GridFS identifier
      */
     private String gridFSId;
+    /**
+     * Size of the content in bytes, null for a file saved before it was recorded
+     */
+    private Long size;
+    /**
+     * MD5 of the content, in hexadecimal, null for a file saved before it was recorded
+     */
+    private String md5;
+    /**
+     * Database holding the GridFS content, null for the database of the workspace
+     */
+    private String blobDatabase;
+    /**
+     * The content may be referenced by another workspace : only set by the former clones,
+     * the shares are now recorded by the reference counters
+     */
+    private boolean shared;
 
     File() {}
 
@@ -88,6 +105,22 @@ public class File implements Serializable {
         return gridFSId;
     }
 
+    public Long getSize() {
+        return size;
+    }
+
+    public String getMd5() {
+        return md5;
+    }
+
+    public String getBlobDatabase() {
+        return blobDatabase;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
     public void setPath(String path) {
         this.path = path;
     }
@@ -100,6 +133,22 @@ public class File implements Serializable {
         this.gridFSId = gridFSId;
     }
 
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public void setMd5(String md5) {
+        this.md5 = md5;
+    }
+
+    public void setBlobDatabase(String blobDatabase) {
+        this.blobDatabase = blobDatabase;
+    }
+
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -3,6 +3,8 @@ package org.telosystools.saas.domain.filesystem;
 import org.telosystools.saas.bean.Path;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -74,6 +76,35 @@ public class Folder implements Serializable {
         return files;
     }
 
+    /**
+     * Return the files of this folder and of all its sub folders.
+     * @return files
+     */
+    public List<File> listFiles() {
+        List<File> allFiles = new ArrayList<>(files.values());
+        for (Folder folder : folders.values()) {
+            allFiles.addAll(folder.listFiles());
+        }
+        return allFiles;
+    }
+
+    /**
+     * Compute the counters of the files and sub folders of this folder, recursively.
+     * The size of the files must be known.
+     * @return counters
+     */
+    public FolderStats computeStats() {
+        FolderStats stats = new FolderStats();
+        for (File file : files.values()) {
+            stats.addFile(File.getFileExtension(file.getName()), file.getSize() == null ? 0 : file.getSize());
+        }
+        for (Folder folder : folders.values()) {
+            stats.addFolder();
+            stats.add(folder.computeStats());
+        }
+        return stats;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,132 @@
+package org.telosystools.saas.domain.filesystem;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counters of a folder tree : number of files and folders, size of the contents
+ * in bytes, and files and bytes by file extension.
+ *
+ * The counters of a root folder are updated on every change of its tree,
+ * so that they never need a full tree walk.
+ */
+public class FolderStats implements Serializable {
+
+    /**
+     * Number of files in the tree
+     */
+    private long files;
+    /**
+     * Number of sub folders in the tree
+     */
+    private long folders;
+    /**
+     * Size of the file contents
+     */
+    private long bytes;
+    /**
+     * Counters by file extension
+     */
+    private final Map<String, ExtensionStats> extensions = new TreeMap<>();
+
+    public long getFiles() {
+        return files;
+    }
+
+    public long getFolders() {
+        return folders;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public Map<String, ExtensionStats> getExtensions() {
+        return extensions;
+    }
+
+    public void addFile(String extension, long size) {
+        addFiles(extension, 1, size);
+    }
+
+    public void removeFile(String extension, long size) {
+        addFiles(extension, -1, -size);
+    }
+
+    /**
+     * Update the size of a file whose content changed.
+     *
+     * @param extension file extension
+     * @param delta     new size minus old size
+     */
+    public void updateFile(String extension, long delta) {
+        addFiles(extension, 0, delta);
+    }
+
+    public void addFolder() {
+        this.folders++;
+    }
+
+    /**
+     * Add the counters of a sub tree.
+     *
+     * @param stats sub tree counters
+     */
+    public void add(FolderStats stats) {
+        merge(stats, 1);
+    }
+
+    /**
+     * Remove the counters of a sub tree.
+     *
+     * @param stats sub tree counters
+     */
+    public void subtract(FolderStats stats) {
+        merge(stats, -1);
+    }
+
+    private void merge(FolderStats stats, int sign) {
+        this.folders += sign * stats.folders;
+        for (Map.Entry<String, ExtensionStats> entry : stats.extensions.entrySet()) {
+            addFiles(entry.getKey(), sign * entry.getValue().getFiles(), sign * entry.getValue().getBytes());
+        }
+    }
+
+    private void addFiles(String extension, long fileCount, long size) {
+        this.files += fileCount;
+        this.bytes += size;
+        ExtensionStats extensionStats = extensions.computeIfAbsent(extension, key -> new ExtensionStats());
+        extensionStats.add(fileCount, size);
+        if (extensionStats.getFiles() <= 0) {
+            extensions.remove(extension);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FolderStats)) return false;
+
+        FolderStats that = (FolderStats) o;
+
+        return files == that.files
+                && folders == that.folders
+                && bytes == that.bytes
+                && extensions.equals(that.extensions);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(files);
+        result = 31 * result + Long.hashCode(folders);
+        result = 31 * result + Long.hashCode(bytes);
+        result = 31 * result + extensions.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FolderStats[files=%d, folders=%d, bytes=%d]", files, folders, bytes);
+    }
+}
@@ -16,14 +16,19 @@ public class RootFolder extends Folder {
 
     private boolean readOnly;
 
+    /**
+     * Counters of the tree, null for a tree saved before they existed
+     */
+    private FolderStats stats;
+
     public RootFolder(String name) {
         super(name);
         this.id = ID_PREFIX + this.getName();
+        this.stats = new FolderStats();
     }
 
     public RootFolder(String name, boolean readOnly) {
-        super(name);
-        this.id = ID_PREFIX + this.getName();
+        this(name);
         this.readOnly = readOnly;
     }
 
@@ -46,6 +51,14 @@ public class RootFolder extends Folder {
         this.readOnly = readOnly;
     }
 
+    public FolderStats getStats() {
+        return stats;
+    }
+
+    public void setStats(FolderStats stats) {
+        this.stats = stats;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
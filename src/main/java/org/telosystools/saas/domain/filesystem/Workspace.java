@@ -1,6 +1,9 @@
 package org.telosystools.saas.domain.filesystem;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -24,6 +27,34 @@ public class Workspace implements Serializable {
         return rootFoldersByNames.get(name);
     }
 
+    /**
+     * Return the root folders, by name order.
+     * @return root folders
+     */
+    public Collection<RootFolder> listRootFolders() {
+        List<RootFolder> rootFolders = new ArrayList<>();
+        for (RootFolder rootFolder : rootFoldersByNames.values()) {
+            if (rootFolder != null) {
+                rootFolders.add(rootFolder);
+            }
+        }
+        return rootFolders;
+    }
+
+    /**
+     * Return the files of all the root folders.
+     * @return files
+     */
+    public List<File> listFiles() {
+        List<File> files = new ArrayList<>();
+        for (RootFolder rootFolder : rootFoldersByNames.values()) {
+            if (rootFolder != null) {
+                files.addAll(rootFolder.listFiles());
+            }
+        }
+        return files;
+    }
+
     public RootFolder getModel() {
         return rootFoldersByNames.get(MODEL);
     }
@@ -0,0 +1,40 @@
+package org.telosystools.saas.domain.filesystem;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.io.Serializable;
+
+/**
+ * Revision number of a workspace, in the general database.
+ *
+ * The revision is incremented by every saved change of the workspace,
+ * so that the clients notified of the changes can detect the ones they missed.
+ */
+@Document(collection = "workspace_revision")
+public class WorkspaceRevision implements Serializable {
+
+    /**
+     * Project id
+     */
+    @Id
+    private String projectId;
+
+    private long revision;
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+}
@@ -0,0 +1,64 @@
+package org.telosystools.saas.domain.filesystem;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.io.Serializable;
+
+/**
+ * Storage layout of a workspace, in the general database.
+ *
+ * A workspace without layout is stored in its own database. During a migration, the workspace is still read
+ * from its current layout and its writes wait until the contents have been copied to the new one.
+ */
+@Document(collection = "workspace_storage")
+public class WorkspaceStorage implements Serializable {
+
+    /**
+     * Project id
+     */
+    @Id
+    private String projectId;
+
+    /**
+     * Current layout : database or shared
+     */
+    private String layout;
+
+    /**
+     * Layout the workspace is being migrated to, null if no migration is running
+     */
+    private String migratingTo;
+
+    public WorkspaceStorage() {
+    }
+
+    public WorkspaceStorage(String projectId, String layout) {
+        this.projectId = projectId;
+        this.layout = layout;
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
+    public String getLayout() {
+        return layout;
+    }
+
+    public void setLayout(String layout) {
+        this.layout = layout;
+    }
+
+    public String getMigratingTo() {
+        return migratingTo;
+    }
+
+    public void setMigratingTo(String migratingTo) {
+        this.migratingTo = migratingTo;
+    }
+}
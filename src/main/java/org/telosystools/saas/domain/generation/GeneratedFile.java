@@ -0,0 +1,111 @@
+package org.telosystools.saas.domain.generation;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Inputs of a generated file at its last generation : the file is rendered again
+ * only if one of them changed, and written again only if its content changed.
+ */
+@Document(collection = "generation")
+public class GeneratedFile implements Serializable {
+
+    /**
+     * Path of the file, relative to the generated root
+     */
+    @Id
+    private String path;
+    /**
+     * Absolute path of the template
+     */
+    private String template;
+    private String templateHash;
+    /**
+     * Hash of the entity file and of the entity names of the model, or of the whole model for a template applied once
+     */
+    private String entityHash;
+    /**
+     * Hash of the project configuration variables
+     */
+    private String configHash;
+    /**
+     * Hash of the rendered content
+     */
+    private String contentHash;
+    /**
+     * Content written by the generation : the file has been modified since if its content changed
+     */
+    private String gridFSId;
+    private Date generatedDate;
+
+    public GeneratedFile() {
+    }
+
+    public GeneratedFile(String path, String template, String templateHash, String entityHash, String configHash) {
+        this.path = path;
+        this.template = template;
+        this.templateHash = templateHash;
+        this.entityHash = entityHash;
+        this.configHash = configHash;
+    }
+
+    /**
+     * Indicates if the file has been generated with the same inputs.
+     *
+     * @param other inputs of the new generation
+     * @return true if the template, the entity and the configuration are unchanged
+     */
+    public boolean hasSameInputs(GeneratedFile other) {
+        return template.equals(other.template)
+                && templateHash.equals(other.templateHash)
+                && entityHash.equals(other.entityHash)
+                && configHash.equals(other.configHash);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public String getTemplateHash() {
+        return templateHash;
+    }
+
+    public String getEntityHash() {
+        return entityHash;
+    }
+
+    public String getConfigHash() {
+        return configHash;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getGridFSId() {
+        return gridFSId;
+    }
+
+    public void setGridFSId(String gridFSId) {
+        this.gridFSId = gridFSId;
+    }
+
+    public Date getGeneratedDate() {
+        return generatedDate;
+    }
+
+    public void setGeneratedDate(Date generatedDate) {
+        this.generatedDate = generatedDate;
+    }
+}
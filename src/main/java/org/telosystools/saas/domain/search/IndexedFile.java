@@ -0,0 +1,40 @@
+package org.telosystools.saas.domain.search;
+
+import org.springframework.data.annotation.Id;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Search index entry of a file : the lines where each term of the file appears.
+ */
+public class IndexedFile implements Serializable {
+
+    /**
+     * Absolute path of the file
+     */
+    @Id
+    private String path;
+
+    /**
+     * Line numbers (starting at 1) by term
+     */
+    private Map<String, List<Integer>> terms = new TreeMap<>();
+
+    IndexedFile() {}
+
+    public IndexedFile(String path, Map<String, List<Integer>> terms) {
+        this.path = path;
+        this.terms = terms;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Map<String, List<Integer>> getTerms() {
+        return terms;
+    }
+}
@@ -0,0 +1,54 @@
+package org.telosystools.saas.domain.usage;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.io.Serializable;
+
+/**
+ * Storage used by the projects owned by a user.
+ *
+ * The counters are incremented on every write, they are never computed from the workspaces.
+ */
+@Document(collection = "usage")
+public class UserUsage implements Serializable {
+
+    /**
+     * Login of the owner
+     */
+    @Id
+    private String login;
+
+    private long files;
+
+    private long bytes;
+
+    public UserUsage() {
+    }
+
+    public UserUsage(String login) {
+        this.login = login;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public long getFiles() {
+        return files;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public void add(long files, long bytes) {
+        this.files += files;
+        this.bytes += bytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("UserUsage[login=%s, files=%d, bytes=%d]", login, files, bytes);
+    }
+}
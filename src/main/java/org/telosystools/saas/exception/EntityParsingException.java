@@ -0,0 +1,11 @@
+package org.telosystools.saas.exception;
+
+/**
+ * A model file does not follow the entity syntax.
+ */
+public class EntityParsingException extends Exception {
+
+    public EntityParsingException(String file, String message) {
+        super("Invalid entity " + file + " : " + message);
+    }
+}
@@ -0,0 +1,12 @@
+package org.telosystools.saas.exception;
+
+/**
+ * A template cannot be rendered.
+ */
+public class GenerationException extends Exception {
+
+    public GenerationException(String template, String entity, Throwable cause) {
+        super("The template " + template + (entity == null ? "" : " cannot be applied to the entity " + entity)
+                + " : " + cause.getMessage(), cause);
+    }
+}
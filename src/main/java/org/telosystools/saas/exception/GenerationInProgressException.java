@@ -0,0 +1,11 @@
+package org.telosystools.saas.exception;
+
+/**
+ * A generation job is already queued or running for the project.
+ */
+public class GenerationInProgressException extends Exception {
+
+    public GenerationInProgressException(String projectId, String jobId) {
+        super("The generation job " + jobId + " of the project " + projectId + " is not finished.");
+    }
+}
@@ -0,0 +1,8 @@
+package org.telosystools.saas.exception;
+
+public class GenerationJobNotFoundException extends Exception {
+
+    public GenerationJobNotFoundException(String jobId) {
+        super("The generation job " + jobId + " does not exist.");
+    }
+}
@@ -0,0 +1,11 @@
+package org.telosystools.saas.exception;
+
+/**
+ * A write would exceed a storage quota.
+ */
+public class QuotaExceededException extends Exception {
+
+    public QuotaExceededException(String quota, long limit) {
+        super("The quota " + quota + " (" + limit + ") would be exceeded.");
+    }
+}
@@ -0,0 +1,15 @@
+package org.telosystools.saas.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A write waited too long for the end of the storage migration of its workspace : it can be retried later.
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "The storage of the workspace is being migrated")
+public class StorageMigrationException extends RuntimeException {
+
+    public StorageMigrationException(String projectId) {
+        super("The storage of the workspace " + projectId + " is being migrated.");
+    }
+}
@@ -0,0 +1,47 @@
+package org.telosystools.saas.generator;
+
+import org.apache.velocity.Template;
+
+/**
+ * A parsed template, ready to be merged by many threads.
+ */
+public class CompiledTemplate {
+
+    private final String name;
+    private final Template template;
+    private final String hash;
+    private final int weight;
+
+    CompiledTemplate(String name, Template template, String hash, int weight) {
+        this.name = name;
+        this.template = template;
+        this.hash = hash;
+        this.weight = weight;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    Template getTemplate() {
+        return template;
+    }
+
+    /**
+     * Return the hash of the template source.
+     *
+     * @return md5 of the source
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Return the weight of the template in the cache.
+     *
+     * @return length of the source
+     */
+    public int getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,121 @@
+package org.telosystools.saas.generator;
+
+import org.telosystools.saas.bean.Path;
+import org.telosystools.saas.generator.model.Entity;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A generated file : a target definition applied to an entity, its variables resolved.
+ * Available in the templates as $target.
+ */
+public class Target {
+
+    public static final String VAR_BEANNAME = "BEANNAME";
+    public static final String VAR_BEANNAME_LC = "BEANNAME_LC";
+    public static final String VAR_BEANNAME_UC = "BEANNAME_UC";
+
+    private static final Pattern VARIABLE = Pattern.compile("\\$\\{(\\w+)\\}");
+
+    private final TargetDefinition definition;
+    private final Entity entity;
+    private final String file;
+    private final String folder;
+
+    /**
+     * @param definition the target definition
+     * @param entity     the entity, null for a template applied once
+     * @param variables  project variables
+     */
+    public Target(TargetDefinition definition, Entity entity, Map<String, String> variables) {
+        this.definition = definition;
+        this.entity = entity;
+
+        final Map<String, String> allVariables = new HashMap<>(variables);
+        if (entity != null) {
+            allVariables.put(VAR_BEANNAME, entity.getName());
+            allVariables.put(VAR_BEANNAME_LC, entity.getName().toLowerCase());
+            allVariables.put(VAR_BEANNAME_UC, entity.getName().toUpperCase());
+        }
+        this.file = replaceVariables(definition.getFile(), allVariables, false);
+        // Les variables vides ne doivent pas laisser de dossiers vides dans le chemin
+        this.folder = replaceVariables(definition.getFolder(), allVariables, true)
+                .replaceAll("/{2,}", "/").replaceAll("^/|/$", "");
+    }
+
+    /**
+     * Replace the ${NAME} variables, unknown variables are kept.
+     *
+     * @param text      file or folder of the definition
+     * @param variables values by name
+     * @param inFolder  true to replace the dots of the packages by '/'
+     * @return the resolved text
+     */
+    static String replaceVariables(String text, Map<String, String> variables, boolean inFolder) {
+        final Matcher matcher = VARIABLE.matcher(text);
+        final StringBuffer result = new StringBuffer();
+        while (matcher.find()) {
+            String value = variables.get(matcher.group(1));
+            if (value == null) {
+                value = matcher.group();
+            } else if (inFolder && matcher.group(1).endsWith("_PKG")) {
+                value = value.replace('.', '/');
+            }
+            matcher.appendReplacement(result, Matcher.quoteReplacement(value));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    public TargetDefinition getDefinition() {
+        return definition;
+    }
+
+    public String getEntityName() {
+        return entity == null ? null : entity.getName();
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public String getFolder() {
+        return folder;
+    }
+
+    public String getTemplate() {
+        return definition.getTemplate();
+    }
+
+    /**
+     * Return the path of the generated file, relative to the generated root.
+     *
+     * @return folder/file
+     */
+    public String getPath() {
+        return folder.isEmpty() ? file : Path.join(folder, file);
+    }
+
+    /**
+     * Return the Java package of the generated file : the folder below the source folder, with dots.
+     *
+     * @param srcFolder the source folder ($SRC)
+     * @return the package
+     */
+    public String javaPackageFromFolder(String srcFolder) {
+        String packageFolder = folder;
+        if (srcFolder != null && !srcFolder.isEmpty() && packageFolder.startsWith(srcFolder)) {
+            packageFolder = packageFolder.substring(srcFolder.length());
+        }
+        packageFolder = packageFolder.replaceAll("^/+|/+$", "");
+        return packageFolder.replace('/', '.');
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Target[%s, entity=%s]", getPath(), getEntityName());
+    }
+}
@@ -0,0 +1,75 @@
+package org.telosystools.saas.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A line of the templates.cfg file of a bundle :
+ * <pre>
+ * Java bean ; ${BEANNAME}.java ; ${SRC}/${ROOT_PKG}/bean ; bean.vm ; *
+ * </pre>
+ * label ; file ; folder ; template ; '*' to apply the template to each entity, '1' to apply it once.
+ */
+public class TargetDefinition {
+
+    public static final String TEMPLATES_CFG = "templates.cfg";
+
+    private final String label;
+    private final String file;
+    private final String folder;
+    private final String template;
+    private final boolean once;
+
+    public TargetDefinition(String label, String file, String folder, String template, boolean once) {
+        this.label = label;
+        this.file = file;
+        this.folder = folder;
+        this.template = template;
+        this.once = once;
+    }
+
+    /**
+     * Parse a templates.cfg file : empty lines, comments (#) and lines with less than 4 fields are ignored.
+     *
+     * @param content file content
+     * @return definitions, in file order
+     */
+    public static List<TargetDefinition> parse(String content) {
+        final List<TargetDefinition> definitions = new ArrayList<>();
+        for (String line : content.split("\r?\n")) {
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) continue;
+
+            final String[] fields = trimmed.split(";");
+            if (fields.length < 4) continue;
+            final boolean once = fields.length > 4 && "1".equals(fields[4].trim());
+            definitions.add(new TargetDefinition(fields[0].trim(), fields[1].trim(), fields[2].trim(), fields[3].trim(), once));
+        }
+        return definitions;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public String getFolder() {
+        return folder;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public boolean isOnce() {
+        return once;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TargetDefinition[%s ; %s ; %s ; %s ; %s]", label, file, folder, template, once ? "1" : "*");
+    }
+}
@@ -0,0 +1,89 @@
+package org.telosystools.saas.generator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parsed templates, shared by the generations and the previews.
+ *
+ * The templates are keyed by the GridFS id of their content : a content is never updated in place,
+ * so an entry never needs to be invalidated. The least recently used templates are evicted
+ * when the total length of the cached sources exceeds the limit.
+ */
+@Component
+public class TemplateCache {
+
+    /**
+     * Maximum total length of the cached template sources
+     */
+    @Value("${generation.templateCache.maxChars:4194304}")
+    private long maxChars;
+
+    private final LinkedHashMap<String, CompiledTemplate> templates = new LinkedHashMap<>(16, 0.75f, true);
+    private long chars;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Return a cached template.
+     *
+     * @param gridFSId GridFS id of the template content
+     * @return the template, null if it is not cached
+     */
+    public synchronized CompiledTemplate get(String gridFSId) {
+        final CompiledTemplate template = templates.get(gridFSId);
+        if (template == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return template;
+    }
+
+    public synchronized void put(String gridFSId, CompiledTemplate template) {
+        if (template.getWeight() > maxChars) {
+            return;
+        }
+        final CompiledTemplate previous = templates.put(gridFSId, template);
+        if (previous != null) {
+            chars -= previous.getWeight();
+        }
+        chars += template.getWeight();
+        final Iterator<Map.Entry<String, CompiledTemplate>> iterator = templates.entrySet().iterator();
+        while (chars > maxChars && iterator.hasNext()) {
+            chars -= iterator.next().getValue().getWeight();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        templates.clear();
+        chars = 0;
+    }
+
+    public synchronized int size() {
+        return templates.size();
+    }
+
+    public synchronized long getChars() {
+        return chars;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,70 @@
+package org.telosystools.saas.generator;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.exception.VelocityException;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.parser.ParseException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.telosystools.saas.exception.GenerationException;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Renders the Velocity templates of the generation. Thread safe.
+ *
+ * A template is parsed once by compile(), the compiled template can then be merged
+ * many times, by many threads.
+ */
+@Component
+public class TemplateRenderer {
+
+    @Autowired
+    private RuntimeServices velocityRuntime;
+
+    /**
+     * Parse a template.
+     *
+     * @param templateName name of the template, for the error messages
+     * @param source       template content
+     * @return the compiled template
+     * @throws GenerationException if the template is invalid
+     */
+    public CompiledTemplate compile(String templateName, String source) throws GenerationException {
+        try {
+            final Template template = new Template();
+            template.setName(templateName);
+            template.setRuntimeServices(velocityRuntime);
+            template.setData(velocityRuntime.parse(new StringReader(source), templateName));
+            template.initDocument();
+            return new CompiledTemplate(templateName, template, DigestUtils.md5DigestAsHex(source.getBytes(UTF_8)), source.length());
+        } catch (ParseException | VelocityException e) {
+            throw new GenerationException(templateName, null, e);
+        }
+    }
+
+    /**
+     * Render a compiled template.
+     *
+     * @param template   the compiled template
+     * @param context    template variables
+     * @param entityName name of the entity, for the error messages
+     * @return rendered text
+     * @throws GenerationException if the template fails
+     */
+    public String render(CompiledTemplate template, Map<String, Object> context, String entityName) throws GenerationException {
+        final StringWriter writer = new StringWriter();
+        try {
+            template.getTemplate().merge(new VelocityContext(context), writer);
+        } catch (VelocityException e) {
+            throw new GenerationException(template.getName(), entityName, e);
+        }
+        return writer.toString();
+    }
+}
@@ -0,0 +1,149 @@
+package org.telosystools.saas.generator.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An attribute of an entity : a neutral type (string, int, date...) or a link to another entity.
+ */
+public class Attribute {
+
+    public static final String ANNOTATION_ID = "Id";
+    public static final String ANNOTATION_NOT_NULL = "NotNull";
+    public static final String ANNOTATION_SIZE_MAX = "SizeMax";
+
+    /**
+     * Java full type by neutral type
+     */
+    private static final Map<String, String> JAVA_TYPES = new HashMap<>();
+
+    static {
+        JAVA_TYPES.put("string", "java.lang.String");
+        JAVA_TYPES.put("int", "java.lang.Integer");
+        JAVA_TYPES.put("integer", "java.lang.Integer");
+        JAVA_TYPES.put("long", "java.lang.Long");
+        JAVA_TYPES.put("short", "java.lang.Short");
+        JAVA_TYPES.put("byte", "java.lang.Byte");
+        JAVA_TYPES.put("decimal", "java.math.BigDecimal");
+        JAVA_TYPES.put("float", "java.lang.Float");
+        JAVA_TYPES.put("double", "java.lang.Double");
+        JAVA_TYPES.put("boolean", "java.lang.Boolean");
+        JAVA_TYPES.put("date", "java.util.Date");
+        JAVA_TYPES.put("time", "java.sql.Time");
+        JAVA_TYPES.put("timestamp", "java.sql.Timestamp");
+        JAVA_TYPES.put("blob", "byte[]");
+        JAVA_TYPES.put("binary", "byte[]");
+        JAVA_TYPES.put("clob", "java.lang.String");
+    }
+
+    private final String name;
+
+    /**
+     * Neutral type, or name of the linked entity
+     */
+    private final String type;
+
+    /**
+     * Link to many entities
+     */
+    private final boolean collection;
+
+    /**
+     * Annotation values by name, null for an annotation without value
+     */
+    private final Map<String, String> annotations = new LinkedHashMap<>();
+
+    public Attribute(String name, String type, boolean collection) {
+        this.name = name;
+        this.type = type;
+        this.collection = collection;
+    }
+
+    /**
+     * Indicates if the type is a neutral type.
+     *
+     * @param type a type
+     * @return true if the type is not an entity name
+     */
+    public static boolean isNeutralType(String type) {
+        return JAVA_TYPES.containsKey(type);
+    }
+
+    void addAnnotation(String annotation, String value) {
+        annotations.put(annotation, value);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public boolean isCollection() {
+        return collection;
+    }
+
+    public boolean isLink() {
+        return !isNeutralType(type);
+    }
+
+    public Map<String, String> getAnnotations() {
+        return Collections.unmodifiableMap(annotations);
+    }
+
+    public boolean hasAnnotation(String annotation) {
+        return annotations.containsKey(annotation);
+    }
+
+    public boolean isKeyElement() {
+        return hasAnnotation(ANNOTATION_ID);
+    }
+
+    public boolean isNotNull() {
+        return isKeyElement() || hasAnnotation(ANNOTATION_NOT_NULL);
+    }
+
+    /**
+     * Return the maximum length of a string.
+     *
+     * @return the @SizeMax value, null if not set
+     */
+    public Integer getMaxLength() {
+        String value = annotations.get(ANNOTATION_SIZE_MAX);
+        return value == null ? null : Integer.valueOf(value.trim());
+    }
+
+    /**
+     * Return the Java type with its package : java.util.Date, java.util.List<Book>...
+     *
+     * @return full type
+     */
+    public String getFullType() {
+        if (isLink()) {
+            return collection ? "java.util.List<" + type + ">" : type;
+        }
+        return JAVA_TYPES.get(type);
+    }
+
+    /**
+     * Return the Java type without its package : Date, List<Book>...
+     *
+     * @return simple type
+     */
+    public String getSimpleType() {
+        if (isLink()) {
+            return collection ? "List<" + type + ">" : type;
+        }
+        String fullType = JAVA_TYPES.get(type);
+        return fullType.substring(fullType.lastIndexOf('.') + 1);
+    }
+
+    @Override
+    public String toString() {
+        return name + " : " + type + (collection ? "[]" : "");
+    }
+}
@@ -0,0 +1,74 @@
+package org.telosystools.saas.generator.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An entity of the model, read from a .entity file.
+ */
+public class Entity {
+
+    private final String name;
+
+    /**
+     * Absolute path of the model file
+     */
+    private final String path;
+
+    private final List<Attribute> attributes = new ArrayList<>();
+
+    public Entity(String name, String path) {
+        this.name = name;
+        this.path = path;
+    }
+
+    void addAttribute(Attribute attribute) {
+        attributes.add(attribute);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public List<Attribute> getAttributes() {
+        return Collections.unmodifiableList(attributes);
+    }
+
+    public List<Attribute> getKeyAttributes() {
+        List<Attribute> keys = new ArrayList<>();
+        for (Attribute attribute : attributes) {
+            if (attribute.isKeyElement()) keys.add(attribute);
+        }
+        return keys;
+    }
+
+    public List<Attribute> getNonKeyAttributes() {
+        List<Attribute> nonKeys = new ArrayList<>();
+        for (Attribute attribute : attributes) {
+            if (!attribute.isKeyElement() && !attribute.isLink()) nonKeys.add(attribute);
+        }
+        return nonKeys;
+    }
+
+    public List<Attribute> getLinks() {
+        List<Attribute> links = new ArrayList<>();
+        for (Attribute attribute : attributes) {
+            if (attribute.isLink()) links.add(attribute);
+        }
+        return links;
+    }
+
+    public boolean hasCompositeKey() {
+        return getKeyAttributes().size() > 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Entity[name=%s, attributes=%d]", name, attributes.size());
+    }
+}
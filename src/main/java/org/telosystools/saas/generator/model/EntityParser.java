@@ -0,0 +1,118 @@
+package org.telosystools.saas.generator.model;
+
+import org.telosystools.saas.bean.Path;
+import org.telosystools.saas.exception.EntityParsingException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parser of the Telosys DSL entity files :
+ * <pre>
+ * Book {
+ *   id : int { @Id } ;
+ *   title : string { @NotNull, @SizeMax(120) } ;
+ *   author : Author ;
+ *   reviews : Review[] ;
+ * }
+ * </pre>
+ * The entity name must be the name of the file, without its extension.
+ */
+public final class EntityParser {
+
+    public static final String ENTITY_EXTENSION = "entity";
+
+    private static final Pattern COMMENTS = Pattern.compile("/\\*.*?\\*/|//[^\\n]*", Pattern.DOTALL);
+    private static final Pattern ENTITY = Pattern.compile("^\\s*([A-Za-z_]\\w*)\\s*\\{(.*)\\}\\s*$", Pattern.DOTALL);
+    private static final Pattern ATTRIBUTE = Pattern.compile("^([A-Za-z_]\\w*)\\s*:\\s*([A-Za-z_]\\w*)\\s*(\\[\\s*\\])?\\s*(\\{(.*)\\})?$", Pattern.DOTALL);
+    private static final Pattern ANNOTATION = Pattern.compile("^@([A-Za-z_]\\w*)\\s*(\\((.*)\\))?$", Pattern.DOTALL);
+
+    private EntityParser() {
+    }
+
+    /**
+     * Indicates if a file of the model root is an entity file.
+     *
+     * @param fileName file name
+     * @return true for a .entity file
+     */
+    public static boolean isEntityFile(String fileName) {
+        return fileName.endsWith("." + ENTITY_EXTENSION);
+    }
+
+    /**
+     * Parse an entity file.
+     *
+     * @param absolutePath absolute path of the file
+     * @param content      file content
+     * @return the entity
+     * @throws EntityParsingException if the content is not a valid entity
+     */
+    public static Entity parse(String absolutePath, String content) throws EntityParsingException {
+        final String fileName = Path.valueOf(absolutePath).getFilename();
+        final String expectedName = fileName.substring(0, fileName.length() - ENTITY_EXTENSION.length() - 1);
+
+        final Matcher matcher = ENTITY.matcher(COMMENTS.matcher(content).replaceAll(""));
+        if (!matcher.matches()) {
+            throw new EntityParsingException(absolutePath, "expected '" + expectedName + " { ... }'");
+        }
+        if (!matcher.group(1).equals(expectedName)) {
+            throw new EntityParsingException(absolutePath, "the entity name " + matcher.group(1) + " does not match the file name");
+        }
+
+        final Entity entity = new Entity(expectedName, absolutePath);
+        for (String field : split(matcher.group(2), ';')) {
+            entity.addAttribute(parseAttribute(absolutePath, field));
+        }
+        return entity;
+    }
+
+    private static Attribute parseAttribute(String absolutePath, String field) throws EntityParsingException {
+        final Matcher matcher = ATTRIBUTE.matcher(field);
+        if (!matcher.matches()) {
+            throw new EntityParsingException(absolutePath, "invalid attribute '" + field + "'");
+        }
+        final String type = matcher.group(2);
+        final boolean collection = matcher.group(3) != null;
+        if (collection && Attribute.isNeutralType(type)) {
+            throw new EntityParsingException(absolutePath, "only the links can be collections : '" + field + "'");
+        }
+        final Attribute attribute = new Attribute(matcher.group(1), type, collection);
+        if (matcher.group(5) != null) {
+            for (String annotation : split(matcher.group(5), ',')) {
+                final Matcher annotationMatcher = ANNOTATION.matcher(annotation);
+                if (!annotationMatcher.matches()) {
+                    throw new EntityParsingException(absolutePath, "invalid annotation '" + annotation + "'");
+                }
+                attribute.addAnnotation(annotationMatcher.group(1), annotationMatcher.group(3));
+            }
+        }
+        return attribute;
+    }
+
+    /**
+     * Split a text on a separator found outside of braces and parentheses.
+     *
+     * @param text      the text
+     * @param separator the separator
+     * @return trimmed non empty items
+     */
+    private static List<String> split(String text, char separator) {
+        final List<String> items = new ArrayList<>();
+        int depth = 0;
+        int from = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            final char c = i < text.length() ? text.charAt(i) : separator;
+            if (c == '{' || c == '(') depth++;
+            if (c == '}' || c == ')') depth--;
+            if (c == separator && depth <= 0) {
+                final String item = text.substring(from, i).trim();
+                if (!item.isEmpty()) items.add(item);
+                from = i + 1;
+            }
+        }
+        return items;
+    }
+}
@@ -0,0 +1,37 @@
+package org.telosystools.saas.generator.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The entities of a project, by name.
+ */
+public class Model {
+
+    private final Map<String, Entity> entities = new TreeMap<>();
+
+    public Model(Collection<Entity> entities) {
+        for (Entity entity : entities) {
+            this.entities.put(entity.getName(), entity);
+        }
+    }
+
+    public List<Entity> getEntities() {
+        return new ArrayList<>(entities.values());
+    }
+
+    public List<String> getEntityNames() {
+        return new ArrayList<>(entities.keySet());
+    }
+
+    public Entity getEntity(String name) {
+        return entities.get(name);
+    }
+
+    public int size() {
+        return entities.size();
+    }
+}
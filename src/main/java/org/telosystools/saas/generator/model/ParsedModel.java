@@ -0,0 +1,43 @@
+package org.telosystools.saas.generator.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The model of a project with the hashes of its entity files, and the errors of the invalid files.
+ */
+public class ParsedModel {
+
+    private final Model model;
+    private final Map<String, String> entityHashes;
+    private final List<String> errors;
+
+    public ParsedModel(Model model, Map<String, String> entityHashes, List<String> errors) {
+        this.model = model;
+        this.entityHashes = Collections.unmodifiableMap(entityHashes);
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * Return the hashes of the entity files.
+     *
+     * @return md5 of the file content by entity name
+     */
+    public Map<String, String> getEntityHashes() {
+        return entityHashes;
+    }
+
+    /**
+     * Return the parsing errors of the invalid entity files, which are not in the model.
+     *
+     * @return error messages
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+}
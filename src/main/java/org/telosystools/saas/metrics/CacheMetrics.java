@@ -0,0 +1,47 @@
+package org.telosystools.saas.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.cache.DataCache;
+import org.telosystools.saas.cache.DataCacheManager;
+import org.telosystools.saas.cache.LocalDataCacheManager;
+import org.telosystools.saas.cache.MongoInvalidationBus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Exposes the hits and misses of the data caches of this node through the actuator /metrics endpoint,
+ * and the invalidations received by this node when the caches are local.
+ */
+@Component
+public class CacheMetrics implements PublicMetrics {
+
+    @Autowired
+    private DataCacheManager dataCacheManager;
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        for (DataCache<?> cache : dataCacheManager.getCaches()) {
+            final long requests = cache.getHits() + cache.getMisses();
+            metrics.add(new Metric<>("cache." + cache.getName() + ".hits", cache.getHits()));
+            metrics.add(new Metric<>("cache." + cache.getName() + ".misses", cache.getMisses()));
+            metrics.add(new Metric<>("cache." + cache.getName() + ".hitRate", requests == 0 ? 0.0 : (double) cache.getHits() / requests));
+        }
+        if (dataCacheManager instanceof LocalDataCacheManager) {
+            final MongoInvalidationBus bus = ((LocalDataCacheManager) dataCacheManager).getInvalidationBus();
+            metrics.add(new Metric<>("cache.invalidation.published", bus.getPublished()));
+            metrics.add(new Metric<>("cache.invalidation.received", bus.getReceived()));
+            metrics.add(new Metric<>("cache.invalidation.errors", bus.getErrors()));
+            metrics.add(new Metric<>("cache.invalidation.restarts", bus.getRestarts()));
+            metrics.add(new Metric<>("cache.invalidation.lag.last", bus.getLastLagMillis()));
+            metrics.add(new Metric<>("cache.invalidation.lag.max", bus.getMaxLagMillis()));
+            metrics.add(new Metric<>("cache.invalidation.lag.mean", bus.getMeanLagMillis()));
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,32 @@
+package org.telosystools.saas.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.service.impl.EditSessionServiceImpl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Exposes the counters of the collaborative editing sessions through the actuator /metrics endpoint :
+ * the operations applied in memory compared to the saves written to GridFS.
+ */
+@Component
+public class EditSessionMetrics implements PublicMetrics {
+
+    @Autowired
+    private EditSessionServiceImpl editSessionService;
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("edit.sessions", editSessionService.getSessionCount()));
+        metrics.add(new Metric<>("edit.operations", editSessionService.getOperations()));
+        metrics.add(new Metric<>("edit.rejectedOperations", editSessionService.getRejectedOperations()));
+        metrics.add(new Metric<>("edit.flushes", editSessionService.getFlushes()));
+        return metrics;
+    }
+}
@@ -0,0 +1,126 @@
+package org.telosystools.saas.metrics;
+
+import com.mongodb.Mongo;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.MongoWaitQueueFullException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exposes the connection pools of the Mongo client through the actuator /metrics endpoint.
+ *
+ * The size, checked out connections and waiting threads of each pool are read from the MBeans registered by the driver.
+ * The driver does not report the waits for a connection : they are measured by a ping sent at each sample,
+ * whose duration is the wait for a connection plus a round trip to the server.
+ */
+@Component
+public class MongoPoolMetrics implements PublicMetrics {
+
+    private static final String POOL_MBEANS = "org.mongodb.driver:type=ConnectionPool,*";
+
+    private final Logger log = LoggerFactory.getLogger(MongoPoolMetrics.class);
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    @Autowired
+    private Mongo mongo;
+
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong maxCheckedOut = new AtomicLong();
+    private final AtomicLong maxWaitQueue = new AtomicLong();
+    private final AtomicLong saturated = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong lastWait = new AtomicLong();
+    private final AtomicLong maxWait = new AtomicLong();
+    private final AtomicLong totalWait = new AtomicLong();
+
+    /**
+     * Sample the pools and measure the wait for a connection.
+     */
+    @Scheduled(fixedDelayString = "${mongo.pool.sampleMillis:5000}")
+    public void sample() {
+        for (ObjectName pool : getPools()) {
+            try {
+                final long checkedOut = getAttribute(pool, "CheckedOutCount");
+                final long waitQueue = getAttribute(pool, "WaitQueueSize");
+                maxCheckedOut.accumulateAndGet(checkedOut, Math::max);
+                maxWaitQueue.accumulateAndGet(waitQueue, Math::max);
+                if (checkedOut >= getAttribute(pool, "MaxSize") && waitQueue > 0) {
+                    saturated.incrementAndGet();
+                }
+            } catch (JMException e) {
+                log.debug("Mongo connection pool {} not sampled : {}", pool, e.getMessage());
+            }
+        }
+
+        final long start = System.currentTimeMillis();
+        try {
+            mongo.getDB("admin").command("ping");
+        } catch (MongoTimeoutException | MongoWaitQueueFullException e) {
+            timeouts.incrementAndGet();
+        } catch (RuntimeException e) {
+            log.debug("Mongo connection pool not probed : {}", e.getMessage());
+            return;
+        }
+        final long wait = System.currentTimeMillis() - start;
+        lastWait.set(wait);
+        maxWait.accumulateAndGet(wait, Math::max);
+        totalWait.addAndGet(wait);
+        samples.incrementAndGet();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        for (ObjectName pool : getPools()) {
+            try {
+                final String prefix = "mongo.pool." + pool.getKeyProperty("host") + ":" + pool.getKeyProperty("port");
+                final long size = getAttribute(pool, "Size");
+                final long checkedOut = getAttribute(pool, "CheckedOutCount");
+                final long maxSize = getAttribute(pool, "MaxSize");
+                metrics.add(new Metric<>(prefix + ".size", size));
+                metrics.add(new Metric<>(prefix + ".maxSize", maxSize));
+                metrics.add(new Metric<>(prefix + ".checkedOut", checkedOut));
+                metrics.add(new Metric<>(prefix + ".waitQueue", getAttribute(pool, "WaitQueueSize")));
+                metrics.add(new Metric<>(prefix + ".utilization", maxSize == 0 ? 0.0 : (double) checkedOut / maxSize));
+            } catch (JMException e) {
+                log.debug("Mongo connection pool {} not read : {}", pool, e.getMessage());
+            }
+        }
+        final long count = samples.get();
+        metrics.add(new Metric<>("mongo.pool.checkedOut.max", maxCheckedOut.get()));
+        metrics.add(new Metric<>("mongo.pool.waitQueue.max", maxWaitQueue.get()));
+        metrics.add(new Metric<>("mongo.pool.saturated", saturated.get()));
+        metrics.add(new Metric<>("mongo.pool.timeouts", timeouts.get()));
+        metrics.add(new Metric<>("mongo.pool.wait.last", lastWait.get()));
+        metrics.add(new Metric<>("mongo.pool.wait.max", maxWait.get()));
+        metrics.add(new Metric<>("mongo.pool.wait.mean", count == 0 ? 0.0 : (double) totalWait.get() / count));
+        return metrics;
+    }
+
+    private Collection<ObjectName> getPools() {
+        try {
+            return mBeanServer.queryNames(new ObjectName(POOL_MBEANS), null);
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long getAttribute(ObjectName pool, String attribute) throws JMException {
+        return ((Number) mBeanServer.getAttribute(pool, attribute)).longValue();
+    }
+}
@@ -0,0 +1,35 @@
+package org.telosystools.saas.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.security.security.ratelimit.TokenBucketRateLimiter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Exposes the requests accepted and rejected by each rate limit budget through the actuator /metrics endpoint.
+ */
+@Component
+public class RateLimitMetrics implements PublicMetrics {
+
+    @Autowired(required = false)
+    private TokenBucketRateLimiter rateLimiter;
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        if (rateLimiter == null) {
+            return metrics;
+        }
+        for (String budget : rateLimiter.getBudgets()) {
+            metrics.add(new Metric<>("ratelimit." + budget + ".accepted", rateLimiter.getAccepted(budget)));
+            metrics.add(new Metric<>("ratelimit." + budget + ".rejected", rateLimiter.getRejected(budget)));
+        }
+        metrics.add(new Metric<>("ratelimit.clients", rateLimiter.size()));
+        return metrics;
+    }
+}
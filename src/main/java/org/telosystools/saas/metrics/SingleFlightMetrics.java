@@ -0,0 +1,42 @@
+package org.telosystools.saas.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.dao.FileDao;
+import org.telosystools.saas.dao.RootFolderDao;
+import org.telosystools.saas.dao.SingleFlight;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Exposes the loads of the workspaces and file contents through the actuator /metrics endpoint :
+ * the collapsed calls are the ones that waited for the load of another call instead of reading the database.
+ */
+@Component
+public class SingleFlightMetrics implements PublicMetrics {
+
+    @Autowired
+    private RootFolderDao rootFolderDao;
+
+    @Autowired
+    private FileDao fileDao;
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        addMetrics(metrics, rootFolderDao.getWorkspaceLoads());
+        addMetrics(metrics, fileDao.getContentLoads());
+        return metrics;
+    }
+
+    private void addMetrics(List<Metric<?>> metrics, SingleFlight<?> loads) {
+        final long calls = loads.getLoads() + loads.getCollapsed();
+        metrics.add(new Metric<>("singleflight." + loads.getName() + ".loads", loads.getLoads()));
+        metrics.add(new Metric<>("singleflight." + loads.getName() + ".collapsed", loads.getCollapsed()));
+        metrics.add(new Metric<>("singleflight." + loads.getName() + ".collapseRate", calls == 0 ? 0.0 : (double) loads.getCollapsed() / calls));
+    }
+}
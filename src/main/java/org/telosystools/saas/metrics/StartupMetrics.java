@@ -0,0 +1,30 @@
+package org.telosystools.saas.metrics;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.config.StartupTimingListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the duration of the phases and steps of the startup through the actuator /metrics endpoint.
+ */
+@Component
+public class StartupMetrics implements PublicMetrics {
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        final Map<String, Long> phases = StartupTimingListener.getPhases();
+        if (!phases.isEmpty()) {
+            phases.forEach((phase, millis) -> metrics.add(new Metric<>("startup." + phase, millis)));
+            metrics.add(new Metric<>("startup.total", phases.values().stream().mapToLong(Long::longValue).sum()));
+        }
+        StartupTimingListener.getSteps().forEach((step, millis) -> metrics.add(new Metric<>("startup.step." + step, millis)));
+        return metrics;
+    }
+}
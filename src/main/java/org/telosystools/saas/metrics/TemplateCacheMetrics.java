@@ -0,0 +1,35 @@
+package org.telosystools.saas.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.generator.TemplateCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Exposes the counters of the compiled template cache through the actuator /metrics endpoint.
+ */
+@Component
+public class TemplateCacheMetrics implements PublicMetrics {
+
+    @Autowired
+    private TemplateCache templateCache;
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        final long hits = templateCache.getHits();
+        final long requests = hits + templateCache.getMisses();
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("generation.templateCache.size", templateCache.size()));
+        metrics.add(new Metric<>("generation.templateCache.chars", templateCache.getChars()));
+        metrics.add(new Metric<>("generation.templateCache.hits", hits));
+        metrics.add(new Metric<>("generation.templateCache.misses", templateCache.getMisses()));
+        metrics.add(new Metric<>("generation.templateCache.evictions", templateCache.getEvictions()));
+        metrics.add(new Metric<>("generation.templateCache.hitRate", requests == 0 ? 0.0 : (double) hits / requests));
+        return metrics;
+    }
+}
@@ -0,0 +1,94 @@
+package org.telosystools.saas.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.dao.FileDao;
+import org.telosystools.saas.domain.filesystem.FolderStats;
+import org.telosystools.saas.domain.filesystem.RootFolder;
+import org.telosystools.saas.domain.filesystem.Workspace;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the workspace counters through the actuator /metrics endpoint.
+ *
+ * The counters of the last loaded workspace of each project are kept : the changes update them
+ * in place, so the totals never need a workspace to be read.
+ * Only the projects loaded recently are counted : the counters of the least recently loaded projects
+ * are dropped when more than workspace.metrics.maxProjects are kept.
+ */
+@Component
+public class WorkspaceMetrics implements PublicMetrics {
+
+    @Value("${workspace.metrics.maxProjects:1000}")
+    private int maxProjects;
+
+    /**
+     * Counters by project, the least recently loaded first
+     */
+    private final Map<String, List<FolderStats>> statsByProject = new LinkedHashMap<String, List<FolderStats>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<FolderStats>> eldest) {
+            return size() > maxProjects;
+        }
+    };
+
+    @Autowired
+    private FileDao fileDao;
+
+    /**
+     * Keep the counters of a loaded workspace.
+     *
+     * @param projectId Project id
+     * @param workspace the loaded workspace
+     */
+    public void record(String projectId, Workspace workspace) {
+        List<FolderStats> stats = new ArrayList<>();
+        for (RootFolder rootFolder : workspace.listRootFolders()) {
+            if (rootFolder.getStats() != null) {
+                stats.add(rootFolder.getStats());
+            }
+        }
+        synchronized (statsByProject) {
+            statsByProject.put(projectId, stats);
+        }
+    }
+
+    public void remove(String projectId) {
+        synchronized (statsByProject) {
+            statsByProject.remove(projectId);
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        long files = 0;
+        long folders = 0;
+        long bytes = 0;
+        final int projects;
+        synchronized (statsByProject) {
+            projects = statsByProject.size();
+            for (List<FolderStats> projectStats : statsByProject.values()) {
+                for (FolderStats stats : projectStats) {
+                    files += stats.getFiles();
+                    folders += stats.getFolders();
+                    bytes += stats.getBytes();
+                }
+            }
+        }
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("workspace.projects", projects));
+        metrics.add(new Metric<>("workspace.files", files));
+        metrics.add(new Metric<>("workspace.folders", folders));
+        metrics.add(new Metric<>("workspace.bytes", bytes));
+        metrics.add(new Metric<>("workspace.skippedWrites", fileDao.getSkippedWrites()));
+        return metrics;
+    }
+}
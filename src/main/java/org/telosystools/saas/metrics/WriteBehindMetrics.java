@@ -0,0 +1,33 @@
+package org.telosystools.saas.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.service.impl.WriteBehindBuffer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Exposes the counters of the write-behind buffer through the actuator /metrics endpoint :
+ * the coalesced updates are the ones replaced before being written.
+ */
+@Component
+public class WriteBehindMetrics implements PublicMetrics {
+
+    @Autowired
+    private WriteBehindBuffer writeBehindBuffer;
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("workspace.writeBehind.pending", writeBehindBuffer.size()));
+        metrics.add(new Metric<>("workspace.writeBehind.pendingChars", writeBehindBuffer.getBufferedChars()));
+        metrics.add(new Metric<>("workspace.writeBehind.buffered", writeBehindBuffer.getBufferedWrites()));
+        metrics.add(new Metric<>("workspace.writeBehind.coalesced", writeBehindBuffer.getCoalescedWrites()));
+        metrics.add(new Metric<>("workspace.writeBehind.flushed", writeBehindBuffer.getFlushedWrites()));
+        return metrics;
+    }
+}
@@ -0,0 +1,77 @@
+package org.telosystools.saas.security.security;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptorAdapter;
+import org.springframework.security.access.AccessDeniedException;
+import org.telosystools.saas.dao.ProjectRepository;
+import org.telosystools.saas.domain.project.Project;
+import org.telosystools.saas.security.repository.UserRepository;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Restricts the subscriptions to the topics of a project (/topic/projects/{id}/...), and the messages
+ * sent to the application for a project (/app/projects/{id}/...), to the members of the project :
+ * its owner, its contributors, or an administrator. The topics of a project are only written by the server.
+ *
+ * Must be registered after the security interceptors, which set the authentication of the message.
+ */
+public class ProjectMemberChannelInterceptor extends ChannelInterceptorAdapter {
+
+    private static final Pattern PROJECT_TOPIC = Pattern.compile("^/topic/projects/([^/]+)(/.*)?$");
+
+    private static final Pattern PROJECT_APP = Pattern.compile("^/app/projects/([^/]+)(/.*)?$");
+
+    private final ProjectRepository projectRepository;
+
+    private final UserRepository userRepository;
+
+    public ProjectMemberChannelInterceptor(ProjectRepository projectRepository, UserRepository userRepository) {
+        this.projectRepository = projectRepository;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        final SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        final String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null) {
+            return message;
+        }
+        final Matcher topic = PROJECT_TOPIC.matcher(destination);
+        if (type == SimpMessageType.MESSAGE && topic.matches()) {
+            throw new AccessDeniedException("The topics of project " + topic.group(1) + " are written by the server");
+        }
+        final Matcher matcher = type == SimpMessageType.SUBSCRIBE ? topic : PROJECT_APP.matcher(destination);
+        if ((type == SimpMessageType.SUBSCRIBE || type == SimpMessageType.MESSAGE)
+                && matcher.matches() && !isMember(matcher.group(1))) {
+            throw new AccessDeniedException("Access is denied to project " + matcher.group(1));
+        }
+        return message;
+    }
+
+    private boolean isMember(String projectId) {
+        if (SecurityUtils.isUserInRole(AuthoritiesConstants.ADMIN)) {
+            return true;
+        }
+        final String login = SecurityUtils.getCurrentLogin();
+        if (login == null) {
+            return false;
+        }
+        Project project = projectRepository.findOne(projectId);
+        if (project == null) {
+            return false;
+        }
+        if (login.equals(project.getOwner())) {
+            return true;
+        }
+        // Contributeur : le projet figure dans ses contributions
+        return userRepository.findOneByLogin(login)
+                .map(user -> user.getContributions().contains(projectId))
+                .orElse(false);
+    }
+}
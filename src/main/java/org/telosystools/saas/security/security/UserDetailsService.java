@@ -1,5 +1,7 @@
 package org.telosystools.saas.security.security;
 
+import org.telosystools.saas.cache.DataCache;
+import org.telosystools.saas.cache.DataCacheManager;
 import org.telosystools.saas.security.domain.User;
 import org.telosystools.saas.security.repository.UserRepository;
 import org.slf4j.Logger;
@@ -11,6 +13,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.util.List;
 import java.util.Optional;
@@ -18,6 +21,8 @@ import java.util.stream.Collectors;
 
 /**
  * Authenticate a user from the database.
+ *
+ * The details of the activated users are kept in the data cache, the user service evicts them on every change.
  */
 @Component("userDetailsService")
 public class UserDetailsService implements org.springframework.security.core.userdetails.UserDetailsService {
@@ -27,11 +32,25 @@ public class UserDetailsService implements org.springframework.security.core.use
     @Inject
     private UserRepository userRepository;
 
+    @Inject
+    private DataCacheManager dataCacheManager;
+
+    private DataCache<UserDetails> userCache;
+
+    @PostConstruct
+    public void init() {
+        userCache = dataCacheManager.getCache(DataCacheManager.USERS);
+    }
+
     @Override
     @Transactional
     public UserDetails loadUserByUsername(final String login) {
         log.debug("Authenticating {}", login);
         String lowercaseLogin = login.toLowerCase();
+        UserDetails cached = userCache.get(lowercaseLogin);
+        if (cached != null) {
+            return copy(cached);
+        }
         Optional<User> userFromDatabase =  userRepository.findOneByLogin(lowercaseLogin);
         return userFromDatabase.map(user -> {
             if (!user.getActivated()) {
@@ -40,9 +59,29 @@ public class UserDetailsService implements org.springframework.security.core.use
             List<GrantedAuthority> grantedAuthorities = user.getAuthorities().stream()
                     .map(authority -> new SimpleGrantedAuthority(authority.getName()))
                     .collect(Collectors.toList());
-            return new org.springframework.security.core.userdetails.User(lowercaseLogin,
+            UserDetails userDetails = new org.springframework.security.core.userdetails.User(lowercaseLogin,
                     user.getPassword(),
                     grantedAuthorities);
+            userCache.putIfAbsent(lowercaseLogin, userDetails);
+            return copy(userDetails);
         }).orElseThrow(() -> new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the database"));
     }
+
+    /**
+     * Remove the details of a user from the cache, after a change.
+     *
+     * @param login user login
+     */
+    public void evict(String login) {
+        userCache.evict(login.toLowerCase());
+    }
+
+    /**
+     * The authentication erases the password of the returned details : the cached details are never returned.
+     */
+    private UserDetails copy(UserDetails userDetails) {
+        return new org.springframework.security.core.userdetails.User(userDetails.getUsername(),
+                userDetails.getPassword(),
+                userDetails.getAuthorities());
+    }
 }
@@ -0,0 +1,80 @@
+package org.telosystools.saas.security.security.ratelimit;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.GenericFilterBean;
+import org.telosystools.saas.security.security.SecurityUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Limits the rate of the API requests of each client, after the authentication by token.
+ *
+ * The requests of an authenticated user are counted by login, the other ones by address.
+ * A rejected request gets a 429 response, with the seconds to wait in the Retry-After header.
+ */
+public class RateLimitFilter extends GenericFilterBean {
+
+    public static final String BUDGET_AUTHENTICATION = "authentication";
+    public static final String BUDGET_GENERATION = "generation";
+    public static final String BUDGET_WRITE = "write";
+    public static final String BUDGET_READ = "read";
+
+    private static final RequestMatcher API = new AntPathRequestMatcher("/api/**");
+
+    private static final RequestMatcher AUTHENTICATION = new OrRequestMatcher(
+            new AntPathRequestMatcher("/api/authenticate"),
+            new AntPathRequestMatcher("/api/register"),
+            new AntPathRequestMatcher("/api/activate"),
+            new AntPathRequestMatcher("/api/account/reset_password/**"));
+
+    /**
+     * Requests starting a generation : reading the jobs and previewing a template are read requests
+     */
+    private static final RequestMatcher GENERATION = new OrRequestMatcher(
+            new AntPathRequestMatcher("/api/projects/*/generation", "POST"),
+            new AntPathRequestMatcher("/api/projects/*/generation/jobs", "POST"),
+            new AntPathRequestMatcher("/api/projects/*/generation/zip", "GET"));
+
+    private final TokenBucketRateLimiter rateLimiter;
+
+    public RateLimitFilter(TokenBucketRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
+        final HttpServletRequest request = (HttpServletRequest) servletRequest;
+        if (API.matches(request)) {
+            final String login = SecurityUtils.getCurrentLogin();
+            final String client = login != null ? login : request.getRemoteAddr();
+            final long wait = rateLimiter.tryAcquire(getBudget(request), client);
+            if (wait > 0) {
+                final HttpServletResponse response = (HttpServletResponse) servletResponse;
+                response.setHeader("Retry-After", String.valueOf((wait + 999) / 1000));
+                response.setHeader("error_message", "Too many requests");
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                return;
+            }
+        }
+        filterChain.doFilter(servletRequest, servletResponse);
+    }
+
+    private String getBudget(HttpServletRequest request) {
+        if (AUTHENTICATION.matches(request)) {
+            return BUDGET_AUTHENTICATION;
+        }
+        if (GENERATION.matches(request)) {
+            return BUDGET_GENERATION;
+        }
+        return "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()) ? BUDGET_READ : BUDGET_WRITE;
+    }
+}
@@ -0,0 +1,184 @@
+package org.telosystools.saas.security.security.ratelimit;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory token buckets, one by client and budget.
+ *
+ * A bucket holds up to the capacity of its budget and is refilled continuously. Each request takes a token,
+ * and is rejected when the bucket is empty. The buckets are spread on stripes, each one guarded by its own lock,
+ * and the full buckets are forgotten when a stripe grows beyond its limit. If none of them is full,
+ * the least recently used buckets are forgotten, so that the number of buckets stays bounded.
+ */
+public class TokenBucketRateLimiter {
+
+    private static final int STRIPES = 64;
+
+    private final Map<String, Budget> budgets = new LinkedHashMap<>();
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final int maxBucketsByStripe;
+
+    private final Map<String, AtomicLong> accepted = new HashMap<>();
+
+    private final Map<String, AtomicLong> rejected = new HashMap<>();
+
+    /**
+     * @param maxBuckets number of buckets kept, at least one by stripe
+     */
+    public TokenBucketRateLimiter(int maxBuckets) {
+        this.maxBucketsByStripe = Math.max(1, maxBuckets / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Declare a budget. The budgets are declared at configuration time, before the first request.
+     *
+     * @param name            budget name
+     * @param capacity        number of requests allowed in a burst
+     * @param refillPerSecond number of requests allowed by second, on average
+     */
+    public void addBudget(String name, int capacity, double refillPerSecond) {
+        if (capacity <= 0 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Invalid rate limit budget " + name + " : " + capacity + " / " + refillPerSecond);
+        }
+        budgets.put(name, new Budget(capacity, refillPerSecond / TimeUnit.SECONDS.toNanos(1)));
+        accepted.put(name, new AtomicLong());
+        rejected.put(name, new AtomicLong());
+    }
+
+    /**
+     * Take a token from the bucket of a client.
+     *
+     * @param budget budget name
+     * @param client login or address of the client
+     * @return 0 if the request is accepted, otherwise the milliseconds before a token is available
+     */
+    public long tryAcquire(String budget, String client) {
+        final Budget limits = budgets.get(budget);
+        if (limits == null) {
+            throw new IllegalArgumentException("Unknown rate limit budget : " + budget);
+        }
+        final String key = budget + ":" + client;
+        final Stripe stripe = stripes[Math.floorMod(key.hashCode(), STRIPES)];
+        final long now = System.nanoTime();
+        final long wait;
+        synchronized (stripe) {
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                if (stripe.buckets.size() >= maxBucketsByStripe) {
+                    stripe.removeFull(now);
+                    stripe.removeEldest(maxBucketsByStripe - 1);
+                }
+                bucket = new Bucket(limits, now);
+                stripe.buckets.put(key, bucket);
+            }
+            wait = bucket.take(now);
+        }
+        (wait == 0 ? accepted : rejected).get(budget).incrementAndGet();
+        return wait;
+    }
+
+    public Iterable<String> getBudgets() {
+        return budgets.keySet();
+    }
+
+    public long getAccepted(String budget) {
+        return accepted.get(budget).get();
+    }
+
+    public long getRejected(String budget) {
+        return rejected.get(budget).get();
+    }
+
+    /**
+     * Number of buckets, of the clients seen recently.
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.buckets.size();
+            }
+        }
+        return size;
+    }
+
+    private static class Budget {
+
+        private final int capacity;
+
+        private final double tokensByNano;
+
+        private Budget(int capacity, double tokensByNano) {
+            this.capacity = capacity;
+            this.tokensByNano = tokensByNano;
+        }
+    }
+
+    private static class Bucket {
+
+        private final Budget budget;
+
+        private double tokens;
+
+        private long refillTime;
+
+        private Bucket(Budget budget, long now) {
+            this.budget = budget;
+            this.tokens = budget.capacity;
+            this.refillTime = now;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(budget.capacity, tokens + (now - refillTime) * budget.tokensByNano);
+            refillTime = now;
+        }
+
+        private long take(long now) {
+            refill(now);
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return Math.max(1, TimeUnit.NANOSECONDS.toMillis((long) Math.ceil((1 - tokens) / budget.tokensByNano)));
+        }
+
+        private boolean isFull(long now) {
+            refill(now);
+            return tokens >= budget.capacity;
+        }
+    }
+
+    private static class Stripe {
+
+        /**
+         * Buckets in access order, the least recently used first
+         */
+        private final LinkedHashMap<String, Bucket> buckets = new LinkedHashMap<>(16, 0.75f, true);
+
+        private void removeFull(long now) {
+            for (Iterator<Bucket> it = buckets.values().iterator(); it.hasNext(); ) {
+                if (it.next().isFull(now)) {
+                    it.remove();
+                }
+            }
+        }
+
+        private void removeEldest(int maxSize) {
+            for (Iterator<Bucket> it = buckets.values().iterator(); buckets.size() > maxSize && it.hasNext(); ) {
+                // Client le moins récemment vu : son bucket repart plein s'il revient
+                it.next();
+                it.remove();
+            }
+        }
+    }
+}
@@ -5,6 +5,8 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.DefaultSecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.telosystools.saas.security.security.ratelimit.RateLimitFilter;
+import org.telosystools.saas.security.security.ratelimit.TokenBucketRateLimiter;
 
 public class XAuthTokenConfigurer extends SecurityConfigurerAdapter<DefaultSecurityFilterChain, HttpSecurity> {
 
@@ -12,14 +14,27 @@ public class XAuthTokenConfigurer extends SecurityConfigurerAdapter<DefaultSecur
 
     private UserDetailsService detailsService;
 
+    private TokenBucketRateLimiter rateLimiter;
+
     public XAuthTokenConfigurer(UserDetailsService detailsService, TokenProvider tokenProvider) {
+        this(detailsService, tokenProvider, null);
+    }
+
+    /**
+     * @param rateLimiter rate limits applied once the user is authenticated, null if the API is not limited
+     */
+    public XAuthTokenConfigurer(UserDetailsService detailsService, TokenProvider tokenProvider, TokenBucketRateLimiter rateLimiter) {
         this.detailsService = detailsService;
         this.tokenProvider = tokenProvider;
+        this.rateLimiter = rateLimiter;
     }
 
     @Override
     public void configure(HttpSecurity http) throws Exception {
         XAuthTokenFilter customFilter = new XAuthTokenFilter(detailsService, tokenProvider);
         http.addFilterBefore(customFilter, UsernamePasswordAuthenticationFilter.class);
+        if (rateLimiter != null) {
+            http.addFilterAfter(new RateLimitFilter(rateLimiter), XAuthTokenFilter.class);
+        }
     }
 }
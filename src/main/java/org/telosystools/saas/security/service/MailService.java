@@ -4,6 +4,7 @@ import org.apache.commons.lang.CharEncoding;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.env.Environment;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.mail.javamail.MimeMessageHelper;
@@ -34,6 +35,7 @@ public class MailService {
     private Environment env;
 
     @Inject
+    @Lazy
     private JavaMailSenderImpl javaMailSender;
 
     @Inject
@@ -5,6 +5,7 @@ import org.telosystools.saas.security.domain.User;
 import org.telosystools.saas.security.repository.AuthorityRepository;
 import org.telosystools.saas.security.repository.UserRepository;
 import org.telosystools.saas.security.security.SecurityUtils;
+import org.telosystools.saas.security.security.UserDetailsService;
 import org.telosystools.saas.security.service.util.RandomUtil;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
@@ -36,6 +37,9 @@ public class UserService {
     @Inject
     private AuthorityRepository authorityRepository;
 
+    @Inject
+    private UserDetailsService userDetailsService;
+
     public Optional<User> activateRegistration(String key) {
         log.debug("Activating user for activation key {}", key);
         userRepository.findOneByActivationKey(key)
@@ -44,6 +48,7 @@ public class UserService {
                 user.setActivated(true);
                 user.setActivationKey(null);
                 userRepository.save(user);
+                userDetailsService.evict(user.getLogin());
                 log.debug("Activated user: {}", user);
                 return user;
             });
@@ -64,6 +69,7 @@ public class UserService {
                user.setResetKey(null);
                user.setResetDate(null);
                userRepository.save(user);
+               userDetailsService.evict(user.getLogin());
                return user;
            });
     }
@@ -119,6 +125,7 @@ public class UserService {
             String encryptedPassword = passwordEncoder.encode(password);
             u.setPassword(encryptedPassword);
             userRepository.save(u);
+            userDetailsService.evict(u.getLogin());
             log.debug("Changed password for User: {}", u);
         });
     }
@@ -0,0 +1,23 @@
+package org.telosystools.saas.service;
+
+import org.telosystools.saas.bean.CollectReport;
+
+/**
+ * Garbage collector of the GridFS contents referenced by no file.
+ */
+public interface BlobCollectorService {
+
+    /**
+     * Removes the unreferenced contents older than the grace period, in every workspace database.
+     *
+     * @return the report, null if a collection is already running
+     */
+    CollectReport collect();
+
+    /**
+     * Returns the report of the last collection.
+     *
+     * @return the report, null if no collection has run since the startup
+     */
+    CollectReport getLastReport();
+}
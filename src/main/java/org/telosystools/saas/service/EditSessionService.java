@@ -0,0 +1,43 @@
+package org.telosystools.saas.service;
+
+import org.telosystools.saas.bean.EditMessage;
+import org.telosystools.saas.bean.EditSnapshot;
+import org.telosystools.saas.exception.FileNotFoundException;
+import org.telosystools.saas.exception.ProjectNotFoundException;
+import org.telosystools.saas.exception.QuotaExceededException;
+
+/**
+ * Collaborative editing of the files : the live document of an edited file is held in memory,
+ * the concurrent operations of the participants are transformed and broadcast on the topic
+ * /topic/projects/{projectId}/edit, and the document is saved once idle or at a fixed interval.
+ */
+public interface EditSessionService {
+
+    /**
+     * Join the editing session of a file, opening it if needed.
+     *
+     * @param projectId Project id
+     * @param path      absolute path of the file
+     * @return the live document
+     */
+    EditSnapshot join(String projectId, String path) throws ProjectNotFoundException, FileNotFoundException;
+
+    /**
+     * Apply an operation of a participant and broadcast it.
+     * A rejected operation is answered by a RESYNC message to its client.
+     *
+     * @param projectId Project id
+     * @param message   OPERATION message
+     * @param login     login of the participant
+     */
+    void edit(String projectId, EditMessage message, String login);
+
+    /**
+     * Save the live document of a file now, if it has unsaved operations.
+     *
+     * @param projectId Project id
+     * @param path      absolute path of the file
+     * @return true if the document has been saved
+     */
+    boolean flush(String projectId, String path) throws ProjectNotFoundException, FileNotFoundException, QuotaExceededException;
+}
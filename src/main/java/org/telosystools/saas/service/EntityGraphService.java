@@ -0,0 +1,49 @@
+package org.telosystools.saas.service;
+
+import org.telosystools.saas.bean.AttributeRef;
+import org.telosystools.saas.exception.FileNotFoundException;
+import org.telosystools.saas.exception.ProjectNotFoundException;
+
+import java.util.List;
+
+/**
+ * Navigation in the model of a project : entities, attributes and links.
+ */
+public interface EntityGraphService {
+
+    /**
+     * Return the names of the valid entities.
+     *
+     * @param projectId Project id
+     * @return entity names, sorted
+     */
+    List<String> getEntityNames(String projectId) throws ProjectNotFoundException, FileNotFoundException;
+
+    /**
+     * Return the attributes of an entity.
+     *
+     * @param projectId  Project id
+     * @param entityName entity name
+     * @return attributes, in declaration order
+     * @throws FileNotFoundException if the entity does not exist
+     */
+    List<AttributeRef> getAttributes(String projectId, String entityName) throws ProjectNotFoundException, FileNotFoundException;
+
+    /**
+     * Return the attributes of the entities referencing an entity.
+     *
+     * @param projectId  Project id
+     * @param entityName name of the referenced entity
+     * @return link attributes
+     */
+    List<AttributeRef> getReferencing(String projectId, String entityName) throws ProjectNotFoundException, FileNotFoundException;
+
+    /**
+     * Return the attributes of a type.
+     *
+     * @param projectId Project id
+     * @param type      neutral type (date, string...) or entity name, case insensitive
+     * @return attributes of all the entities
+     */
+    List<AttributeRef> findAttributesByType(String projectId, String type) throws ProjectNotFoundException, FileNotFoundException;
+}
@@ -0,0 +1,69 @@
+package org.telosystools.saas.service;
+
+import org.telosystools.saas.bean.GenerationJob;
+import org.telosystools.saas.bean.GenerationReport;
+import org.telosystools.saas.exception.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Runs the code generations in background, one at a time per project.
+ * The synchronous generations are recorded as jobs too, so that they never run with another generation of the project.
+ * The progress of the jobs is published on the topic /topic/projects/{projectId}/generation.
+ */
+public interface GenerationJobService {
+
+    /**
+     * Queue a generation of the project.
+     *
+     * @param projectId Project id
+     * @param bundle    templates bundle, null for all the bundles
+     * @param force     true to render all the files, even those whose inputs are unchanged
+     * @return the queued job
+     * @throws GenerationInProgressException if a job of the project is not finished
+     */
+    GenerationJob submit(String projectId, String bundle, boolean force) throws ProjectNotFoundException, GenerationInProgressException;
+
+    /**
+     * Generate the code of the project in the calling thread.
+     *
+     * @param projectId Project id
+     * @param bundle    templates bundle, null for all the bundles
+     * @param force     true to render all the files, even those whose inputs are unchanged
+     * @return the generation report
+     * @throws GenerationInProgressException if a job of the project is not finished
+     */
+    GenerationReport generate(String projectId, String bundle, boolean force) throws ProjectNotFoundException, FolderNotFoundException, FileNotFoundException, InvalidPathException, QuotaExceededException, GenerationInProgressException;
+
+    /**
+     * Generate the code of the project into a ZIP archive, in the calling thread.
+     *
+     * @param projectId Project id
+     * @param bundle    templates bundle, null for all the bundles
+     * @param out       stream receiving the archive
+     * @return the generation report
+     * @throws GenerationInProgressException if a job of the project is not finished
+     */
+    GenerationReport generateZip(String projectId, String bundle, OutputStream out) throws ProjectNotFoundException, FolderNotFoundException, FileNotFoundException, IOException, GenerationInProgressException;
+
+    GenerationJob getJob(String projectId, String jobId) throws GenerationJobNotFoundException;
+
+    /**
+     * Return the last jobs of the project.
+     *
+     * @param projectId Project id
+     * @return jobs, most recent first
+     */
+    List<GenerationJob> getJobs(String projectId);
+
+    /**
+     * Cancel a job : a queued job is not run, a running job stops before writing its files.
+     *
+     * @param projectId Project id
+     * @param jobId     job id
+     * @return the job
+     */
+    GenerationJob cancel(String projectId, String jobId) throws GenerationJobNotFoundException;
+}
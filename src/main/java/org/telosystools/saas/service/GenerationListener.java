@@ -0,0 +1,36 @@
+package org.telosystools.saas.service;
+
+/**
+ * Follows a running generation.
+ */
+public interface GenerationListener {
+
+    /**
+     * Listener of the generations nobody follows
+     */
+    GenerationListener NONE = new GenerationListener() {
+        @Override
+        public void onProgress(int renderedFiles, int totalFiles) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    /**
+     * Called after each rendered file, from the rendering threads.
+     *
+     * @param renderedFiles number of files rendered
+     * @param totalFiles    number of files to render
+     */
+    void onProgress(int renderedFiles, int totalFiles);
+
+    /**
+     * Polled by the generation : once cancelled, no file is rendered nor written.
+     *
+     * @return true to stop the generation
+     */
+    boolean isCancelled();
+}
@@ -0,0 +1,58 @@
+package org.telosystools.saas.service;
+
+import org.telosystools.saas.bean.GenerationReport;
+import org.telosystools.saas.domain.filesystem.FileData;
+import org.telosystools.saas.exception.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Server side code generation : the templates of the project are applied
+ * to the entities of its model, the results are written in the generated folder.
+ */
+public interface GenerationService {
+
+    /**
+     * Generates the code of the project.
+     *
+     * @param projectId Project id
+     * @param bundle    folder of the templates root holding a templates.cfg file, null for all the bundles
+     * @param force     true to render all the files, even those whose inputs are unchanged
+     * @return the generation report
+     */
+    GenerationReport generate(String projectId, String bundle, boolean force) throws ProjectNotFoundException, FolderNotFoundException, FileNotFoundException, InvalidPathException, QuotaExceededException;
+
+    /**
+     * Generates the code of the project, reporting its progress.
+     *
+     * @param projectId Project id
+     * @param bundle    folder of the templates root holding a templates.cfg file, null for all the bundles
+     * @param force     true to render all the files, even those whose inputs are unchanged
+     * @param listener  follows the progress and may cancel the generation
+     * @return the generation report
+     * @throws java.util.concurrent.CancellationException if the generation has been cancelled before writing the files
+     */
+    GenerationReport generate(String projectId, String bundle, boolean force, GenerationListener listener) throws ProjectNotFoundException, FolderNotFoundException, FileNotFoundException, InvalidPathException, QuotaExceededException;
+
+    /**
+     * Generates the code of the project into a ZIP archive, without storing it in the workspace.
+     * The files are written in the archive by path order, as soon as they are rendered.
+     *
+     * @param projectId Project id
+     * @param bundle    folder of the templates root holding a templates.cfg file, null for all the bundles
+     * @param out       stream receiving the archive, nothing is written if an exception is thrown before rendering
+     * @return the generation report
+     */
+    GenerationReport generateZip(String projectId, String bundle, OutputStream out) throws ProjectNotFoundException, FolderNotFoundException, FileNotFoundException, IOException;
+
+    /**
+     * Render a template without writing the result.
+     *
+     * @param projectId    Project id
+     * @param templatePath absolute path of the template
+     * @param entityName   entity the template is applied to, null for a template applied once
+     * @return path and content of the file the template would generate
+     */
+    FileData preview(String projectId, String templatePath, String entityName) throws ProjectNotFoundException, FileNotFoundException, GenerationException;
+}
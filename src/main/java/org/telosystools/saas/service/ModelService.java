@@ -0,0 +1,29 @@
+package org.telosystools.saas.service;
+
+import org.telosystools.saas.domain.filesystem.Workspace;
+import org.telosystools.saas.exception.FileNotFoundException;
+import org.telosystools.saas.exception.ProjectNotFoundException;
+import org.telosystools.saas.generator.model.ParsedModel;
+
+/**
+ * The entities of the model root of the projects.
+ */
+public interface ModelService {
+
+    /**
+     * Return the model of a project.
+     *
+     * @param projectId Project id
+     * @return the parsed model
+     */
+    ParsedModel getModel(String projectId) throws ProjectNotFoundException, FileNotFoundException;
+
+    /**
+     * Return the model of a loaded workspace.
+     *
+     * @param projectId Project id
+     * @param workspace the workspace of the project
+     * @return the parsed model
+     */
+    ParsedModel getModel(String projectId, Workspace workspace) throws FileNotFoundException;
+}
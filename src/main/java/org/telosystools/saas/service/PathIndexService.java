@@ -0,0 +1,25 @@
+package org.telosystools.saas.service;
+
+import org.telosystools.saas.bean.PathMatch;
+import org.telosystools.saas.exception.ProjectNotFoundException;
+
+import java.util.List;
+
+/**
+ * Quick-open : find the files and folders of a workspace by name.
+ */
+public interface PathIndexService {
+
+    /**
+     * Find the files and folders matching a name.
+     * Names starting with the query come first, followed by fuzzy matches
+     * (the characters of the query appear in order in the name or in the path).
+     *
+     * @param query     the searched name, or a part of the path if it contains a '/'
+     * @param limit     maximum number of matches
+     * @param projectId Project id
+     * @return the best matches, best first
+     */
+    List<PathMatch> find(String query, int limit, String projectId) throws ProjectNotFoundException;
+
+}
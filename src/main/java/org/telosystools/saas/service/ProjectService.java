@@ -5,6 +5,7 @@ import org.telosystools.saas.domain.project.Project;
 import org.telosystools.saas.domain.project.ProjectConfiguration;
 import org.telosystools.saas.exception.DuplicateProjectNameException;
 import org.telosystools.saas.exception.ProjectNotFoundException;
+import org.telosystools.saas.exception.QuotaExceededException;
 import org.telosystools.saas.exception.UserNotFoundException;
 
 import java.util.List;
@@ -45,6 +46,15 @@ public interface ProjectService {
      */
     Project createProject(Project project) throws DuplicateProjectNameException;
 
+    /**
+     * Create a new Project for the connected user, copy of an existing project.
+     *
+     * @param projectId id of the cloned project
+     * @param name      name of the new project, the name of the cloned project followed by "-copy" if null
+     * @return the new Project
+     */
+    Project cloneProject(String projectId, String name) throws ProjectNotFoundException, DuplicateProjectNameException, QuotaExceededException;
+
     /**
      * Set the project configuration.
      *
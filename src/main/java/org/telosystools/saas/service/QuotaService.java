@@ -0,0 +1,57 @@
+package org.telosystools.saas.service;
+
+import org.telosystools.saas.bean.Path;
+import org.telosystools.saas.domain.filesystem.Workspace;
+import org.telosystools.saas.domain.usage.UserUsage;
+import org.telosystools.saas.exception.QuotaExceededException;
+
+import java.util.List;
+
+/**
+ * Storage quotas of the projects and of their owners.
+ *
+ * The checks only read counters maintained on every write : the root folder
+ * statistics for a project, the usage counters for a user.
+ */
+public interface QuotaService {
+
+    /**
+     * Checks the depth of a new file or folder.
+     *
+     * @param path path of the new file or folder
+     */
+    void checkDepth(Path path) throws QuotaExceededException;
+
+    /**
+     * Checks that a write fits in the quotas of the project and of its owner.
+     *
+     * @param projectId Project id
+     * @param workspace workspace of the project, before the write
+     * @param files     number of files added by the write
+     * @param bytes     number of bytes added by the write
+     */
+    void checkWrite(String projectId, Workspace workspace, long files, long bytes) throws QuotaExceededException;
+
+    /**
+     * Records a saved write in the counters of the project owner.
+     *
+     * @param projectId Project id
+     * @param files     number of files added (negative if removed)
+     * @param bytes     number of bytes added (negative if removed)
+     */
+    void recordWrite(String projectId, long files, long bytes);
+
+    /**
+     * Returns the storage used by each user, biggest first.
+     *
+     * @return usage counters
+     */
+    List<UserUsage> getUsage();
+
+    /**
+     * Recomputes the counters of all the users from the workspace statistics.
+     *
+     * @return usage counters
+     */
+    List<UserUsage> rebuildUsage();
+}
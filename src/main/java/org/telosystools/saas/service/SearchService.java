@@ -0,0 +1,24 @@
+package org.telosystools.saas.service;
+
+import org.telosystools.saas.bean.SearchResult;
+import org.telosystools.saas.exception.ProjectNotFoundException;
+
+import java.util.List;
+
+/**
+ * Full-text search over the contents of the workspace files.
+ */
+public interface SearchService {
+
+    /**
+     * Find the lines of the workspace files containing all the terms of the query.
+     * The last term of the query is matched as a prefix.
+     *
+     * @param query     the searched terms
+     * @param limit     maximum number of results
+     * @param projectId Project id
+     * @return matching lines, sorted by path and line number
+     */
+    List<SearchResult> search(String query, int limit, String projectId) throws ProjectNotFoundException;
+
+}
@@ -0,0 +1,44 @@
+package org.telosystools.saas.service;
+
+import org.telosystools.saas.bean.MigrationReport;
+import org.telosystools.saas.exception.ProjectNotFoundException;
+
+/**
+ * Online migration of the workspaces between the storage layouts : one database per workspace ("database")
+ * or shared collections keyed by project id ("shared").
+ */
+public interface StorageMigrationService {
+
+    /**
+     * Moves every workspace to a layout, one at a time : the other workspaces stay available,
+     * the writes of the migrated one wait for the end of its copy.
+     *
+     * @param layout target layout
+     * @return the report, null if a migration is already running
+     */
+    MigrationReport migrate(String layout);
+
+    /**
+     * Moves one workspace to a layout.
+     *
+     * @param projectId project id
+     * @param layout    target layout
+     * @return the report, null if a migration is already running
+     */
+    MigrationReport migrate(String projectId, String layout) throws ProjectNotFoundException;
+
+    /**
+     * Returns the layout of a workspace.
+     *
+     * @param projectId project id
+     * @return database or shared
+     */
+    String getLayout(String projectId) throws ProjectNotFoundException;
+
+    /**
+     * Returns the report of the last migration.
+     *
+     * @return the report, null if no migration has run since the startup
+     */
+    MigrationReport getLastReport();
+}
@@ -1,10 +1,16 @@
 package org.telosystools.saas.service;
 
+import org.telosystools.saas.bean.ImportReport;
+import org.telosystools.saas.bean.WorkspaceStats;
 import org.telosystools.saas.domain.filesystem.FileData;
 import org.telosystools.saas.domain.filesystem.RootFolder;
 import org.telosystools.saas.domain.filesystem.Workspace;
 import org.telosystools.saas.exception.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
 /**
  * Created by Adrian on 20/04/15.
  *
@@ -27,6 +33,16 @@ public interface WorkspaceService {
      */
     void saveWorkspace(Workspace workspace, String projectId);
 
+    /**
+     * Creates the workspace of a new project as a copy of an existing workspace.
+     * The file contents are shared until one of the projects modifies them.
+     *
+     * @param sourceId Id of the cloned project
+     * @param targetId Id of the new project
+     * @return the new workspace
+     */
+    Workspace cloneWorkspace(String sourceId, String targetId) throws ProjectNotFoundException, QuotaExceededException;
+
     /**
      * Deletes the workspace
      *
@@ -42,13 +58,29 @@ public interface WorkspaceService {
      */
     Workspace getWorkspace(String projectId) throws ProjectNotFoundException;
 
+    /**
+     * Returns the counters of the workspace : files, folders and bytes by root folder and by extension.
+     *
+     * @param projectId Project id
+     * @return workspace counters
+     */
+    WorkspaceStats getStats(String projectId) throws ProjectNotFoundException;
+
+    /**
+     * Returns the revision of the workspace, incremented by every saved change.
+     *
+     * @param projectId Project id
+     * @return revision, 0 if the workspace has never been changed
+     */
+    long getRevision(String projectId);
+
     /**
      * Creates a new folder in the folder.
      * @param absolutePath Absolute path
      * @param projectId Project id
      * @return updated folder tree
      */
-    RootFolder createFolder(String absolutePath, String projectId) throws FolderNotFoundException, ProjectNotFoundException, InvalidPathException, DuplicateResourceException;
+    RootFolder createFolder(String absolutePath, String projectId) throws FolderNotFoundException, ProjectNotFoundException, InvalidPathException, DuplicateResourceException, QuotaExceededException;
 
     /**
      * Removes an existing folder.
@@ -80,7 +112,7 @@ public interface WorkspaceService {
      * @param projectId Project id
      * @return Updated folder tree
      */
-    RootFolder createFile(String absolutePath, String content, String projectId) throws FolderNotFoundException, FileNotFoundException, ProjectNotFoundException, InvalidPathException, DuplicateResourceException;
+    RootFolder createFile(String absolutePath, String content, String projectId) throws FolderNotFoundException, FileNotFoundException, ProjectNotFoundException, InvalidPathException, DuplicateResourceException, QuotaExceededException;
 
     /**
      * Deletes a File.
@@ -123,6 +155,45 @@ public interface WorkspaceService {
      * @param projectId Id du projet
      * @param content Contenu a sauvegarder
      */
-    void updateFile(String absolutePath, String content, String projectId) throws ProjectNotFoundException, FileNotFoundException;
+    void updateFile(String absolutePath, String content, String projectId) throws ProjectNotFoundException, FileNotFoundException, QuotaExceededException;
+
+    /**
+     * Updates the file's content immediately, even in write-behind mode.
+     *
+     * @param absolutePath path du fichier
+     * @param content Contenu a sauvegarder
+     * @param projectId Id du projet
+     */
+    void updateFileNow(String absolutePath, String content, String projectId) throws ProjectNotFoundException, FileNotFoundException, QuotaExceededException;
+
+    /**
+     * Writes the contents of the updated files kept in memory in write-behind mode,
+     * before reading the files from the storage.
+     *
+     * @param projectId Id du projet
+     */
+    void flushPendingWrites(String projectId);
+
+    /**
+     * Imports the content of a ZIP archive into an existing folder.
+     * Missing folders are created, existing files are replaced,
+     * and the workspace is saved once at the end of the import.
+     *
+     * @param absolutePath path of the target folder
+     * @param archive ZIP stream
+     * @param projectId Project id
+     * @return the import report
+     */
+    ImportReport importArchive(String absolutePath, InputStream archive, String projectId) throws ProjectNotFoundException, FolderNotFoundException, FileNotFoundException, InvalidPathException, IOException, QuotaExceededException;
+
+    /**
+     * Writes many files below a folder, creating the missing folders, with a single save of the workspace.
+     *
+     * @param absolutePath path of the target folder
+     * @param files        contents by path relative to the target folder
+     * @param projectId    Project id
+     * @return the write report
+     */
+    ImportReport writeFiles(String absolutePath, Map<String, byte[]> files, String projectId) throws ProjectNotFoundException, FolderNotFoundException, FileNotFoundException, InvalidPathException, QuotaExceededException;
 
 }
@@ -0,0 +1,111 @@
+package org.telosystools.saas.service.event;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by the workspace service once a change has been saved.
+ *
+ * Listeners are called synchronously, in the thread which made the change.
+ */
+public class WorkspaceChangeEvent extends ApplicationEvent {
+
+    public enum Operation {
+        FOLDER_CREATED,
+        FOLDER_RENAMED,
+        FOLDER_REMOVED,
+        FILE_CREATED,
+        FILE_UPDATED,
+        FILE_RENAMED,
+        FILE_REMOVED,
+        WORKSPACE_DELETED
+    }
+
+    private final String projectId;
+
+    private final Operation operation;
+
+    /**
+     * Absolute path of the changed file or folder
+     */
+    private final String path;
+
+    /**
+     * New absolute path of a renamed file or folder
+     */
+    private final String newPath;
+
+    /**
+     * New content of a created or updated file
+     */
+    private final String content;
+
+    /**
+     * Revision of the workspace after the change, 0 if not numbered
+     */
+    private final long revision;
+
+    public WorkspaceChangeEvent(Object source, String projectId, Operation operation, String path, String newPath, String content) {
+        this(source, projectId, operation, path, newPath, content, 0);
+    }
+
+    public WorkspaceChangeEvent(Object source, String projectId, Operation operation, String path, String newPath, String content, long revision) {
+        super(source);
+        this.projectId = projectId;
+        this.operation = operation;
+        this.path = path;
+        this.newPath = newPath;
+        this.content = content;
+        this.revision = revision;
+    }
+
+    /**
+     * Copy an event, numbered with a revision.
+     *
+     * @param event    the event
+     * @param revision revision of the workspace after the change
+     */
+    public WorkspaceChangeEvent(WorkspaceChangeEvent event, long revision) {
+        this(event.getSource(), event.projectId, event.operation, event.path, event.newPath, event.content, revision);
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getNewPath() {
+        return newPath;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Indicates if the path is the changed path or one of its descendants.
+     *
+     * @param changedPath the changed folder path
+     * @param path        a path
+     * @return true if the path is below the changed path
+     */
+    public static boolean isSameOrDescendant(String changedPath, String path) {
+        return path.equals(changedPath) || path.startsWith(changedPath + "/");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WorkspaceChangeEvent[project=%s, operation=%s, path=%s, newPath=%s, revision=%d]",
+                projectId, operation, path, newPath, revision);
+    }
+}
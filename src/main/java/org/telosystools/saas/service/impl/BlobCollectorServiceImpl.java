@@ -0,0 +1,182 @@
+package org.telosystools.saas.service.impl;
+
+import com.mongodb.gridfs.GridFSFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.bean.CollectReport;
+import org.telosystools.saas.dao.BlobRefDao;
+import org.telosystools.saas.dao.FileDao;
+import org.telosystools.saas.dao.ProjectRepository;
+import org.telosystools.saas.dao.WorkspaceDao;
+import org.telosystools.saas.dao.WorkspaceStorageDao;
+import org.telosystools.saas.domain.filesystem.File;
+import org.telosystools.saas.domain.filesystem.Workspace;
+import org.telosystools.saas.service.BlobCollectorService;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mark and sweep of the GridFS contents, one database at a time.
+ *
+ * Mark : the ids referenced by the trees of the workspace and by the shared contents.
+ * Sweep : the contents are read by batches and the unreferenced ones are removed,
+ * with a pause between the batches to leave the database to the live requests.
+ * Contents younger than the grace period are never removed : their file may not be saved yet.
+ *
+ * Only the databases known as workspaces are collected : a project id, a recorded storage, a folder tree
+ * or shared contents. The other databases of the server are never read nor dropped.
+ */
+@Component
+public class BlobCollectorServiceImpl implements BlobCollectorService {
+
+    private static final List<String> SYSTEM_DATABASES = Arrays.asList("admin", "local", "config");
+
+    private final Logger log = LoggerFactory.getLogger(BlobCollectorServiceImpl.class);
+
+    @Autowired
+    private WorkspaceDao workspaceDao;
+    @Autowired
+    private WorkspaceStorageDao workspaceStorageDao;
+    @Autowired
+    private ProjectRepository projectRepository;
+    @Autowired
+    private BlobRefDao blobRefDao;
+    @Autowired
+    private FileDao fileDao;
+    @Autowired
+    private MongoProperties mongoProperties;
+    @Autowired
+    private GaugeService gaugeService;
+
+    @Value("${gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${gc.gracePeriodMinutes:60}")
+    private long gracePeriodMinutes;
+
+    @Value("${gc.batchSize:500}")
+    private int batchSize;
+
+    @Value("${gc.batchPauseMillis:200}")
+    private long batchPauseMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile CollectReport lastReport;
+
+    /**
+     * Nightly collection.
+     */
+    @Scheduled(cron = "${gc.cron:0 30 2 * * ?}")
+    public void scheduledCollect() {
+        if (enabled) {
+            collect();
+        }
+    }
+
+    @Override
+    public CollectReport collect() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("GridFS collection already running");
+            return null;
+        }
+        try {
+            final long start = System.currentTimeMillis();
+            final CollectReport report = new CollectReport();
+            final Set<String> sharingDatabases = blobRefDao.findDatabases();
+            for (String database : workspaceDao.listDatabases()) {
+                if (SYSTEM_DATABASES.contains(database) || database.equals(mongoProperties.getDatabase())) continue;
+                if (!isWorkspace(database, sharingDatabases)) {
+                    log.debug("Database {} is not a workspace : not collected", database);
+                    continue;
+                }
+                if (!fileDao.hasContentStore(database)) continue;
+
+                collect(database, report);
+            }
+            report.setDurationMillis(System.currentTimeMillis() - start);
+            gaugeService.submit("gc.reclaimedBytes", report.getReclaimedBytes());
+            gaugeService.submit("gc.removedContents", report.getRemovedContents());
+            log.info("GridFS collection done : {}", report);
+            lastReport = report;
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Override
+    public CollectReport getLastReport() {
+        return lastReport;
+    }
+
+    private boolean isWorkspace(String database, Set<String> sharingDatabases) {
+        return projectRepository.exists(database)
+                || sharingDatabases.contains(database)
+                || workspaceStorageDao.isWorkspace(database);
+    }
+
+    private void collect(String database, CollectReport report) {
+        report.addDatabase();
+        final Date uploadedBefore = new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(gracePeriodMinutes));
+
+        // Mark
+        final Workspace workspace = workspaceDao.loadFromDatabase(database);
+        final Set<String> referenced = new HashSet<>(fileDao.getSharedContents(database));
+        if (workspace != null) {
+            for (File file : workspace.listFiles()) {
+                if (file.getGridFSId() != null && file.getBlobDatabase() == null) {
+                    referenced.add(file.getGridFSId());
+                }
+            }
+        }
+
+        // Sweep
+        String afterId = null;
+        List<GridFSFile> batch;
+        do {
+            batch = fileDao.listContents(database, afterId, uploadedBefore, batchSize);
+            report.addScanned(batch.size());
+            for (GridFSFile content : batch) {
+                final String gridFSId = content.getId().toString();
+                if (!referenced.contains(gridFSId)) {
+                    fileDao.removeContent(gridFSId, database);
+                    report.addRemoved(content.getLength());
+                    log.debug("Unreferenced content {} removed from {} ({} bytes)", gridFSId, database, content.getLength());
+                }
+                afterId = gridFSId;
+            }
+            pause();
+        } while (batch.size() == batchSize);
+
+        // Base conservée d'un workspace supprimé dont plus aucun contenu n'est partagé
+        if (workspace == null && workspaceStorageDao.isRecorded(database) && !projectRepository.exists(database)
+                && !fileDao.hasContents(database) && !fileDao.hasSharedContents(database)) {
+            workspaceDao.delete(database);
+            report.addDroppedDatabase();
+            log.info("Database {} of a deleted workspace dropped", database);
+        }
+    }
+
+    private void pause() {
+        if (batchPauseMillis <= 0) return;
+        try {
+            Thread.sleep(batchPauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during the GridFS collection", e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.telosystools.saas.service.impl;
+
+import org.telosystools.saas.bean.EditSnapshot;
+import org.telosystools.saas.bean.TextOperation;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Live document of a file edited by several participants.
+ *
+ * The operations applied since the oldest revision kept are recorded, so that an operation
+ * based on a past revision is transformed against the operations applied after it.
+ */
+class EditSession {
+
+    private final String projectId;
+
+    private String path;
+
+    private String document;
+
+    private long revision;
+
+    /**
+     * Last operations applied, the oldest first : the last one created the current revision
+     */
+    private final Deque<TextOperation> history = new ArrayDeque<>();
+
+    private final int maxHistory;
+
+    /**
+     * Revision of the saved document
+     */
+    private long savedRevision;
+
+    /**
+     * Content being saved, so that the change event of the save is not taken for an outside write
+     */
+    private String savingContent;
+
+    /**
+     * Time of the first unsaved operation, 0 if the document is saved
+     */
+    private long firstUnsavedMillis;
+
+    private long lastEditMillis;
+
+    EditSession(String projectId, String path, String document, int maxHistory) {
+        this.projectId = projectId;
+        this.path = path;
+        this.document = document;
+        this.maxHistory = maxHistory;
+        this.lastEditMillis = System.currentTimeMillis();
+    }
+
+    String getProjectId() {
+        return projectId;
+    }
+
+    synchronized String getPath() {
+        return path;
+    }
+
+    synchronized void setPath(String path) {
+        this.path = path;
+    }
+
+    synchronized EditSnapshot snapshot() {
+        return new EditSnapshot(path, document, revision);
+    }
+
+    /**
+     * Transform an operation against the operations applied since its base revision, then apply it.
+     *
+     * @param baseRevision revision the operation is based on
+     * @param operation    the operation
+     * @return the applied operation ; its revision is the current revision
+     * @throws IllegalArgumentException if the base revision is no longer kept, or the operation does not apply
+     */
+    synchronized TextOperation apply(long baseRevision, TextOperation operation) {
+        if (baseRevision > revision || baseRevision < revision - history.size()) {
+            throw new IllegalArgumentException("Revision " + baseRevision + " of " + path + " is not available, current revision is " + revision);
+        }
+        // Les opérations appliquées depuis la révision de base, dans l'ordre
+        final Iterator<TextOperation> concurrent = history.descendingIterator();
+        final Deque<TextOperation> applied = new ArrayDeque<>();
+        for (long i = revision; i > baseRevision; i--) {
+            applied.addFirst(concurrent.next());
+        }
+        for (TextOperation previous : applied) {
+            operation = TextOperation.transform(previous, operation)[1];
+        }
+        document = operation.apply(document);
+        revision++;
+        history.addLast(operation);
+        if (history.size() > maxHistory) {
+            history.removeFirst();
+        }
+        lastEditMillis = System.currentTimeMillis();
+        if (firstUnsavedMillis == 0) {
+            firstUnsavedMillis = lastEditMillis;
+        }
+        return operation;
+    }
+
+    /**
+     * Replace the document after a write outside the session : the operations based
+     * on the previous revisions can no longer be transformed.
+     *
+     * @param content new content
+     * @return the new live document
+     */
+    synchronized EditSnapshot reset(String content) {
+        document = content;
+        revision++;
+        history.clear();
+        savedRevision = revision;
+        firstUnsavedMillis = 0;
+        return snapshot();
+    }
+
+    synchronized boolean isSaved() {
+        return savedRevision == revision;
+    }
+
+    /**
+     * Indicates if the unsaved operations must be saved : none since idleMillis, or the first one older than intervalMillis.
+     */
+    synchronized boolean isFlushDue(long now, long idleMillis, long intervalMillis) {
+        return !isSaved() && (now - lastEditMillis >= idleMillis || now - firstUnsavedMillis >= intervalMillis);
+    }
+
+    synchronized boolean isExpired(long now, long timeoutMillis) {
+        return isSaved() && now - lastEditMillis >= timeoutMillis;
+    }
+
+    /**
+     * Start a save of the document.
+     *
+     * @return the document and its revision, null if it is saved
+     */
+    synchronized EditSnapshot startSave() {
+        if (isSaved()) return null;
+        savingContent = document;
+        return snapshot();
+    }
+
+    /**
+     * Record the end of a save : the operations applied during the save remain unsaved.
+     *
+     * @param saved the saved document
+     */
+    synchronized void endSave(EditSnapshot saved) {
+        savingContent = null;
+        if (saved.getRevision() > savedRevision) {
+            savedRevision = saved.getRevision();
+            firstUnsavedMillis = isSaved() ? 0 : lastEditMillis;
+        }
+    }
+
+    synchronized void abortSave() {
+        savingContent = null;
+    }
+
+    /**
+     * Indicates if a written content is the live document, or the one being saved by the session.
+     */
+    synchronized boolean isSessionContent(String content) {
+        return content != null && (content.equals(savingContent) || content.equals(document));
+    }
+}
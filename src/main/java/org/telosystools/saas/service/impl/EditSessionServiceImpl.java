@@ -0,0 +1,269 @@
+package org.telosystools.saas.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.bean.EditMessage;
+import org.telosystools.saas.bean.EditSnapshot;
+import org.telosystools.saas.bean.TextOperation;
+import org.telosystools.saas.exception.FileNotFoundException;
+import org.telosystools.saas.exception.ProjectNotFoundException;
+import org.telosystools.saas.exception.QuotaExceededException;
+import org.telosystools.saas.service.EditSessionService;
+import org.telosystools.saas.service.WorkspaceService;
+import org.telosystools.saas.service.event.WorkspaceChangeEvent;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Editing sessions, kept in memory : the operations of the participants only change the live document,
+ * which is written to GridFS once idle or at a fixed interval, and when the application stops.
+ */
+@Component
+public class EditSessionServiceImpl implements EditSessionService, ApplicationListener<WorkspaceChangeEvent> {
+
+    public static final String TOPIC = "/topic/projects/%s/edit";
+
+    private final Logger log = LoggerFactory.getLogger(EditSessionServiceImpl.class);
+
+    @Autowired
+    private WorkspaceService workspaceService;
+    @Autowired
+    private SimpMessageSendingOperations messagingTemplate;
+
+    /**
+     * The live document is saved once no operation has been applied for this delay
+     */
+    @Value("${edit.idleFlushMillis:2000}")
+    private long idleFlushMillis;
+
+    /**
+     * The live document is saved at least at this interval while it is edited
+     */
+    @Value("${edit.flushIntervalMillis:30000}")
+    private long flushIntervalMillis;
+
+    /**
+     * A saved session without operation for this delay is closed
+     */
+    @Value("${edit.sessionTimeoutMillis:600000}")
+    private long sessionTimeoutMillis;
+
+    /**
+     * Operations kept by session to transform the operations based on past revisions
+     */
+    @Value("${edit.maxHistory:500}")
+    private int maxHistory;
+
+    /**
+     * Sessions by file path, by project
+     */
+    private final Map<String, Map<String, EditSession>> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong operations = new AtomicLong();
+    private final AtomicLong rejectedOperations = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+
+    @Override
+    public EditSnapshot join(String projectId, String path) throws ProjectNotFoundException, FileNotFoundException {
+        final Map<String, EditSession> projectSessions = sessions.computeIfAbsent(projectId, id -> new ConcurrentHashMap<>());
+        EditSession session = projectSessions.get(path);
+        if (session == null) {
+            // Le contenu est lu hors du verrou de la map : une ouverture concurrente garde la première session
+            final String content = workspaceService.getFileContent(path, projectId).getContent();
+            final EditSession created = new EditSession(projectId, path, content, maxHistory);
+            session = projectSessions.putIfAbsent(path, created);
+            if (session == null) {
+                session = created;
+                log.debug("Editing session opened for {} of project {}", path, projectId);
+            }
+        }
+        return session.snapshot();
+    }
+
+    @Override
+    public void edit(String projectId, EditMessage message, String login) {
+        final EditSession session = getSession(projectId, message.getPath());
+        final EditMessage applied = new EditMessage(EditMessage.Type.OPERATION, message.getPath());
+        applied.setClientId(message.getClientId());
+        applied.setLogin(login);
+        try {
+            if (session == null) {
+                throw new IllegalArgumentException("No editing session for " + message.getPath());
+            }
+            if (message.getOperation() == null) {
+                throw new IllegalArgumentException("No operation");
+            }
+            final TextOperation operation = TextOperation.valueOf(message.getOperation());
+            // Application et diffusion sous le verrou de la session : les révisions sont diffusées dans l'ordre
+            synchronized (session) {
+                applied.setOperation(session.apply(message.getRevision(), operation).getComponents());
+                applied.setRevision(session.snapshot().getRevision());
+                operations.incrementAndGet();
+                send(projectId, applied);
+            }
+        } catch (IllegalArgumentException e) {
+            log.debug("Operation of {} rejected on {} of project {} : {}", login, message.getPath(), projectId, e.getMessage());
+            rejectedOperations.incrementAndGet();
+            applied.setType(EditMessage.Type.RESYNC);
+            send(projectId, applied);
+        }
+    }
+
+    @Override
+    public boolean flush(String projectId, String path) throws ProjectNotFoundException, FileNotFoundException, QuotaExceededException {
+        final EditSession session = getSession(projectId, path);
+        return session != null && save(session);
+    }
+
+    /**
+     * Save the documents whose operations are due, and close the expired sessions.
+     */
+    @Scheduled(fixedDelayString = "${edit.flushCheckMillis:1000}")
+    public void flushDue() {
+        final long now = System.currentTimeMillis();
+        for (EditSession session : listSessions()) {
+            if (session.isFlushDue(now, idleFlushMillis, flushIntervalMillis)) {
+                saveQuietly(session);
+            } else if (session.isExpired(now, sessionTimeoutMillis)) {
+                close(session);
+            }
+        }
+    }
+
+    /**
+     * Save all the documents before the application stops.
+     */
+    @PreDestroy
+    public void flushAll() {
+        for (EditSession session : listSessions()) {
+            saveQuietly(session);
+        }
+    }
+
+    private boolean save(EditSession session) throws ProjectNotFoundException, FileNotFoundException, QuotaExceededException {
+        final EditSnapshot document = session.startSave();
+        if (document == null) return false;
+        try {
+            workspaceService.updateFileNow(document.getPath(), document.getContent(), session.getProjectId());
+        } catch (ProjectNotFoundException | FileNotFoundException | QuotaExceededException | RuntimeException e) {
+            session.abortSave();
+            throw e;
+        }
+        session.endSave(document);
+        flushes.incrementAndGet();
+        return true;
+    }
+
+    private void saveQuietly(EditSession session) {
+        try {
+            save(session);
+        } catch (ProjectNotFoundException | FileNotFoundException e) {
+            log.warn("Editing session of {} in project {} closed, the file no longer exists", session.getPath(), session.getProjectId());
+            close(session);
+        } catch (QuotaExceededException e) {
+            // Les opérations restent en mémoire : la sauvegarde est retentée au prochain passage
+            log.warn("Editing session of {} in project {} not saved : {}", session.getPath(), session.getProjectId(), e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Editing session of {} in project {} not saved", session.getPath(), session.getProjectId(), e);
+        }
+    }
+
+    /**
+     * Keeps the sessions consistent with the changes made outside them.
+     */
+    @Override
+    public void onApplicationEvent(WorkspaceChangeEvent event) {
+        final Map<String, EditSession> projectSessions = sessions.get(event.getProjectId());
+        if (projectSessions == null || projectSessions.isEmpty()) {
+            return;
+        }
+        if (event.getOperation() == WorkspaceChangeEvent.Operation.WORKSPACE_DELETED) {
+            new ArrayList<>(projectSessions.values()).forEach(this::close);
+            sessions.remove(event.getProjectId());
+            return;
+        }
+        for (EditSession session : new ArrayList<>(projectSessions.values())) {
+            final String path = session.getPath();
+            if (!WorkspaceChangeEvent.isSameOrDescendant(event.getPath(), path)) continue;
+
+            switch (event.getOperation()) {
+                case FILE_CREATED:
+                case FILE_UPDATED:
+                    if (!session.isSessionContent(event.getContent())) {
+                        final EditSnapshot snapshot = session.reset(event.getContent());
+                        final EditMessage reset = new EditMessage(EditMessage.Type.RESET, path);
+                        reset.setContent(snapshot.getContent());
+                        reset.setRevision(snapshot.getRevision());
+                        send(event.getProjectId(), reset);
+                    }
+                    break;
+                case FILE_RENAMED:
+                case FOLDER_RENAMED:
+                    final String newPath = event.getNewPath() + path.substring(event.getPath().length());
+                    projectSessions.remove(path, session);
+                    session.setPath(newPath);
+                    projectSessions.put(newPath, session);
+                    final EditMessage moved = new EditMessage(EditMessage.Type.MOVED, path);
+                    moved.setNewPath(newPath);
+                    send(event.getProjectId(), moved);
+                    break;
+                case FILE_REMOVED:
+                case FOLDER_REMOVED:
+                    close(session);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void close(EditSession session) {
+        final Map<String, EditSession> projectSessions = sessions.get(session.getProjectId());
+        if (projectSessions != null && projectSessions.remove(session.getPath(), session)) {
+            log.debug("Editing session closed for {} of project {}", session.getPath(), session.getProjectId());
+            send(session.getProjectId(), new EditMessage(EditMessage.Type.CLOSED, session.getPath()));
+        }
+    }
+
+    private EditSession getSession(String projectId, String path) {
+        final Map<String, EditSession> projectSessions = sessions.get(projectId);
+        return projectSessions != null && path != null ? projectSessions.get(path) : null;
+    }
+
+    private List<EditSession> listSessions() {
+        final List<EditSession> result = new ArrayList<>();
+        sessions.values().forEach(projectSessions -> result.addAll(projectSessions.values()));
+        return result;
+    }
+
+    private void send(String projectId, EditMessage message) {
+        messagingTemplate.convertAndSend(String.format(TOPIC, projectId), message);
+    }
+
+    public int getSessionCount() {
+        return listSessions().size();
+    }
+
+    public long getOperations() {
+        return operations.get();
+    }
+
+    public long getRejectedOperations() {
+        return rejectedOperations.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+}
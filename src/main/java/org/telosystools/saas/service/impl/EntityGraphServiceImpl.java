@@ -0,0 +1,207 @@
+package org.telosystools.saas.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.bean.AttributeRef;
+import org.telosystools.saas.bean.Path;
+import org.telosystools.saas.domain.filesystem.Workspace;
+import org.telosystools.saas.exception.EntityParsingException;
+import org.telosystools.saas.exception.FileNotFoundException;
+import org.telosystools.saas.exception.ProjectNotFoundException;
+import org.telosystools.saas.generator.model.Entity;
+import org.telosystools.saas.generator.model.EntityParser;
+import org.telosystools.saas.service.EntityGraphService;
+import org.telosystools.saas.service.ModelService;
+import org.telosystools.saas.service.event.WorkspaceChangeEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Entity graph service.
+ *
+ * The graph of a project is built from the model on the first query, then maintained
+ * from the workspace change events : a created or updated entity file is parsed from the
+ * content of the event. The changes whose content is unknown (renames, folder changes)
+ * drop the graph, which is rebuilt on the next query.
+ *
+ * A graph is built once at a time per project : the changes received while it is built are recorded,
+ * then replayed on the new graph. The least recently used graphs are evicted when more than model.maxProjects are built.
+ */
+@Component
+public class EntityGraphServiceImpl implements EntityGraphService, ApplicationListener<WorkspaceChangeEvent> {
+
+    private final Logger log = LoggerFactory.getLogger(EntityGraphServiceImpl.class);
+
+    @Autowired
+    private ModelService modelService;
+
+    /**
+     * Maximum number of project graphs kept in memory
+     */
+    @Value("${model.maxProjects:200}")
+    private int maxProjects;
+
+    /**
+     * Built graphs, in access order
+     */
+    private final Map<String, ProjectEntityGraph> graphs = new LinkedHashMap<String, ProjectEntityGraph>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ProjectEntityGraph> eldest) {
+            // Les graphes évincés seront reconstruits depuis le modèle
+            return size() > maxProjects;
+        }
+    };
+
+    /**
+     * Changes received during the build of a graph, by project
+     */
+    private final ConcurrentMap<String, List<WorkspaceChangeEvent>> builds = new ConcurrentHashMap<>();
+
+    /**
+     * Lock of each project, held while its graph is built
+     */
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+
+    @Override
+    public List<String> getEntityNames(String projectId) throws ProjectNotFoundException, FileNotFoundException {
+        return getGraph(projectId).getEntityNames();
+    }
+
+    @Override
+    public List<AttributeRef> getAttributes(String projectId, String entityName) throws ProjectNotFoundException, FileNotFoundException {
+        final List<AttributeRef> attributes = getGraph(projectId).getAttributes(entityName);
+        if (attributes == null) throw new FileNotFoundException(Path.join(Workspace.MODEL, entityName + "." + EntityParser.ENTITY_EXTENSION));
+        return attributes;
+    }
+
+    @Override
+    public List<AttributeRef> getReferencing(String projectId, String entityName) throws ProjectNotFoundException, FileNotFoundException {
+        return getGraph(projectId).getReferencing(entityName);
+    }
+
+    @Override
+    public List<AttributeRef> findAttributesByType(String projectId, String type) throws ProjectNotFoundException, FileNotFoundException {
+        return getGraph(projectId).findByType(type);
+    }
+
+    private ProjectEntityGraph getGraph(String projectId) throws ProjectNotFoundException, FileNotFoundException {
+        ProjectEntityGraph graph = getBuilt(projectId);
+        if (graph != null) {
+            return graph;
+        }
+        synchronized (locks.computeIfAbsent(projectId, id -> new Object())) {
+            graph = getBuilt(projectId);
+            return graph != null ? graph : build(projectId);
+        }
+    }
+
+    private ProjectEntityGraph getBuilt(String projectId) {
+        synchronized (graphs) {
+            return graphs.get(projectId);
+        }
+    }
+
+    /**
+     * Build the graph from the model, then replay the changes received meanwhile.
+     */
+    private ProjectEntityGraph build(String projectId) throws ProjectNotFoundException, FileNotFoundException {
+        final long start = System.currentTimeMillis();
+        final List<WorkspaceChangeEvent> received = new ArrayList<>();
+        builds.put(projectId, received);
+        try {
+            final ProjectEntityGraph graph = new ProjectEntityGraph();
+            for (Entity entity : modelService.getModel(projectId).getModel().getEntities()) {
+                graph.put(entity);
+            }
+            synchronized (received) {
+                boolean dropped = false;
+                for (WorkspaceChangeEvent event : received) {
+                    dropped |= !apply(graph, event);
+                }
+                if (!dropped) {
+                    synchronized (graphs) {
+                        graphs.put(projectId, graph);
+                    }
+                }
+                builds.remove(projectId, received);
+            }
+            log.debug("Entity graph of project {} built in {} ms, {} changes replayed", projectId,
+                    System.currentTimeMillis() - start, received.size());
+            return graph;
+        } finally {
+            builds.remove(projectId, received);
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(WorkspaceChangeEvent event) {
+        final String projectId = event.getProjectId();
+        final List<WorkspaceChangeEvent> received = builds.get(projectId);
+        if (received != null) {
+            synchronized (received) {
+                if (builds.get(projectId) == received) {
+                    // Rejoué une fois le graphe construit
+                    received.add(event);
+                    return;
+                }
+            }
+        }
+        final ProjectEntityGraph graph = getBuilt(projectId);
+        if (graph != null && !apply(graph, event)) {
+            synchronized (graphs) {
+                graphs.remove(projectId, graph);
+            }
+        }
+    }
+
+    /**
+     * Update a graph with a change.
+     *
+     * @return false if the graph must be rebuilt
+     */
+    private boolean apply(ProjectEntityGraph graph, WorkspaceChangeEvent event) {
+        if (event.getOperation() == WorkspaceChangeEvent.Operation.WORKSPACE_DELETED) {
+            return false;
+        }
+        if (!WorkspaceChangeEvent.isSameOrDescendant(Workspace.MODEL, event.getPath())) {
+            return true;
+        }
+        switch (event.getOperation()) {
+            case FILE_CREATED:
+            case FILE_UPDATED:
+                if (!EntityParser.isEntityFile(event.getPath())) {
+                    break;
+                }
+                if (event.getContent() == null) {
+                    return false;
+                }
+                try {
+                    graph.put(EntityParser.parse(event.getPath(), event.getContent()));
+                } catch (EntityParsingException e) {
+                    // Une entité invalide ne fait plus partie du modèle
+                    graph.remove(event.getPath());
+                }
+                break;
+            case FILE_REMOVED:
+                graph.remove(event.getPath());
+                break;
+            case FILE_RENAMED:
+            case FOLDER_RENAMED:
+            case FOLDER_REMOVED:
+                return false;
+            default:
+                break;
+        }
+        return true;
+    }
+}
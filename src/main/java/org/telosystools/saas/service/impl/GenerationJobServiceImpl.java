@@ -0,0 +1,239 @@
+package org.telosystools.saas.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.bean.GenerationJob;
+import org.telosystools.saas.bean.GenerationReport;
+import org.telosystools.saas.config.GenerationConfiguration;
+import org.telosystools.saas.exception.*;
+import org.telosystools.saas.service.GenerationJobService;
+import org.telosystools.saas.service.GenerationListener;
+import org.telosystools.saas.service.GenerationService;
+import org.telosystools.saas.service.ProjectService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.telosystools.saas.security.security.SecurityUtils.getCurrentLogin;
+
+/**
+ * Generation jobs, kept in memory : the last jobs of each project can be read
+ * until the application is restarted.
+ */
+@Component
+public class GenerationJobServiceImpl implements GenerationJobService {
+
+    public static final String TOPIC = "/topic/projects/%s/generation";
+
+    private final Logger log = LoggerFactory.getLogger(GenerationJobServiceImpl.class);
+
+    @Autowired
+    private GenerationService generationService;
+    @Autowired
+    private ProjectService projectService;
+    @Autowired
+    @Qualifier(GenerationConfiguration.GENERATION_JOB_EXECUTOR)
+    private ThreadPoolTaskExecutor generationJobExecutor;
+    @Autowired
+    private SimpMessageSendingOperations messagingTemplate;
+
+    /**
+     * Number of finished jobs kept by project
+     */
+    @Value("${generation.jobs.history:10}")
+    private int history;
+
+    /**
+     * Minimum delay between two progress messages of a job
+     */
+    @Value("${generation.jobs.progressIntervalMillis:250}")
+    private long progressIntervalMillis;
+
+    /**
+     * Queued or running job of each project
+     */
+    private final Map<String, GenerationJob> activeJobs = new ConcurrentHashMap<>();
+
+    /**
+     * Last jobs of each project, most recent first
+     */
+    private final Map<String, Deque<GenerationJob>> jobsByProject = new ConcurrentHashMap<>();
+
+    @Override
+    public GenerationJob submit(String projectId, String bundle, boolean force) throws ProjectNotFoundException, GenerationInProgressException {
+        projectService.loadProject(projectId);
+        final GenerationJob job = new GenerationJob(projectId, bundle, force, getCurrentLogin());
+        activate(job);
+        try {
+            generationJobExecutor.execute(() -> run(job));
+        } catch (RuntimeException e) {
+            // File d'attente pleine : le job n'est pas conservé
+            activeJobs.remove(projectId, job);
+            throw e;
+        }
+        record(job);
+        return job;
+    }
+
+    @Override
+    public GenerationReport generate(String projectId, String bundle, boolean force) throws ProjectNotFoundException, FolderNotFoundException, FileNotFoundException, InvalidPathException, QuotaExceededException, GenerationInProgressException {
+        projectService.loadProject(projectId);
+        final GenerationJob job = new GenerationJob(projectId, bundle, force, getCurrentLogin());
+        activate(job);
+        record(job);
+        try {
+            job.start();
+            publish(job);
+            final GenerationReport report = generationService.generate(projectId, bundle, force, new JobListener(job));
+            job.done(report);
+            return report;
+        } catch (CancellationException e) {
+            job.cancelled();
+            throw e;
+        } catch (Exception e) {
+            job.fail(e.getMessage());
+            throw e;
+        } finally {
+            activeJobs.remove(projectId, job);
+            publish(job);
+        }
+    }
+
+    @Override
+    public GenerationReport generateZip(String projectId, String bundle, OutputStream out) throws ProjectNotFoundException, FolderNotFoundException, FileNotFoundException, IOException, GenerationInProgressException {
+        projectService.loadProject(projectId);
+        // Rien n'est écrit dans le workspace, mais la génération occupe le projet comme un job
+        final GenerationJob job = new GenerationJob(projectId, bundle, true, getCurrentLogin());
+        activate(job);
+        record(job);
+        try {
+            job.start();
+            publish(job);
+            final GenerationReport report = generationService.generateZip(projectId, bundle, out);
+            job.done(report);
+            return report;
+        } catch (Exception e) {
+            job.fail(e.getMessage());
+            throw e;
+        } finally {
+            activeJobs.remove(projectId, job);
+            publish(job);
+        }
+    }
+
+    /**
+     * Make the job the active job of its project.
+     *
+     * @throws GenerationInProgressException if another job of the project is not finished
+     */
+    private void activate(GenerationJob job) throws GenerationInProgressException {
+        final GenerationJob active = activeJobs.putIfAbsent(job.getProjectId(), job);
+        if (active != null) throw new GenerationInProgressException(job.getProjectId(), active.getId());
+    }
+
+    /**
+     * Add the job to the last jobs of its project.
+     */
+    private void record(GenerationJob job) {
+        final Deque<GenerationJob> jobs = jobsByProject.computeIfAbsent(job.getProjectId(), id -> new ConcurrentLinkedDeque<>());
+        jobs.addFirst(job);
+        while (jobs.size() > history && jobs.peekLast() != null && jobs.peekLast().isFinished()) {
+            jobs.pollLast();
+        }
+        publish(job);
+    }
+
+    private void run(GenerationJob job) {
+        try {
+            if (job.isCancelRequested()) {
+                job.cancelled();
+                return;
+            }
+            job.start();
+            publish(job);
+            job.done(generationService.generate(job.getProjectId(), job.getBundle(), job.isForce(), new JobListener(job)));
+        } catch (CancellationException e) {
+            job.cancelled();
+        } catch (Exception e) {
+            log.error("Generation job {} failed", job, e);
+            job.fail(e.getMessage());
+        } finally {
+            activeJobs.remove(job.getProjectId(), job);
+            publish(job);
+        }
+    }
+
+    @Override
+    public GenerationJob getJob(String projectId, String jobId) throws GenerationJobNotFoundException {
+        for (GenerationJob job : jobsByProject.getOrDefault(projectId, new ConcurrentLinkedDeque<>())) {
+            if (job.getId().equals(jobId)) {
+                return job;
+            }
+        }
+        throw new GenerationJobNotFoundException(jobId);
+    }
+
+    @Override
+    public List<GenerationJob> getJobs(String projectId) {
+        return new ArrayList<>(jobsByProject.getOrDefault(projectId, new ConcurrentLinkedDeque<>()));
+    }
+
+    @Override
+    public GenerationJob cancel(String projectId, String jobId) throws GenerationJobNotFoundException {
+        final GenerationJob job = getJob(projectId, jobId);
+        if (!job.isFinished()) {
+            job.requestCancel();
+            publish(job);
+        }
+        return job;
+    }
+
+    private void publish(GenerationJob job) {
+        messagingTemplate.convertAndSend(String.format(TOPIC, job.getProjectId()), job);
+    }
+
+    /**
+     * Records the progress of a job, publishing it at most every progressIntervalMillis.
+     */
+    private class JobListener implements GenerationListener {
+
+        private final GenerationJob job;
+        private final AtomicLong lastPublished = new AtomicLong();
+
+        JobListener(GenerationJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void onProgress(int renderedFiles, int totalFiles) {
+            if (renderedFiles <= job.getRenderedFiles() && job.getTotalFiles() == totalFiles) {
+                return;
+            }
+            job.progress(renderedFiles, totalFiles);
+            final long now = System.currentTimeMillis();
+            final long last = lastPublished.get();
+            if ((renderedFiles == totalFiles || now - last >= progressIntervalMillis) && lastPublished.compareAndSet(last, now)) {
+                publish(job);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return job.isCancelRequested();
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package org.telosystools.saas.service.impl;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.telosystools.saas.bean.GenerationReport;
+import org.telosystools.saas.bean.ImportReport;
+import org.telosystools.saas.bean.Path;
+import org.telosystools.saas.config.GenerationConfiguration;
+import org.telosystools.saas.dao.FileDao;
+import org.telosystools.saas.dao.GeneratedFileDao;
+import org.telosystools.saas.domain.filesystem.File;
+import org.telosystools.saas.domain.filesystem.FileData;
+import org.telosystools.saas.domain.filesystem.Folder;
+import org.telosystools.saas.domain.filesystem.Workspace;
+import org.telosystools.saas.domain.generation.GeneratedFile;
+import org.telosystools.saas.domain.project.ProjectConfiguration;
+import org.telosystools.saas.exception.*;
+import org.telosystools.saas.generator.CompiledTemplate;
+import org.telosystools.saas.generator.Target;
+import org.telosystools.saas.generator.TargetDefinition;
+import org.telosystools.saas.generator.TemplateCache;
+import org.telosystools.saas.generator.TemplateRenderer;
+import org.telosystools.saas.generator.model.Entity;
+import org.telosystools.saas.generator.model.EntityParser;
+import org.telosystools.saas.generator.model.Model;
+import org.telosystools.saas.generator.model.ParsedModel;
+import org.telosystools.saas.service.GenerationListener;
+import org.telosystools.saas.service.GenerationService;
+import org.telosystools.saas.service.ModelService;
+import org.telosystools.saas.service.ProjectService;
+import org.telosystools.saas.service.WorkspaceService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Code generation : the model (from the model service cache) and the templates are read once, the entity x template
+ * combinations are rendered in parallel on the generation pool, and all the results
+ * are written in the generated folder with a single save of the workspace.
+ *
+ * The generation is incremental : the hashes of the inputs of each generated file are recorded,
+ * a file is rendered again only if its template, its entity or the configuration changed,
+ * and written again only if its content changed.
+ */
+@Component
+public class GenerationServiceImpl implements GenerationService {
+
+    /**
+     * Entry of the generated archives listing the invalid entities, templates or outputs
+     */
+    public static final String ZIP_ERRORS_ENTRY = "GENERATION-ERRORS.txt";
+
+    private final Logger log = LoggerFactory.getLogger(GenerationServiceImpl.class);
+
+    @Autowired
+    private WorkspaceService workspaceService;
+    @Autowired
+    private ProjectService projectService;
+    @Autowired
+    private ModelService modelService;
+    @Autowired
+    private FileDao fileDao;
+    @Autowired
+    private GeneratedFileDao generatedFileDao;
+    @Autowired
+    private TemplateRenderer templateRenderer;
+    @Autowired
+    private TemplateCache templateCache;
+    @Autowired
+    @Qualifier(GenerationConfiguration.GENERATION_POOL)
+    private ForkJoinPool generationPool;
+
+    /**
+     * A target to render, with its template
+     */
+    private static class RenderTask {
+        private final Target target;
+        private final Entity entity;
+        private final String templatePath;
+        private final CompiledTemplate template;
+        private final GeneratedFile inputs;
+
+        RenderTask(Target target, Entity entity, String templatePath, CompiledTemplate template, GeneratedFile inputs) {
+            this.target = target;
+            this.entity = entity;
+            this.templatePath = templatePath;
+            this.template = template;
+            this.inputs = inputs;
+        }
+    }
+
+    /**
+     * Inputs and targets of a generation
+     */
+    private static class Plan {
+        private final Model model;
+        private final Map<String, String> variables;
+        private final List<RenderTask> tasks;
+
+        Plan(Model model, Map<String, String> variables, List<RenderTask> tasks) {
+            this.model = model;
+            this.variables = variables;
+            this.tasks = tasks;
+        }
+    }
+
+    /**
+     * Hashes of the generation inputs shared by the targets
+     */
+    private static class InputHashes {
+        /**
+         * Hash of each entity file, with the names of the other entities
+         */
+        private final Map<String, String> entityHashes = new HashMap<>();
+        /**
+         * Hash of all the entity files, for the templates applied once
+         */
+        private final String modelHash;
+        private final String configHash;
+
+        InputHashes(Model model, Map<String, String> contentHashes, Map<String, String> variables) {
+            final String namesHash = md5(String.join(",", model.getEntityNames()));
+            final StringBuilder modelContent = new StringBuilder();
+            for (String name : model.getEntityNames()) {
+                entityHashes.put(name, md5(contentHashes.get(name) + namesHash));
+                modelContent.append(name).append(':').append(contentHashes.get(name)).append(',');
+            }
+            this.modelHash = md5(modelContent.toString());
+            this.configHash = md5(new TreeMap<>(variables).toString());
+        }
+
+        GeneratedFile inputs(Target target, String templatePath, String templateHash) {
+            final String entityHash = target.getEntityName() == null ? modelHash : entityHashes.get(target.getEntityName());
+            return new GeneratedFile(target.getPath(), templatePath, templateHash, entityHash, configHash);
+        }
+    }
+
+    @Override
+    public GenerationReport generate(String projectId, String bundle, boolean force) throws ProjectNotFoundException, FolderNotFoundException, FileNotFoundException, InvalidPathException, QuotaExceededException {
+        return generate(projectId, bundle, force, GenerationListener.NONE);
+    }
+
+    @Override
+    public GenerationReport generate(String projectId, String bundle, boolean force, GenerationListener listener) throws ProjectNotFoundException, FolderNotFoundException, FileNotFoundException, InvalidPathException, QuotaExceededException {
+        final long start = System.currentTimeMillis();
+        final GenerationReport report = new GenerationReport();
+        workspaceService.flushPendingWrites(projectId);
+        final Workspace workspace = workspaceService.getWorkspace(projectId);
+        final Plan plan = plan(projectId, workspace, bundle, report);
+        final Model model = plan.model;
+        final Map<String, String> variables = plan.variables;
+        final List<RenderTask> tasks = plan.tasks;
+
+        // Seules les cibles dont une entrée a changé, ou dont le fichier a été modifié depuis, sont produites
+        final Map<String, GeneratedFile> previous = force ? Collections.emptyMap() : generatedFileDao.findAll(projectId);
+        final Map<String, GeneratedFile> inputsByPath = new HashMap<>();
+        final List<RenderTask> toRender = new ArrayList<>();
+        for (RenderTask task : tasks) {
+            final GeneratedFile last = previous.get(task.inputs.getPath());
+            if (last != null && last.hasSameInputs(task.inputs) && isUnmodified(last, workspace.getGenerated())) {
+                report.setSkippedFiles(report.getSkippedFiles() + 1);
+            } else {
+                toRender.add(task);
+                inputsByPath.put(task.inputs.getPath(), task.inputs);
+            }
+        }
+
+        final long renderStart = System.currentTimeMillis();
+        final Map<String, byte[]> outputs = renderAll(toRender, model, variables, report, listener);
+        if (listener.isCancelled()) {
+            throw new CancellationException("The generation of the project " + projectId + " has been cancelled");
+        }
+        report.setRenderedFiles(outputs.size());
+        report.setRenderMillis(System.currentTimeMillis() - renderStart);
+
+        final Map<String, byte[]> changed = new TreeMap<>();
+        for (Map.Entry<String, byte[]> output : outputs.entrySet()) {
+            final GeneratedFile inputs = inputsByPath.get(output.getKey());
+            inputs.setContentHash(DigestUtils.md5DigestAsHex(output.getValue()));
+            final GeneratedFile last = previous.get(output.getKey());
+            if (last != null && inputs.getContentHash().equals(last.getContentHash()) && isUnmodified(last, workspace.getGenerated())) {
+                inputs.setGridFSId(last.getGridFSId());
+                inputs.setGeneratedDate(last.getGeneratedDate());
+                report.setUnchangedFiles(report.getUnchangedFiles() + 1);
+            } else {
+                changed.put(output.getKey(), output.getValue());
+            }
+        }
+
+        report.setWrite(changed.isEmpty() ? new ImportReport() : workspaceService.writeFiles(Workspace.GENERATED, changed, projectId));
+        saveInputs(outputs.keySet(), changed.keySet(), inputsByPath, projectId);
+        report.setDurationMillis(System.currentTimeMillis() - start);
+        log.info("Code generated for project {} : {}", projectId, report);
+        return report;
+    }
+
+    @Override
+    public GenerationReport generateZip(String projectId, String bundle, OutputStream out) throws ProjectNotFoundException, FolderNotFoundException, FileNotFoundException, IOException {
+        final long start = System.currentTimeMillis();
+        final GenerationReport report = new GenerationReport();
+        workspaceService.flushPendingWrites(projectId);
+        final Plan plan = plan(projectId, workspaceService.getWorkspace(projectId), bundle, report);
+
+        // Une seule cible par chemin, la dernière comme pour la génération dans le workspace
+        final Map<String, RenderTask> tasksByPath = new TreeMap<>();
+        plan.tasks.forEach(task -> tasksByPath.put(task.target.getPath(), task));
+
+        // Les rendus sont faits en parallèle, au plus window en avance sur l'écriture de l'archive
+        final int window = generationPool.getParallelism() * 4;
+        final Iterator<RenderTask> tasks = tasksByPath.values().iterator();
+        final Deque<CompletableFuture<Map.Entry<String, byte[]>>> pending = new ArrayDeque<>();
+        final ZipOutputStream zip = new ZipOutputStream(out);
+        try {
+            while (tasks.hasNext() || !pending.isEmpty()) {
+                while (tasks.hasNext() && pending.size() < window) {
+                    final RenderTask task = tasks.next();
+                    pending.add(CompletableFuture.supplyAsync(() -> render(task, plan.model, plan.variables, report), generationPool));
+                }
+                final Map.Entry<String, byte[]> output = pending.poll().join();
+                if (output != null) {
+                    zip.putNextEntry(new ZipEntry(output.getKey()));
+                    zip.write(output.getValue());
+                    zip.closeEntry();
+                    report.setRenderedFiles(report.getRenderedFiles() + 1);
+                }
+            }
+            if (!report.getErrors().isEmpty()) {
+                zip.putNextEntry(new ZipEntry(ZIP_ERRORS_ENTRY));
+                zip.write(String.join("\n", report.getErrors()).getBytes(UTF_8));
+                zip.closeEntry();
+            }
+            zip.finish();
+        } finally {
+            pending.forEach(future -> future.cancel(false));
+        }
+        report.setDurationMillis(System.currentTimeMillis() - start);
+        log.info("Code generated for project {} into an archive : {}", projectId, report);
+        return report;
+    }
+
+    /**
+     * Load the inputs of a generation and list its targets.
+     */
+    private Plan plan(String projectId, Workspace workspace, String bundle, GenerationReport report) throws ProjectNotFoundException, FolderNotFoundException, FileNotFoundException {
+        final Map<String, String> variables = getVariables(projectService.loadProject(projectId).getProjectConfiguration());
+        final ParsedModel parsedModel = modelService.getModel(projectId, workspace);
+        parsedModel.getErrors().forEach(report::addError);
+        final Model model = parsedModel.getModel();
+        final InputHashes hashes = new InputHashes(model, parsedModel.getEntityHashes(), variables);
+        final List<RenderTask> tasks = new ArrayList<>();
+        for (Folder bundleFolder : getBundleFolders(workspace, bundle, projectId)) {
+            addTasks(bundleFolder, model, variables, hashes, tasks, projectId, report);
+        }
+        report.setEntities(model.size());
+        return new Plan(model, variables, tasks);
+    }
+
+    @Override
+    public FileData preview(String projectId, String templatePath, String entityName) throws ProjectNotFoundException, FileNotFoundException, GenerationException {
+        workspaceService.flushPendingWrites(projectId);
+        final Workspace workspace = workspaceService.getWorkspace(projectId);
+        final Path path = Path.valueOf(templatePath);
+        final String relativePath = path.getNameCount() > 1 ? templatePath.substring(path.getRootName().length() + 1) : null;
+        final File templateFile = Workspace.TEMPLATES.equals(path.getRootName()) && relativePath != null
+                ? findFile(workspace.getTemplates(), relativePath) : null;
+        if (templateFile == null) throw new FileNotFoundException(templatePath);
+
+        final Map<String, String> variables = getVariables(projectService.loadProject(projectId).getProjectConfiguration());
+        final Model model = modelService.getModel(projectId, workspace).getModel();
+        Entity entity = null;
+        if (entityName != null) {
+            entity = model.getEntity(entityName);
+            if (entity == null) throw new FileNotFoundException(Path.join(Workspace.MODEL, entityName + "." + EntityParser.ENTITY_EXTENSION));
+        }
+
+        final Target target = new Target(getDefinition(workspace, relativePath, projectId), entity, variables);
+        final String content = templateRenderer.render(getTemplate(templateFile, projectId), getContext(entity, model, target, variables), entityName);
+        return new FileData(Path.join(Workspace.GENERATED, target.getPath()), content, target.getFile());
+    }
+
+    /**
+     * Return the definition of a template in the templates.cfg of its folder,
+     * or a definition generating a file named as the template.
+     */
+    private TargetDefinition getDefinition(Workspace workspace, String relativePath, String projectId) throws FileNotFoundException {
+        final String[] names = relativePath.split(Path.SEPARATOR);
+        final String templateName = names[names.length - 1];
+        Folder folder = workspace.getTemplates();
+        for (int i = 0; i < names.length - 1 && folder != null; i++) {
+            folder = folder.getFolders().get(names[i]);
+        }
+        final File configFile = folder == null ? null : getConfigFile(folder);
+        if (configFile != null) {
+            for (TargetDefinition definition : TargetDefinition.parse(readContent(configFile, projectId))) {
+                if (definition.getTemplate().equals(templateName)) {
+                    return definition;
+                }
+            }
+        }
+        final String file = templateName.endsWith(".vm") ? templateName.substring(0, templateName.length() - 3) : templateName;
+        return new TargetDefinition(templateName, file, "", templateName, false);
+    }
+
+    /**
+     * Return the variables of the project configuration : folders, packages and specific variables.
+     *
+     * @param configuration project configuration, null if never set
+     * @return values by variable name
+     */
+    private Map<String, String> getVariables(ProjectConfiguration configuration) {
+        final ProjectConfiguration config = configuration == null ? new ProjectConfiguration() : configuration;
+        final Map<String, String> variables = new HashMap<>();
+        if (config.getVariables() != null) {
+            variables.putAll(config.getVariables());
+        }
+        variables.put("SRC", config.getFolders().getSrc());
+        variables.put("RES", config.getFolders().getRes());
+        variables.put("WEB", config.getFolders().getWeb());
+        variables.put("TEST_SRC", config.getFolders().getTestSrc());
+        variables.put("TEST_RES", config.getFolders().getTestRes());
+        variables.put("DOC", config.getFolders().getDoc());
+        variables.put("TMP", config.getFolders().getTmp());
+        variables.put("ROOT_PKG", config.getPackages().getRootPkg());
+        variables.put("ENTITY_PKG", config.getPackages().getEntityPkg());
+        return variables;
+    }
+
+    /**
+     * Return the bundle folders : the given bundle, or all the folders of the templates root
+     * (the root included) holding a templates.cfg file.
+     */
+    private List<Folder> getBundleFolders(Workspace workspace, String bundle, String projectId) throws FolderNotFoundException, FileNotFoundException {
+        final Folder templates = workspace.getTemplates();
+        if (bundle != null) {
+            final Folder bundleFolder = templates.getFolders().get(bundle);
+            if (bundleFolder == null) throw new FolderNotFoundException(Path.join(Workspace.TEMPLATES, bundle), projectId);
+            if (getConfigFile(bundleFolder) == null) throw new FileNotFoundException(Path.join(bundleFolder.getAbsolutePath(), TargetDefinition.TEMPLATES_CFG));
+            return Collections.singletonList(bundleFolder);
+        }
+        final List<Folder> bundleFolders = new ArrayList<>();
+        if (getConfigFile(templates) != null) {
+            bundleFolders.add(templates);
+        }
+        for (Folder folder : templates.getFolders().values()) {
+            if (getConfigFile(folder) != null) {
+                bundleFolders.add(folder);
+            }
+        }
+        return bundleFolders;
+    }
+
+    private File getConfigFile(Folder folder) {
+        return folder.getFiles().get(TargetDefinition.TEMPLATES_CFG.replace('.', Folder.DOT_REPLACEMENT));
+    }
+
+    /**
+     * Add the targets of a bundle, each template being compiled once.
+     */
+    private void addTasks(Folder bundleFolder, Model model, Map<String, String> variables, InputHashes hashes, List<RenderTask> tasks,
+                          String projectId, GenerationReport report) throws FileNotFoundException {
+        final List<TargetDefinition> definitions = TargetDefinition.parse(readContent(getConfigFile(bundleFolder), projectId));
+        report.setTargets(report.getTargets() + definitions.size());
+        for (TargetDefinition definition : definitions) {
+            final File templateFile = findFile(bundleFolder, definition.getTemplate());
+            if (templateFile == null) {
+                report.addError("The template " + definition.getTemplate() + " of " + bundleFolder.getAbsolutePath() + " does not exist");
+                continue;
+            }
+            final CompiledTemplate template;
+            try {
+                template = getTemplate(templateFile, projectId);
+            } catch (GenerationException e) {
+                report.addError(e.getMessage());
+                continue;
+            }
+            final String templateHash = template.getHash();
+            if (definition.isOnce()) {
+                final Target target = new Target(definition, null, variables);
+                tasks.add(new RenderTask(target, null, templateFile.getAbsolutePath(), template,
+                        hashes.inputs(target, templateFile.getAbsolutePath(), templateHash)));
+            } else {
+                for (Entity entity : model.getEntities()) {
+                    final Target target = new Target(definition, entity, variables);
+                    tasks.add(new RenderTask(target, entity, templateFile.getAbsolutePath(), template,
+                            hashes.inputs(target, templateFile.getAbsolutePath(), templateHash)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Return a compiled template, from the cache if its content has already been compiled.
+     *
+     * @param templateFile template file
+     * @param projectId    Project id
+     * @return the compiled template
+     * @throws GenerationException if the template is invalid
+     */
+    private CompiledTemplate getTemplate(File templateFile, String projectId) throws FileNotFoundException, GenerationException {
+        final String gridFSId = templateFile.getGridFSId();
+        CompiledTemplate template = gridFSId == null ? null : templateCache.get(gridFSId);
+        if (template == null) {
+            template = templateRenderer.compile(templateFile.getAbsolutePath(), readContent(templateFile, projectId));
+            if (gridFSId != null) {
+                templateCache.put(gridFSId, template);
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Return a file below a folder.
+     *
+     * @param folder       the folder
+     * @param relativePath path relative to the folder
+     * @return the file, null if it does not exist
+     */
+    private File findFile(Folder folder, String relativePath) {
+        final String[] names = relativePath.split(Path.SEPARATOR);
+        for (int i = 0; i < names.length - 1 && folder != null; i++) {
+            folder = folder.getFolders().get(names[i]);
+        }
+        return folder == null ? null : folder.getFiles().get(names[names.length - 1].replace('.', Folder.DOT_REPLACEMENT));
+    }
+
+    /**
+     * Render the targets in parallel on the generation pool.
+     *
+     * @return contents by path relative to the generated root, by path order
+     */
+    private Map<String, byte[]> renderAll(List<RenderTask> tasks, Model model, Map<String, String> variables, GenerationReport report,
+                                          GenerationListener listener) {
+        final AtomicInteger rendered = new AtomicInteger();
+        listener.onProgress(0, tasks.size());
+        try {
+            return generationPool.submit(() -> tasks.parallelStream()
+                    .map(task -> {
+                        if (listener.isCancelled()) return null;
+                        final Map.Entry<String, byte[]> output = render(task, model, variables, report);
+                        listener.onProgress(rendered.incrementAndGet(), tasks.size());
+                        return output;
+                    })
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (first, second) -> second, TreeMap::new)))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rendering the templates", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Template rendering failed", e.getCause());
+        }
+    }
+
+    /**
+     * Render a target.
+     *
+     * @return path and content of the generated file, null if the target is invalid
+     */
+    private Map.Entry<String, byte[]> render(RenderTask task, Model model, Map<String, String> variables, GenerationReport report) {
+        final String path = task.target.getPath();
+        if (!isValidPath(path)) {
+            report.addError("The generated file " + path + " of the template " + task.templatePath + " has an invalid path");
+            return null;
+        }
+        try {
+            final String content = templateRenderer.render(task.template, getContext(task.entity, model, task.target, variables), task.target.getEntityName());
+            return new AbstractMap.SimpleImmutableEntry<>(path, content.getBytes(UTF_8));
+        } catch (GenerationException e) {
+            report.addError(e.getMessage());
+            return null;
+        }
+    }
+
+    private Map<String, Object> getContext(Entity entity, Model model, Target target, Map<String, String> variables) {
+        final Map<String, Object> context = new HashMap<>(variables);
+        context.put("entity", entity);
+        context.put("model", model);
+        context.put("target", target);
+        return context;
+    }
+
+    /**
+     * Record the inputs of the rendered files, with the content written for the changed ones.
+     */
+    private void saveInputs(Set<String> rendered, Set<String> changed, Map<String, GeneratedFile> inputsByPath, String projectId) throws ProjectNotFoundException {
+        if (rendered.isEmpty()) return;
+        final Folder generated = workspaceService.getWorkspace(projectId).getGenerated();
+        final Date now = new Date();
+        final List<GeneratedFile> generatedFiles = new ArrayList<>();
+        for (String path : rendered) {
+            final GeneratedFile inputs = inputsByPath.get(path);
+            if (changed.contains(path)) {
+                final File file = findFile(generated, path);
+                if (file == null) continue;
+                inputs.setGridFSId(file.getGridFSId());
+                inputs.setGeneratedDate(now);
+            }
+            generatedFiles.add(inputs);
+        }
+        generatedFileDao.save(generatedFiles, projectId);
+    }
+
+    /**
+     * Indicates if a generated file is still in the workspace, with the content written by its last generation.
+     * A content is never updated in place : a file modified since has another GridFS id.
+     */
+    private boolean isUnmodified(GeneratedFile last, Folder generated) {
+        final File file = findFile(generated, last.getPath());
+        return file != null && last.getGridFSId() != null && last.getGridFSId().equals(file.getGridFSId());
+    }
+
+    private boolean isValidPath(String path) {
+        final String[] names = path.split(Path.SEPARATOR);
+        for (int i = 0; i < names.length - 1; i++) {
+            if (!names[i].matches(WorkspaceServiceImpl.REGEX_FOLDER_NAME)) return false;
+        }
+        return names[names.length - 1].matches(WorkspaceServiceImpl.REGEX_FILENAME);
+    }
+
+    private static String md5(String content) {
+        return DigestUtils.md5DigestAsHex(content.getBytes(UTF_8));
+    }
+
+    private String readContent(File file, String projectId) throws FileNotFoundException {
+        try (InputStream in = fileDao.loadContent(file, projectId)) {
+            return in == null ? "" : IOUtils.toString(in, UTF_8);
+        } catch (IOException e) {
+            log.error("Failed to read the content of {} for project {}", file.getAbsolutePath(), projectId);
+            return "";
+        }
+    }
+}
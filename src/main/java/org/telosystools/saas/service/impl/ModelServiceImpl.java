@@ -0,0 +1,171 @@
+package org.telosystools.saas.service.impl;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.telosystools.saas.dao.FileDao;
+import org.telosystools.saas.dao.WorkspaceDao;
+import org.telosystools.saas.domain.filesystem.File;
+import org.telosystools.saas.domain.filesystem.Workspace;
+import org.telosystools.saas.exception.EntityParsingException;
+import org.telosystools.saas.exception.FileNotFoundException;
+import org.telosystools.saas.exception.ProjectNotFoundException;
+import org.telosystools.saas.generator.model.Entity;
+import org.telosystools.saas.generator.model.EntityParser;
+import org.telosystools.saas.generator.model.Model;
+import org.telosystools.saas.generator.model.ParsedModel;
+import org.telosystools.saas.service.ModelService;
+import org.telosystools.saas.service.event.WorkspaceChangeEvent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Model service.
+ *
+ * The parsed entity files of each project are cached with the hash of their content :
+ * only the files whose GridFS content changed are read again, and only those whose
+ * hash changed are parsed again. The entries of the changed model files are dropped
+ * from the workspace change events.
+ */
+@Component
+public class ModelServiceImpl implements ModelService, ApplicationListener<WorkspaceChangeEvent> {
+
+    private final Logger log = LoggerFactory.getLogger(ModelServiceImpl.class);
+
+    @Autowired
+    private WorkspaceDao workspaceDao;
+    @Autowired
+    private FileDao fileDao;
+
+    /**
+     * Maximum number of project models kept in memory
+     */
+    @Value("${model.maxProjects:200}")
+    private int maxProjects;
+
+    /**
+     * An entity file, parsed
+     */
+    private static class ParsedFile {
+        private final String gridFSId;
+        private final String hash;
+        private final Entity entity;
+        private final String error;
+
+        ParsedFile(String gridFSId, String hash, Entity entity, String error) {
+            this.gridFSId = gridFSId;
+            this.hash = hash;
+            this.entity = entity;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Parsed entity files by path, by project
+     */
+    private final Map<String, Map<String, ParsedFile>> models = new ConcurrentHashMap<>();
+
+    @Override
+    public ParsedModel getModel(String projectId) throws ProjectNotFoundException, FileNotFoundException {
+        final Workspace workspace = workspaceDao.load(projectId);
+        if (workspace == null) throw new ProjectNotFoundException(projectId);
+        return getModel(projectId, workspace);
+    }
+
+    @Override
+    public ParsedModel getModel(String projectId, Workspace workspace) throws FileNotFoundException {
+        Map<String, ParsedFile> files = models.get(projectId);
+        if (files == null) {
+            if (models.size() >= maxProjects) {
+                // Les modèles évincés seront relus depuis GridFS
+                models.keySet().stream().findAny().ifPresent(models::remove);
+            }
+            files = models.computeIfAbsent(projectId, id -> new ConcurrentHashMap<>());
+        }
+
+        final List<Entity> entities = new ArrayList<>();
+        final Map<String, String> entityHashes = new HashMap<>();
+        final List<String> errors = new ArrayList<>();
+        final Set<String> paths = new HashSet<>();
+        int parsed = 0;
+        for (File file : workspace.getModel().listFiles()) {
+            if (!EntityParser.isEntityFile(file.getName())) continue;
+            paths.add(file.getAbsolutePath());
+            ParsedFile parsedFile = files.get(file.getAbsolutePath());
+            if (parsedFile == null || !Objects.equals(parsedFile.gridFSId, file.getGridFSId())) {
+                final String content = readContent(file, projectId);
+                final String hash = DigestUtils.md5DigestAsHex(content.getBytes(UTF_8));
+                if (parsedFile != null && parsedFile.hash.equals(hash)) {
+                    // Contenu réécrit à l'identique : l'analyse précédente reste valable
+                    parsedFile = new ParsedFile(file.getGridFSId(), hash, parsedFile.entity, parsedFile.error);
+                } else {
+                    parsedFile = parse(file, content, hash);
+                    parsed++;
+                }
+                files.put(file.getAbsolutePath(), parsedFile);
+            }
+            if (parsedFile.entity != null) {
+                entities.add(parsedFile.entity);
+                entityHashes.put(parsedFile.entity.getName(), parsedFile.hash);
+            } else {
+                errors.add(parsedFile.error);
+            }
+        }
+        files.keySet().retainAll(paths);
+        if (parsed > 0) {
+            log.debug("{} entity files parsed for project {}", parsed, projectId);
+        }
+        return new ParsedModel(new Model(entities), entityHashes, errors);
+    }
+
+    private ParsedFile parse(File file, String content, String hash) {
+        try {
+            return new ParsedFile(file.getGridFSId(), hash, EntityParser.parse(file.getAbsolutePath(), content), null);
+        } catch (EntityParsingException e) {
+            return new ParsedFile(file.getGridFSId(), hash, null, e.getMessage());
+        }
+    }
+
+    private String readContent(File file, String projectId) throws FileNotFoundException {
+        try (InputStream in = fileDao.loadContent(file, projectId)) {
+            return in == null ? "" : IOUtils.toString(in, UTF_8);
+        } catch (IOException e) {
+            log.error("Failed to read the content of {} for project {}", file.getAbsolutePath(), projectId);
+            return "";
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(WorkspaceChangeEvent event) {
+        final Map<String, ParsedFile> files = models.get(event.getProjectId());
+        if (files == null) {
+            return;
+        }
+        switch (event.getOperation()) {
+            case FILE_UPDATED:
+            case FILE_RENAMED:
+            case FILE_REMOVED:
+                files.remove(event.getPath());
+                break;
+            case FOLDER_RENAMED:
+            case FOLDER_REMOVED:
+                files.keySet().removeIf(path -> WorkspaceChangeEvent.isSameOrDescendant(event.getPath(), path));
+                break;
+            case WORKSPACE_DELETED:
+                models.remove(event.getProjectId());
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.telosystools.saas.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.bean.PathMatch;
+import org.telosystools.saas.dao.WorkspaceDao;
+import org.telosystools.saas.domain.filesystem.File;
+import org.telosystools.saas.domain.filesystem.Folder;
+import org.telosystools.saas.domain.filesystem.Workspace;
+import org.telosystools.saas.exception.ProjectNotFoundException;
+import org.telosystools.saas.service.PathIndexService;
+import org.telosystools.saas.service.event.WorkspaceChangeEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Quick-open service.
+ *
+ * The path index of a project is built from the workspace tree on the first query,
+ * then maintained from the workspace change events.
+ *
+ * An index is built once at a time per project : the changes received while it is built are recorded,
+ * then replayed on the new index. The least recently used indexes are evicted when more than pathIndex.maxProjects are built.
+ */
+@Component
+public class PathIndexServiceImpl implements PathIndexService, ApplicationListener<WorkspaceChangeEvent> {
+
+    private final Logger log = LoggerFactory.getLogger(PathIndexServiceImpl.class);
+
+    @Autowired
+    private WorkspaceDao workspaceDao;
+
+    /**
+     * Maximum number of project indexes kept in memory
+     */
+    @Value("${pathIndex.maxProjects:500}")
+    private int maxProjects;
+
+    /**
+     * Built indexes, in access order
+     */
+    private final Map<String, ProjectPathIndex> indexes = new LinkedHashMap<String, ProjectPathIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ProjectPathIndex> eldest) {
+            // Les index évincés seront reconstruits depuis l'arborescence
+            return size() > maxProjects;
+        }
+    };
+
+    /**
+     * Changes received during the build of an index, by project
+     */
+    private final ConcurrentMap<String, List<WorkspaceChangeEvent>> builds = new ConcurrentHashMap<>();
+
+    /**
+     * Lock of each project, held while its index is built
+     */
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+    @Override
+    public List<PathMatch> find(String query, int limit, String projectId) throws ProjectNotFoundException {
+        ProjectPathIndex index = getBuilt(projectId);
+        if (index == null) {
+            synchronized (locks.computeIfAbsent(projectId, id -> new Object())) {
+                index = getBuilt(projectId);
+                if (index == null) {
+                    index = buildIndex(projectId);
+                }
+            }
+        }
+        return index.find(query, limit);
+    }
+
+    @Override
+    public void onApplicationEvent(WorkspaceChangeEvent event) {
+        final String projectId = event.getProjectId();
+        final List<WorkspaceChangeEvent> received = builds.get(projectId);
+        if (received != null) {
+            synchronized (received) {
+                if (builds.get(projectId) == received) {
+                    // Rejoué une fois l'index construit
+                    received.add(event);
+                    return;
+                }
+            }
+        }
+        final ProjectPathIndex index = getBuilt(projectId);
+        if (index != null && !apply(index, event)) {
+            synchronized (indexes) {
+                indexes.remove(projectId, index);
+            }
+        }
+    }
+
+    /**
+     * Update an index with a change.
+     *
+     * @return false if the index must be dropped
+     */
+    private boolean apply(ProjectPathIndex index, WorkspaceChangeEvent event) {
+        switch (event.getOperation()) {
+            case FILE_CREATED:
+                index.add(event.getPath(), false);
+                break;
+            case FOLDER_CREATED:
+                index.add(event.getPath(), true);
+                break;
+            case FILE_RENAMED:
+            case FOLDER_RENAMED:
+                index.move(event.getPath(), event.getNewPath());
+                break;
+            case FILE_REMOVED:
+                index.remove(event.getPath());
+                break;
+            case FOLDER_REMOVED:
+                index.removeFolder(event.getPath());
+                break;
+            case WORKSPACE_DELETED:
+                return false;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    private ProjectPathIndex getBuilt(String projectId) {
+        synchronized (indexes) {
+            return indexes.get(projectId);
+        }
+    }
+
+    /**
+     * Build the index from the workspace tree, then replay the changes received meanwhile.
+     */
+    private ProjectPathIndex buildIndex(String projectId) throws ProjectNotFoundException {
+        final long start = System.currentTimeMillis();
+        final List<WorkspaceChangeEvent> received = new ArrayList<>();
+        builds.put(projectId, received);
+        try {
+            // Arbre chargé après l'enregistrement : les modifications suivantes sont rejouées
+            final Workspace workspace = workspaceDao.load(projectId);
+            if (workspace == null) throw new ProjectNotFoundException(projectId);
+            final ProjectPathIndex index = new ProjectPathIndex();
+            for (String rootName : new String[]{Workspace.MODEL, Workspace.TEMPLATES, Workspace.GENERATED}) {
+                final Folder rootFolder = workspace.getRootFolderByName(rootName);
+                if (rootFolder != null) {
+                    addFolderContent(index, rootFolder);
+                }
+            }
+            synchronized (received) {
+                boolean dropped = false;
+                for (WorkspaceChangeEvent event : received) {
+                    dropped |= !apply(index, event);
+                }
+                if (!dropped) {
+                    synchronized (indexes) {
+                        indexes.put(projectId, index);
+                    }
+                }
+                builds.remove(projectId, received);
+            }
+            log.debug("Path index of project {} built in {} ms, {} changes replayed", projectId,
+                    System.currentTimeMillis() - start, received.size());
+            return index;
+        } finally {
+            builds.remove(projectId, received);
+        }
+    }
+
+    private void addFolderContent(ProjectPathIndex index, Folder folder) {
+        for (File file : folder.getFiles().values()) {
+            index.add(file.getAbsolutePath(), false);
+        }
+        for (Folder subFolder : folder.getFolders().values()) {
+            index.add(subFolder.getAbsolutePath(), true);
+            addFolderContent(index, subFolder);
+        }
+    }
+}
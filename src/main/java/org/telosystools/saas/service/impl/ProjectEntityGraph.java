@@ -0,0 +1,164 @@
+package org.telosystools.saas.service.impl;
+
+import org.telosystools.saas.bean.AttributeRef;
+import org.telosystools.saas.generator.model.Attribute;
+import org.telosystools.saas.generator.model.Entity;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory graph of the entities of one project : the attributes by type,
+ * and the links between the entities in both directions.
+ */
+class ProjectEntityGraph {
+
+    private static final Comparator<AttributeRef> ORDER = Comparator.comparing(AttributeRef::getEntity)
+            .thenComparing(AttributeRef::getAttribute);
+
+    /**
+     * Entities by file path
+     */
+    private final Map<String, Entity> entitiesByPath = new HashMap<>();
+    /**
+     * Attributes by lower case type
+     */
+    private final Map<String, List<AttributeRef>> attributesByType = new HashMap<>();
+    /**
+     * Link attributes by name of the linked entity
+     */
+    private final Map<String, List<AttributeRef>> linksByTarget = new HashMap<>();
+    /**
+     * Attributes by entity name
+     */
+    private final SortedMap<String, List<AttributeRef>> attributesByEntity = new TreeMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Add or replace the entity of a file.
+     *
+     * @param entity the parsed entity
+     */
+    void put(Entity entity) {
+        lock.writeLock().lock();
+        try {
+            doRemove(entity.getPath());
+            entitiesByPath.put(entity.getPath(), entity);
+            final List<AttributeRef> attributes = new ArrayList<>();
+            for (Attribute attribute : entity.getAttributes()) {
+                final AttributeRef ref = new AttributeRef(entity.getName(), entity.getPath(), attribute.getName(),
+                        attribute.getType(), attribute.isCollection());
+                attributes.add(ref);
+                attributesByType.computeIfAbsent(normalize(attribute.getType()), type -> new ArrayList<>()).add(ref);
+                if (attribute.isLink()) {
+                    linksByTarget.computeIfAbsent(attribute.getType(), type -> new ArrayList<>()).add(ref);
+                }
+            }
+            attributesByEntity.put(entity.getName(), attributes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the entity of a file.
+     *
+     * @param path absolute path of the entity file
+     */
+    void remove(String path) {
+        lock.writeLock().lock();
+        try {
+            doRemove(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void doRemove(String path) {
+        final Entity entity = entitiesByPath.remove(path);
+        if (entity == null) {
+            return;
+        }
+        final List<AttributeRef> attributes = attributesByEntity.remove(entity.getName());
+        if (attributes == null) {
+            return;
+        }
+        for (AttributeRef ref : attributes) {
+            removeRef(attributesByType, normalize(ref.getType()), ref);
+            removeRef(linksByTarget, ref.getType(), ref);
+        }
+    }
+
+    private static void removeRef(Map<String, List<AttributeRef>> refs, String key, AttributeRef ref) {
+        final List<AttributeRef> list = refs.get(key);
+        if (list != null) {
+            list.remove(ref);
+            if (list.isEmpty()) {
+                refs.remove(key);
+            }
+        }
+    }
+
+    private static String normalize(String type) {
+        return type.toLowerCase(Locale.ROOT);
+    }
+
+    List<String> getEntityNames() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(attributesByEntity.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the attributes of an entity.
+     *
+     * @param entityName entity name
+     * @return attributes, null if the entity does not exist
+     */
+    List<AttributeRef> getAttributes(String entityName) {
+        lock.readLock().lock();
+        try {
+            final List<AttributeRef> attributes = attributesByEntity.get(entityName);
+            return attributes == null ? null : new ArrayList<>(attributes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the link attributes of the other entities referencing an entity.
+     *
+     * @param entityName entity name
+     * @return links, by entity and attribute name
+     */
+    List<AttributeRef> getReferencing(String entityName) {
+        return sorted(linksByTarget, entityName);
+    }
+
+    /**
+     * Return the attributes of a type, in all the entities.
+     *
+     * @param type neutral type or entity name, case insensitive
+     * @return attributes, by entity and attribute name
+     */
+    List<AttributeRef> findByType(String type) {
+        return sorted(attributesByType, normalize(type));
+    }
+
+    private List<AttributeRef> sorted(Map<String, List<AttributeRef>> refs, String key) {
+        final List<AttributeRef> result;
+        lock.readLock().lock();
+        try {
+            result = new ArrayList<>(refs.getOrDefault(key, Collections.emptyList()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(ORDER);
+        return result;
+    }
+}
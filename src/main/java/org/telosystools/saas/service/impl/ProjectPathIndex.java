@@ -0,0 +1,230 @@
+package org.telosystools.saas.service.impl;
+
+import org.telosystools.saas.bean.Path;
+import org.telosystools.saas.bean.PathMatch;
+import org.telosystools.saas.service.event.WorkspaceChangeEvent;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of the file and folder paths of one project.
+ *
+ * Names are stored in a trie for prefix lookups ; the fuzzy matching scans the entries.
+ * The write lock is reentrant : move() adds the moved entries while holding it.
+ */
+class ProjectPathIndex {
+
+    private static final int TIER_EXACT = 3;
+    private static final int TIER_PREFIX = 2;
+    private static final int TIER_FUZZY = 1;
+    private static final int TIER_SIZE = 1000;
+
+    /**
+     * Maximum number of prefix matches ranked for one query
+     */
+    private static final int MAX_PREFIX_CANDIDATES = 1000;
+
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private final Set<String> paths = new HashSet<>();
+    }
+
+    private static class Entry {
+        private final String path;
+        private final String name;
+        private final String lowerPath;
+        private final String lowerName;
+        private final boolean folder;
+
+        Entry(String path, boolean folder) {
+            this.path = path;
+            this.name = Path.valueOf(path).getFilename();
+            this.lowerPath = path.toLowerCase(Locale.ROOT);
+            this.lowerName = name.toLowerCase(Locale.ROOT);
+            this.folder = folder;
+        }
+    }
+
+    private final Node root = new Node();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    void add(String path, boolean folder) {
+        lock.writeLock().lock();
+        try {
+            doRemove(path);
+            Entry entry = new Entry(path, folder);
+            entries.put(path, entry);
+            Node node = root;
+            for (char c : entry.lowerName.toCharArray()) {
+                node = node.children.computeIfAbsent(c, key -> new Node());
+            }
+            node.paths.add(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String path) {
+        lock.writeLock().lock();
+        try {
+            doRemove(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a folder and all its descendants.
+     *
+     * @param folderPath absolute path of the folder
+     */
+    void removeFolder(String folderPath) {
+        lock.writeLock().lock();
+        try {
+            for (String path : new ArrayList<>(entries.keySet())) {
+                if (WorkspaceChangeEvent.isSameOrDescendant(folderPath, path)) {
+                    doRemove(path);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Move a file or a folder and all its descendants.
+     *
+     * @param oldPath old absolute path
+     * @param newPath new absolute path
+     */
+    void move(String oldPath, String newPath) {
+        lock.writeLock().lock();
+        try {
+            List<Entry> moved = new ArrayList<>();
+            for (String path : new ArrayList<>(entries.keySet())) {
+                if (WorkspaceChangeEvent.isSameOrDescendant(oldPath, path)) {
+                    moved.add(doRemove(path));
+                }
+            }
+            for (Entry entry : moved) {
+                add(newPath + entry.path.substring(oldPath.length()), entry.folder);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Entry doRemove(String path) {
+        Entry entry = entries.remove(path);
+        if (entry != null) {
+            Node node = root;
+            for (char c : entry.lowerName.toCharArray()) {
+                node = node.children.get(c);
+                if (node == null) {
+                    return entry;
+                }
+            }
+            node.paths.remove(path);
+        }
+        return entry;
+    }
+
+    /**
+     * Find the best matches for a query.
+     *
+     * @param query the searched name, or a part of the path if it contains a '/'
+     * @param limit maximum number of matches
+     * @return matches, best first
+     */
+    List<PathMatch> find(String query, int limit) {
+        final String lowerQuery = query.toLowerCase(Locale.ROOT);
+        final boolean matchPath = lowerQuery.contains(Path.SEPARATOR);
+        final Map<String, PathMatch> matches = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            if (!matchPath) {
+                Node node = root;
+                for (int i = 0; i < lowerQuery.length() && node != null; i++) {
+                    node = node.children.get(lowerQuery.charAt(i));
+                }
+                if (node != null) {
+                    List<String> paths = new ArrayList<>();
+                    collect(node, paths);
+                    for (String path : paths) {
+                        Entry entry = entries.get(path);
+                        int tier = entry.lowerName.equals(lowerQuery) ? TIER_EXACT : TIER_PREFIX;
+                        matches.put(path, toMatch(entry, tier, TIER_SIZE - 1));
+                    }
+                }
+            }
+            if (matches.size() < limit) {
+                for (Entry entry : entries.values()) {
+                    if (matches.containsKey(entry.path)) continue;
+                    int score = fuzzyScore(lowerQuery, matchPath ? entry.lowerPath : entry.lowerName);
+                    if (score > 0) {
+                        matches.put(entry.path, toMatch(entry, TIER_FUZZY, score));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<PathMatch> result = new ArrayList<>(matches.values());
+        result.sort(Comparator.comparing(PathMatch::getScore).reversed()
+                .thenComparing(match -> match.getPath().length())
+                .thenComparing(PathMatch::getPath));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    private void collect(Node node, List<String> paths) {
+        paths.addAll(node.paths);
+        for (Node child : node.children.values()) {
+            if (paths.size() >= MAX_PREFIX_CANDIDATES) {
+                return;
+            }
+            collect(child, paths);
+        }
+    }
+
+    private PathMatch toMatch(Entry entry, int tier, int score) {
+        return new PathMatch(entry.path, entry.name, entry.folder, tier * TIER_SIZE + Math.min(score, TIER_SIZE - 1));
+    }
+
+    /**
+     * Score the characters of the query appearing in order in the target.
+     * Consecutive characters and characters starting a word score more.
+     *
+     * @param query  lower case query
+     * @param target lower case name or path
+     * @return the score, 0 if the target does not contain the query characters in order
+     */
+    static int fuzzyScore(String query, String target) {
+        if (query.isEmpty()) {
+            return 0;
+        }
+        int score = 0;
+        int previous = -2;
+        int from = 0;
+        for (char c : query.toCharArray()) {
+            int index = target.indexOf(c, from);
+            if (index < 0) {
+                return 0;
+            }
+            score += 1;
+            if (index == previous + 1) {
+                score += 5;
+            }
+            if (index == 0 || "/._-".indexOf(target.charAt(index - 1)) >= 0) {
+                score += 10;
+            }
+            previous = index;
+            from = index + 1;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,200 @@
+package org.telosystools.saas.service.impl;
+
+import org.telosystools.saas.domain.search.IndexedFile;
+import org.telosystools.saas.service.event.WorkspaceChangeEvent;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index of the files of one project : for each term,
+ * the files and the lines where it appears.
+ */
+class ProjectSearchIndex {
+
+    private static final Pattern TERM = Pattern.compile("[\\p{L}\\p{N}_]+");
+
+    /**
+     * Line numbers by file path, by term
+     */
+    private final NavigableMap<String, Map<String, List<Integer>>> postings = new TreeMap<>();
+
+    /**
+     * Index entries by file path
+     */
+    private final Map<String, IndexedFile> files = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Return the terms of a content, with the lines where they appear.
+     *
+     * @param content file content
+     * @return line numbers (starting at 1) by term
+     */
+    static Map<String, List<Integer>> tokenize(String content) {
+        Map<String, List<Integer>> terms = new TreeMap<>();
+        if (content == null) {
+            return terms;
+        }
+        int lineNumber = 0;
+        for (String line : content.split("\r?\n", -1)) {
+            lineNumber++;
+            Matcher matcher = TERM.matcher(line);
+            while (matcher.find()) {
+                List<Integer> lines = terms.computeIfAbsent(normalize(matcher.group()), term -> new ArrayList<>());
+                if (lines.isEmpty() || lines.get(lines.size() - 1) != lineNumber) {
+                    lines.add(lineNumber);
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Return the terms of a search query.
+     *
+     * @param query the query
+     * @return terms, in query order
+     */
+    static List<String> queryTerms(String query) {
+        List<String> terms = new ArrayList<>();
+        Matcher matcher = TERM.matcher(query);
+        while (matcher.find()) {
+            terms.add(normalize(matcher.group()));
+        }
+        return terms;
+    }
+
+    private static String normalize(String term) {
+        return term.toLowerCase(Locale.ROOT);
+    }
+
+    Set<String> getPaths() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(files.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    IndexedFile get(String path) {
+        lock.readLock().lock();
+        try {
+            return files.get(path);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void put(IndexedFile indexedFile) {
+        lock.writeLock().lock();
+        try {
+            doRemove(indexedFile.getPath());
+            files.put(indexedFile.getPath(), indexedFile);
+            for (Map.Entry<String, List<Integer>> entry : indexedFile.getTerms().entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>())
+                        .put(indexedFile.getPath(), entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String path) {
+        lock.writeLock().lock();
+        try {
+            doRemove(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all the files below a folder.
+     *
+     * @param folderPath absolute path of the folder
+     * @return removed entries
+     */
+    List<IndexedFile> removeFolder(String folderPath) {
+        lock.writeLock().lock();
+        try {
+            List<IndexedFile> removed = new ArrayList<>();
+            for (String path : new ArrayList<>(files.keySet())) {
+                if (WorkspaceChangeEvent.isSameOrDescendant(folderPath, path)) {
+                    removed.add(doRemove(path));
+                }
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private IndexedFile doRemove(String path) {
+        IndexedFile indexedFile = files.remove(path);
+        if (indexedFile != null) {
+            for (String term : indexedFile.getTerms().keySet()) {
+                Map<String, List<Integer>> termFiles = postings.get(term);
+                if (termFiles != null) {
+                    termFiles.remove(path);
+                    if (termFiles.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        }
+        return indexedFile;
+    }
+
+    /**
+     * Find the lines containing all the terms.
+     * The last term also matches the terms it is a prefix of.
+     *
+     * @param terms query terms
+     * @return matching line numbers by file path, sorted by path
+     */
+    SortedMap<String, SortedSet<Integer>> search(List<String> terms) {
+        SortedMap<String, SortedSet<Integer>> result = null;
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                Map<String, SortedSet<Integer>> termLines = new HashMap<>();
+                Collection<Map<String, List<Integer>>> matchingPostings = i == terms.size() - 1
+                        ? postings.subMap(term, true, term + Character.MAX_VALUE, false).values()
+                        : Collections.singleton(postings.getOrDefault(term, Collections.emptyMap()));
+                for (Map<String, List<Integer>> termFiles : matchingPostings) {
+                    for (Map.Entry<String, List<Integer>> entry : termFiles.entrySet()) {
+                        termLines.computeIfAbsent(entry.getKey(), path -> new TreeSet<>()).addAll(entry.getValue());
+                    }
+                }
+                if (result == null) {
+                    result = new TreeMap<>(termLines);
+                } else {
+                    Iterator<Map.Entry<String, SortedSet<Integer>>> iterator = result.entrySet().iterator();
+                    while (iterator.hasNext()) {
+                        Map.Entry<String, SortedSet<Integer>> entry = iterator.next();
+                        SortedSet<Integer> lines = termLines.get(entry.getKey());
+                        if (lines != null) {
+                            entry.getValue().retainAll(lines);
+                        }
+                        if (lines == null || entry.getValue().isEmpty()) {
+                            iterator.remove();
+                        }
+                    }
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result == null ? new TreeMap<>() : result;
+    }
+}
@@ -11,6 +11,7 @@ import org.telosystools.saas.domain.project.Project;
 import org.telosystools.saas.domain.project.ProjectConfiguration;
 import org.telosystools.saas.exception.DuplicateProjectNameException;
 import org.telosystools.saas.exception.ProjectNotFoundException;
+import org.telosystools.saas.exception.QuotaExceededException;
 import org.telosystools.saas.exception.UserNotFoundException;
 import org.telosystools.saas.service.ProjectService;
 import org.telosystools.saas.service.WorkspaceService;
@@ -93,6 +94,31 @@ public class ProjectServiceImpl implements ProjectService {
         return project;
     }
 
+    @Override
+    public Project cloneProject(String projectId, String name) throws ProjectNotFoundException, DuplicateProjectNameException, QuotaExceededException {
+        final Project source = loadProject(projectId);
+        final Project project = new Project();
+        project.setName(name != null ? name : source.getName() + "-copy");
+        project.setDescription(source.getDescription());
+        if (!projectRepository.findByOwnerAndName(getCurrentLogin(), project.getName()).isEmpty()) {
+            logger.warn("Duplicate project name");
+            throw new DuplicateProjectNameException(project.getName());
+        }
+        project.setOwner(getCurrentLogin());
+        project.setProjectConfiguration(source.getProjectConfiguration());
+        // Création du projet puis copie du workspace, les contenus sont partagés
+        projectRepository.save(project);
+        try {
+            workspaceService.cloneWorkspace(projectId, project.getId());
+        } catch (ProjectNotFoundException | QuotaExceededException | RuntimeException e) {
+            // Les partages déjà pris sont rendus par cloneWorkspace
+            projectRepository.delete(project.getId());
+            throw e;
+        }
+
+        return project;
+    }
+
     @Override
     public void updateProjectConfig(String projectId, ProjectConfiguration projectConfig) throws ProjectNotFoundException {
         Project project = projectRepository.findOne(projectId);
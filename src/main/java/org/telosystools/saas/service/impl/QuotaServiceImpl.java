@@ -0,0 +1,143 @@
+package org.telosystools.saas.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.bean.Path;
+import org.telosystools.saas.dao.ProjectRepository;
+import org.telosystools.saas.dao.UsageDao;
+import org.telosystools.saas.dao.WorkspaceDao;
+import org.telosystools.saas.domain.filesystem.FolderStats;
+import org.telosystools.saas.domain.filesystem.RootFolder;
+import org.telosystools.saas.domain.filesystem.Workspace;
+import org.telosystools.saas.domain.project.Project;
+import org.telosystools.saas.domain.usage.UserUsage;
+import org.telosystools.saas.exception.QuotaExceededException;
+import org.telosystools.saas.service.QuotaService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Quotas service : the limits are checked only if quota.enabled is true, a limit lower than or equal to 0 is not checked.
+ * The usage of the owners is recorded in any case.
+ */
+@Component
+public class QuotaServiceImpl implements QuotaService {
+
+    private final Logger log = LoggerFactory.getLogger(QuotaServiceImpl.class);
+
+    @Autowired
+    private ProjectRepository projectRepository;
+    @Autowired
+    private UsageDao usageDao;
+    @Autowired
+    private WorkspaceDao workspaceDao;
+
+    @Value("${quota.enabled:false}")
+    private boolean enabled;
+
+    @Value("${quota.maxBytesPerProject:0}")
+    private long maxBytesPerProject;
+
+    @Value("${quota.maxFilesPerProject:0}")
+    private long maxFilesPerProject;
+
+    @Value("${quota.maxDepth:0}")
+    private int maxDepth;
+
+    @Value("${quota.maxBytesPerUser:0}")
+    private long maxBytesPerUser;
+
+    /**
+     * Owner by project id : the owner of a project never changes
+     */
+    private final Map<String, String> owners = new ConcurrentHashMap<>();
+
+    @Override
+    public void checkDepth(Path path) throws QuotaExceededException {
+        if (enabled && maxDepth > 0 && path.getNameCount() > maxDepth) {
+            throw new QuotaExceededException("maxDepth", maxDepth);
+        }
+    }
+
+    @Override
+    public void checkWrite(String projectId, Workspace workspace, long files, long bytes) throws QuotaExceededException {
+        if (!enabled) return;
+
+        long projectFiles = 0;
+        long projectBytes = 0;
+        for (RootFolder rootFolder : workspace.listRootFolders()) {
+            if (rootFolder.getStats() != null) {
+                projectFiles += rootFolder.getStats().getFiles();
+                projectBytes += rootFolder.getStats().getBytes();
+            }
+        }
+        if (maxFilesPerProject > 0 && files > 0 && projectFiles + files > maxFilesPerProject) {
+            throw new QuotaExceededException("maxFilesPerProject", maxFilesPerProject);
+        }
+        if (maxBytesPerProject > 0 && bytes > 0 && projectBytes + bytes > maxBytesPerProject) {
+            throw new QuotaExceededException("maxBytesPerProject", maxBytesPerProject);
+        }
+        if (maxBytesPerUser > 0 && bytes > 0) {
+            final String owner = getOwner(projectId);
+            if (owner != null) {
+                final UserUsage usage = usageDao.findOne(owner);
+                final long userBytes = usage == null ? 0 : usage.getBytes();
+                if (userBytes + bytes > maxBytesPerUser) {
+                    throw new QuotaExceededException("maxBytesPerUser", maxBytesPerUser);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void recordWrite(String projectId, long files, long bytes) {
+        if (files == 0 && bytes == 0) return;
+
+        final String owner = getOwner(projectId);
+        if (owner != null) {
+            usageDao.inc(owner, files, bytes);
+        }
+    }
+
+    @Override
+    public List<UserUsage> getUsage() {
+        return usageDao.findAll();
+    }
+
+    @Override
+    public List<UserUsage> rebuildUsage() {
+        final Map<String, UserUsage> usages = new HashMap<>();
+        for (Project project : projectRepository.findAll()) {
+            final Workspace workspace = workspaceDao.loadFromDatabase(project.getId());
+            if (workspace == null || project.getOwner() == null) continue;
+
+            final UserUsage usage = usages.computeIfAbsent(project.getOwner(), UserUsage::new);
+            for (RootFolder rootFolder : workspace.listRootFolders()) {
+                // Les arbres jamais chargés depuis l'ajout des compteurs n'ont pas de statistiques
+                final FolderStats stats = rootFolder.getStats() != null ? rootFolder.getStats() : rootFolder.computeStats();
+                usage.add(stats.getFiles(), stats.getBytes());
+            }
+        }
+        usageDao.replaceAll(usages.values());
+        log.info("Storage usage rebuilt for {} users", usages.size());
+        return usageDao.findAll();
+    }
+
+    private String getOwner(String projectId) {
+        String owner = owners.get(projectId);
+        if (owner == null) {
+            final Project project = projectRepository.findOne(projectId);
+            if (project != null && project.getOwner() != null) {
+                owner = project.getOwner();
+                owners.put(projectId, owner);
+            }
+        }
+        return owner;
+    }
+}
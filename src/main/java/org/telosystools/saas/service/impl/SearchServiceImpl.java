@@ -0,0 +1,425 @@
+package org.telosystools.saas.service.impl;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.telosystools.saas.bean.SearchResult;
+import org.telosystools.saas.dao.FileDao;
+import org.telosystools.saas.dao.SearchIndexDao;
+import org.telosystools.saas.dao.SingleFlight;
+import org.telosystools.saas.dao.WorkspaceDao;
+import org.telosystools.saas.domain.filesystem.File;
+import org.telosystools.saas.domain.filesystem.Workspace;
+import org.telosystools.saas.domain.search.IndexedFile;
+import org.telosystools.saas.exception.FileNotFoundException;
+import org.telosystools.saas.exception.ProjectNotFoundException;
+import org.telosystools.saas.service.SearchService;
+import org.telosystools.saas.service.event.WorkspaceChangeEvent;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Full-text search service.
+ *
+ * The index of a project is persisted in its database and kept up to date from the
+ * workspace change events. It is loaded in memory on the first search, and the files
+ * which are missing from the persisted index are indexed at that time.
+ *
+ * The index is loaded outside of the lock of the project : the changes received while it loads
+ * are recorded, then replayed once it is loaded, and the persisted entries they touched are left as they are.
+ * The least recently used indexes are evicted when more than search.maxProjects are loaded.
+ *
+ * The changes are written to the persisted index in background, every search.flushMillis, in the order they were received :
+ * the requests changing the workspace neither wait for the persisted index nor fail with it.
+ */
+@Component
+public class SearchServiceImpl implements SearchService, ApplicationListener<WorkspaceChangeEvent> {
+
+    private final Logger log = LoggerFactory.getLogger(SearchServiceImpl.class);
+
+    @Autowired
+    private SearchIndexDao searchIndexDao;
+    @Autowired
+    private WorkspaceDao workspaceDao;
+    @Autowired
+    private FileDao fileDao;
+
+    /**
+     * Maximum number of project indexes kept in memory
+     */
+    @Value("${search.maxProjects:100}")
+    private int maxProjects;
+
+    /**
+     * Loaded indexes, in access order
+     */
+    private final Map<String, ProjectSearchIndex> indexes = new LinkedHashMap<String, ProjectSearchIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ProjectSearchIndex> eldest) {
+            // Les index évincés seront rechargés depuis la base
+            return size() > maxProjects;
+        }
+    };
+
+    /**
+     * Changes received during the load of an index, by project
+     */
+    private final ConcurrentMap<String, List<Change>> loadings = new ConcurrentHashMap<>();
+
+    /**
+     * Lock of each project : shared by the changes, exclusive to start and end the load of its index.
+     * A lock is dropped once no thread uses it
+     */
+    private final ConcurrentMap<String, ReadWriteLock> locks =
+            new ConcurrentReferenceHashMap<>(16, ConcurrentReferenceHashMap.ReferenceType.WEAK);
+
+    /**
+     * Changes waiting to be written to the persisted index, by project, in the order they were received
+     */
+    private final ConcurrentMap<String, List<Change>> pendingWrites = new ConcurrentHashMap<>();
+
+    /**
+     * Held while pending changes are written : the changes of a project are written by one thread at a time, in order
+     */
+    private final Object flushLock = new Object();
+
+    private final SingleFlight<ProjectSearchIndex> loads = new SingleFlight<>("search indexes");
+
+    @Override
+    public List<SearchResult> search(String query, int limit, String projectId) throws ProjectNotFoundException {
+        final Workspace workspace = workspaceDao.load(projectId);
+        if (workspace == null) throw new ProjectNotFoundException(projectId);
+
+        final List<String> terms = ProjectSearchIndex.queryTerms(query);
+        final List<SearchResult> results = new ArrayList<>();
+        if (terms.isEmpty()) {
+            return results;
+        }
+
+        final SortedMap<String, SortedSet<Integer>> matches = getIndex(projectId).search(terms);
+        final Map<String, File> files = getFilesByPath(workspace);
+        for (Map.Entry<String, SortedSet<Integer>> match : matches.entrySet()) {
+            final String[] lines = readLines(files.get(match.getKey()), projectId);
+            for (Integer line : match.getValue()) {
+                if (results.size() >= limit) {
+                    return results;
+                }
+                final String snippet = line <= lines.length ? lines[line - 1].trim() : "";
+                results.add(new SearchResult(match.getKey(), line, snippet));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void onApplicationEvent(WorkspaceChangeEvent event) {
+        final String projectId = event.getProjectId();
+        final ReadWriteLock lock = getLock(projectId);
+        lock.readLock().lock();
+        try {
+            final Change change = new Change(event, indexedFile(event));
+            if (event.getOperation() == WorkspaceChangeEvent.Operation.WORKSPACE_DELETED) {
+                // La base du projet est supprimée : les écritures en attente la recréeraient
+                synchronized (flushLock) {
+                    pendingWrites.remove(projectId);
+                }
+            } else {
+                pendingWrites.compute(projectId, (id, changes) -> {
+                    final List<Change> pending = changes != null ? changes : new ArrayList<>();
+                    pending.add(change);
+                    return pending;
+                });
+            }
+            final List<Change> received = loadings.get(projectId);
+            if (received != null) {
+                // Rejoué une fois l'index chargé
+                received.add(change);
+            } else {
+                final ProjectSearchIndex index = getLoaded(projectId);
+                if (index != null) apply(index, change);
+                if (event.getOperation() == WorkspaceChangeEvent.Operation.WORKSPACE_DELETED) {
+                    synchronized (indexes) {
+                        indexes.remove(projectId);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the new entry of a created or updated file, null for the other changes.
+     */
+    private static IndexedFile indexedFile(WorkspaceChangeEvent event) {
+        switch (event.getOperation()) {
+            case FILE_CREATED:
+            case FILE_UPDATED:
+                return new IndexedFile(event.getPath(), ProjectSearchIndex.tokenize(event.getContent()));
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Write the pending changes of all the projects to their persisted index.
+     */
+    @Scheduled(fixedDelayString = "${search.flushMillis:500}")
+    @PreDestroy
+    public void flushAll() {
+        for (String projectId : new ArrayList<>(pendingWrites.keySet())) {
+            flush(projectId);
+        }
+    }
+
+    /**
+     * Write the pending changes of a project to its persisted index.
+     */
+    private void flush(String projectId) {
+        synchronized (flushLock) {
+            final List<Change> changes = pendingWrites.remove(projectId);
+            if (changes == null) return;
+            for (Change change : changes) {
+                try {
+                    persist(projectId, change);
+                } catch (RuntimeException e) {
+                    // L'entrée est corrigée au prochain chargement si le fichier y manque
+                    log.warn("Search index of project {} not updated for {} : {}", projectId, change.event, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Update the persisted index with a change.
+     */
+    private void persist(String projectId, Change change) {
+        final WorkspaceChangeEvent event = change.event;
+        switch (event.getOperation()) {
+            case FILE_CREATED:
+            case FILE_UPDATED:
+                searchIndexDao.save(change.indexedFile, projectId);
+                break;
+            case FILE_RENAMED:
+                final IndexedFile renamed = searchIndexDao.findOne(event.getPath(), projectId);
+                moveEntries(projectId, renamed == null ? Collections.emptyList() : Collections.singletonList(renamed),
+                        event.getPath(), event.getNewPath());
+                break;
+            case FILE_REMOVED:
+                searchIndexDao.remove(event.getPath(), projectId);
+                break;
+            case FOLDER_RENAMED:
+                moveEntries(projectId, searchIndexDao.findFolder(event.getPath(), projectId), event.getPath(), event.getNewPath());
+                break;
+            case FOLDER_REMOVED:
+                searchIndexDao.removeFolder(event.getPath(), projectId);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Update a loaded index with a change.
+     */
+    private void apply(ProjectSearchIndex index, Change change) {
+        final WorkspaceChangeEvent event = change.event;
+        switch (event.getOperation()) {
+            case FILE_CREATED:
+            case FILE_UPDATED:
+                index.put(change.indexedFile);
+                break;
+            case FILE_RENAMED:
+                final IndexedFile renamed = index.get(event.getPath());
+                if (renamed != null) {
+                    index.remove(event.getPath());
+                    index.put(new IndexedFile(event.getNewPath(), renamed.getTerms()));
+                }
+                break;
+            case FILE_REMOVED:
+                index.remove(event.getPath());
+                break;
+            case FOLDER_RENAMED:
+                for (IndexedFile entry : index.removeFolder(event.getPath())) {
+                    index.put(new IndexedFile(event.getNewPath() + entry.getPath().substring(event.getPath().length()), entry.getTerms()));
+                }
+                break;
+            case FOLDER_REMOVED:
+                index.removeFolder(event.getPath());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Move persisted index entries to a new path.
+     */
+    private void moveEntries(String projectId, List<IndexedFile> entries, String oldPath, String newPath) {
+        for (IndexedFile entry : entries) {
+            final String path = newPath + entry.getPath().substring(oldPath.length());
+            searchIndexDao.save(new IndexedFile(path, entry.getTerms()), projectId);
+            searchIndexDao.remove(entry.getPath(), projectId);
+        }
+    }
+
+    /**
+     * Return the in-memory index of the project, loading it if needed.
+     */
+    private ProjectSearchIndex getIndex(String projectId) {
+        final ProjectSearchIndex index = getLoaded(projectId);
+        if (index != null) {
+            return index;
+        }
+        return loads.load(projectId, () -> {
+            final ProjectSearchIndex loaded = getLoaded(projectId);
+            return loaded != null ? loaded : loadIndex(projectId);
+        });
+    }
+
+    private ProjectSearchIndex getLoaded(String projectId) {
+        synchronized (indexes) {
+            return indexes.get(projectId);
+        }
+    }
+
+    private ReadWriteLock getLock(String projectId) {
+        return locks.computeIfAbsent(projectId, id -> new ReentrantReadWriteLock());
+    }
+
+    /**
+     * Load the persisted index and synchronize it with the workspace tree.
+     */
+    private ProjectSearchIndex loadIndex(String projectId) {
+        final long start = System.currentTimeMillis();
+        final ReadWriteLock lock = getLock(projectId);
+        final List<Change> received = Collections.synchronizedList(new ArrayList<>());
+        lock.writeLock().lock();
+        try {
+            loadings.put(projectId, received);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            // Les modifications reçues avant l'enregistrement sont écrites avant la lecture de l'index
+            flush(projectId);
+            // Arbre chargé après l'enregistrement : les modifications suivantes sont rejouées
+            final Workspace workspace = workspaceDao.load(projectId);
+            final ProjectSearchIndex index = new ProjectSearchIndex();
+            searchIndexDao.findAll(projectId).forEach(index::put);
+
+            final Map<String, File> files = workspace != null ? getFilesByPath(workspace) : Collections.emptyMap();
+            final List<String> removed = new ArrayList<>();
+            for (String path : index.getPaths()) {
+                if (!files.containsKey(path)) {
+                    index.remove(path);
+                    removed.add(path);
+                }
+            }
+            final List<IndexedFile> indexed = new ArrayList<>();
+            for (File file : files.values()) {
+                if (index.get(file.getAbsolutePath()) == null) {
+                    final String content = String.join("\n", readLines(file, projectId));
+                    final IndexedFile indexedFile = new IndexedFile(file.getAbsolutePath(), ProjectSearchIndex.tokenize(content));
+                    index.put(indexedFile);
+                    indexed.add(indexedFile);
+                }
+            }
+
+            lock.writeLock().lock();
+            try {
+                // Les entrées modifiées pendant le chargement sont mises à jour par leurs écritures en attente
+                boolean deleted = false;
+                for (Change change : received) {
+                    deleted |= change.event.getOperation() == WorkspaceChangeEvent.Operation.WORKSPACE_DELETED;
+                }
+                if (!deleted) {
+                    for (String path : removed) {
+                        if (!isChanged(path, received)) searchIndexDao.remove(path, projectId);
+                    }
+                    for (IndexedFile indexedFile : indexed) {
+                        if (!isChanged(indexedFile.getPath(), received)) searchIndexDao.save(indexedFile, projectId);
+                    }
+                }
+                received.forEach(change -> apply(index, change));
+                if (!deleted) {
+                    synchronized (indexes) {
+                        indexes.put(projectId, index);
+                    }
+                }
+                loadings.remove(projectId, received);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("Search index of project {} loaded in {} ms, {} files indexed, {} changes replayed", projectId,
+                    System.currentTimeMillis() - start, indexed.size(), received.size());
+            return index;
+        } finally {
+            loadings.remove(projectId, received);
+        }
+    }
+
+    /**
+     * Indicates if a path was touched by one of the changes.
+     */
+    private static boolean isChanged(String path, List<Change> changes) {
+        for (Change change : changes) {
+            final WorkspaceChangeEvent event = change.event;
+            if (event.getPath() != null && WorkspaceChangeEvent.isSameOrDescendant(event.getPath(), path)
+                    || event.getNewPath() != null && WorkspaceChangeEvent.isSameOrDescendant(event.getNewPath(), path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, File> getFilesByPath(Workspace workspace) {
+        final Map<String, File> files = new HashMap<>();
+        for (File file : workspace.listFiles()) {
+            files.put(file.getAbsolutePath(), file);
+        }
+        return files;
+    }
+
+    private String[] readLines(File file, String projectId) {
+        if (file == null) {
+            return new String[0];
+        }
+        try {
+            return IOUtils.toString(fileDao.loadContent(file, projectId), UTF_8).split("\r?\n", -1);
+        } catch (IOException | FileNotFoundException e) {
+            log.warn("Failed to read the content of {} in project {}", file.getAbsolutePath(), projectId);
+            return new String[0];
+        }
+    }
+
+    /**
+     * Change received for a project, with the entry of a created or updated file
+     */
+    private static class Change {
+
+        private final WorkspaceChangeEvent event;
+
+        private final IndexedFile indexedFile;
+
+        private Change(WorkspaceChangeEvent event, IndexedFile indexedFile) {
+            this.event = event;
+            this.indexedFile = indexedFile;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.telosystools.saas.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.telosystools.saas.bean.MigrationReport;
+import org.telosystools.saas.dao.ProjectRepository;
+import org.telosystools.saas.dao.StorageLayout;
+import org.telosystools.saas.dao.WorkspaceStorageDao;
+import org.telosystools.saas.domain.project.Project;
+import org.telosystools.saas.exception.ProjectNotFoundException;
+import org.telosystools.saas.service.StorageMigrationService;
+import org.telosystools.saas.service.WorkspaceService;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Migrates the workspaces one at a time, with the workspace storage dao.
+ * A failed workspace stays in its layout and the migration goes on with the next one.
+ */
+@Service
+public class StorageMigrationServiceImpl implements StorageMigrationService {
+
+    private static final List<String> LAYOUTS = Arrays.asList(StorageLayout.DATABASE, StorageLayout.SHARED);
+
+    private final Logger log = LoggerFactory.getLogger(StorageMigrationServiceImpl.class);
+
+    @Autowired
+    private WorkspaceStorageDao workspaceStorageDao;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private WorkspaceService workspaceService;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile MigrationReport lastReport;
+
+    @Override
+    public MigrationReport migrate(String layout) {
+        checkLayout(layout);
+        final List<String> projectIds = projectRepository.findAll().stream().map(Project::getId).collect(Collectors.toList());
+        return migrate(projectIds, layout);
+    }
+
+    @Override
+    public MigrationReport migrate(String projectId, String layout) throws ProjectNotFoundException {
+        checkLayout(layout);
+        if (projectRepository.findOne(projectId) == null) {
+            throw new ProjectNotFoundException(projectId);
+        }
+        return migrate(Collections.singletonList(projectId), layout);
+    }
+
+    @Override
+    public String getLayout(String projectId) throws ProjectNotFoundException {
+        if (projectRepository.findOne(projectId) == null) {
+            throw new ProjectNotFoundException(projectId);
+        }
+        return workspaceStorageDao.getLayoutName(projectId);
+    }
+
+    @Override
+    public MigrationReport getLastReport() {
+        return lastReport;
+    }
+
+    private MigrationReport migrate(List<String> projectIds, String layout) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Storage migration already running");
+            return null;
+        }
+        try {
+            final long start = System.currentTimeMillis();
+            final MigrationReport report = new MigrationReport(layout);
+            for (String projectId : projectIds) {
+                try {
+                    // Les contenus en attente sont écrits avant la copie
+                    workspaceService.flushPendingWrites(projectId);
+                    if (workspaceStorageDao.migrate(projectId, layout, report)) {
+                        report.addMigrated();
+                    } else {
+                        report.addSkipped();
+                    }
+                } catch (RuntimeException e) {
+                    report.addFailed(projectId);
+                    log.error("Migration of the workspace {} to the storage layout {} failed", projectId, layout, e);
+                }
+            }
+            report.setDurationMillis(System.currentTimeMillis() - start);
+            log.info("Storage migration done : {}", report);
+            lastReport = report;
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void checkLayout(String layout) {
+        if (!LAYOUTS.contains(layout)) {
+            throw new IllegalArgumentException("Unknown storage layout : " + layout);
+        }
+    }
+}
@@ -4,18 +4,36 @@ import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.telosystools.saas.bean.ImportReport;
 import org.telosystools.saas.bean.Path;
+import org.telosystools.saas.bean.WorkspaceStats;
+import org.telosystools.saas.dao.FileBatchWriter;
 import org.telosystools.saas.dao.FileDao;
 import org.telosystools.saas.dao.RootFolderDao;
 import org.telosystools.saas.dao.WorkspaceDao;
+import org.telosystools.saas.dao.WorkspaceRevisionDao;
 import org.telosystools.saas.domain.filesystem.*;
 import org.telosystools.saas.exception.*;
+import org.telosystools.saas.metrics.WorkspaceMetrics;
+import org.telosystools.saas.service.QuotaService;
 import org.telosystools.saas.service.WorkspaceService;
+import org.telosystools.saas.service.event.WorkspaceChangeEvent;
+import org.telosystools.saas.service.event.WorkspaceChangeEvent.Operation;
 
+import javax.annotation.PreDestroy;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -31,6 +49,7 @@ public class WorkspaceServiceImpl implements WorkspaceService {
     public static final String REGEX_FILENAME = "^([_A-Za-z0-9\\-]+(\\.[A-Za-z0-9\\-]+)?)$";
     public static final String REGEX_FOLDER = "[^_A-Za-z0-9/\\-]";
     public static final String REGEX_FOLDERS = REGEX_FOLDER + "*";
+    public static final String REGEX_FOLDER_NAME = "^[_A-Za-z0-9\\-]+$";
 
     private final Logger log = LoggerFactory.getLogger(WorkspaceServiceImpl.class);
 
@@ -40,6 +59,27 @@ public class WorkspaceServiceImpl implements WorkspaceService {
     private FileDao fileDao;
     @Autowired
     private RootFolderDao rootFolderDao;
+    @Autowired
+    private WorkspaceRevisionDao workspaceRevisionDao;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private WorkspaceMetrics workspaceMetrics;
+    @Autowired
+    private QuotaService quotaService;
+    @Autowired
+    private WriteBehindBuffer writeBehindBuffer;
+
+    /**
+     * Locks serializing the writes of the pending contents of a project, by project id hash
+     */
+    private final Object[] flushLocks = new Object[64];
+
+    {
+        for (int i = 0; i < flushLocks.length; i++) {
+            flushLocks[i] = new Object();
+        }
+    }
 
     @Override
     public Workspace createWorkspace(String projectId) {
@@ -63,6 +103,8 @@ public class WorkspaceServiceImpl implements WorkspaceService {
     public Workspace getWorkspace(String projectId) throws ProjectNotFoundException {
         Workspace workspace = workspaceDao.load(projectId);
         if (workspace != null) {
+            initStats(workspace, projectId);
+            workspaceMetrics.record(projectId, workspace);
             return workspace;
         } else {
             throw new ProjectNotFoundException(projectId);
@@ -70,11 +112,48 @@ public class WorkspaceServiceImpl implements WorkspaceService {
     }
 
     @Override
-    public RootFolder createFolder(String absolutePath, String projectId) throws FolderNotFoundException, ProjectNotFoundException, InvalidPathException, DuplicateResourceException {
+    public WorkspaceStats getStats(String projectId) throws ProjectNotFoundException {
+        final WorkspaceStats stats = new WorkspaceStats();
+        for (RootFolder rootFolder : getWorkspace(projectId).listRootFolders()) {
+            stats.addRootFolder(rootFolder.getName(), rootFolder.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Compute the counters of the root folders saved before they were recorded.
+     * The size of the legacy files is read once from GridFS, then kept in the tree.
+     *
+     * @param workspace the loaded workspace
+     * @param projectId Project id
+     */
+    private void initStats(Workspace workspace, String projectId) {
+        for (RootFolder rootFolder : workspace.listRootFolders()) {
+            if (rootFolder.getStats() != null) continue;
+
+            for (File file : rootFolder.listFiles()) {
+                if (file.getSize() == null) {
+                    try {
+                        file.setSize(fileDao.length(file, projectId));
+                    } catch (FileNotFoundException e) {
+                        log.warn("No content in GridFS for file {} of project {}", file.getAbsolutePath(), projectId);
+                        file.setSize(0L);
+                    }
+                }
+            }
+            rootFolder.setStats(rootFolder.computeStats());
+            rootFolderDao.save(rootFolder, projectId);
+            log.info("Statistics computed for root folder {} of project {} : {}", rootFolder.getName(), projectId, rootFolder.getStats());
+        }
+    }
+
+    @Override
+    public RootFolder createFolder(String absolutePath, String projectId) throws FolderNotFoundException, ProjectNotFoundException, InvalidPathException, DuplicateResourceException, QuotaExceededException {
         if (absolutePath.matches(REGEX_FOLDERS)) throw new InvalidPathException(absolutePath);
 
         Workspace workspace = getWorkspace(projectId);
         Path path = Path.valueOf(absolutePath);
+        quotaService.checkDepth(path);
 
         Folder folderParent = getFolderForPath(workspace, path.getParent());
         if (folderParent == null)
@@ -85,7 +164,9 @@ public class WorkspaceServiceImpl implements WorkspaceService {
 
         Folder folder = new Folder(path);
         folderParent.addFolder(folder);
+        getRootFolderForPath(workspace, path).getStats().addFolder();
         workspaceDao.save(workspace, projectId);
+        publish(projectId, Operation.FOLDER_CREATED, folder.getAbsolutePath(), null, null);
         return this.getRootFolderForPath(workspace, path);
     }
 
@@ -96,6 +177,7 @@ public class WorkspaceServiceImpl implements WorkspaceService {
     public RootFolder renameFolder(String absolutePath, String folderName, String projectId) throws ProjectNotFoundException, InvalidPathException, FolderNotFoundException {
         if (folderName.matches(REGEX_FOLDER)) throw new InvalidPathException(folderName);
         if (absolutePath.matches(REGEX_FOLDERS)) throw new InvalidPathException(absolutePath);
+        flushPendingWrites(projectId, absolutePath);
 
         Workspace workspace = getWorkspace(projectId);
         Path path = Path.valueOf(absolutePath);
@@ -109,6 +191,7 @@ public class WorkspaceServiceImpl implements WorkspaceService {
         folderParent.addFolder(folder);
 
         workspaceDao.save(workspace, projectId);
+        publish(projectId, Operation.FOLDER_RENAMED, absolutePath, folder.getAbsolutePath(), null);
         return this.getRootFolderForPath(workspace, path);
     }
 
@@ -130,12 +213,18 @@ public class WorkspaceServiceImpl implements WorkspaceService {
         if (folder == null)
             throw new FolderNotFoundException(path.getBasename(), projectId);
 
-        for (File file : folder.getFiles().values()) {
+        for (File file : folder.listFiles()) {
             fileDao.remove(file, projectId);
         }
         Folder folderParent = getFolderForPath(workspace, path.getParent());
         folderParent.getFolders().remove(folder.getName());
+        final FolderStats removed = folder.computeStats();
+        removed.addFolder();
+        getRootFolderForPath(workspace, path).getStats().subtract(removed);
         workspaceDao.save(workspace, projectId);
+        quotaService.recordWrite(projectId, -removed.getFiles(), -removed.getBytes());
+        writeBehindBuffer.discard(projectId, folder.getAbsolutePath());
+        publish(projectId, Operation.FOLDER_REMOVED, folder.getAbsolutePath(), null, null);
         return this.getRootFolderForPath(workspace, path);
     }
 
@@ -147,11 +236,12 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      * @param projectId    Project id
      */
     @Override
-    public RootFolder createFile(String absolutePath, String content, String projectId) throws FolderNotFoundException, FileNotFoundException, ProjectNotFoundException, InvalidPathException, DuplicateResourceException {
+    public RootFolder createFile(String absolutePath, String content, String projectId) throws FolderNotFoundException, FileNotFoundException, ProjectNotFoundException, InvalidPathException, DuplicateResourceException, QuotaExceededException {
         Path path = Path.valueOf(absolutePath);
 
         if (path.getBasename().matches(REGEX_FOLDERS)) throw new InvalidPathException(absolutePath);
         if (!path.getFilename().matches(REGEX_FILENAME)) throw new InvalidPathException(path.getFilename());
+        quotaService.checkDepth(path);
 
         Workspace workspace = getWorkspace(projectId);
         Folder folderParent = getFolderForPath(workspace, path.getParent());
@@ -162,10 +252,15 @@ public class WorkspaceServiceImpl implements WorkspaceService {
         if (getFileForPath(workspace, path) != null)
             throw new DuplicateResourceException(absolutePath);
 
+        final String fileContent = content == null ? "Text sample" : content;
+        quotaService.checkWrite(projectId, workspace, 1, fileContent.getBytes(UTF_8).length);
         File file = new File(path);
         folderParent.addFile(file);
-        fileDao.save(file, this.createInputStream(content == null ? "Text sample" : content), projectId);
+        fileDao.save(file, this.createInputStream(fileContent), projectId);
+        getRootFolderForPath(workspace, path).getStats().addFile(File.getFileExtension(file.getName()), file.getSize());
         workspaceDao.save(workspace, projectId);
+        quotaService.recordWrite(projectId, 1, file.getSize());
+        publish(projectId, Operation.FILE_CREATED, file.getAbsolutePath(), null, fileContent);
 
         return this.getRootFolderForPath(workspace, path);
     }
@@ -179,6 +274,7 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      */
     @Override
     public RootFolder renameFile(String absolutePath, String fileName, String projectId) throws ProjectNotFoundException, InvalidPathException, FileNotFoundException {
+        flushPendingWrites(projectId, absolutePath);
         Workspace workspace = getWorkspace(projectId);
         Path path = Path.valueOf(absolutePath);
 
@@ -191,10 +287,14 @@ public class WorkspaceServiceImpl implements WorkspaceService {
 
         Folder folderParent = getFolderForPath(workspace, path.getParent());
         folderParent.removeFile(file);
+        final FolderStats stats = getRootFolderForPath(workspace, path).getStats();
+        stats.removeFile(File.getFileExtension(file.getName()), file.getSize());
         file.changeName(fileName);
+        stats.addFile(File.getFileExtension(file.getName()), file.getSize());
         folderParent.addFile(file);
 
         workspaceDao.save(workspace, projectId);
+        publish(projectId, Operation.FILE_RENAMED, absolutePath, file.getAbsolutePath(), null);
         return this.getRootFolderForPath(workspace, path);
     }
 
@@ -218,8 +318,12 @@ public class WorkspaceServiceImpl implements WorkspaceService {
 
         fileDao.remove(file, projectId);
         folderParent.removeFile(file);
+        getRootFolderForPath(workspace, path).getStats().removeFile(File.getFileExtension(file.getName()), file.getSize());
 
         workspaceDao.save(workspace, projectId);
+        quotaService.recordWrite(projectId, -1, -file.getSize());
+        writeBehindBuffer.discard(projectId, file.getAbsolutePath());
+        publish(projectId, Operation.FILE_REMOVED, file.getAbsolutePath(), null, null);
         return this.getRootFolderForPath(workspace, path);
     }
 
@@ -284,6 +388,11 @@ public class WorkspaceServiceImpl implements WorkspaceService {
 
     @Override
     public FileData getFileContent(String absolutePath, String projectId) throws ProjectNotFoundException, FileNotFoundException {
+        final String pending = writeBehindBuffer.get(projectId, Path.valueOf(absolutePath).toString());
+        if (pending != null) {
+            final Path path = Path.valueOf(absolutePath);
+            return new FileData(path.toString(), pending, path.getFilename());
+        }
         final Workspace workspace = this.getWorkspace(projectId);
         final File file = this.getFileForPath(workspace, Path.valueOf(absolutePath));
 
@@ -291,7 +400,7 @@ public class WorkspaceServiceImpl implements WorkspaceService {
 
         String content = "";
         try {
-            content = IOUtils.toString(fileDao.loadContent(file.getGridFSId(), projectId), UTF_8);
+            content = IOUtils.toString(fileDao.loadContent(file, projectId), UTF_8);
         } catch (IOException e) {
             log.error("Failed to convert from Inputstream while retrieving file content for path : " + absolutePath);
         }
@@ -299,8 +408,29 @@ public class WorkspaceServiceImpl implements WorkspaceService {
         return new FileData(file.getAbsolutePath(), content, file.getName());
     }
 
+    /**
+     * Update the content of a file. In write-behind mode, the content is kept in memory and written later :
+     * every update checks the quota, counting the other pending contents of the project, so that an accepted update
+     * is never rejected when it is written.
+     */
     @Override
-    public void updateFile(String absolutePath, String content, String projectId) throws ProjectNotFoundException, FileNotFoundException {
+    public void updateFile(String absolutePath, String content, String projectId) throws ProjectNotFoundException, FileNotFoundException, QuotaExceededException {
+        if (writeBehindBuffer.isEnabled()) {
+            final String path = Path.valueOf(absolutePath).toString();
+            final Workspace workspace = this.getWorkspace(projectId);
+            final File file = this.getFileForPath(workspace, Path.valueOf(path));
+            if (file == null) throw new FileNotFoundException("File not found in path");
+            quotaService.checkWrite(projectId, workspace, 0,
+                    writeBehindBuffer.getAddedBytes(projectId, path) + content.getBytes(UTF_8).length - file.getSize());
+            if (writeBehindBuffer.put(projectId, path, content, file.getSize())) {
+                return;
+            }
+        }
+        updateFileNow(absolutePath, content, projectId);
+    }
+
+    @Override
+    public void updateFileNow(String absolutePath, String content, String projectId) throws ProjectNotFoundException, FileNotFoundException, QuotaExceededException {
         final Workspace workspace = this.getWorkspace(projectId);
         final Path parsedPath = Path.valueOf(absolutePath);
         final RootFolder rootFolder = getRootFolderForPath(workspace, parsedPath);
@@ -308,15 +438,401 @@ public class WorkspaceServiceImpl implements WorkspaceService {
 
         if (file == null) throw new FileNotFoundException("File not found in path");
 
-        // Sauvegarde dans GridFS. L'id GridFS est mis à jour dans le File
-        fileDao.save(file, createInputStream(content), projectId);
+        // Sauvegarde dans GridFS. L'id GridFS et la taille sont mis à jour dans le File
+        final long oldSize = file.getSize();
+        quotaService.checkWrite(projectId, workspace, 0, content.getBytes(UTF_8).length - oldSize);
+        if (!fileDao.save(file, createInputStream(content), projectId)) {
+            // Contenu identique : ni l'arbre, ni la révision ne changent
+            return;
+        }
+        rootFolder.getStats().updateFile(File.getFileExtension(file.getName()), file.getSize() - oldSize);
         // Mise à jour du workspace
         rootFolderDao.save(rootFolder, projectId);
+        quotaService.recordWrite(projectId, 0, file.getSize() - oldSize);
+        publish(projectId, Operation.FILE_UPDATED, file.getAbsolutePath(), null, content);
+    }
+
+    /**
+     * Import a ZIP archive : the folder tree is built in memory and every entry is checked, then the contents
+     * are written to GridFS by a bounded parallel writer, and the workspace is saved once.
+     * Nothing is written if an entry is invalid or exceeds the quota.
+     *
+     * @param absolutePath path of the target folder
+     * @param archive      ZIP stream
+     * @param projectId    Project id
+     */
+    @Override
+    public ImportReport importArchive(String absolutePath, InputStream archive, String projectId) throws ProjectNotFoundException, FolderNotFoundException, FileNotFoundException, InvalidPathException, IOException, QuotaExceededException {
+        flushPendingWrites(projectId, absolutePath);
+        final BulkWrite bulkWrite = new BulkWrite(absolutePath, projectId);
+        final ZipInputStream zip = new ZipInputStream(archive);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            final List<String> names = getEntryNames(entry.getName());
+            if (names.isEmpty()) continue;
+
+            if (entry.isDirectory()) {
+                bulkWrite.getOrCreateFolder(names, names.size());
+            } else {
+                bulkWrite.addFile(entry.getName(), names, IOUtils.toByteArray(zip));
+            }
+        }
+        // Toute l'archive est valide : les contenus sont écrits
+        final ImportReport report = bulkWrite.save();
+        log.info("Archive imported into {} for project {} : {} ({} files/s)", absolutePath, projectId, report,
+                String.format("%.1f", report.getFilesPerSecond()));
+        return report;
+    }
+
+    /**
+     * Write many files below a folder : the missing folders are created and every file is checked, then the contents
+     * are written to GridFS by a bounded parallel writer, and the workspace is saved once.
+     *
+     * @param absolutePath path of the target folder
+     * @param files        contents by path relative to the target folder
+     * @param projectId    Project id
+     */
+    @Override
+    public ImportReport writeFiles(String absolutePath, Map<String, byte[]> files, String projectId) throws ProjectNotFoundException, FolderNotFoundException, FileNotFoundException, InvalidPathException, QuotaExceededException {
+        flushPendingWrites(projectId, absolutePath);
+        final BulkWrite bulkWrite = new BulkWrite(absolutePath, projectId);
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            final List<String> names = getEntryNames(file.getKey());
+            if (names.isEmpty()) throw new InvalidPathException(file.getKey());
+            bulkWrite.addFile(file.getKey(), names, file.getValue());
+        }
+        final ImportReport report = bulkWrite.save();
+        log.info("{} files written into {} for project {} : {}", files.size(), absolutePath, projectId, report);
+        return report;
+    }
+
+    /**
+     * Split a relative path into valid path items.
+     *
+     * @param entryName ZIP entry name or relative path
+     * @return path items, without empty items
+     * @throws InvalidPathException if the entry goes out of the target folder
+     */
+    private List<String> getEntryNames(String entryName) throws InvalidPathException {
+        final List<String> names = new ArrayList<>();
+        for (String name : entryName.replace('\\', '/').split(Path.SEPARATOR)) {
+            if (name.isEmpty() || ".".equals(name)) continue;
+            if ("..".equals(name)) throw new InvalidPathException(entryName);
+            names.add(name);
+        }
+        return names;
+    }
+
+    /**
+     * A write of many files below a folder : the tree is changed in memory and every file is checked by addFile(),
+     * then save() writes the contents in new GridFS contents and saves the root folder once.
+     * The replaced contents are removed only once the root folder is saved, and the new ones are removed if it cannot be :
+     * the saved tree always references existing contents.
+     */
+    private final class BulkWrite {
+
+        private final long start = System.currentTimeMillis();
+        private final String projectId;
+        private final Workspace workspace;
+        private final Folder target;
+        private final RootFolder rootFolder;
+        private final FolderStats stats;
+        private final FileBatchWriter writer;
+        private final ImportReport report = new ImportReport();
+        private final List<WorkspaceChangeEvent> events = new ArrayList<>();
+        /**
+         * Files to write and their contents, by absolute path : the last entry of a path is written
+         */
+        private final Map<String, File> files = new LinkedHashMap<>();
+        private final Map<String, byte[]> contents = new LinkedHashMap<>();
+        private long addedFiles;
+        private long addedBytes;
+        /**
+         * Indicates if folders or files were added to the tree
+         */
+        private boolean added;
+
+        BulkWrite(String absolutePath, String projectId) throws ProjectNotFoundException, FolderNotFoundException {
+            this.projectId = projectId;
+            this.workspace = getWorkspace(projectId);
+            final Path targetPath = Path.valueOf(absolutePath);
+            this.target = getFolderForPath(workspace, targetPath);
+            if (target == null) throw new FolderNotFoundException(absolutePath, projectId);
+            this.rootFolder = getRootFolderForPath(workspace, targetPath);
+            this.stats = rootFolder.getStats();
+            this.writer = fileDao.batchWriter(projectId);
+        }
+
+        /**
+         * Return the sub folder of the target folder for the first path items, creating the missing folders.
+         *
+         * @param names path items
+         * @param count number of path items to follow
+         * @return the sub folder
+         */
+        Folder getOrCreateFolder(List<String> names, int count) throws InvalidPathException, QuotaExceededException {
+            Folder currentFolder = target;
+            for (int i = 0; i < count; i++) {
+                final String name = names.get(i);
+                Folder subFolder = currentFolder.getFolders().get(name);
+                if (subFolder == null) {
+                    if (!name.matches(REGEX_FOLDER_NAME)) throw new InvalidPathException(name);
+                    final Path folderPath = Path.valueOf(currentFolder.getAbsolutePath(), name);
+                    quotaService.checkDepth(folderPath);
+                    subFolder = new Folder(folderPath);
+                    currentFolder.addFolder(subFolder);
+                    report.addFolder();
+                    stats.addFolder();
+                    added = true;
+                    events.add(new WorkspaceChangeEvent(WorkspaceServiceImpl.this, projectId, Operation.FOLDER_CREATED, subFolder.getAbsolutePath(), null, null));
+                }
+                currentFolder = subFolder;
+            }
+            return currentFolder;
+        }
+
+        /**
+         * Create or replace a file in the tree, after checking its path and the quota. The content is written by save().
+         *
+         * @param entryName relative path, for the error messages
+         * @param names     path items of the relative path
+         * @param content   file content
+         */
+        void addFile(String entryName, List<String> names, byte[] content) throws InvalidPathException, QuotaExceededException {
+            final String fileName = names.get(names.size() - 1);
+            if (!fileName.matches(REGEX_FILENAME)) throw new InvalidPathException(entryName);
+
+            final Folder folderParent = getOrCreateFolder(names, names.size() - 1);
+            File file = folderParent.getFiles().get(fileName.replace('.', Folder.DOT_REPLACEMENT));
+            final boolean replaced = file != null;
+            final String extension = File.getFileExtension(fileName);
+            // Les compteurs du root folder sont mis à jour au fil de l'écriture : chaque contrôle voit les fichiers précédents
+            if (replaced) {
+                quotaService.checkWrite(projectId, workspace, 0, content.length - file.getSize());
+                stats.updateFile(extension, content.length - file.getSize());
+                addedBytes += content.length - file.getSize();
+                // Une seconde entrée du même fichier est comparée à la première
+                file.setSize((long) content.length);
+            } else {
+                final Path filePath = Path.valueOf(folderParent.getAbsolutePath(), fileName);
+                quotaService.checkDepth(filePath);
+                quotaService.checkWrite(projectId, workspace, 1, content.length);
+                file = new File(filePath);
+                file.setSize((long) content.length);
+                folderParent.addFile(file);
+                stats.addFile(extension, content.length);
+                addedFiles++;
+                addedBytes += content.length;
+                added = true;
+            }
+            files.put(file.getAbsolutePath(), file);
+            contents.put(file.getAbsolutePath(), content);
+            report.addFile(content.length, replaced);
+            // Contenu décodé à la publication : seuls les octets sont gardés jusque-là
+            events.add(new WorkspaceChangeEvent(WorkspaceServiceImpl.this, projectId, replaced ? Operation.FILE_UPDATED : Operation.FILE_CREATED,
+                    file.getAbsolutePath(), null, null));
+        }
+
+        /**
+         * Write the contents and save the root folder once they are all written, then notify the listeners.
+         *
+         * @return the report
+         */
+        ImportReport save() throws FileNotFoundException {
+            final int written;
+            try {
+                files.forEach((path, file) -> writer.submit(file, contents.get(path)));
+                written = writer.await();
+                report.setUnchangedFiles(report.getFiles() - written);
+                // Arbre inchangé si aucun élément n'est ajouté et tous les contenus sont identiques
+                if (added || written > 0) {
+                    rootFolderDao.save(rootFolder, projectId);
+                }
+            } catch (FileNotFoundException | RuntimeException e) {
+                // Le root folder enregistré référence toujours les anciens contenus
+                writer.rollback();
+                throw e;
+            }
+            writer.commit();
+            quotaService.recordWrite(projectId, addedFiles, addedBytes);
+            // Seuls les fichiers dont le contenu a été écrit sont notifiés
+            final List<WorkspaceChangeEvent> changes = new ArrayList<>();
+            for (WorkspaceChangeEvent event : events) {
+                if (event.getOperation() == Operation.FOLDER_CREATED || writer.isWritten(event.getPath())) {
+                    changes.add(event);
+                }
+            }
+            if (!changes.isEmpty()) {
+                // Une révision par changement, réservées en une seule incrémentation
+                long revision = workspaceRevisionDao.inc(projectId, changes.size()) - changes.size();
+                for (WorkspaceChangeEvent event : changes) {
+                    final byte[] content = event.getOperation() == Operation.FOLDER_CREATED ? null : contents.get(event.getPath());
+                    eventPublisher.publishEvent(new WorkspaceChangeEvent(WorkspaceServiceImpl.this, projectId, event.getOperation(),
+                            event.getPath(), null, content != null ? new String(content, UTF_8) : null, ++revision));
+                }
+            }
+            report.setDurationMillis(System.currentTimeMillis() - start);
+            return report;
+        }
+    }
+
+    /**
+     * Clone a workspace : the folder trees are copied, the GridFS contents are shared
+     * by reference until one of the workspaces writes them.
+     *
+     * @param sourceId Id of the cloned project
+     * @param targetId Id of the new project
+     */
+    @Override
+    public Workspace cloneWorkspace(String sourceId, String targetId) throws ProjectNotFoundException, QuotaExceededException {
+        final long start = System.currentTimeMillis();
+        flushPendingWrites(sourceId, null);
+        final Workspace workspace = getWorkspace(sourceId);
+        final List<File> files = workspace.listFiles();
+        long bytes = 0;
+        for (RootFolder rootFolder : workspace.listRootFolders()) {
+            bytes += rootFolder.getStats().getBytes();
+        }
+        quotaService.checkWrite(targetId, new Workspace(), files.size(), bytes);
+
+        boolean shared = false;
+        try {
+            // Seuls les compteurs de références changent : l'arbre source n'est pas réécrit
+            fileDao.share(files, sourceId);
+            shared = true;
+            for (File file : files) {
+                if (file.getGridFSId() != null && file.getBlobDatabase() == null) {
+                    file.setBlobDatabase(sourceId);
+                }
+            }
+            workspaceDao.save(workspace, targetId);
+            quotaService.recordWrite(targetId, files.size(), bytes);
+        } catch (RuntimeException e) {
+            // Un partage interrompu n'est pas rendu : un contenu encore utilisé par la source serait supprimé
+            releaseClone(shared ? files : Collections.<File>emptyList(), sourceId, targetId);
+            throw e;
+        }
+
+        log.info("Workspace of project {} cloned into project {} : {} files shared in {} ms",
+                sourceId, targetId, files.size(), System.currentTimeMillis() - start);
+        return workspace;
+    }
+
+    /**
+     * Undo an aborted clone : the tree of the clone is deleted and the shares taken for it are released.
+     */
+    private void releaseClone(List<File> files, String sourceId, String targetId) {
+        try {
+            workspaceDao.delete(targetId);
+        } catch (RuntimeException e) {
+            log.warn("Workspace of the aborted clone {} not deleted : {}", targetId, e.getMessage());
+        }
+        for (File file : files) {
+            try {
+                // Partage pris pour le clone : le contenu reste référencé par la source
+                fileDao.remove(file, sourceId);
+            } catch (RuntimeException e) {
+                log.warn("Share of {} taken for the aborted clone {} not released : {}", file.getAbsolutePath(), targetId, e.getMessage());
+            }
+        }
     }
 
     @Override
     public void deleteWorkspace(String projectId) {
-        workspaceDao.delete(projectId);
+        final Workspace workspace = workspaceDao.load(projectId);
+        if (workspace != null) {
+            long files = 0;
+            long bytes = 0;
+            for (RootFolder rootFolder : workspace.listRootFolders()) {
+                final FolderStats stats = rootFolder.getStats() != null ? rootFolder.getStats() : rootFolder.computeStats();
+                files += stats.getFiles();
+                bytes += stats.getBytes();
+            }
+            quotaService.recordWrite(projectId, -files, -bytes);
+
+            // Les contenus partagés sont libérés : ils restent dans leur base tant qu'un autre workspace les référence
+            final List<File> allFiles = workspace.listFiles();
+            for (File file : allFiles) {
+                if (file.isShared() || file.getBlobDatabase() != null) {
+                    fileDao.remove(file, projectId);
+                }
+            }
+            if (fileDao.hasSharedContents(projectId)) {
+                for (File file : allFiles) {
+                    if (!file.isShared() && file.getBlobDatabase() == null) {
+                        fileDao.remove(file, projectId);
+                    }
+                }
+                workspaceDao.deleteTree(projectId);
+            } else {
+                workspaceDao.delete(projectId);
+            }
+        } else if (!fileDao.hasSharedContents(projectId)) {
+            workspaceDao.delete(projectId);
+        }
+        workspaceMetrics.remove(projectId);
+        writeBehindBuffer.discard(projectId, null);
+        publish(projectId, Operation.WORKSPACE_DELETED, null, null, null);
+        workspaceRevisionDao.delete(projectId);
+    }
+
+    @Override
+    public void flushPendingWrites(String projectId) {
+        flushPendingWrites(projectId, null);
+    }
+
+    /**
+     * Write the pending contents which are due, in write-behind mode.
+     */
+    @Scheduled(fixedDelayString = "${workspace.writeBehind.checkMillis:500}")
+    public void flushDueWrites() {
+        final long now = System.currentTimeMillis();
+        for (String projectId : writeBehindBuffer.getProjects()) {
+            write(projectId, writeBehindBuffer.getDue(projectId, now));
+        }
+    }
+
+    /**
+     * Write all the pending contents before the application stops.
+     */
+    @PreDestroy
+    public void flushAllWrites() {
+        for (String projectId : writeBehindBuffer.getProjects()) {
+            flushPendingWrites(projectId, null);
+        }
+    }
+
+    /**
+     * Write the pending contents of a file, or of the files below a folder.
+     *
+     * @param projectId Project id
+     * @param path      absolute path of a file or a folder, null for the whole workspace
+     */
+    private void flushPendingWrites(String projectId, String path) {
+        write(projectId, writeBehindBuffer.getPending(projectId, path != null ? Path.valueOf(path).toString() : null));
+    }
+
+    private void write(String projectId, List<WriteBehindBuffer.PendingWrite> writes) {
+        if (writes.isEmpty()) return;
+        // Un seul écrivain par projet : un contenu plus ancien n'est jamais écrit après un plus récent
+        synchronized (flushLocks[Math.floorMod(projectId.hashCode(), flushLocks.length)]) {
+            for (WriteBehindBuffer.PendingWrite write : writes) {
+                if (!writeBehindBuffer.isCurrent(projectId, write)) {
+                    // Remplacé par une mise à jour plus récente, ou déjà écrit par un autre flush
+                    continue;
+                }
+                try {
+                    updateFileNow(write.getPath(), write.getContent(), projectId);
+                } catch (ProjectNotFoundException | FileNotFoundException e) {
+                    log.warn("Pending content of {} in project {} dropped, the file no longer exists", write.getPath(), projectId);
+                } catch (QuotaExceededException e) {
+                    // Le contenu reste en mémoire : l'écriture est retentée au prochain passage
+                    log.warn("Pending content of {} in project {} not written : {}", write.getPath(), projectId, e.getMessage());
+                    continue;
+                }
+                writeBehindBuffer.written(projectId, write);
+            }
+        }
     }
 
     /**
@@ -329,6 +845,25 @@ public class WorkspaceServiceImpl implements WorkspaceService {
         return workspace.getRootFolderByName(path.getRootName());
     }
 
+    @Override
+    public long getRevision(String projectId) {
+        return workspaceRevisionDao.get(projectId);
+    }
+
+    /**
+     * Number the saved change with the next revision of the workspace, then notify the listeners.
+     *
+     * @param projectId Project id
+     * @param operation the change
+     * @param path      path of the changed file or folder
+     * @param newPath   new path of a renamed file or folder
+     * @param content   new content of a file
+     */
+    private void publish(String projectId, Operation operation, String path, String newPath, String content) {
+        final long revision = workspaceRevisionDao.inc(projectId, 1);
+        eventPublisher.publishEvent(new WorkspaceChangeEvent(this, projectId, operation, path, newPath, content, revision));
+    }
+
     /**
      * Create an Inputstream from a String
      *
@@ -336,7 +871,7 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      * @return content as a stream
      */
     private InputStream createInputStream(String string) {
-        return new ByteArrayInputStream(string.getBytes());
+        return new ByteArrayInputStream(string.getBytes(UTF_8));
     }
 
 }
@@ -0,0 +1,272 @@
+package org.telosystools.saas.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.service.event.WorkspaceChangeEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Contents of the updated files waiting to be written, when the write-behind mode is enabled :
+ * the successive updates of a file replace its pending content, only the last one is written.
+ *
+ * A pending content is written once the file has not been updated for debounceMillis,
+ * and at the latest maxDelayMillis after its first unwritten update.
+ */
+@Component
+public class WriteBehindBuffer {
+
+    /**
+     * Content waiting to be written
+     */
+    static class PendingWrite {
+
+        private final String path;
+        private final String content;
+        /**
+         * Size of the content, and of the stored content it replaces : the difference is counted in the quota
+         */
+        private final long bytes;
+        private final long storedBytes;
+        private final long firstMillis;
+        private final long lastMillis;
+
+        PendingWrite(String path, String content, long storedBytes, long firstMillis, long lastMillis) {
+            this.path = path;
+            this.content = content;
+            this.bytes = content.getBytes(UTF_8).length;
+            this.storedBytes = storedBytes;
+            this.firstMillis = firstMillis;
+            this.lastMillis = lastMillis;
+        }
+
+        String getPath() {
+            return path;
+        }
+
+        String getContent() {
+            return content;
+        }
+
+        long getAddedBytes() {
+            return bytes - storedBytes;
+        }
+
+        boolean isDue(long now, long debounceMillis, long maxDelayMillis) {
+            return now - lastMillis >= debounceMillis || now - firstMillis >= maxDelayMillis;
+        }
+    }
+
+    @Value("${workspace.writeBehind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${workspace.writeBehind.debounceMillis:3000}")
+    private long debounceMillis;
+
+    @Value("${workspace.writeBehind.maxDelayMillis:30000}")
+    private long maxDelayMillis;
+
+    /**
+     * Beyond this total length of the pending contents, the updates are written immediately
+     */
+    @Value("${workspace.writeBehind.maxBufferedChars:8388608}")
+    private long maxBufferedChars;
+
+    /**
+     * Pending contents by file path, by project
+     */
+    private final Map<String, Map<String, PendingWrite>> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong bufferedChars = new AtomicLong();
+    private final AtomicLong bufferedWrites = new AtomicLong();
+    private final AtomicLong coalescedWrites = new AtomicLong();
+    private final AtomicLong flushedWrites = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Return the pending content of a file.
+     *
+     * @param projectId Project id
+     * @param path      absolute path of the file
+     * @return the content, null if no content is waiting
+     */
+    String get(String projectId, String path) {
+        final PendingWrite write = find(projectId).get(path);
+        return write != null ? write.getContent() : null;
+    }
+
+    /**
+     * Keep the new content of a file, replacing its pending content.
+     *
+     * @param projectId Project id
+     * @param path      absolute path of the file
+     * @param content     new content
+     * @param storedBytes size of the stored content of the file
+     * @return false if the buffer is full : the content must be written immediately
+     */
+    boolean put(String projectId, String path, String content, long storedBytes) {
+        if (bufferedChars.get() + content.length() > maxBufferedChars) {
+            return false;
+        }
+        final long now = System.currentTimeMillis();
+        getPending(projectId).compute(path, (key, previous) -> {
+            if (previous != null) {
+                // Le contenu précédent n'est jamais écrit
+                coalescedWrites.incrementAndGet();
+                bufferedChars.addAndGet(-previous.getContent().length());
+            }
+            bufferedChars.addAndGet(content.length());
+            return new PendingWrite(path, content, storedBytes, previous != null ? previous.firstMillis : now, now);
+        });
+        bufferedWrites.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Return the bytes the pending contents of a project add to its stored contents.
+     *
+     * @param projectId   Project id
+     * @param excludedPath absolute path of a file whose pending content is not counted
+     * @return added bytes, negative if the pending contents are smaller
+     */
+    long getAddedBytes(String projectId, String excludedPath) {
+        long bytes = 0;
+        for (PendingWrite write : find(projectId).values()) {
+            if (!write.getPath().equals(excludedPath)) {
+                bytes += write.getAddedBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Return the pending contents which must be written.
+     *
+     * @param projectId Project id
+     * @param now       current time
+     * @return due contents, they stay pending until {@link #written} is called
+     */
+    List<PendingWrite> getDue(String projectId, long now) {
+        final List<PendingWrite> due = new ArrayList<>();
+        for (PendingWrite write : find(projectId).values()) {
+            if (write.isDue(now, debounceMillis, maxDelayMillis)) {
+                due.add(write);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Return the pending contents of a file, or of the files below a folder.
+     *
+     * @param projectId Project id
+     * @param path      absolute path of a file or a folder, null for the whole workspace
+     * @return contents, they stay pending until {@link #written} is called
+     */
+    List<PendingWrite> getPending(String projectId, String path) {
+        final List<PendingWrite> writes = new ArrayList<>();
+        for (PendingWrite write : find(projectId).values()) {
+            if (path == null || WorkspaceChangeEvent.isSameOrDescendant(path, write.getPath())) {
+                writes.add(write);
+            }
+        }
+        return writes;
+    }
+
+    /**
+     * Indicates if a content is still the pending content of its file : it has been neither replaced nor written.
+     *
+     * @param projectId Project id
+     * @param write     a pending content
+     */
+    boolean isCurrent(String projectId, PendingWrite write) {
+        return find(projectId).get(write.getPath()) == write;
+    }
+
+    /**
+     * Remove a written content, unless it has been replaced by a newer update meanwhile.
+     *
+     * @param projectId Project id
+     * @param write     the written content
+     */
+    void written(String projectId, PendingWrite write) {
+        if (find(projectId).remove(write.getPath(), write)) {
+            bufferedChars.addAndGet(-write.getContent().length());
+            flushedWrites.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drop the pending contents of removed files.
+     *
+     * @param projectId Project id
+     * @param path      absolute path of a file or a folder, null for the whole workspace
+     */
+    void discard(String projectId, String path) {
+        for (PendingWrite write : getPending(projectId, path)) {
+            if (find(projectId).remove(write.getPath(), write)) {
+                bufferedChars.addAndGet(-write.getContent().length());
+            }
+        }
+        if (path == null) {
+            pending.remove(projectId);
+        }
+    }
+
+    /**
+     * Return the projects having pending contents.
+     */
+    List<String> getProjects() {
+        final List<String> projects = new ArrayList<>();
+        pending.forEach((projectId, writes) -> {
+            if (!writes.isEmpty()) projects.add(projectId);
+        });
+        return projects;
+    }
+
+    private Map<String, PendingWrite> getPending(String projectId) {
+        return pending.computeIfAbsent(projectId, id -> new ConcurrentHashMap<>());
+    }
+
+    private Map<String, PendingWrite> find(String projectId) {
+        return pending.getOrDefault(projectId, Collections.emptyMap());
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<String, PendingWrite> writes : pending.values()) {
+            size += writes.size();
+        }
+        return size;
+    }
+
+    public long getBufferedChars() {
+        return bufferedChars.get();
+    }
+
+    public long getBufferedWrites() {
+        return bufferedWrites.get();
+    }
+
+    public long getCoalescedWrites() {
+        return coalescedWrites.get();
+    }
+
+    public long getFlushedWrites() {
+        return flushedWrites.get();
+    }
+}
@@ -0,0 +1,147 @@
+package org.telosystools.saas.web.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.telosystools.saas.bean.CollectReport;
+import org.telosystools.saas.bean.MigrationReport;
+import org.telosystools.saas.domain.usage.UserUsage;
+import org.telosystools.saas.exception.ProjectNotFoundException;
+import org.telosystools.saas.service.BlobCollectorService;
+import org.telosystools.saas.service.QuotaService;
+import org.telosystools.saas.service.StorageMigrationService;
+
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * Administration of the storage : restricted to the administrators by the security configuration.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    @Inject
+    private QuotaService quotaService;
+
+    @Inject
+    private BlobCollectorService blobCollectorService;
+
+    @Inject
+    private StorageMigrationService storageMigrationService;
+
+    /**
+     * Get the storage used by each user
+     *
+     * @return files and bytes by user, biggest first
+     */
+    @RequestMapping(value = "/usage", method = RequestMethod.GET)
+    public ResponseEntity<List<UserUsage>> getUsage() {
+        return new ResponseEntity<>(quotaService.getUsage(), HttpStatus.OK);
+    }
+
+    /**
+     * Recompute the storage used by each user from the workspaces
+     *
+     * @return files and bytes by user, biggest first
+     */
+    @RequestMapping(value = "/usage/rebuild", method = RequestMethod.POST)
+    public ResponseEntity<List<UserUsage>> rebuildUsage() {
+        return new ResponseEntity<>(quotaService.rebuildUsage(), HttpStatus.OK);
+    }
+
+    /**
+     * Get the report of the last GridFS collection
+     *
+     * @return the report, NO CONTENT - 204 if no collection has run yet
+     */
+    @RequestMapping(value = "/gc", method = RequestMethod.GET)
+    public ResponseEntity<CollectReport> getCollectReport() {
+        CollectReport report = blobCollectorService.getLastReport();
+        return report == null ? new ResponseEntity<>(HttpStatus.NO_CONTENT) : new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
+    /**
+     * Remove now the GridFS contents referenced by no file
+     *
+     * @return the report, CONFLICT - 409 if a collection is already running
+     */
+    @RequestMapping(value = "/gc", method = RequestMethod.POST)
+    public ResponseEntity<CollectReport> collect() {
+        CollectReport report = blobCollectorService.collect();
+        return report == null ? new ResponseEntity<>(HttpStatus.CONFLICT) : new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
+    /**
+     * Get the report of the last storage migration
+     *
+     * @return the report, NO CONTENT - 204 if no migration has run yet
+     */
+    @RequestMapping(value = "/storage/migration", method = RequestMethod.GET)
+    public ResponseEntity<MigrationReport> getMigrationReport() {
+        MigrationReport report = storageMigrationService.getLastReport();
+        return report == null ? new ResponseEntity<>(HttpStatus.NO_CONTENT) : new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
+    /**
+     * Move every workspace to a storage layout, while the application serves the other workspaces
+     *
+     * @param layout database or shared
+     * @return the report, BAD REQUEST - 400 if the layout is unknown, CONFLICT - 409 if a migration is already running
+     */
+    @RequestMapping(value = "/storage/migration", method = RequestMethod.POST)
+    public ResponseEntity<MigrationReport> migrate(@RequestParam("layout") String layout) {
+        try {
+            MigrationReport report = storageMigrationService.migrate(layout);
+            return report == null ? new ResponseEntity<>(HttpStatus.CONFLICT) : new ResponseEntity<>(report, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Get the storage layout of a workspace
+     *
+     * @param projectId project id
+     * @return database or shared, NOT FOUND - 404 if the project does not exist
+     */
+    @RequestMapping(value = "/storage/projects/{id}", method = RequestMethod.GET)
+    public ResponseEntity<String> getLayout(@PathVariable("id") String projectId) {
+        try {
+            return new ResponseEntity<>(storageMigrationService.getLayout(projectId), HttpStatus.OK);
+        } catch (ProjectNotFoundException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Move one workspace to a storage layout
+     *
+     * @param projectId project id
+     * @param layout    database or shared
+     * @return the report, BAD REQUEST - 400 if the layout is unknown, NOT FOUND - 404 if the project does not exist,
+     * CONFLICT - 409 if a migration is already running
+     */
+    @RequestMapping(value = "/storage/projects/{id}/migration", method = RequestMethod.POST)
+    public ResponseEntity<MigrationReport> migrate(@PathVariable("id") String projectId, @RequestParam("layout") String layout) {
+        try {
+            MigrationReport report = storageMigrationService.migrate(projectId, layout);
+            return report == null ? new ResponseEntity<>(HttpStatus.CONFLICT) : new ResponseEntity<>(report, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.BAD_REQUEST);
+        } catch (ProjectNotFoundException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    private HttpHeaders getErrorHttpHeaders(Exception e) {
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.set("error_message", e.getMessage());
+        return responseHeaders;
+    }
+}
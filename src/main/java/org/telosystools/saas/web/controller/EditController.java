@@ -0,0 +1,68 @@
+package org.telosystools.saas.web.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+import org.telosystools.saas.bean.EditSnapshot;
+import org.telosystools.saas.exception.FileNotFoundException;
+import org.telosystools.saas.exception.ProjectNotFoundException;
+import org.telosystools.saas.exception.QuotaExceededException;
+import org.telosystools.saas.service.EditSessionService;
+
+import javax.inject.Inject;
+
+/**
+ * Collaborative editing sessions of the files of a project.
+ * The operations are sent over STOMP to /app/projects/{id}/edit and broadcast on /topic/projects/{id}/edit.
+ */
+@RestController
+@RequestMapping("/api/projects/{id}/edit")
+public class EditController {
+
+    @Inject
+    private EditSessionService editSessionService;
+
+    /**
+     * Join the editing session of a file
+     *
+     * @param projectId Project id
+     * @param path      absolute path of the file
+     * @return the live document, the next operations are based on its revision
+     */
+    @RequestMapping(method = RequestMethod.POST)
+    public ResponseEntity<EditSnapshot> join(@PathVariable("id") String projectId, @RequestParam("path") String path) {
+        if (StringUtils.isEmpty(path)) return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        try {
+            return new ResponseEntity<>(editSessionService.join(projectId, path), HttpStatus.OK);
+        } catch (ProjectNotFoundException | FileNotFoundException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Save the live document of a file now
+     *
+     * @param projectId Project id
+     * @param path      absolute path of the file
+     * @return OK - 200 if the document has been saved, NO_CONTENT - 204 if it was already saved
+     */
+    @RequestMapping(value = "/flush", method = RequestMethod.POST)
+    public ResponseEntity<Void> flush(@PathVariable("id") String projectId, @RequestParam("path") String path) {
+        if (StringUtils.isEmpty(path)) return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        try {
+            return new ResponseEntity<>(editSessionService.flush(projectId, path) ? HttpStatus.OK : HttpStatus.NO_CONTENT);
+        } catch (ProjectNotFoundException | FileNotFoundException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        } catch (QuotaExceededException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.REQUEST_ENTITY_TOO_LARGE);
+        }
+    }
+
+    private HttpHeaders getErrorHttpHeaders(Exception e) {
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.set("error_message", e.getMessage());
+        return responseHeaders;
+    }
+}
@@ -0,0 +1,172 @@
+package org.telosystools.saas.web.controller;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.telosystools.saas.bean.GenerationJob;
+import org.telosystools.saas.bean.GenerationReport;
+import org.telosystools.saas.domain.filesystem.FileData;
+import org.telosystools.saas.exception.*;
+import org.telosystools.saas.service.GenerationJobService;
+import org.telosystools.saas.service.GenerationService;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Code generation of a project
+ */
+@RestController
+@RequestMapping("/api/projects/{id}/generation")
+public class GenerationController {
+
+    @Inject
+    private GenerationService generationService;
+
+    @Inject
+    private GenerationJobService generationJobService;
+
+    /**
+     * Generates the code of the project in its generated folder, unless a generation of the project is running
+     * @param projectId Project id
+     * @param bundle templates bundle, all the bundles if not set
+     * @param force true to render all the files, even those whose inputs are unchanged
+     * @return the generation report
+     */
+    @RequestMapping(method = RequestMethod.POST)
+    public ResponseEntity<GenerationReport> generate(@PathVariable("id") String projectId,
+                                                     @RequestParam(value = "bundle", required = false) String bundle,
+                                                     @RequestParam(value = "force", defaultValue = "false") boolean force) {
+        try {
+            return new ResponseEntity<>(generationJobService.generate(projectId, bundle, force), HttpStatus.OK);
+        } catch (ProjectNotFoundException | FolderNotFoundException | FileNotFoundException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        } catch (InvalidPathException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.BAD_REQUEST);
+        } catch (QuotaExceededException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.REQUEST_ENTITY_TOO_LARGE);
+        } catch (GenerationInProgressException | CancellationException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.CONFLICT);
+        }
+    }
+
+    /**
+     * Generates the code of the project into a ZIP archive streamed in the response, nothing is stored,
+     * unless a generation of the project is running
+     * @param projectId Project id
+     * @param bundle templates bundle, all the bundles if not set
+     * @param response the response receiving the archive
+     */
+    @RequestMapping(value = "/zip", method = RequestMethod.GET)
+    public void generateZip(@PathVariable("id") String projectId,
+                            @RequestParam(value = "bundle", required = false) String bundle,
+                            HttpServletResponse response) throws IOException {
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + projectId + "-generated.zip\"");
+        try {
+            generationJobService.generateZip(projectId, bundle, response.getOutputStream());
+        } catch (ProjectNotFoundException | FolderNotFoundException | FileNotFoundException e) {
+            // Rien n'a encore été écrit dans la réponse
+            response.reset();
+            response.setHeader("error_message", e.getMessage());
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+        } catch (GenerationInProgressException e) {
+            response.reset();
+            response.setHeader("error_message", e.getMessage());
+            response.setStatus(HttpStatus.CONFLICT.value());
+        }
+    }
+
+    /**
+     * Queue a generation of the project, its progress is published on /topic/projects/{id}/generation
+     * @param projectId Project id
+     * @param bundle templates bundle, all the bundles if not set
+     * @param force true to render all the files, even those whose inputs are unchanged
+     * @return the queued job
+     */
+    @RequestMapping(value = "/jobs", method = RequestMethod.POST)
+    public ResponseEntity<GenerationJob> submitJob(@PathVariable("id") String projectId,
+                                                   @RequestParam(value = "bundle", required = false) String bundle,
+                                                   @RequestParam(value = "force", defaultValue = "false") boolean force) {
+        try {
+            return new ResponseEntity<>(generationJobService.submit(projectId, bundle, force), HttpStatus.ACCEPTED);
+        } catch (ProjectNotFoundException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        } catch (GenerationInProgressException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.CONFLICT);
+        } catch (TaskRejectedException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Get the last generation jobs of the project
+     * @param projectId Project id
+     * @return jobs, most recent first
+     */
+    @RequestMapping(value = "/jobs", method = RequestMethod.GET)
+    public ResponseEntity<List<GenerationJob>> getJobs(@PathVariable("id") String projectId) {
+        return new ResponseEntity<>(generationJobService.getJobs(projectId), HttpStatus.OK);
+    }
+
+    /**
+     * Get a generation job
+     * @param projectId Project id
+     * @param jobId job id
+     * @return the job
+     */
+    @RequestMapping(value = "/jobs/{jobId}", method = RequestMethod.GET)
+    public ResponseEntity<GenerationJob> getJob(@PathVariable("id") String projectId, @PathVariable("jobId") String jobId) {
+        try {
+            return new ResponseEntity<>(generationJobService.getJob(projectId, jobId), HttpStatus.OK);
+        } catch (GenerationJobNotFoundException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Cancel a generation job
+     * @param projectId Project id
+     * @param jobId job id
+     * @return the job
+     */
+    @RequestMapping(value = "/jobs/{jobId}", method = RequestMethod.DELETE)
+    public ResponseEntity<GenerationJob> cancelJob(@PathVariable("id") String projectId, @PathVariable("jobId") String jobId) {
+        try {
+            return new ResponseEntity<>(generationJobService.cancel(projectId, jobId), HttpStatus.OK);
+        } catch (GenerationJobNotFoundException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Render a template without writing the result
+     * @param projectId Project id
+     * @param template absolute path of the template
+     * @param entity entity the template is applied to, none for a template applied once
+     * @return path and content of the file the template would generate
+     */
+    @RequestMapping(value = "/preview", method = RequestMethod.GET)
+    public ResponseEntity<FileData> preview(@PathVariable("id") String projectId,
+                                            @RequestParam("template") String template,
+                                            @RequestParam(value = "entity", required = false) String entity) {
+        try {
+            return new ResponseEntity<>(generationService.preview(projectId, template, entity), HttpStatus.OK);
+        } catch (ProjectNotFoundException | FileNotFoundException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        } catch (GenerationException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private HttpHeaders getErrorHttpHeaders(Exception e) {
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.set("error_message", e.getMessage());
+        return responseHeaders;
+    }
+}
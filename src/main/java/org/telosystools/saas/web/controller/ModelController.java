@@ -0,0 +1,89 @@
+package org.telosystools.saas.web.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.telosystools.saas.bean.AttributeRef;
+import org.telosystools.saas.exception.FileNotFoundException;
+import org.telosystools.saas.exception.ProjectNotFoundException;
+import org.telosystools.saas.service.EntityGraphService;
+
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * Navigation in the model of a project
+ */
+@RestController
+@RequestMapping("/api/projects/{id}/model")
+public class ModelController {
+
+    @Inject
+    private EntityGraphService entityGraphService;
+
+    /**
+     * Get the names of the entities
+     * @param projectId Project id
+     * @return entity names
+     */
+    @RequestMapping(value = "/entities", method = RequestMethod.GET)
+    public ResponseEntity<List<String>> getEntities(@PathVariable("id") String projectId) {
+        try {
+            return new ResponseEntity<>(entityGraphService.getEntityNames(projectId), HttpStatus.OK);
+        } catch (ProjectNotFoundException | FileNotFoundException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Get the attributes of an entity
+     * @param projectId Project id
+     * @param entity entity name
+     * @return attributes
+     */
+    @RequestMapping(value = "/entities/{entity}/attributes", method = RequestMethod.GET)
+    public ResponseEntity<List<AttributeRef>> getAttributes(@PathVariable("id") String projectId, @PathVariable("entity") String entity) {
+        try {
+            return new ResponseEntity<>(entityGraphService.getAttributes(projectId, entity), HttpStatus.OK);
+        } catch (ProjectNotFoundException | FileNotFoundException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Get the attributes of the entities referencing an entity
+     * @param projectId Project id
+     * @param entity name of the referenced entity
+     * @return link attributes
+     */
+    @RequestMapping(value = "/entities/{entity}/referencing", method = RequestMethod.GET)
+    public ResponseEntity<List<AttributeRef>> getReferencing(@PathVariable("id") String projectId, @PathVariable("entity") String entity) {
+        try {
+            return new ResponseEntity<>(entityGraphService.getReferencing(projectId, entity), HttpStatus.OK);
+        } catch (ProjectNotFoundException | FileNotFoundException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Find the attributes of a type
+     * @param projectId Project id
+     * @param type neutral type or entity name, case insensitive
+     * @return attributes
+     */
+    @RequestMapping(value = "/attributes", method = RequestMethod.GET)
+    public ResponseEntity<List<AttributeRef>> findAttributes(@PathVariable("id") String projectId, @RequestParam("type") String type) {
+        try {
+            return new ResponseEntity<>(entityGraphService.findAttributesByType(projectId, type), HttpStatus.OK);
+        } catch (ProjectNotFoundException | FileNotFoundException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    private HttpHeaders getErrorHttpHeaders(Exception e) {
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.set("error_message", e.getMessage());
+        return responseHeaders;
+    }
+}
@@ -8,6 +8,7 @@ import org.telosystools.saas.domain.project.Project;
 import org.telosystools.saas.domain.project.ProjectConfiguration;
 import org.telosystools.saas.exception.DuplicateProjectNameException;
 import org.telosystools.saas.exception.ProjectNotFoundException;
+import org.telosystools.saas.exception.QuotaExceededException;
 import org.telosystools.saas.exception.UserNotFoundException;
 import org.telosystools.saas.service.ProjectService;
 
@@ -71,6 +72,26 @@ public class ProjectController {
         }
     }
 
+    /**
+     * Create a project as a copy of an existing project
+     * @param id Id of the cloned project
+     * @param project optional name of the new project
+     * @return The project created
+     */
+    @RequestMapping(value = "/{id}/clone", method = RequestMethod.POST)
+    public ResponseEntity<Project> cloneProject(@PathVariable("id") String id, @RequestBody(required = false) Project project) {
+        try {
+            Project clone = projectService.cloneProject(id, project == null ? null : project.getName());
+            return new ResponseEntity<>(clone, HttpStatus.CREATED);
+        } catch (ProjectNotFoundException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        } catch (DuplicateProjectNameException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.CONFLICT);
+        } catch (QuotaExceededException e) {
+            return new ResponseEntity<>(getErrorHttpHeaders(e), HttpStatus.REQUEST_ENTITY_TOO_LARGE);
+        }
+    }
+
     /**
      * Delete a project
      * @param id Project id
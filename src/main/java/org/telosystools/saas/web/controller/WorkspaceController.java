@@ -5,23 +5,45 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.telosystools.saas.bean.ImportReport;
+import org.telosystools.saas.bean.PathMatch;
+import org.telosystools.saas.bean.SearchResult;
+import org.telosystools.saas.bean.WorkspaceStats;
 import org.telosystools.saas.domain.filesystem.FileData;
 import org.telosystools.saas.domain.filesystem.RootFolder;
 import org.telosystools.saas.domain.filesystem.Workspace;
 import org.telosystools.saas.exception.*;
+import org.telosystools.saas.service.PathIndexService;
+import org.telosystools.saas.service.SearchService;
 import org.telosystools.saas.service.WorkspaceService;
 
 import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/projects/{id}/workspace")
 public class WorkspaceController {
 
+    /**
+     * Header holding the revision of the returned workspace
+     */
+    public static final String REVISION_HEADER = "X-Workspace-Revision";
+
     @Inject
     private WorkspaceService workspaceService;
 
+    @Inject
+    private SearchService searchService;
+
+    @Inject
+    private PathIndexService pathIndexService;
+
     /**
-     * Get the project's workspace
+     * Get the project's workspace, with its revision in the X-Workspace-Revision header.
+     * The revision is read before the workspace : the changes notified with a greater revision
+     * on /topic/projects/{id}/workspace must be applied to it.
      *
      * @param projectId the project id
      * @return the workspace
@@ -31,7 +53,24 @@ public class WorkspaceController {
     @ResponseBody
     ResponseEntity<Workspace> getWorkspace(@PathVariable("id") String projectId) {
         try {
-            return new ResponseEntity<>(workspaceService.getWorkspace(projectId), HttpStatus.OK);
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(REVISION_HEADER, String.valueOf(workspaceService.getRevision(projectId)));
+            return new ResponseEntity<>(workspaceService.getWorkspace(projectId), headers, HttpStatus.OK);
+        } catch (ProjectNotFoundException e) {
+            return new ResponseEntity<>(this.getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Get the counters of the project's workspace
+     *
+     * @param projectId the project id
+     * @return files, folders and bytes by root folder and by extension
+     */
+    @RequestMapping(value = "/stats", method = RequestMethod.GET)
+    public ResponseEntity<WorkspaceStats> getStats(@PathVariable("id") String projectId) {
+        try {
+            return new ResponseEntity<>(workspaceService.getStats(projectId), HttpStatus.OK);
         } catch (ProjectNotFoundException e) {
             return new ResponseEntity<>(this.getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
         }
@@ -58,6 +97,8 @@ public class WorkspaceController {
             return new ResponseEntity<>(this.getErrorHttpHeaders(e), HttpStatus.BAD_REQUEST);
         } catch (DuplicateResourceException e) {
             return new ResponseEntity<>(this.getErrorHttpHeaders(e), HttpStatus.CONFLICT);
+        } catch (QuotaExceededException e) {
+            return new ResponseEntity<>(this.getErrorHttpHeaders(e), HttpStatus.REQUEST_ENTITY_TOO_LARGE);
         }
     }
 
@@ -123,6 +164,8 @@ public class WorkspaceController {
             return new ResponseEntity<>(this.getErrorHttpHeaders(e), HttpStatus.BAD_REQUEST);
         } catch (DuplicateResourceException e) {
             return new ResponseEntity<>(this.getErrorHttpHeaders(e), HttpStatus.CONFLICT);
+        } catch (QuotaExceededException e) {
+            return new ResponseEntity<>(this.getErrorHttpHeaders(e), HttpStatus.REQUEST_ENTITY_TOO_LARGE);
         }
     }
 
@@ -198,6 +241,72 @@ public class WorkspaceController {
             return new ResponseEntity<>(HttpStatus.OK);
         } catch (FileNotFoundException | ProjectNotFoundException e) {
             return new ResponseEntity<>(this.getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        } catch (QuotaExceededException e) {
+            return new ResponseEntity<>(this.getErrorHttpHeaders(e), HttpStatus.REQUEST_ENTITY_TOO_LARGE);
+        }
+    }
+
+    /**
+     * Import a ZIP archive into the folder with the specified path.
+     * The request body is the ZIP stream.
+     *
+     * @param projectId Project ID
+     * @param path      path of the target folder, the templates folder by default
+     * @param archive   ZIP stream
+     * @return the import report, CREATED - 201 if the archive has been imported
+     */
+    @RequestMapping(value = "/import", method = RequestMethod.POST)
+    public ResponseEntity<ImportReport> importArchive(@PathVariable("id") String projectId,
+                                                      @RequestParam(value = "path", defaultValue = Workspace.TEMPLATES) String path,
+                                                      InputStream archive) {
+        try {
+            return new ResponseEntity<>(workspaceService.importArchive(path, archive, projectId), HttpStatus.CREATED);
+        } catch (FolderNotFoundException | FileNotFoundException | ProjectNotFoundException e) {
+            return new ResponseEntity<>(this.getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        } catch (InvalidPathException | IOException e) {
+            return new ResponseEntity<>(this.getErrorHttpHeaders(e), HttpStatus.BAD_REQUEST);
+        } catch (QuotaExceededException e) {
+            return new ResponseEntity<>(this.getErrorHttpHeaders(e), HttpStatus.REQUEST_ENTITY_TOO_LARGE);
+        }
+    }
+
+    /**
+     * Search the lines of the workspace files containing the query terms.
+     *
+     * @param projectId Project ID
+     * @param query     the searched terms
+     * @param limit     maximum number of results
+     * @return the matching lines with their path and line number
+     */
+    @RequestMapping(value = "/search", method = RequestMethod.GET)
+    public ResponseEntity<List<SearchResult>> search(@PathVariable("id") String projectId,
+                                                     @RequestParam("q") String query,
+                                                     @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        if (StringUtils.isEmpty(query) || limit <= 0) return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        try {
+            return new ResponseEntity<>(searchService.search(query, limit, projectId), HttpStatus.OK);
+        } catch (ProjectNotFoundException e) {
+            return new ResponseEntity<>(this.getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * Quick-open : find the files and folders matching a name.
+     *
+     * @param projectId Project ID
+     * @param name      the searched name, or a part of the path
+     * @param limit     maximum number of matches
+     * @return the best matches, best first
+     */
+    @RequestMapping(value = "/find", method = RequestMethod.GET)
+    public ResponseEntity<List<PathMatch>> find(@PathVariable("id") String projectId,
+                                                @RequestParam("name") String name,
+                                                @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (StringUtils.isEmpty(name) || limit <= 0) return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        try {
+            return new ResponseEntity<>(pathIndexService.find(name, limit, projectId), HttpStatus.OK);
+        } catch (ProjectNotFoundException e) {
+            return new ResponseEntity<>(this.getErrorHttpHeaders(e), HttpStatus.NOT_FOUND);
         }
     }
 
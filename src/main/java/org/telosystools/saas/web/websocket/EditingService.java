@@ -0,0 +1,32 @@
+package org.telosystools.saas.web.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Controller;
+import org.telosystools.saas.bean.EditMessage;
+import org.telosystools.saas.service.EditSessionService;
+
+import javax.inject.Inject;
+import java.security.Principal;
+
+/**
+ * Receives the operations of the participants of the editing sessions.
+ * The applied operations are broadcast on /topic/projects/{id}/edit.
+ */
+@Controller
+public class EditingService {
+
+    private static final Logger log = LoggerFactory.getLogger(EditingService.class);
+
+    @Inject
+    private EditSessionService editSessionService;
+
+    @MessageMapping("/app/projects/{id}/edit")
+    public void edit(@DestinationVariable("id") String projectId, @Payload EditMessage message, Principal principal) {
+        log.debug("Receiving operation of {} for project {} : {}", principal.getName(), projectId, message);
+        editSessionService.edit(projectId, message, principal.getName());
+    }
+}
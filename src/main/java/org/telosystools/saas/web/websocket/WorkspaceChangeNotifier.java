@@ -0,0 +1,37 @@
+package org.telosystools.saas.web.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.stereotype.Component;
+import org.telosystools.saas.service.event.WorkspaceChangeEvent;
+import org.telosystools.saas.web.websocket.dto.WorkspaceChangeDTO;
+
+import javax.inject.Inject;
+
+/**
+ * Sends the saved changes of a workspace to the members of the project subscribed to
+ * /topic/projects/{id}/workspace, so that the clients do not need to poll the workspace.
+ */
+@Component
+public class WorkspaceChangeNotifier implements ApplicationListener<WorkspaceChangeEvent> {
+
+    public static final String TOPIC = "/topic/projects/%s/workspace";
+
+    private static final Logger log = LoggerFactory.getLogger(WorkspaceChangeNotifier.class);
+
+    @Inject
+    SimpMessageSendingOperations messagingTemplate;
+
+    @Override
+    public void onApplicationEvent(WorkspaceChangeEvent event) {
+        WorkspaceChangeDTO change = new WorkspaceChangeDTO();
+        change.setOp(event.getOperation().name());
+        change.setPath(event.getPath());
+        change.setNewPath(event.getNewPath());
+        change.setRevision(event.getRevision());
+        log.debug("Sending workspace change of project {} : {}", event.getProjectId(), change);
+        messagingTemplate.convertAndSend(String.format(TOPIC, event.getProjectId()), change);
+    }
+}
@@ -0,0 +1,57 @@
+package org.telosystools.saas.web.websocket.dto;
+
+/**
+ * DTO for notifying a saved change of a workspace : the contents are not sent.
+ */
+public class WorkspaceChangeDTO {
+
+    private String op;
+
+    private String path;
+
+    private String newPath;
+
+    private long revision;
+
+    public String getOp() {
+        return op;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getNewPath() {
+        return newPath;
+    }
+
+    public void setNewPath(String newPath) {
+        this.newPath = newPath;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
+    @Override
+    public String toString() {
+        return "WorkspaceChangeDTO{" +
+            "op='" + op + '\'' +
+            ", path='" + path + '\'' +
+            ", newPath='" + newPath + '\'' +
+            ", revision=" + revision +
+            '}';
+    }
+}
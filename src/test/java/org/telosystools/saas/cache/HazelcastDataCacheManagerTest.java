@@ -0,0 +1,99 @@
+package org.telosystools.saas.cache;
+
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.telosystools.saas.config.CacheConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test : caches shared by two Hazelcast members in the same JVM
+ */
+public class HazelcastDataCacheManagerTest {
+
+    private HazelcastInstance member1;
+    private HazelcastInstance member2;
+
+    private DataCache<ArrayList<String>> cache1;
+    private DataCache<ArrayList<String>> cache2;
+
+    @Before
+    public void setUp() {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("cache.type", CacheConfiguration.TYPE_HAZELCAST);
+        environment.setProperty("cache.hazelcast.group", "telosys-saas-test");
+        environment.setProperty("cache.hazelcast.members", "127.0.0.1");
+        environment.setProperty("cache.hazelcast.port", "5801");
+        CacheConfiguration cacheConfiguration = new CacheConfiguration();
+        cacheConfiguration.setEnvironment(environment);
+
+        member1 = Hazelcast.newHazelcastInstance(cacheConfiguration.hazelcastConfig().setInstanceName("member1"));
+        member2 = Hazelcast.newHazelcastInstance(cacheConfiguration.hazelcastConfig().setInstanceName("member2"));
+        assertEquals(2, member1.getCluster().getMembers().size());
+
+        cache1 = new HazelcastDataCacheManager(member1, 5000).getCache(DataCacheManager.FOLDERS);
+        cache2 = new HazelcastDataCacheManager(member2, 5000).getCache(DataCacheManager.FOLDERS);
+    }
+
+    @After
+    public void tearDown() {
+        member2.shutdown();
+        member1.shutdown();
+    }
+
+    @Test
+    public void testSharedValue() throws Exception {
+        cache1.put("db/folder", new ArrayList<>(Arrays.asList("a", "b")));
+        assertEquals(Arrays.asList("a", "b"), cache2.get("db/folder"));
+
+        // Chaque lecture renvoie une copie
+        ArrayList<String> value = cache2.get("db/folder");
+        value.add("c");
+        assertEquals(Arrays.asList("a", "b"), cache2.get("db/folder"));
+
+        // Une valeur lue avant une écriture ne remplace pas la valeur de l'écriture
+        cache2.putIfAbsent("db/folder", value);
+        assertEquals(Arrays.asList("a", "b"), cache1.get("db/folder"));
+        assertTrue(cache2.getHits() >= 3);
+    }
+
+    @Test
+    public void testEvictionOnAllMembers() throws Exception {
+        cache1.put("db/folder", new ArrayList<>(Arrays.asList("a")));
+        // Lecture sur les deux membres : la valeur est dans les near caches
+        assertNotNull(cache1.get("db/folder"));
+        assertNotNull(cache2.get("db/folder"));
+
+        cache2.evict("db/folder");
+        // L'invalidation des near caches est asynchrone
+        long timeout = System.currentTimeMillis() + 5000;
+        while (cache1.get("db/folder") != null && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50);
+        }
+        assertNull(cache1.get("db/folder"));
+        assertNull(cache2.get("db/folder"));
+    }
+
+    @Test
+    public void testStaleValueAfterEviction() throws Exception {
+        cache1.put("db/folder", new ArrayList<>(Arrays.asList("a")));
+        ArrayList<String> stale = cache2.get("db/folder");
+
+        cache1.evict("db/folder");
+        // Une valeur lue avant l'éviction n'est pas remise en cache
+        cache2.putIfAbsent("db/folder", stale);
+        assertNull(cache1.get("db/folder"));
+        assertNull(cache2.get("db/folder"));
+
+        // Une écriture remplace la pierre tombale
+        cache2.put("db/folder", new ArrayList<>(Arrays.asList("b")));
+        assertEquals(Arrays.asList("b"), cache1.get("db/folder"));
+    }
+}
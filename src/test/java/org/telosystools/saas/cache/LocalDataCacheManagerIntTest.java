@@ -0,0 +1,109 @@
+package org.telosystools.saas.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.telosystools.saas.Application;
+import org.telosystools.saas.config.MongoConfiguration;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration Test : local caches of two nodes, kept coherent by the invalidation bus
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@Import(MongoConfiguration.class)
+public class LocalDataCacheManagerIntTest {
+
+    private String key;
+
+    @Inject
+    private MongoTemplate mongoTemplate;
+
+    private MongoInvalidationBus bus1;
+    private MongoInvalidationBus bus2;
+
+    private DataCache<ArrayList<String>> cache1;
+    private DataCache<ArrayList<String>> cache2;
+
+    @Before
+    public void setUp() throws Exception {
+        bus1 = new MongoInvalidationBus(mongoTemplate, 100);
+        bus2 = new MongoInvalidationBus(mongoTemplate, 100);
+        LocalDataCacheManager manager1 = new LocalDataCacheManager(bus1, 100, 60000, 5000);
+        LocalDataCacheManager manager2 = new LocalDataCacheManager(bus2, 100, 60000, 5000);
+        bus1.start(manager1);
+        bus2.start(manager2);
+        // Chaque test utilise sa clé : les invalidations des tests précédents sont relues au démarrage
+        key = "db/" + UUID.randomUUID();
+        long timeout = System.currentTimeMillis() + 5000;
+        while (!(bus1.isTailing() && bus2.isTailing()) && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertTrue(bus1.isTailing() && bus2.isTailing());
+        cache1 = manager1.getCache(DataCacheManager.FOLDERS);
+        cache2 = manager2.getCache(DataCacheManager.FOLDERS);
+    }
+
+    @After
+    public void tearDown() {
+        bus1.stop();
+        bus2.stop();
+    }
+
+    @Test
+    public void testCopies() throws Exception {
+        cache1.putIfAbsent(key, new ArrayList<>(Arrays.asList("a")));
+        ArrayList<String> value = cache1.get(key);
+        value.add("b");
+        assertEquals(Arrays.asList("a"), cache1.get(key));
+        // Les caches sont locaux
+        assertNull(cache2.get(key));
+    }
+
+    @Test
+    public void testInvalidationOnOtherNode() throws Exception {
+        cache2.putIfAbsent(key, new ArrayList<>(Arrays.asList("a")));
+        cache1.put(key, new ArrayList<>(Arrays.asList("b")));
+
+        waitUntilEvicted(cache2);
+        assertNull(cache2.get(key));
+        // La valeur écrite reste dans le cache du noeud qui l'a publiée
+        assertEquals(Arrays.asList("b"), cache1.get(key));
+        assertTrue(bus2.getReceived() >= 1);
+        assertTrue(bus1.getPublished() >= 1);
+
+        // Une valeur lue avant l'invalidation n'est pas mise en cache
+        cache2.putIfAbsent(key, new ArrayList<>(Arrays.asList("a")));
+        assertNull(cache2.get(key));
+    }
+
+    @Test
+    public void testEvict() throws Exception {
+        cache1.putIfAbsent(key, new ArrayList<>(Arrays.asList("a")));
+        cache2.putIfAbsent(key, new ArrayList<>(Arrays.asList("a")));
+        cache2.evict(key);
+
+        assertNull(cache2.get(key));
+        waitUntilEvicted(cache1);
+        assertNull(cache1.get(key));
+    }
+
+    private void waitUntilEvicted(DataCache<?> cache) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 5000;
+        while (cache.get(key) != null && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+    }
+}
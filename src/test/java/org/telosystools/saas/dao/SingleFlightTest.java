@@ -0,0 +1,120 @@
+package org.telosystools.saas.dao;
+
+import org.junit.Test;
+import org.telosystools.saas.exception.FileNotFoundException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test : concurrent loads of a same key sharing a single load
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentLoads() throws Exception {
+        final SingleFlight<List<String>> loads = new SingleFlight<>("test", ArrayList::new);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger reads = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<List<String>> first = executor.submit(() -> loads.load("key", () -> {
+                started.countDown();
+                release.await();
+                reads.incrementAndGet();
+                final List<String> value = new ArrayList<>();
+                value.add("value");
+                return value;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            final Future<List<String>> second = executor.submit(() -> loads.load("key", () -> {
+                reads.incrementAndGet();
+                return new ArrayList<>();
+            }));
+            // Le second appel attend le chargement du premier
+            while (loads.getCollapsed() == 0) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertEquals(first.get(), second.get());
+            assertNotSame(first.get(), second.get());
+            assertEquals(1, reads.get());
+            assertEquals(1, loads.getLoads());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Rien n'est conservé après le chargement
+        assertTrue(loads.load("key", ArrayList::new).isEmpty());
+        assertEquals(2, loads.getLoads());
+    }
+
+    @Test
+    public void testLoadModifiedByFirstCaller() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch modified = new CountDownLatch(1);
+        final List<Thread> loaders = new CopyOnWriteArrayList<>();
+        // Les appelants en attente copient après la modification de la valeur par le premier appelant
+        final SingleFlight<List<String>> loads = new SingleFlight<>("test", value -> {
+            if (!loaders.contains(Thread.currentThread())) {
+                try {
+                    modified.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new ArrayList<>(value);
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final Future<List<String>> first = executor.submit(() -> {
+                final List<String> value = loads.load("key", () -> {
+                    loaders.add(Thread.currentThread());
+                    started.countDown();
+                    release.await();
+                    final List<String> loaded = new ArrayList<>();
+                    loaded.add("value");
+                    return loaded;
+                });
+                value.add("modified");
+                modified.countDown();
+                return value;
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            final List<Future<List<String>>> waiters = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                waiters.add(executor.submit(() -> loads.load("key", ArrayList::new)));
+            }
+            while (loads.getCollapsed() < 2) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertEquals(2, first.get().size());
+            for (Future<List<String>> waiter : waiters) {
+                assertEquals(1, waiter.get().size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testLoadException() throws Exception {
+        new SingleFlight<String>("test").load("key", () -> {
+            throw new FileNotFoundException("key");
+        });
+    }
+}
@@ -0,0 +1,46 @@
+package org.telosystools.saas.generator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.telosystools.saas.config.GenerationConfiguration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test : the uploaded templates cannot reach the classes of the server
+ */
+public class TemplateRendererTest {
+
+    private TemplateRenderer templateRenderer;
+
+    private Map<String, Object> context;
+
+    @Before
+    public void setUp() {
+        templateRenderer = new TemplateRenderer();
+        ReflectionTestUtils.setField(templateRenderer, "velocityRuntime", new GenerationConfiguration().velocityRuntime());
+        context = new HashMap<>();
+        context.put("x", "Book");
+    }
+
+    @Test
+    public void testRender() throws Exception {
+        assertEquals("Book 4", render("$x ${x.length()}"));
+    }
+
+    @Test
+    public void testRuntimeNotReachable() throws Exception {
+        // Référence non résolue : rendue telle quelle, sans exécuter la commande
+        final String exec = "$x.class.forName('java.lang.Runtime').getRuntime().exec('touch /tmp/telosys-test')";
+        assertEquals(exec, render(exec));
+        assertEquals("$x.class.getClassLoader()", render("$x.class.getClassLoader()"));
+    }
+
+    private String render(String source) throws Exception {
+        return templateRenderer.render(templateRenderer.compile("test.vm", source), context, "Book");
+    }
+}
@@ -0,0 +1,108 @@
+package org.telosystools.saas.security.security;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.telosystools.saas.Application;
+import org.telosystools.saas.config.MongoConfiguration;
+import org.telosystools.saas.dao.ProjectRepository;
+import org.telosystools.saas.domain.project.Project;
+import org.telosystools.saas.security.domain.User;
+import org.telosystools.saas.security.repository.UserRepository;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Test : only the members of a project subscribe to its topics
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@Import(MongoConfiguration.class)
+public class ProjectMemberChannelInterceptorTest {
+
+    public static final String OWNER = "channelOwner";
+    public static final String CONTRIBUTOR = "channelContributor";
+    public static final String OUTSIDER = "channelOutsider";
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private ProjectMemberChannelInterceptor interceptor;
+
+    private Project project;
+
+    private User contributor;
+
+    private User outsider;
+
+    @Before
+    public void setUp() {
+        interceptor = new ProjectMemberChannelInterceptor(projectRepository, userRepository);
+
+        project = new Project();
+        project.setName("ChannelProject");
+        project.setOwner(OWNER);
+        project = projectRepository.save(project);
+
+        contributor = new User(CONTRIBUTOR);
+        contributor.setEmail("contributor@channel");
+        contributor.setPassword("password");
+        contributor.addContribution(project.getId());
+        outsider = new User(OUTSIDER);
+        outsider.setEmail("outsider@channel");
+        outsider.setPassword("password");
+        contributor = userRepository.save(contributor);
+        outsider = userRepository.save(outsider);
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+        userRepository.delete(contributor);
+        userRepository.delete(outsider);
+        projectRepository.delete(project);
+    }
+
+    @Test
+    public void testOwnerSubscribes() {
+        authenticate(OWNER);
+        assertNotNull(interceptor.preSend(subscribe(), null));
+    }
+
+    @Test
+    public void testContributorSubscribes() {
+        authenticate(CONTRIBUTOR);
+        assertNotNull(interceptor.preSend(subscribe(), null));
+    }
+
+    @Test(expected = AccessDeniedException.class)
+    public void testOutsiderDenied() {
+        authenticate(OUTSIDER);
+        interceptor.preSend(subscribe(), null);
+    }
+
+    private void authenticate(String login) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(login, null));
+    }
+
+    private Message<byte[]> subscribe() {
+        final SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        headers.setDestination("/topic/projects/" + project.getId() + "/workspace");
+        return MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+    }
+}
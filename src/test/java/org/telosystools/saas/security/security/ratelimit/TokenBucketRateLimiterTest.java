@@ -0,0 +1,55 @@
+package org.telosystools.saas.security.security.ratelimit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test : token buckets of the API rate limits
+ */
+public class TokenBucketRateLimiterTest {
+
+    private static final String BUDGET = "write";
+
+    private TokenBucketRateLimiter rateLimiter;
+
+    @Before
+    public void setUp() {
+        rateLimiter = new TokenBucketRateLimiter(1000);
+        rateLimiter.addBudget(BUDGET, 3, 10);
+    }
+
+    @Test
+    public void testBurstThenRefill() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(BUDGET, "user"));
+        }
+        final long wait = rateLimiter.tryAcquire(BUDGET, "user");
+        assertTrue(wait > 0 && wait <= 100);
+        assertEquals(1, rateLimiter.getRejected(BUDGET));
+
+        // Les autres clients ont leur propre bucket
+        assertEquals(0, rateLimiter.tryAcquire(BUDGET, "admin"));
+
+        Thread.sleep(wait + 20);
+        assertEquals(0, rateLimiter.tryAcquire(BUDGET, "user"));
+        assertEquals(5, rateLimiter.getAccepted(BUDGET));
+    }
+
+    @Test
+    public void testMaxClients() {
+        final TokenBucketRateLimiter limited = new TokenBucketRateLimiter(128);
+        limited.addBudget(BUDGET, 3, 0.001);
+        // Aucun bucket n'est plein : les moins récemment utilisés sont évincés
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, limited.tryAcquire(BUDGET, "client" + i));
+        }
+        assertTrue(limited.size() <= 128);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownBudget() {
+        rateLimiter.tryAcquire("unknown", "user");
+    }
+}
@@ -0,0 +1,98 @@
+package org.telosystools.saas.service.impl;
+
+import com.mongodb.Mongo;
+import com.mongodb.gridfs.GridFS;
+import com.mongodb.gridfs.GridFSInputFile;
+import org.bson.types.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.telosystools.saas.Application;
+import org.telosystools.saas.bean.CollectReport;
+import org.telosystools.saas.config.MongoConfiguration;
+import org.telosystools.saas.dao.FileDao;
+import org.telosystools.saas.domain.filesystem.File;
+import org.telosystools.saas.domain.filesystem.Workspace;
+import org.telosystools.saas.exception.FileNotFoundException;
+import org.telosystools.saas.service.WorkspaceService;
+
+import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Integration Test : GridFS garbage collector
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@Import(MongoConfiguration.class)
+public class BlobCollectorServiceIntTest {
+
+    private static final String PROJECT = "PROJECT_GC";
+    private static final String FILE_PATH = Workspace.MODEL + "/Book.entity";
+    private static final String FILE_CONTENT = "Book {}";
+    private static final String FOREIGN_DATABASE = "FOREIGN_GC";
+
+    @Inject
+    private WorkspaceService workspaceService;
+
+    @Inject
+    private BlobCollectorServiceImpl blobCollectorService;
+
+    @Inject
+    private FileDao fileDao;
+
+    @Inject
+    private Mongo mongo;
+
+    private Object gracePeriodMinutes;
+
+    @Before
+    public void setUp() throws Exception {
+        workspaceService.createWorkspace(PROJECT);
+        workspaceService.createFile(FILE_PATH, FILE_CONTENT, PROJECT);
+        gracePeriodMinutes = ReflectionTestUtils.getField(blobCollectorService, "gracePeriodMinutes");
+        ReflectionTestUtils.setField(blobCollectorService, "gracePeriodMinutes", -1L);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ReflectionTestUtils.setField(blobCollectorService, "gracePeriodMinutes", gracePeriodMinutes);
+        workspaceService.deleteWorkspace(PROJECT);
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testCollectOrphan() throws Exception {
+        File orphan = new File(Workspace.MODEL + "/Orphan.entity");
+        fileDao.save(orphan, new ByteArrayInputStream("Orphan {}".getBytes()), PROJECT);
+
+        CollectReport report = blobCollectorService.collect();
+        assertNotNull(report);
+        assertEquals(orphan.getSize().longValue(), report.getReclaimedBytes());
+        assertEquals(FILE_CONTENT, workspaceService.getFileContent(FILE_PATH, PROJECT).getContent());
+
+        fileDao.loadContent(orphan, PROJECT);
+    }
+
+    @Test
+    public void testForeignDatabaseNotCollected() throws Exception {
+        // Base d'une autre application du même serveur, avec un bucket GridFS
+        GridFSInputFile content = new GridFS(mongo.getDB(FOREIGN_DATABASE)).createFile("foreign".getBytes());
+        content.save();
+        try {
+            blobCollectorService.collect();
+            assertTrue(mongo.getDatabaseNames().contains(FOREIGN_DATABASE));
+            assertNotNull(new GridFS(mongo.getDB(FOREIGN_DATABASE)).findOne((ObjectId) content.getId()));
+        } finally {
+            mongo.dropDatabase(FOREIGN_DATABASE);
+        }
+    }
+}
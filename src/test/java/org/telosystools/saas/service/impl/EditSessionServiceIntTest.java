@@ -0,0 +1,123 @@
+package org.telosystools.saas.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.telosystools.saas.Application;
+import org.telosystools.saas.bean.EditMessage;
+import org.telosystools.saas.bean.EditSnapshot;
+import org.telosystools.saas.bean.TextOperation;
+import org.telosystools.saas.config.MongoConfiguration;
+import org.telosystools.saas.domain.filesystem.Workspace;
+import org.telosystools.saas.service.WorkspaceService;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Integration Test : collaborative editing sessions
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@Import(MongoConfiguration.class)
+public class EditSessionServiceIntTest {
+
+    private static final String PROJECT = "PROJECT_EDIT";
+    private static final String FILE_PATH = Workspace.TEMPLATES + "/bean.vm";
+
+    @Inject
+    private WorkspaceService workspaceService;
+
+    @Inject
+    private EditSessionServiceImpl editSessionService;
+
+    @Before
+    public void setUp() throws Exception {
+        workspaceService.createWorkspace(PROJECT);
+        workspaceService.createFile(FILE_PATH, "hello", PROJECT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        workspaceService.deleteWorkspace(PROJECT);
+    }
+
+    @Test
+    public void testTransform() throws Exception {
+        TextOperation a = new TextOperation().retain(5).insert(" world");
+        TextOperation b = new TextOperation().insert("Oh, ").retain(5);
+        TextOperation[] transformed = TextOperation.transform(a, b);
+        assertEquals("Oh, hello world", transformed[1].apply(a.apply("hello")));
+        assertEquals("Oh, hello world", transformed[0].apply(b.apply("hello")));
+
+        TextOperation delete = new TextOperation().retain(1).delete(3).retain(1);
+        TextOperation overlap = new TextOperation().retain(2).delete(3);
+        transformed = TextOperation.transform(delete, overlap);
+        assertEquals("h", transformed[1].apply(delete.apply("hello")));
+        assertEquals("h", transformed[0].apply(overlap.apply("hello")));
+    }
+
+    @Test
+    public void testConcurrentOperations() throws Exception {
+        EditSnapshot snapshot = editSessionService.join(PROJECT, FILE_PATH);
+        assertEquals("hello", snapshot.getContent());
+        final long flushes = editSessionService.getFlushes();
+
+        // Deux opérations basées sur la même révision : la seconde est transformée
+        editSessionService.edit(PROJECT, operation("A", snapshot.getRevision(), new TextOperation().retain(5).insert(" world")), "user");
+        editSessionService.edit(PROJECT, operation("B", snapshot.getRevision(), new TextOperation().insert("Oh, ").retain(5)), "user");
+        snapshot = editSessionService.join(PROJECT, FILE_PATH);
+        assertEquals("Oh, hello world", snapshot.getContent());
+        assertEquals(2, snapshot.getRevision());
+
+        // Les opérations ne sont écrites qu'à la sauvegarde, en une seule écriture
+        assertEquals("hello", workspaceService.getFileContent(FILE_PATH, PROJECT).getContent());
+        editSessionService.flush(PROJECT, FILE_PATH);
+        assertEquals("Oh, hello world", workspaceService.getFileContent(FILE_PATH, PROJECT).getContent());
+        assertEquals(flushes + 1, editSessionService.getFlushes());
+        assertFalse(editSessionService.flush(PROJECT, FILE_PATH));
+    }
+
+    @Test
+    public void testRejectedOperation() throws Exception {
+        editSessionService.join(PROJECT, FILE_PATH);
+        final long rejected = editSessionService.getRejectedOperations();
+
+        editSessionService.edit(PROJECT, operation("A", 5, new TextOperation().retain(5).insert("!")), "user");
+        editSessionService.edit(PROJECT, operation("A", 0, new TextOperation().retain(3).insert("!")), "user");
+        assertEquals(rejected + 2, editSessionService.getRejectedOperations());
+        assertEquals("hello", editSessionService.join(PROJECT, FILE_PATH).getContent());
+    }
+
+    @Test
+    public void testOutsideWrite() throws Exception {
+        editSessionService.join(PROJECT, FILE_PATH);
+        editSessionService.edit(PROJECT, operation("A", 0, new TextOperation().retain(5).insert("!")), "user");
+
+        // Une écriture hors de la session remplace le document
+        workspaceService.updateFile(FILE_PATH, "bonjour", PROJECT);
+        EditSnapshot snapshot = editSessionService.join(PROJECT, FILE_PATH);
+        assertEquals("bonjour", snapshot.getContent());
+        assertEquals(2, snapshot.getRevision());
+        assertFalse(editSessionService.flush(PROJECT, FILE_PATH));
+
+        // Le document suit le fichier renommé
+        workspaceService.renameFile(FILE_PATH, "dao.vm", PROJECT);
+        assertEquals("bonjour", editSessionService.join(PROJECT, Workspace.TEMPLATES + "/dao.vm").getContent());
+    }
+
+    private EditMessage operation(String clientId, long revision, TextOperation operation) {
+        EditMessage message = new EditMessage(EditMessage.Type.OPERATION, FILE_PATH);
+        message.setClientId(clientId);
+        message.setRevision(revision);
+        message.setOperation(new ArrayList<>(operation.getComponents()));
+        return message;
+    }
+}
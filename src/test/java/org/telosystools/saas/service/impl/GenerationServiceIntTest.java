@@ -0,0 +1,222 @@
+package org.telosystools.saas.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.telosystools.saas.Application;
+import org.telosystools.saas.bean.GenerationJob;
+import org.telosystools.saas.bean.GenerationReport;
+import org.telosystools.saas.config.MongoConfiguration;
+import org.telosystools.saas.dao.ProjectRepository;
+import org.telosystools.saas.domain.filesystem.FileData;
+import org.telosystools.saas.domain.filesystem.Workspace;
+import org.telosystools.saas.domain.project.Project;
+import org.telosystools.saas.domain.project.ProjectConfiguration;
+import org.telosystools.saas.generator.TemplateCache;
+import org.telosystools.saas.service.GenerationJobService;
+import org.telosystools.saas.service.GenerationListener;
+import org.telosystools.saas.service.GenerationService;
+import org.telosystools.saas.service.WorkspaceService;
+
+import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Integration Test : code generation service
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@Import(MongoConfiguration.class)
+public class GenerationServiceIntTest {
+
+    private static final String BUNDLE = "basic";
+
+    @Inject
+    private WorkspaceService workspaceService;
+
+    @Inject
+    private GenerationService generationService;
+
+    @Inject
+    private ProjectRepository projectRepository;
+
+    @Inject
+    private TemplateCache templateCache;
+
+    @Inject
+    private GenerationJobService generationJobService;
+
+    private String projectId;
+
+    @Before
+    public void setUp() throws Exception {
+        Project project = new Project();
+        project.setName("project-generation");
+        ProjectConfiguration config = new ProjectConfiguration();
+        config.getFolders().setSrc("src/main/java");
+        config.getFolders().setDoc("doc");
+        config.getPackages().setEntityPkg("org.demo.bean");
+        project.setProjectConfiguration(config);
+        projectId = projectRepository.save(project).getId();
+
+        workspaceService.createWorkspace(projectId);
+        workspaceService.createFile(Workspace.MODEL + "/Book.entity", "Book {\n  id : int { @Id } ;\n  title : string { @NotNull } ;\n}", projectId);
+        workspaceService.createFile(Workspace.MODEL + "/Author.entity", "Author {\n  id : int { @Id } ;\n  books : Book[] ;\n}", projectId);
+        workspaceService.createFolder(Workspace.TEMPLATES + "/" + BUNDLE, projectId);
+        workspaceService.createFile(Workspace.TEMPLATES + "/" + BUNDLE + "/templates.cfg",
+                "Bean ; ${BEANNAME}.java ; ${SRC}/${ENTITY_PKG} ; bean.vm ; *\n"
+                        + "Readme ; README.md ; ${DOC} ; readme.vm ; 1\n", projectId);
+        workspaceService.createFile(Workspace.TEMPLATES + "/" + BUNDLE + "/bean.vm",
+                "public class ${entity.name} {\n#foreach($attribute in $entity.attributes)\n  private ${attribute.simpleType} ${attribute.name};\n#end\n}", projectId);
+        workspaceService.createFile(Workspace.TEMPLATES + "/" + BUNDLE + "/readme.vm", "$model.size() entities", projectId);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        workspaceService.deleteWorkspace(projectId);
+        projectRepository.delete(projectId);
+    }
+
+    @Test
+    public void testGenerate() throws Exception {
+        GenerationReport report = generationService.generate(projectId, BUNDLE, false);
+        assertTrue(report.getErrors().toString(), report.getErrors().isEmpty());
+        assertEquals(2, report.getEntities());
+        assertEquals(2, report.getTargets());
+        assertEquals(3, report.getRenderedFiles());
+
+        String bean = workspaceService.getFileContent(Workspace.GENERATED + "/src/main/java/org/demo/bean/Book.java", projectId).getContent();
+        assertTrue(bean, bean.contains("public class Book {"));
+        assertTrue(bean, bean.contains("private String title;"));
+        assertEquals("2 entities", workspaceService.getFileContent(Workspace.GENERATED + "/doc/README.md", projectId).getContent());
+    }
+
+    @Test
+    public void testGenerateWithInvalidEntity() throws Exception {
+        workspaceService.createFile(Workspace.MODEL + "/Broken.entity", "Other { }", projectId);
+        GenerationReport report = generationService.generate(projectId, null, false);
+        assertEquals(1, report.getErrors().size());
+        assertEquals(2, report.getEntities());
+    }
+
+    @Test
+    public void testIncrementalGenerate() throws Exception {
+        generationService.generate(projectId, BUNDLE, false);
+
+        GenerationReport report = generationService.generate(projectId, BUNDLE, false);
+        assertEquals(0, report.getRenderedFiles());
+        assertEquals(3, report.getSkippedFiles());
+
+        // Le bean de l'entité modifiée et le fichier du modèle sont produits, seul le bean change
+        workspaceService.updateFile(Workspace.MODEL + "/Book.entity", "Book {\n  id : int { @Id } ;\n  isbn : string ;\n}", projectId);
+        report = generationService.generate(projectId, BUNDLE, false);
+        assertEquals(1, report.getSkippedFiles());
+        assertEquals(2, report.getRenderedFiles());
+        assertEquals(1, report.getUnchangedFiles());
+        String bean = workspaceService.getFileContent(Workspace.GENERATED + "/src/main/java/org/demo/bean/Book.java", projectId).getContent();
+        assertTrue(bean, bean.contains("private String isbn;"));
+
+        // Un fichier modifié dans le workspace est produit de nouveau
+        workspaceService.updateFile(Workspace.GENERATED + "/doc/README.md", "edited", projectId);
+        report = generationService.generate(projectId, BUNDLE, false);
+        assertEquals(1, report.getRenderedFiles());
+        assertEquals("2 entities", workspaceService.getFileContent(Workspace.GENERATED + "/doc/README.md", projectId).getContent());
+
+        // Un rendu identique n'est pas écrit
+        report = generationService.generate(projectId, BUNDLE, true);
+        assertEquals(3, report.getRenderedFiles());
+        assertEquals(3, report.getUnchangedFiles());
+    }
+
+    @Test
+    public void testPreviewUsesTemplateCache() throws Exception {
+        FileData preview = generationService.preview(projectId, Workspace.TEMPLATES + "/" + BUNDLE + "/bean.vm", "Book");
+        assertEquals(Workspace.GENERATED + "/src/main/java/org/demo/bean/Book.java", preview.getPath());
+        assertTrue(preview.getContent(), preview.getContent().contains("public class Book {"));
+
+        long hits = templateCache.getHits();
+        preview = generationService.preview(projectId, Workspace.TEMPLATES + "/" + BUNDLE + "/bean.vm", "Author");
+        assertTrue(preview.getContent(), preview.getContent().contains("public class Author {"));
+        assertEquals(hits + 1, templateCache.getHits());
+
+        // Une nouvelle version du template a un autre identifiant GridFS
+        workspaceService.updateFile(Workspace.TEMPLATES + "/" + BUNDLE + "/bean.vm", "class ${entity.name}", projectId);
+        assertEquals("class Book", generationService.preview(projectId, Workspace.TEMPLATES + "/" + BUNDLE + "/bean.vm", "Book").getContent());
+    }
+
+    @Test
+    public void testGenerationJob() throws Exception {
+        GenerationJob job = generationJobService.submit(projectId, BUNDLE, false);
+        for (int i = 0; i < 100 && !job.isFinished(); i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(GenerationJob.Status.DONE, generationJobService.getJob(projectId, job.getId()).getStatus());
+        assertEquals(3, job.getReport().getRenderedFiles());
+        assertEquals(3, job.getTotalFiles());
+        assertEquals(job.getId(), generationJobService.getJobs(projectId).get(0).getId());
+    }
+
+    @Test
+    public void testSynchronousGenerationRecordedAsJob() throws Exception {
+        GenerationReport report = generationJobService.generate(projectId, BUNDLE, false);
+        assertEquals(3, report.getRenderedFiles());
+        GenerationJob job = generationJobService.getJobs(projectId).get(0);
+        assertEquals(GenerationJob.Status.DONE, job.getStatus());
+        // Le projet est libéré : un job peut être lancé
+        job = generationJobService.submit(projectId, BUNDLE, false);
+        for (int i = 0; i < 100 && !job.isFinished(); i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(GenerationJob.Status.DONE, job.getStatus());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testCancelledGeneration() throws Exception {
+        try {
+            generationService.generate(projectId, BUNDLE, false, new GenerationListener() {
+                @Override
+                public void onProgress(int renderedFiles, int totalFiles) {
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return true;
+                }
+            });
+        } finally {
+            assertFalse(workspaceService.getWorkspace(projectId).getGenerated().getFolders().containsKey("doc"));
+        }
+    }
+
+    @Test
+    public void testGenerateZip() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GenerationReport report = generationService.generateZip(projectId, BUNDLE, out);
+        assertEquals(3, report.getRenderedFiles());
+
+        List<String> entries = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.add(entry.getName());
+            }
+        }
+        assertEquals(Arrays.asList("doc/README.md", "src/main/java/org/demo/bean/Author.java", "src/main/java/org/demo/bean/Book.java"), entries);
+        assertTrue(workspaceService.getWorkspace(projectId).getGenerated().getFolders().isEmpty());
+    }
+}
@@ -0,0 +1,101 @@
+package org.telosystools.saas.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.telosystools.saas.Application;
+import org.telosystools.saas.bean.AttributeRef;
+import org.telosystools.saas.config.MongoConfiguration;
+import org.telosystools.saas.domain.filesystem.Workspace;
+import org.telosystools.saas.generator.model.Entity;
+import org.telosystools.saas.generator.model.ParsedModel;
+import org.telosystools.saas.service.EntityGraphService;
+import org.telosystools.saas.service.ModelService;
+import org.telosystools.saas.service.WorkspaceService;
+
+import javax.inject.Inject;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration Test : model service
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@Import(MongoConfiguration.class)
+public class ModelServiceIntTest {
+
+    private static final String PROJECT = "PROJECT_MODEL";
+    private static final String BOOK_PATH = Workspace.MODEL + "/Book.entity";
+
+    @Inject
+    private WorkspaceService workspaceService;
+
+    @Inject
+    private ModelService modelService;
+
+    @Inject
+    private EntityGraphService entityGraphService;
+
+    @Before
+    public void setUp() throws Exception {
+        workspaceService.createWorkspace(PROJECT);
+        workspaceService.createFile(BOOK_PATH, "Book {\n  id : int { @Id } ;\n  published : date ;\n}", PROJECT);
+        workspaceService.createFile(Workspace.MODEL + "/Author.entity", "Author {\n  id : int { @Id } ;\n  books : Book[] ;\n}", PROJECT);
+        workspaceService.createFile(Workspace.MODEL + "/Broken.entity", "Broken", PROJECT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        workspaceService.deleteWorkspace(PROJECT);
+    }
+
+    @Test
+    public void testGetModel() throws Exception {
+        ParsedModel parsedModel = modelService.getModel(PROJECT);
+        assertEquals(2, parsedModel.getModel().size());
+        assertEquals(1, parsedModel.getErrors().size());
+        assertNotNull(parsedModel.getEntityHashes().get("Book"));
+    }
+
+    @Test
+    public void testOnlyChangedFilesAreParsed() throws Exception {
+        ParsedModel parsedModel = modelService.getModel(PROJECT);
+        Entity book = parsedModel.getModel().getEntity("Book");
+        Entity author = parsedModel.getModel().getEntity("Author");
+        String bookHash = parsedModel.getEntityHashes().get("Book");
+
+        workspaceService.updateFile(BOOK_PATH, "Book {\n  id : int { @Id } ;\n}", PROJECT);
+        parsedModel = modelService.getModel(PROJECT);
+        assertSame(author, parsedModel.getModel().getEntity("Author"));
+        assertNotSame(book, parsedModel.getModel().getEntity("Book"));
+        assertEquals(1, parsedModel.getModel().getEntity("Book").getAttributes().size());
+        assertNotEquals(bookHash, parsedModel.getEntityHashes().get("Book"));
+
+        workspaceService.removeFile(BOOK_PATH, PROJECT);
+        assertNull(modelService.getModel(PROJECT).getModel().getEntity("Book"));
+    }
+
+    @Test
+    public void testEntityGraph() throws Exception {
+        assertEquals(2, entityGraphService.getEntityNames(PROJECT).size());
+        List<AttributeRef> referencing = entityGraphService.getReferencing(PROJECT, "Book");
+        assertEquals(1, referencing.size());
+        assertEquals("Author", referencing.get(0).getEntity());
+        assertEquals("books", referencing.get(0).getAttribute());
+        assertTrue(referencing.get(0).isCollection());
+        assertEquals("published", entityGraphService.findAttributesByType(PROJECT, "Date").get(0).getAttribute());
+
+        // Le graphe suit les modifications des fichiers du modèle
+        workspaceService.updateFile(BOOK_PATH, "Book {\n  id : int { @Id } ;\n}", PROJECT);
+        assertTrue(entityGraphService.findAttributesByType(PROJECT, "date").isEmpty());
+        workspaceService.removeFile(Workspace.MODEL + "/Author.entity", PROJECT);
+        assertTrue(entityGraphService.getReferencing(PROJECT, "Book").isEmpty());
+        assertEquals(1, entityGraphService.getEntityNames(PROJECT).size());
+    }
+}
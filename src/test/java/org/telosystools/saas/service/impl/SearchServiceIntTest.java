@@ -0,0 +1,81 @@
+package org.telosystools.saas.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.telosystools.saas.Application;
+import org.telosystools.saas.bean.SearchResult;
+import org.telosystools.saas.config.MongoConfiguration;
+import org.telosystools.saas.domain.filesystem.Workspace;
+import org.telosystools.saas.service.SearchService;
+import org.telosystools.saas.service.WorkspaceService;
+
+import javax.inject.Inject;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Integration Test : full-text search service
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@Import(MongoConfiguration.class)
+public class SearchServiceIntTest {
+
+    private static final String PROJECT = "PROJECT_SEARCH";
+    private static final String FILE_PATH = Workspace.TEMPLATES + "/bean.vm";
+    private static final String FILE_CONTENT = "package ${target.javaPackageFromFolder};\n\npublic class ${entity.name} {\n}";
+
+    @Inject
+    private WorkspaceService workspaceService;
+
+    @Inject
+    private SearchService searchService;
+
+    @Before
+    public void setUp() throws Exception {
+        workspaceService.createWorkspace(PROJECT);
+        workspaceService.createFile(FILE_PATH, FILE_CONTENT, PROJECT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        workspaceService.deleteWorkspace(PROJECT);
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        List<SearchResult> results = searchService.search("entity.name", 10, PROJECT);
+        assertEquals(1, results.size());
+        assertEquals(FILE_PATH, results.get(0).getPath());
+        assertEquals(3, results.get(0).getLine());
+        assertEquals("public class ${entity.name} {", results.get(0).getSnippet());
+    }
+
+    @Test
+    public void testSearchPrefix() throws Exception {
+        assertEquals(1, searchService.search("javaPack", 10, PROJECT).size());
+        assertTrue(searchService.search("entity javaPack", 10, PROJECT).isEmpty());
+    }
+
+    @Test
+    public void testSearchAfterUpdate() throws Exception {
+        searchService.search("entity", 10, PROJECT);
+        workspaceService.updateFile(FILE_PATH, "${entity.name}", PROJECT);
+        assertTrue(searchService.search("package", 10, PROJECT).isEmpty());
+
+        workspaceService.renameFile(FILE_PATH, "dao.vm", PROJECT);
+        List<SearchResult> results = searchService.search("entity", 10, PROJECT);
+        assertEquals(1, results.size());
+        assertEquals(Workspace.TEMPLATES + "/dao.vm", results.get(0).getPath());
+
+        workspaceService.removeFile(Workspace.TEMPLATES + "/dao.vm", PROJECT);
+        assertTrue(searchService.search("entity", 10, PROJECT).isEmpty());
+    }
+}
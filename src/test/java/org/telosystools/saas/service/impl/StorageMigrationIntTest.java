@@ -0,0 +1,82 @@
+package org.telosystools.saas.service.impl;
+
+import com.mongodb.Mongo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.telosystools.saas.Application;
+import org.telosystools.saas.bean.MigrationReport;
+import org.telosystools.saas.config.MongoConfiguration;
+import org.telosystools.saas.dao.StorageLayout;
+import org.telosystools.saas.dao.WorkspaceStorageDao;
+import org.telosystools.saas.domain.filesystem.Workspace;
+import org.telosystools.saas.service.WorkspaceService;
+
+import javax.inject.Inject;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration Test : migration of a workspace between the storage layouts
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@Import(MongoConfiguration.class)
+public class StorageMigrationIntTest {
+
+    private static final String PROJECT = "PROJECT_STORAGE";
+    private static final String FILE_PATH = Workspace.MODEL + "/Book.entity";
+    private static final String FILE_CONTENT = "Book {}";
+    private static final String MODIFIED_FILE_CONTENT = "Book { title : string }";
+
+    @Inject
+    private WorkspaceService workspaceService;
+
+    @Inject
+    private WorkspaceStorageDao workspaceStorageDao;
+
+    @Inject
+    private Mongo mongo;
+
+    @Before
+    public void setUp() throws Exception {
+        workspaceService.createWorkspace(PROJECT);
+        workspaceService.createFile(FILE_PATH, FILE_CONTENT, PROJECT);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        workspaceService.deleteWorkspace(PROJECT);
+    }
+
+    @Test
+    public void testMigration() throws Exception {
+        assertEquals(StorageLayout.DATABASE, workspaceStorageDao.getLayoutName(PROJECT));
+
+        // Vers les collections partagées : la base du workspace est supprimée
+        MigrationReport report = new MigrationReport(StorageLayout.SHARED);
+        assertTrue(workspaceStorageDao.migrate(PROJECT, StorageLayout.SHARED, report));
+        assertEquals(StorageLayout.SHARED, workspaceStorageDao.getLayoutName(PROJECT));
+        assertEquals(1, report.getContents());
+        assertTrue(report.getDocuments() >= 3);
+        assertFalse(mongo.getDatabaseNames().contains(PROJECT));
+        assertTrue(workspaceStorageDao.listDatabases().contains(PROJECT));
+        assertEquals(FILE_CONTENT, workspaceService.getFileContent(FILE_PATH, PROJECT).getContent());
+        assertNotNull(workspaceService.getWorkspace(PROJECT).getModel());
+
+        workspaceService.updateFile(FILE_PATH, MODIFIED_FILE_CONTENT, PROJECT);
+        assertEquals(MODIFIED_FILE_CONTENT, workspaceService.getFileContent(FILE_PATH, PROJECT).getContent());
+
+        // Retour à une base par workspace
+        assertTrue(workspaceStorageDao.migrate(PROJECT, StorageLayout.DATABASE, new MigrationReport(StorageLayout.DATABASE)));
+        assertEquals(StorageLayout.DATABASE, workspaceStorageDao.getLayoutName(PROJECT));
+        assertTrue(mongo.getDatabaseNames().contains(PROJECT));
+        assertEquals(MODIFIED_FILE_CONTENT, workspaceService.getFileContent(FILE_PATH, PROJECT).getContent());
+
+        assertFalse(workspaceStorageDao.migrate(PROJECT, StorageLayout.DATABASE, new MigrationReport(StorageLayout.DATABASE)));
+    }
+}
@@ -7,7 +7,9 @@ import org.junit.runner.RunWith;
 import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.telosystools.saas.Application;
+import org.telosystools.saas.bean.ImportReport;
 import org.telosystools.saas.bean.Path;
 import org.telosystools.saas.config.MongoConfiguration;
 import org.telosystools.saas.dao.FileDao;
@@ -21,6 +23,9 @@ import javax.inject.Inject;
 import java.io.*;
 import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.Assert.*;
 
@@ -53,6 +58,12 @@ public class WorkspaceServiceIntTest {
     @Inject
     WorkspaceServiceImpl workspaceService;
 
+    @Inject
+    QuotaServiceImpl quotaService;
+
+    @Inject
+    WriteBehindBuffer writeBehindBuffer;
+
     WorkspaceDao workspaceDao;
 
     FileDao fileDao;
@@ -315,6 +326,256 @@ public class WorkspaceServiceIntTest {
         workspaceService.getFileContent(FILE_PATH, PROJECT);
     }
 
+    @Test
+    public void testUpdateFileWithSameContent() throws Exception {
+        workspaceService.createFile(FILE_PATH, FILE_CONTENT, PROJECT);
+        String gridFSId = workspaceService.getFileForPath(workspaceDao.load(PROJECT), Path.valueOf(FILE_PATH)).getGridFSId();
+        long skippedWrites = fileDao.getSkippedWrites();
+
+        // Le contenu identique n'est pas réécrit dans GridFS
+        workspaceService.updateFile(FILE_PATH, FILE_CONTENT, PROJECT);
+        assertEquals(gridFSId, workspaceService.getFileForPath(workspaceDao.load(PROJECT), Path.valueOf(FILE_PATH)).getGridFSId());
+        assertEquals(skippedWrites + 1, fileDao.getSkippedWrites());
+
+        workspaceService.updateFile(FILE_PATH, MODIFIED_FILE_CONTENT, PROJECT);
+        assertNotEquals(gridFSId, workspaceService.getFileForPath(workspaceDao.load(PROJECT), Path.valueOf(FILE_PATH)).getGridFSId());
+    }
+
+    @Test
+    public void testWriteBehindUpdate() throws Exception {
+        workspaceService.createFile(FILE_PATH, FILE_CONTENT, PROJECT);
+        writeBehindBuffer.setEnabled(true);
+        try {
+            long coalesced = writeBehindBuffer.getCoalescedWrites();
+            workspaceService.updateFile(FILE_PATH, "first", PROJECT);
+            workspaceService.updateFile(FILE_PATH, MODIFIED_FILE_CONTENT, PROJECT);
+            assertEquals(coalesced + 1, writeBehindBuffer.getCoalescedWrites());
+
+            // Le contenu en attente est lu immédiatement, GridFS n'est pas encore écrit
+            assertEquals(MODIFIED_FILE_CONTENT, workspaceService.getFileContent(FILE_PATH, PROJECT).getContent());
+            File file = workspaceService.getFileForPath(workspaceDao.load(PROJECT), Path.valueOf(FILE_PATH));
+            assertEqualsInputStream(createInputStream(FILE_CONTENT), fileDao.loadContent(file, PROJECT));
+
+            workspaceService.flushPendingWrites(PROJECT);
+            assertEquals(0, writeBehindBuffer.size());
+            file = workspaceService.getFileForPath(workspaceDao.load(PROJECT), Path.valueOf(FILE_PATH));
+            assertEqualsInputStream(createInputStream(MODIFIED_FILE_CONTENT), fileDao.loadContent(file, PROJECT));
+        } finally {
+            writeBehindBuffer.setEnabled(false);
+        }
+    }
+
+    @Test
+    public void testWriteBehindUpdateOverQuota() throws Exception {
+        workspaceService.createFile(FILE_PATH, FILE_CONTENT, PROJECT);
+        Object maxBytes = ReflectionTestUtils.getField(quotaService, "maxBytesPerProject");
+        ReflectionTestUtils.setField(quotaService, "maxBytesPerProject", (long) FILE_CONTENT.getBytes().length + 10);
+        ReflectionTestUtils.setField(quotaService, "enabled", true);
+        writeBehindBuffer.setEnabled(true);
+        try {
+            workspaceService.updateFile(FILE_PATH, FILE_CONTENT + "12345", PROJECT);
+            try {
+                // Chaque mise à jour en attente est contrôlée, pas seulement la première
+                workspaceService.updateFile(FILE_PATH, FILE_CONTENT + "1234567890ABCDEF", PROJECT);
+                fail("Update over quota accepted");
+            } catch (QuotaExceededException e) {
+                assertEquals(FILE_CONTENT + "12345", workspaceService.getFileContent(FILE_PATH, PROJECT).getContent());
+            }
+            workspaceService.flushPendingWrites(PROJECT);
+            assertEquals(0, writeBehindBuffer.size());
+        } finally {
+            writeBehindBuffer.setEnabled(false);
+            ReflectionTestUtils.setField(quotaService, "enabled", false);
+            ReflectionTestUtils.setField(quotaService, "maxBytesPerProject", maxBytes);
+        }
+    }
+
+    @Test
+    public void testRevision() throws Exception {
+        long revision = workspaceService.getRevision(PROJECT);
+
+        // Chaque changement enregistré incrémente la révision
+        workspaceService.createFile(FILE_PATH, FILE_CONTENT, PROJECT);
+        assertEquals(revision + 1, workspaceService.getRevision(PROJECT));
+        workspaceService.updateFile(FILE_PATH, MODIFIED_FILE_CONTENT, PROJECT);
+        assertEquals(revision + 2, workspaceService.getRevision(PROJECT));
+        // Un contenu identique n'est pas un changement
+        workspaceService.updateFileNow(FILE_PATH, MODIFIED_FILE_CONTENT, PROJECT);
+        assertEquals(revision + 2, workspaceService.getRevision(PROJECT));
+
+        // Un import réserve une révision par fichier et par dossier créés
+        byte[] archive = buildArchive("bundle/", "bundle/bean.vm", "readme.txt");
+        ImportReport report = workspaceService.importArchive(Workspace.TEMPLATES, new ByteArrayInputStream(archive), PROJECT);
+        assertEquals(revision + 2 + report.getFiles() + report.getFolders(), workspaceService.getRevision(PROJECT));
+        final long imported = workspaceService.getRevision(PROJECT);
+        report = workspaceService.importArchive(Workspace.TEMPLATES, new ByteArrayInputStream(archive), PROJECT);
+        assertEquals(report.getFiles(), report.getUnchangedFiles());
+        assertEquals(imported, workspaceService.getRevision(PROJECT));
+
+        workspaceService.deleteWorkspace(PROJECT);
+        assertEquals(0, workspaceService.getRevision(PROJECT));
+    }
+
+    @Test
+    public void testImportArchive() throws Exception {
+        workspaceService.createFile(Workspace.TEMPLATES + "/bean.vm", FILE_CONTENT, PROJECT);
+        byte[] archive = buildArchive("bundle/", "bundle/dao/dao.vm", "bundle/bean.vm", "bean.vm");
+
+        ImportReport report = workspaceService.importArchive(Workspace.TEMPLATES, new ByteArrayInputStream(archive), PROJECT);
+        assertEquals(3, report.getFiles());
+        assertEquals(1, report.getReplacedFiles());
+        assertEquals(0, report.getUnchangedFiles());
+        assertEquals(2, report.getFolders());
+
+        Workspace workspace = workspaceDao.load(PROJECT);
+        assertNotNull(workspaceService.getFolderForPath(workspace, Path.valueOf(Workspace.TEMPLATES + "/bundle/dao")));
+        FileData actual = workspaceService.getFileContent(Workspace.TEMPLATES + "/bundle/dao/dao.vm", PROJECT);
+        assertEquals("bundle/dao/dao.vm", actual.getContent());
+        assertEquals("bean.vm", workspaceService.getFileContent(Workspace.TEMPLATES + "/bean.vm", PROJECT).getContent());
+    }
+
+    @Test(expected = InvalidPathException.class)
+    public void testImportArchiveOutsideFolder() throws Exception {
+        byte[] archive = buildArchive("../bean.vm");
+        workspaceService.importArchive(Workspace.TEMPLATES, new ByteArrayInputStream(archive), PROJECT);
+    }
+
+    @Test
+    public void testImportInvalidArchive() throws Exception {
+        workspaceService.createFile(Workspace.TEMPLATES + "/bean.vm", FILE_CONTENT, PROJECT);
+        final int contents = fileDao.listContents(PROJECT, null, new Date(), 1000).size();
+        byte[] archive = buildArchive("bean.vm", "bundle/dao.vm", "../bean.vm");
+        try {
+            workspaceService.importArchive(Workspace.TEMPLATES, new ByteArrayInputStream(archive), PROJECT);
+            fail("Invalid entry imported");
+        } catch (InvalidPathException e) {
+            // Rien n'est écrit : le fichier existant garde son contenu, aucun contenu orphelin
+        }
+        assertEquals(FILE_CONTENT, workspaceService.getFileContent(Workspace.TEMPLATES + "/bean.vm", PROJECT).getContent());
+        assertNull(workspaceService.getFolderForPath(workspaceDao.load(PROJECT), Path.valueOf(Workspace.TEMPLATES + "/bundle")));
+        assertEquals(contents, fileDao.listContents(PROJECT, null, new Date(), 1000).size());
+    }
+
+    @Test
+    public void testStats() throws Exception {
+        workspaceService.createFolder(FOLDER_PATH, PROJECT);
+        workspaceService.createFolder(SUBFOLDER_PATH, PROJECT);
+        workspaceService.createFile(SUBFOLDER_PATH + "/" + FILE_NAME, FILE_CONTENT, PROJECT);
+        workspaceService.createFile(FILE_PATH, FILE_CONTENT, PROJECT);
+        workspaceService.updateFile(FILE_PATH, MODIFIED_FILE_CONTENT, PROJECT);
+        workspaceService.renameFile(FILE_PATH, MODIFIED_FILE_NAME, PROJECT);
+
+        Workspace workspace = workspaceDao.load(PROJECT);
+        FolderStats model = workspace.getModel().getStats();
+        assertEquals(workspace.getModel().computeStats(), model);
+        assertEquals(1, model.getFiles());
+        assertEquals(MODIFIED_FILE_CONTENT.getBytes().length, model.getBytes());
+        assertTrue(model.getExtensions().containsKey(File.FILE_EXTENSION_UNKNOWN));
+        assertEquals(workspace.getGenerated().computeStats(), workspace.getGenerated().getStats());
+        assertEquals(2, workspace.getGenerated().getStats().getFolders());
+
+        workspaceService.removeFolder(FOLDER_PATH, PROJECT);
+        assertEquals(new FolderStats(), workspaceService.getStats(PROJECT).getRootFolders().get(Workspace.GENERATED));
+        assertEquals(1, workspaceService.getStats(PROJECT).getTotal().getFiles());
+    }
+
+    @Test
+    public void testStatsOfLegacyWorkspace() throws Exception {
+        workspaceService.createFile(FILE_PATH, FILE_CONTENT, PROJECT);
+        Workspace workspace = workspaceDao.load(PROJECT);
+        workspace.getModel().setStats(null);
+        workspaceService.getFileForPath(workspace, Path.valueOf(FILE_PATH)).setSize(null);
+        workspaceDao.save(workspace, PROJECT);
+
+        FolderStats model = workspaceService.getWorkspace(PROJECT).getModel().getStats();
+        assertEquals(1, model.getFiles());
+        assertEquals(FILE_CONTENT.getBytes().length, model.getBytes());
+        assertNotNull(workspaceDao.load(PROJECT).getModel().getStats());
+    }
+
+    @Test(expected = QuotaExceededException.class)
+    public void testCreateFileOverQuota() throws Exception {
+        workspaceService.createFile(FILE_PATH, FILE_CONTENT, PROJECT);
+        Object maxFiles = ReflectionTestUtils.getField(quotaService, "maxFilesPerProject");
+        ReflectionTestUtils.setField(quotaService, "maxFilesPerProject", 1L);
+        ReflectionTestUtils.setField(quotaService, "enabled", true);
+        try {
+            workspaceService.createFile(Workspace.MODEL + "/" + MODIFIED_FILE_NAME, FILE_CONTENT, PROJECT);
+        } finally {
+            ReflectionTestUtils.setField(quotaService, "enabled", false);
+            ReflectionTestUtils.setField(quotaService, "maxFilesPerProject", maxFiles);
+        }
+    }
+
+    @Test(expected = QuotaExceededException.class)
+    public void testCreateFolderTooDeep() throws Exception {
+        Object maxDepth = ReflectionTestUtils.getField(quotaService, "maxDepth");
+        ReflectionTestUtils.setField(quotaService, "maxDepth", 2);
+        ReflectionTestUtils.setField(quotaService, "enabled", true);
+        try {
+            workspaceService.createFolder(SUBFOLDER_PATH, PROJECT);
+        } finally {
+            ReflectionTestUtils.setField(quotaService, "enabled", false);
+            ReflectionTestUtils.setField(quotaService, "maxDepth", maxDepth);
+        }
+    }
+
+    @Test
+    public void testQuotaDisabled() throws Exception {
+        Object maxDepth = ReflectionTestUtils.getField(quotaService, "maxDepth");
+        ReflectionTestUtils.setField(quotaService, "maxDepth", 2);
+        try {
+            // Les quotas ne sont contrôlés que s'ils sont activés
+            workspaceService.createFolder(SUBFOLDER_PATH, PROJECT);
+        } finally {
+            ReflectionTestUtils.setField(quotaService, "maxDepth", maxDepth);
+        }
+    }
+
+    @Test
+    public void testCloneWorkspace() throws Exception {
+        workspaceService.createFile(FILE_PATH, FILE_CONTENT, PROJECT);
+        String otherPath = Workspace.MODEL + "/" + MODIFIED_FILE_NAME;
+        workspaceService.createFile(otherPath, FILE_CONTENT, PROJECT);
+        try {
+            workspaceService.cloneWorkspace(PROJECT, PROJECT2);
+            File cloned = workspaceService.getFileForPath(workspaceDao.load(PROJECT2), Path.valueOf(FILE_PATH));
+            assertEquals(PROJECT, cloned.getBlobDatabase());
+            assertEquals(FILE_CONTENT, workspaceService.getFileContent(FILE_PATH, PROJECT2).getContent());
+
+            // Copie à l'écriture
+            workspaceService.updateFile(FILE_PATH, MODIFIED_FILE_CONTENT, PROJECT2);
+            assertEquals(FILE_CONTENT, workspaceService.getFileContent(FILE_PATH, PROJECT).getContent());
+            assertEquals(MODIFIED_FILE_CONTENT, workspaceService.getFileContent(FILE_PATH, PROJECT2).getContent());
+
+            // L'arbre source n'est pas réécrit : ses écritures conservent les contenus partagés
+            assertFalse(workspaceService.getFileForPath(workspaceDao.load(PROJECT), Path.valueOf(otherPath)).isShared());
+            workspaceService.updateFile(otherPath, MODIFIED_FILE_CONTENT, PROJECT);
+            workspaceService.updateFile(otherPath, FILE_CONTENT, PROJECT);
+            assertEquals(FILE_CONTENT, workspaceService.getFileContent(otherPath, PROJECT2).getContent());
+
+            // Les contenus encore partagés survivent à la suppression de la source
+            workspaceService.deleteWorkspace(PROJECT);
+            assertNull(workspaceDao.load(PROJECT));
+            assertEquals(FILE_CONTENT, workspaceService.getFileContent(otherPath, PROJECT2).getContent());
+        } finally {
+            workspaceService.deleteWorkspace(PROJECT2);
+        }
+    }
+
+    private byte[] buildArchive(String... entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (String entry : entries) {
+                zip.putNextEntry(new ZipEntry(entry));
+                if (!entry.endsWith("/")) {
+                    zip.write(entry.getBytes(StandardCharsets.UTF_8));
+                }
+                zip.closeEntry();
+            }
+        }
+        return out.toByteArray();
+    }
 
     private Workspace buildWorkspace() {
         Workspace workspace = new Workspace();
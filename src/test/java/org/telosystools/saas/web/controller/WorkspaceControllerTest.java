@@ -14,6 +14,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.telosystools.saas.Application;
+import org.telosystools.saas.bean.PathMatch;
 import org.telosystools.saas.config.MongoConfiguration;
 import org.telosystools.saas.domain.filesystem.FileData;
 import org.telosystools.saas.domain.filesystem.Folder;
@@ -134,6 +135,41 @@ public class WorkspaceControllerTest {
         assertEquals(filePath, rootFolder.getFiles().get("model_1+xml").getAbsolutePath());
     }
 
+    /*
+      find : recherche rapide par nom -> meilleurs résultats en premier
+    */
+    @Test
+    public void testFind() throws Exception {
+        // Given
+        Project project = new Project();
+        project.setName("New Project");
+        String projectID = projectService.createProject(project).getId();
+        workspaceService.createFolder("templates/bean", projectID);
+        workspaceService.createFile("templates/bean/bean.vm", "", projectID);
+        workspaceService.createFile("templates/bean/beanTest.vm", "", projectID);
+        workspaceService.createFile("model/Book.entity", "", projectID);
+
+        // When
+        MvcResult mvcResult = this.mockMvc.perform(get("/projects/" + projectID + "/workspace/find?name=bean"))
+                // Then
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String jsonContent = mvcResult.getResponse().getContentAsString();
+        PathMatch[] matches = mapper.readValue(jsonContent, PathMatch[].class);
+        assertEquals(3, matches.length);
+        assertEquals("templates/bean", matches[0].getPath());
+        assertTrue(matches[0].isFolder());
+
+        workspaceService.removeFolder("templates/bean", projectID);
+        mvcResult = this.mockMvc.perform(get("/projects/" + projectID + "/workspace/find?name=bk"))
+                .andExpect(status().isOk())
+                .andReturn();
+        matches = mapper.readValue(mvcResult.getResponse().getContentAsString(), PathMatch[].class);
+        assertEquals(1, matches.length);
+        assertEquals("model/Book.entity", matches[0].getPath());
+    }
+
     @Test
     public void testCreateFile_ProjectNotFound() throws Exception {
         // Given